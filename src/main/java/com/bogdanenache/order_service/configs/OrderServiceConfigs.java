@@ -1,7 +1,25 @@
 package com.bogdanenache.order_service.configs;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import java.time.Duration;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -10,14 +28,103 @@ import org.springframework.web.client.RestTemplate;
 @Configuration
 public class OrderServiceConfigs {
 
+    private static final String ACQUIRE_START = "order-service.connection-acquire-start";
+
+    /**
+     * Creates the pool of connections to the price feed and publishes its utilisation metrics.
+     *
+     * @param meterRegistry the registry where the pool metrics are published
+     * @param maxTotal the maximum number of open connections
+     * @param maxPerRoute the maximum number of open connections to a single host
+     * @param connectTimeout the timeout for establishing a connection
+     * @param readTimeout the socket timeout while waiting for data
+     * @param timeToLive the time after which a kept-alive connection is not reused any more
+     * @return the pooling connection manager
+     */
+    @Bean
+    public PoolingHttpClientConnectionManager priceFeedConnectionManager(MeterRegistry meterRegistry,
+            @Value("${order-service.http-client.max-total:200}") int maxTotal,
+            @Value("${order-service.http-client.max-per-route:100}") int maxPerRoute,
+            @Value("${order-service.http-client.connect-timeout:500ms}") Duration connectTimeout,
+            @Value("${order-service.http-client.read-timeout:2s}") Duration readTimeout,
+            @Value("${order-service.http-client.time-to-live:5m}") Duration timeToLive) {
+        final PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setTimeToLive(TimeValue.of(timeToLive))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "price-feed").bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    /**
+     * Creates the HTTP client used to call the price feed.
+     * Time spent leasing a connection from the pool, including connecting a new one, is recorded
+     * in the price.feed.http.connection.acquire timer.
+     *
+     * @param connectionManager the pool of connections to the price feed
+     * @param meterRegistry the registry where the connection acquisition time is published
+     * @param poolWaitTimeout the maximum time a request waits for a free connection
+     * @param responseTimeout the maximum time a request waits for the response to start
+     * @param idleTimeout the time after which idle connections are closed
+     * @return the pooled HTTP client
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient priceFeedHttpClient(PoolingHttpClientConnectionManager connectionManager,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.http-client.pool-wait-timeout:250ms}") Duration poolWaitTimeout,
+            @Value("${order-service.http-client.response-timeout:2s}") Duration responseTimeout,
+            @Value("${order-service.http-client.idle-timeout:30s}") Duration idleTimeout) {
+        final Timer acquireTimer = Timer.builder("price.feed.http.connection.acquire")
+                .description("Time spent waiting for and establishing a price feed connection")
+                .register(meterRegistry);
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolWaitTimeout))
+                        .setResponseTimeout(Timeout.of(responseTimeout))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleTimeout))
+                .addExecInterceptorBefore(ChainElement.CONNECT.name(), "acquire-start", (request, scope, chain) -> {
+                    scope.clientContext.setAttribute(ACQUIRE_START, System.nanoTime());
+                    return chain.proceed(request, scope);
+                })
+                .addExecInterceptorAfter(ChainElement.CONNECT.name(), "acquire-end", (request, scope, chain) -> {
+                    if (scope.clientContext.getAttribute(ACQUIRE_START) instanceof Long start) {
+                        acquireTimer.record(Duration.ofNanos(System.nanoTime() - start));
+                    }
+                    return chain.proceed(request, scope);
+                })
+                .build();
+    }
+
     /**
-     * Creates and provides a RestTemplate bean for making REST API calls.
+     * Creates and provides a RestTemplate bean for making REST API calls,
+     * backed by the pooled price feed HTTP client.
+     * Only server errors are raised as exceptions; client errors such as an unknown symbol
+     * are returned as responses so callers can handle them without building a stack trace.
      *
+     * @param restTemplateBuilder the builder applying the auto-configured customizations and metrics
+     * @param priceFeedHttpClient the pooled HTTP client
      * @return a new instance of RestTemplate
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder, CloseableHttpClient priceFeedHttpClient) {
+        return restTemplateBuilder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(priceFeedHttpClient))
+                .errorHandler(new DefaultResponseErrorHandler() {
+                    @Override
+                    protected boolean hasError(HttpStatusCode statusCode) {
+                        return statusCode.is5xxServerError();
+                    }
+                })
+                .build();
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package com.bogdanenache.order_service.configs;
+
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out primary connections unless the current thread explicitly asked for the replica.
+ * Reads opt in with {@link #onReplica(Supplier)}; everything else, including Spring Data's implicit
+ * read-only transactions used by the idempotency checks, stays on the primary and sees its own writes.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final ThreadLocal<Boolean> REPLICA = new ThreadLocal<>();
+
+    /**
+     * Creates the routing data source.
+     *
+     * @param primary the data source writes and consistent reads use
+     * @param replica the data source reads that tolerate replication lag use
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * Runs a read on the replica. Connections opened by the read, including the one of a transaction
+     * it starts, come from the replica pool; a connection the thread already holds is reused as it is.
+     *
+     * @param read the read to run
+     * @param <T> the type of the result
+     * @return the result of the read
+     */
+    public static <T> T onReplica(Supplier<T> read) {
+        final Boolean previous = REPLICA.get();
+        REPLICA.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) {
+                REPLICA.remove();
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return Boolean.TRUE.equals(REPLICA.get()) ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    private enum Target {
+        PRIMARY,
+        REPLICA
+    }
+}
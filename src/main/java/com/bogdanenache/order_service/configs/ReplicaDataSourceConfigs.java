@@ -0,0 +1,87 @@
+package com.bogdanenache.order_service.configs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Splits database traffic between the primary and a read replica when order-service.replica.enabled is set.
+ * Both pools are Hikari pools sized independently, so polling reads cannot exhaust the connections order entry needs.
+ * Without a replica the data source is auto-configured as usual and every read goes to the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "order-service.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfigs {
+
+    /**
+     * Creates the pool of connections to the primary, configured by spring.datasource.
+     *
+     * @param connectionDetails the connection details of a service connection, if any
+     * @param properties the spring.datasource properties used when there is no service connection
+     * @return the primary pool
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(ObjectProvider<JdbcConnectionDetails> connectionDetails,
+            DataSourceProperties properties) {
+        final JdbcConnectionDetails details = connectionDetails.getIfAvailable();
+        final HikariDataSource dataSource = details == null
+                ? properties.initializeDataSourceBuilder().type(HikariDataSource.class).build()
+                : DataSourceBuilder.create()
+                        .type(HikariDataSource.class)
+                        .url(details.getJdbcUrl())
+                        .username(details.getUsername())
+                        .password(details.getPassword())
+                        .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * Creates the pool of read-only connections to the replica.
+     *
+     * @param url the JDBC url of the replica
+     * @param username the user connecting to the replica
+     * @param password the password of the user
+     * @return the replica pool
+     */
+    @Bean
+    @ConfigurationProperties("order-service.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${order-service.replica.url}") String url,
+            @Value("${order-service.replica.username}") String username,
+            @Value("${order-service.replica.password}") String password) {
+        final HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    /**
+     * Creates the data source used by JPA, JDBC and Flyway, routing to the primary unless a read opted into the replica.
+     *
+     * @param primaryDataSource the primary pool
+     * @param replicaDataSource the replica pool
+     * @return the routing data source
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+            @Qualifier("replicaDataSource") HikariDataSource replicaDataSource) {
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource);
+    }
+}
@@ -1,7 +1,9 @@
 package com.bogdanenache.order_service.dao.entity;
 
+import com.bogdanenache.order_service.dto.FixedPrice;
 import jakarta.persistence.AttributeOverride;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
@@ -10,9 +12,9 @@ import jakarta.persistence.OneToOne;
 import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Version;
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.UUID;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -32,18 +34,20 @@ public class Execution {
 
     @Id
     @GeneratedValue(generator = "exc_id_generator")
-    @SequenceGenerator(name = "exc_id_generator", sequenceName = "SEQ_EXC_ID", allocationSize = 1)
+    @SequenceGenerator(name = "exc_id_generator", sequenceName = "SEQ_EXC_ID", allocationSize = 50)
     @Column(name = "exc_id", nullable = false, length = 10, insertable = false, updatable = false)
     @Setter(AccessLevel.NONE)
     private Long excId;
 
     @Column(name = "exc_internal_id", length = 36, nullable = false)
-    private String internalId;
+    private UUID internalId;
 
-    @Column(name = "exc_price", length = 20, nullable = false)
-    private BigDecimal price;
+    @Convert(converter = FixedPriceConverter.class)
+    @Column(name = "exc_price", precision = 18, scale = FixedPrice.SCALE, nullable = false)
+    private long price;
 
     @OneToOne
+    @ToString.Exclude
     @JoinColumn(name = "ord_order_id", nullable = false)
     private Order order;
 
@@ -54,4 +58,10 @@ public class Execution {
     @Column(name = "exc_created")
     private Instant createdAt;
 
+    @Column(name = "exc_price_timestamp")
+    private Instant priceTimestamp;
+
+    @Column(name = "exc_price_age_ms", length = 10)
+    private Long priceAgeMs;
+
 }
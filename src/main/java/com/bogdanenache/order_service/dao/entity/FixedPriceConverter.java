@@ -0,0 +1,23 @@
+package com.bogdanenache.order_service.dao.entity;
+
+import com.bogdanenache.order_service.dto.FixedPrice;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.math.BigDecimal;
+
+/**
+ * Maps a fixed-point price to the NUMERIC price column and back.
+ */
+@Converter
+public class FixedPriceConverter implements AttributeConverter<Long, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Long price) {
+        return price == null ? null : FixedPrice.toBigDecimal(price);
+    }
+
+    @Override
+    public Long convertToEntityAttribute(BigDecimal price) {
+        return price == null ? null : FixedPrice.of(price);
+    }
+}
@@ -0,0 +1,55 @@
+package com.bogdanenache.order_service.dao.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import java.time.Instant;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * The serialized response returned for an idempotency key, replayed when the same key is used again.
+ * Always inserted, never updated, so saving it does not need a lookup first.
+ */
+@Entity
+@Getter
+@Setter
+@SuperBuilder
+@NoArgsConstructor
+@Table(name = IdempotentResponse.TABLE)
+public class IdempotentResponse implements Persistable<String> {
+
+    /**
+     * Name of the table responses are stored in, one row per idempotency key.
+     */
+    public static final String TABLE = "IDEMPOTENT_RESPONSES";
+
+    @Id
+    @Column(name = "IDR_IDEMPOTENCY_KEY", length = 36, nullable = false)
+    private String idempotencyKey;
+
+    @Column(name = "IDR_STATUS", length = 3, nullable = false)
+    private int status;
+
+    @Column(name = "IDR_BODY", nullable = false)
+    private byte[] body;
+
+    @Column(name = "IDR_CREATED", nullable = false)
+    private Instant createdAt;
+
+    @Override
+    public String getId() {
+        return idempotencyKey;
+    }
+
+    @Override
+    @Transient
+    public boolean isNew() {
+        return true;
+    }
+}
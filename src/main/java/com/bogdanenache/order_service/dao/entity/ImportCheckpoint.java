@@ -0,0 +1,41 @@
+package com.bogdanenache.order_service.dao.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Progress of a bulk order import. It is updated in the transaction that copies a chunk of orders,
+ * so the number of records it holds is always exactly the number of input records already loaded or rejected,
+ * and an interrupted import resumes after them.
+ */
+@Entity
+@Getter
+@Setter
+@SuperBuilder
+@NoArgsConstructor
+@Table(name = "IMPORT_CHECKPOINTS")
+public class ImportCheckpoint {
+
+    @Id
+    @Column(name = "ICP_IMPORT_ID", length = 64, nullable = false)
+    private String importId;
+
+    @Column(name = "ICP_RECORDS", nullable = false)
+    private long records;
+
+    @Column(name = "ICP_IMPORTED", nullable = false)
+    private long imported;
+
+    @Column(name = "ICP_REJECTED", nullable = false)
+    private long rejected;
+
+    @Column(name = "ICP_UPDATED", nullable = false)
+    private Instant updatedAt;
+}
@@ -8,12 +8,14 @@ import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Version;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.UUID;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -28,18 +30,19 @@ import lombok.experimental.SuperBuilder;
 @NoArgsConstructor
 @ToString
 @AttributeOverride(name = "version", column = @Column(name = "ord_version"))
-@Table(name = "ORDERS")
+@Table(name = "ORDERS",
+        indexes = @Index(name = "IDX_ORD_ACCOUNT_CREATED", columnList = "ORD_ACCOUNT_ID, ORD_CREATED DESC, ORD_ID DESC"))
 public class Order {
 
     @Id
     @GeneratedValue(generator = "ord_id_generator")
-    @SequenceGenerator(name = "ord_id_generator", sequenceName = "SEQ_ORD_ID", allocationSize = 1)
+    @SequenceGenerator(name = "ord_id_generator", sequenceName = "SEQ_ORD_ID", allocationSize = 50)
     @Column(name = "ord_id", nullable = false, length = 10, insertable = false, updatable = false)
     @Setter(AccessLevel.NONE)
     private Long ordId;
 
     @Column(name = "ord_internal_id", length = 36, nullable = false)
-    private String orderInternalId;
+    private UUID orderInternalId;
 
     @Column(name = "ord_account_id", length = 36, nullable = false)
     private String accountId;
@@ -68,13 +71,14 @@ public class Order {
     @Column(name = "ord_created")
     private Instant createdAt;
 
-    @Column(name = "ORD_IDEMPOTENCY_KEY", unique = true)
+    @Column(name = "ORD_IDEMPOTENCY_KEY")
     private String idempotencyKey;
 
 
     public enum OrderStatus {
         PROCESSED,
-        FAILED
+        FAILED,
+        PENDING
     }
 
     public enum OrderSide {
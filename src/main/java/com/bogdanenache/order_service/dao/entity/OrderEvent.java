@@ -0,0 +1,55 @@
+package com.bogdanenache.order_service.dao.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * An order event waiting in the ORDER_OUTBOX table to be published. It is inserted in the transaction that
+ * saves the order, so an event exists exactly when the order was committed, and deleted once published.
+ * Rows are written and relayed in batches through {@link com.bogdanenache.order_service.dao.repository.OrderEventRepository}.
+ */
+@Entity
+@Getter
+@Setter
+@SuperBuilder
+@NoArgsConstructor
+@Table(name = "ORDER_OUTBOX")
+public class OrderEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "OBX_ID", nullable = false, updatable = false)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "OBX_TYPE", length = 20, nullable = false)
+    private EventType type;
+
+    @Column(name = "OBX_ORDER_INTERNAL_ID", nullable = false)
+    private UUID orderInternalId;
+
+    @Column(name = "OBX_ACCOUNT_ID", length = 36, nullable = false)
+    private String accountId;
+
+    @Column(name = "OBX_PAYLOAD", nullable = false)
+    private byte[] payload;
+
+    @Column(name = "OBX_CREATED", nullable = false)
+    private Instant createdAt;
+
+    public enum EventType {
+        ORDER_CREATED
+    }
+}
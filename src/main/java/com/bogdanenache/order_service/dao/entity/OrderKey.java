@@ -0,0 +1,73 @@
+package com.bogdanenache.order_service.dao.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.UniqueConstraint;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * The idempotency key and creation time of an order, kept outside the partitioned ORDERS table.
+ * A unique constraint on a partitioned table must include the partition key, so the one order per idempotency key
+ * rule is enforced here; the creation time lets a read by internal id scan only the partition holding the order.
+ * Always inserted, never updated, so saving it does not need a lookup first.
+ */
+@Entity
+@Getter
+@Setter
+@SuperBuilder
+@NoArgsConstructor
+@Table(name = "ORDER_KEYS",
+        uniqueConstraints = @UniqueConstraint(name = OrderKey.IDEMPOTENCY_KEY_CONSTRAINT, columnNames = "ORK_IDEMPOTENCY_KEY"),
+        indexes = @Index(name = "IDX_ORK_CREATED", columnList = "ORK_CREATED"))
+public class OrderKey implements Persistable<UUID> {
+
+    /**
+     * Name of the unique constraint enforcing one order per idempotency key.
+     */
+    public static final String IDEMPOTENCY_KEY_CONSTRAINT = "UQ_ORD_IDEMPOTENCY_KEY";
+
+    @Id
+    @Column(name = "ORK_ORDER_INTERNAL_ID", length = 36, nullable = false)
+    private UUID orderInternalId;
+
+    @Column(name = "ORK_IDEMPOTENCY_KEY", length = 36, nullable = false)
+    private String idempotencyKey;
+
+    @Column(name = "ORK_CREATED", nullable = false)
+    private Instant createdAt;
+
+    /**
+     * Creates the key row of an order.
+     *
+     * @param order the order
+     * @return the key row
+     */
+    public static OrderKey of(Order order) {
+        return OrderKey.builder()
+                .orderInternalId(order.getOrderInternalId())
+                .idempotencyKey(order.getIdempotencyKey())
+                .createdAt(order.getCreatedAt())
+                .build();
+    }
+
+    @Override
+    public UUID getId() {
+        return orderInternalId;
+    }
+
+    @Override
+    @Transient
+    public boolean isNew() {
+        return true;
+    }
+}
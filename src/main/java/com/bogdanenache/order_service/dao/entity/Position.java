@@ -0,0 +1,69 @@
+package com.bogdanenache.order_service.dao.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Running totals of the orders of an account in one symbol. The totals only ever grow, so placing an order adds
+ * its quantity and notional with an upsert that never reads the row first, and the net quantity and the
+ * volume-weighted average price are derived from them when the position is read.
+ * Notionals are quantity times execution price, at the scale of the execution price.
+ */
+@Entity
+@Getter
+@Setter
+@SuperBuilder
+@NoArgsConstructor
+@IdClass(Position.Key.class)
+@Table(name = "POSITIONS")
+public class Position {
+
+    @Id
+    @Column(name = "POS_ACCOUNT_ID", length = 36, nullable = false)
+    private String accountId;
+
+    @Id
+    @Column(name = "POS_SYMBOL", length = 20, nullable = false)
+    private String symbol;
+
+    @Column(name = "POS_BOUGHT_QUANTITY", nullable = false)
+    private long boughtQuantity;
+
+    @Column(name = "POS_BOUGHT_NOTIONAL", precision = 38, scale = 6, nullable = false)
+    private BigDecimal boughtNotional;
+
+    @Column(name = "POS_SOLD_QUANTITY", nullable = false)
+    private long soldQuantity;
+
+    @Column(name = "POS_SOLD_NOTIONAL", precision = 38, scale = 6, nullable = false)
+    private BigDecimal soldNotional;
+
+    @Column(name = "POS_UPDATED", nullable = false)
+    private Instant updatedAt;
+
+    /**
+     * Primary key of a position.
+     */
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+
+        private String accountId;
+
+        private String symbol;
+    }
+}
@@ -0,0 +1,300 @@
+package com.bogdanenache.order_service.dao.migration;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves ORDERS, EXECUTIONS and ORDER_KEYS to compact column types while instances of the previous version keep writing:
+ * internal ids become native uuid, ids bigint, quantity and versions integer and the price NUMERIC(18, 6).
+ * Changing a column type in place rewrites the table under an exclusive lock, so instead every retyped column
+ * gets a shadow column that a trigger fills on insert, existing rows are backfilled in small committed batches,
+ * NOT NULL is proven with validated check constraints and the indexes on the shadow columns are built
+ * concurrently partition by partition. Only the final swap, which drops the old columns and renames the
+ * shadow ones, takes an exclusive lock, and it only changes the catalog.
+ * Client supplied idempotency keys are not required to be UUIDs and stay CHARACTER VARYING(36).
+ * Every step before the swap can be repeated, so a failed run can be resumed after a Flyway repair.
+ */
+@Slf4j
+@Component
+public class V202610181500__CompactSchema extends BaseJavaMigration {
+
+    /**
+     * Number of rows updated by one backfill statement, each committed on its own.
+     */
+    static final int BACKFILL_BATCH_SIZE = 10_000;
+
+    static final String SCHEMA = "order_service";
+    static final String SHADOW = "_new";
+
+    static final List<CompactedTable> TABLES = List.of(
+            new CompactedTable("orders", "ord_id", "NUMERIC",
+                    List.of(new Retyped("ord_id", "BIGINT", true),
+                            new Retyped("ord_internal_id", "UUID", true),
+                            new Retyped("ord_quantity", "INTEGER", false),
+                            new Retyped("ord_version", "INTEGER", true)),
+                    List.of(new Index("pk_order", "PRIMARY KEY", List.of("ord_id", "ord_created")),
+                            new Index("chk_order_03", "UNIQUE", List.of("ord_internal_id", "ord_created")),
+                            new Index("idx_ord_account_created", null, List.of("ord_account_id", "ord_created DESC", "ord_id DESC")))),
+            new CompactedTable("executions", "exc_id", "NUMERIC",
+                    List.of(new Retyped("exc_id", "BIGINT", true),
+                            new Retyped("exc_internal_id", "UUID", true),
+                            new Retyped("ord_order_id", "BIGINT", true),
+                            new Retyped("exc_price", "NUMERIC(18, 6)", true),
+                            new Retyped("exc_version", "INTEGER", true),
+                            new Retyped("exc_price_age_ms", "BIGINT", false)),
+                    List.of(new Index("pk_execution", "PRIMARY KEY", List.of("exc_id", "exc_created")),
+                            new Index("chk_execution_01", "UNIQUE", List.of("exc_internal_id", "exc_created")),
+                            new Index("idx_exc_order_id", null, List.of("ord_order_id")))),
+            new CompactedTable("order_keys", "ork_order_internal_id", "VARCHAR",
+                    List.of(new Retyped("ork_order_internal_id", "UUID", true)),
+                    List.of(new Index("pk_order_key", "PRIMARY KEY", List.of("ork_order_internal_id")))));
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        // backfill batches and concurrent index builds must each commit on their own
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        final Connection connection = context.getConnection();
+        final JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        for (CompactedTable table : TABLES) {
+            addShadowColumns(jdbc, table);
+        }
+        for (CompactedTable table : TABLES) {
+            backfill(jdbc, table);
+            proveNotNull(jdbc, table);
+            buildIndexes(jdbc, table);
+        }
+        connection.setAutoCommit(false);
+        try {
+            jdbc.execute("SET LOCAL lock_timeout = '10s'");
+            for (CompactedTable table : TABLES) {
+                swap(jdbc, table);
+            }
+            connection.commit();
+        } catch (RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Adds the shadow columns and the trigger copying every inserted or updated row into them.
+     */
+    private void addShadowColumns(JdbcTemplate jdbc, CompactedTable table) {
+        for (Retyped column : table.columns()) {
+            jdbc.execute("ALTER TABLE " + table.qualified() + " ADD COLUMN IF NOT EXISTS " + column.shadow() + " " + column.type());
+        }
+        jdbc.execute("CREATE OR REPLACE FUNCTION " + table.syncFunction() + "() RETURNS TRIGGER LANGUAGE plpgsql AS $$ BEGIN "
+                + table.columns().stream().map(column -> "NEW." + column.shadow() + " := " + column.cast("NEW.") + "; ")
+                        .collect(Collectors.joining())
+                + "RETURN NEW; END $$");
+        jdbc.execute("DROP TRIGGER IF EXISTS " + table.syncTrigger() + " ON " + table.qualified());
+        jdbc.execute("CREATE TRIGGER " + table.syncTrigger() + " BEFORE INSERT OR UPDATE ON " + table.qualified()
+                + " FOR EACH ROW EXECUTE FUNCTION " + table.syncFunction() + "()");
+    }
+
+    /**
+     * Copies the existing rows into the shadow columns, walking the table in key order one committed batch at a time.
+     */
+    private void backfill(JdbcTemplate jdbc, CompactedTable table) {
+        final String set = table.columns().stream()
+                .map(column -> column.shadow() + " = " + column.cast(""))
+                .collect(Collectors.joining(", "));
+        final String batch = "SELECT " + table.key() + " FROM " + table.qualified() + "%s ORDER BY " + table.key()
+                + " LIMIT " + BACKFILL_BATCH_SIZE;
+        final String update = "WITH batch AS (" + batch + "), "
+                + "updated AS (UPDATE " + table.qualified() + " SET " + set + " WHERE " + table.key()
+                + " IN (SELECT " + table.key() + " FROM batch)) "
+                + "SELECT MAX(" + table.key() + ")::TEXT FROM batch";
+        String last = jdbc.queryForObject(update.formatted(""), String.class);
+        long batches = last == null ? 0 : 1;
+        while (last != null) {
+            last = jdbc.queryForObject(update.formatted(" WHERE " + table.key() + " > CAST(? AS " + table.keyType() + ")"),
+                    String.class, last);
+            batches++;
+        }
+        log.info("Backfilled {} in {} batches", table.name(), batches);
+    }
+
+    /**
+     * Proves the shadow columns of required columns are filled with check constraints validated without blocking writes,
+     * so the swap can set them NOT NULL without scanning.
+     */
+    private void proveNotNull(JdbcTemplate jdbc, CompactedTable table) {
+        for (String leaf : leaves(jdbc, table)) {
+            for (Retyped column : table.columns()) {
+                if (column.notNull()) {
+                    final String check = leaf + "_" + column.name() + "_nn";
+                    jdbc.execute("ALTER TABLE " + SCHEMA + "." + leaf + " DROP CONSTRAINT IF EXISTS " + check);
+                    jdbc.execute("ALTER TABLE " + SCHEMA + "." + leaf + " ADD CONSTRAINT " + check
+                            + " CHECK (" + column.shadow() + " IS NOT NULL) NOT VALID");
+                    jdbc.execute("ALTER TABLE " + SCHEMA + "." + leaf + " VALIDATE CONSTRAINT " + check);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the indexes on the shadow columns concurrently, one partition at a time.
+     */
+    private void buildIndexes(JdbcTemplate jdbc, CompactedTable table) {
+        for (String leaf : leaves(jdbc, table)) {
+            for (Index index : table.indexes()) {
+                jdbc.execute("DROP INDEX CONCURRENTLY IF EXISTS " + SCHEMA + "." + index.leafName(leaf));
+                jdbc.execute(index.create(table, leaf, true));
+            }
+        }
+    }
+
+    /**
+     * Replaces the old columns by the shadow columns and declares the constraints and indexes on top of the prebuilt indexes.
+     * Dropping the old columns also drops the constraints and indexes defined on them.
+     */
+    private void swap(JdbcTemplate jdbc, CompactedTable table) {
+        final List<String> leaves = leaves(jdbc, table);
+        jdbc.execute("DROP TRIGGER " + table.syncTrigger() + " ON " + table.qualified());
+        jdbc.execute("DROP FUNCTION " + table.syncFunction() + "()");
+        for (Retyped column : table.columns()) {
+            jdbc.execute("ALTER TABLE " + table.qualified() + " DROP COLUMN " + column.name() + " CASCADE");
+            jdbc.execute("ALTER TABLE " + table.qualified() + " RENAME COLUMN " + column.shadow() + " TO " + column.name());
+        }
+        for (String leaf : leaves) {
+            for (Retyped column : table.columns()) {
+                if (column.notNull()) {
+                    // the validated check proves the column is filled, partitions created since then are empty
+                    jdbc.execute("ALTER TABLE " + SCHEMA + "." + leaf + " ALTER COLUMN " + column.name() + " SET NOT NULL");
+                    jdbc.execute("ALTER TABLE " + SCHEMA + "." + leaf + " DROP CONSTRAINT IF EXISTS " + leaf + "_" + column.name() + "_nn");
+                }
+            }
+            for (Index index : table.indexes()) {
+                jdbc.execute(index.create(table, leaf, false));
+            }
+        }
+        final boolean partitioned = !leaves.equals(List.of(table.name()));
+        for (Retyped column : table.columns()) {
+            if (partitioned && column.notNull()) {
+                jdbc.execute("ALTER TABLE " + table.qualified() + " ALTER COLUMN " + column.name() + " SET NOT NULL");
+            }
+        }
+        for (Index index : table.indexes()) {
+            if (!partitioned) {
+                jdbc.execute(index.constraint() == null
+                        ? "ALTER INDEX " + SCHEMA + "." + index.leafName(table.name()) + " RENAME TO " + index.name()
+                        : "ALTER TABLE " + table.qualified() + " ADD CONSTRAINT " + index.name() + " " + index.constraint()
+                                + " USING INDEX " + index.leafName(table.name()));
+            } else if (index.constraint() != null) {
+                // each partition's index becomes its constraint, which the constraint of the parent then attaches
+                for (String leaf : leaves) {
+                    jdbc.execute("ALTER TABLE " + SCHEMA + "." + leaf + " ADD CONSTRAINT " + index.leafName(leaf) + " "
+                            + index.constraint() + " USING INDEX " + index.leafName(leaf));
+                }
+                jdbc.execute("ALTER TABLE " + table.qualified() + " ADD CONSTRAINT " + index.name() + " " + index.constraint()
+                        + " (" + String.join(", ", index.columns()) + ")");
+            } else {
+                jdbc.execute("CREATE INDEX " + index.name() + " ON ONLY " + table.qualified()
+                        + " (" + String.join(", ", index.columns()) + ")");
+                for (String leaf : leaves) {
+                    jdbc.execute("ALTER INDEX " + SCHEMA + "." + index.name() + " ATTACH PARTITION " + SCHEMA + "." + index.leafName(leaf));
+                }
+            }
+        }
+        log.info("Swapped {} to compact columns", table.name());
+    }
+
+    /**
+     * Returns the partitions holding the rows of a table, or the table itself when it is not partitioned.
+     */
+    private static List<String> leaves(JdbcTemplate jdbc, CompactedTable table) {
+        final List<String> partitions = jdbc.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                + "WHERE i.inhparent = CAST(? AS REGCLASS) ORDER BY c.relname", String.class, table.qualified());
+        return partitions.isEmpty() ? List.of(table.name()) : partitions;
+    }
+
+    /**
+     * A table whose columns are retyped.
+     *
+     * @param name the name of the table
+     * @param key the unique column the backfill walks the table by, in its old type
+     * @param keyType the old type of the key column
+     * @param columns the retyped columns
+     * @param indexes the constraints and indexes covering retyped columns, recreated on the new columns
+     */
+    record CompactedTable(String name, String key, String keyType, List<Retyped> columns, List<Index> indexes) {
+
+        String qualified() {
+            return SCHEMA + "." + name;
+        }
+
+        String syncFunction() {
+            return SCHEMA + "." + name + "_compact_sync";
+        }
+
+        String syncTrigger() {
+            return name + "_compact_sync";
+        }
+
+        boolean isRetyped(String column) {
+            return columns.stream().anyMatch(retyped -> retyped.name().equals(column));
+        }
+    }
+
+    /**
+     * A column and its new type.
+     *
+     * @param name the name of the column
+     * @param type the new type
+     * @param notNull whether the column is required
+     */
+    record Retyped(String name, String type, boolean notNull) {
+
+        String shadow() {
+            return name + SHADOW;
+        }
+
+        String cast(String row) {
+            return "CAST(" + row + name + " AS " + type + ")";
+        }
+    }
+
+    /**
+     * A constraint or plain index covering retyped columns.
+     *
+     * @param name the name of the constraint or index on the table
+     * @param constraint PRIMARY KEY, UNIQUE, or null for a plain index
+     * @param columns the indexed columns with their sort order
+     */
+    record Index(String name, String constraint, List<String> columns) {
+
+        String leafName(String leaf) {
+            return leaf + "_" + name;
+        }
+
+        /**
+         * Creates the index of one partition. Before the swap it is built concurrently on the shadow columns,
+         * during the swap only partitions created in between are still missing it.
+         */
+        String create(CompactedTable table, String leaf, boolean beforeSwap) {
+            final String indexed = columns.stream()
+                    .map(column -> {
+                        final String[] parts = column.split(" ", 2);
+                        final String indexedColumn = beforeSwap && table.isRetyped(parts[0]) ? parts[0] + SHADOW : parts[0];
+                        return parts.length == 1 ? indexedColumn : indexedColumn + " " + parts[1];
+                    })
+                    .collect(Collectors.joining(", "));
+            return "CREATE " + (constraint == null ? "" : "UNIQUE ") + "INDEX " + (beforeSwap ? "CONCURRENTLY " : "")
+                    + "IF NOT EXISTS " + leafName(leaf) + " ON " + SCHEMA + "." + leaf + " (" + indexed + ")";
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.bogdanenache.order_service.dao.repository;
+
+import com.bogdanenache.order_service.dao.entity.IdempotentResponse;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Inserts the responses of placed orders into the IDEMPOTENT_RESPONSES table with one multi-row INSERT.
+ * Responses are inserted in the caller's transaction, next to the orders they answer, so an order is never
+ * committed without the response its retries are answered with.
+ * Must be called inside a transaction; the caller decides when to commit.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotentResponseBatchRepository {
+
+    private static final String INSERT_RESPONSES = "INSERT INTO IDEMPOTENT_RESPONSES (IDR_IDEMPOTENCY_KEY, IDR_STATUS, IDR_BODY, "
+            + "IDR_CREATED) VALUES ";
+    private static final String RESPONSE_ROW = "(?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts responses with one multi-row INSERT.
+     *
+     * @param responses the responses to insert
+     */
+    public void insertAll(List<IdempotentResponse> responses) {
+        if (responses.isEmpty()) {
+            return;
+        }
+        final List<Object> args = new ArrayList<>(responses.size() * 4);
+        for (IdempotentResponse response : responses) {
+            args.add(response.getIdempotencyKey());
+            args.add(response.getStatus());
+            args.add(response.getBody());
+            args.add(response.getCreatedAt().atOffset(ZoneOffset.UTC));
+        }
+        jdbcTemplate.update(INSERT_RESPONSES + String.join(", ", Collections.nCopies(responses.size(), RESPONSE_ROW)), args.toArray());
+    }
+}
@@ -0,0 +1,13 @@
+package com.bogdanenache.order_service.dao.repository;
+
+import com.bogdanenache.order_service.dao.entity.IdempotentResponse;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Stores the responses replayed for reused idempotency keys.
+ */
+@Repository
+public interface IdempotentResponseRepository extends CrudRepository<IdempotentResponse, String> {
+
+}
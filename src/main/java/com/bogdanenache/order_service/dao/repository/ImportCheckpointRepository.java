@@ -0,0 +1,28 @@
+package com.bogdanenache.order_service.dao.repository;
+
+import com.bogdanenache.order_service.dao.entity.ImportCheckpoint;
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Stores the progress of bulk order imports.
+ */
+@Repository
+public interface ImportCheckpointRepository extends CrudRepository<ImportCheckpoint, String> {
+
+    /**
+     * Reads the checkpoint of an import and locks it until the end of the transaction,
+     * so two runs of the same import never load the same chunk.
+     *
+     * @param importId the id of the import
+     * @return the locked checkpoint, or empty if no chunk of the import was loaded yet
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from ImportCheckpoint c where c.importId = :importId")
+    Optional<ImportCheckpoint> findForUpdate(@Param("importId") String importId);
+}
@@ -0,0 +1,226 @@
+package com.bogdanenache.order_service.dao.repository;
+
+import com.bogdanenache.order_service.dao.entity.Execution;
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.entity.Order.OrderSide;
+import com.bogdanenache.order_service.dao.entity.Order.OrderStatus;
+import com.bogdanenache.order_service.dto.FixedPrice;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Writes many orders and their executions with one multi-row INSERT per table.
+ * Orders whose idempotency key is already used are skipped atomically by the insert of their ORDER_KEYS rows.
+ * Ids are taken from the same SEQ_ORD_ID and SEQ_EXC_ID blocks Hibernate uses, so rows written here
+ * and rows written through {@link OrderRepository} never share an id.
+ * Orders accepted before they were priced are completed here too, a batch at a time.
+ * Must be called inside a transaction; the caller decides when to commit.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderBatchRepository {
+
+    /**
+     * Number of ids reserved by one nextval, the allocationSize of the Order and Execution id generators.
+     */
+    static final int ID_BLOCK_SIZE = 50;
+
+    private static final String INSERT_KEYS = "INSERT INTO ORDER_KEYS (ORK_ORDER_INTERNAL_ID, ORK_IDEMPOTENCY_KEY, ORK_CREATED) VALUES ";
+    private static final String KEY_ROW = "(?, ?, ?)";
+    private static final String SKIP_USED_KEYS = " ON CONFLICT (ORK_IDEMPOTENCY_KEY) DO NOTHING RETURNING ORK_ORDER_INTERNAL_ID";
+    private static final String INSERT_ORDERS = "INSERT INTO ORDERS (ORD_ID, ORD_INTERNAL_ID, ORD_ACCOUNT_ID, ORD_SYMBOL, "
+            + "ORD_SIDE, ORD_QUANTITY, ORD_STATUS, ORD_CREATED, ORD_VERSION, ORD_IDEMPOTENCY_KEY) VALUES ";
+    private static final String ORDER_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_EXECUTIONS = "INSERT INTO EXECUTIONS (EXC_ID, EXC_INTERNAL_ID, ORD_ORDER_ID, EXC_PRICE, "
+            + "EXC_CREATED, EXC_VERSION, EXC_PRICE_TIMESTAMP, EXC_PRICE_AGE_MS) VALUES ";
+    private static final String EXECUTION_ROW = "(?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String COMPLETE_ORDERS = "UPDATE ORDERS O SET ORD_STATUS = C.STATUS, ORD_VERSION = O.ORD_VERSION + 1 FROM (VALUES ";
+    private static final String COMPLETED_ROW = "(?, ?, ?)";
+    private static final String ONLY_PENDING = ") AS C (INTERNAL_ID, CREATED, STATUS) WHERE O.ORD_INTERNAL_ID = C.INTERNAL_ID "
+            + "AND O.ORD_CREATED = C.CREATED AND O.ORD_STATUS = 'PENDING' RETURNING O.ORD_INTERNAL_ID, O.ORD_ID";
+    private static final String SELECT_PENDING = "SELECT ORD_ID, ORD_INTERNAL_ID, ORD_ACCOUNT_ID, ORD_SYMBOL, ORD_SIDE, ORD_QUANTITY, "
+            + "ORD_CREATED, ORD_VERSION, ORD_IDEMPOTENCY_KEY FROM ORDERS WHERE ORD_STATUS = 'PENDING' "
+            + "AND (ORD_CREATED, ORD_ID) > (?, ?) ORDER BY ORD_CREATED, ORD_ID LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the orders and the executions attached to them, skipping orders whose idempotency key is already used.
+     * The keys are claimed first; only the orders whose key row was inserted are written, then their executions.
+     *
+     * @param orders the orders to insert, each with its execution set
+     * @return the orders that were skipped because of their idempotency key
+     */
+    public List<Order> insertAll(List<Order> orders) {
+        final List<Object> keyArgs = new ArrayList<>(orders.size() * 3);
+        for (Order order : orders) {
+            keyArgs.add(order.getOrderInternalId());
+            keyArgs.add(order.getIdempotencyKey());
+            keyArgs.add(utc(order.getCreatedAt()));
+        }
+        final Set<UUID> claimed = new HashSet<>(jdbcTemplate.queryForList(
+                multiRowInsert(INSERT_KEYS, KEY_ROW, orders.size()) + SKIP_USED_KEYS, UUID.class, keyArgs.toArray()));
+        final List<Order> inserted = new ArrayList<>(claimed.size());
+        final List<Order> skipped = new ArrayList<>(orders.size() - claimed.size());
+        for (Order order : orders) {
+            (claimed.contains(order.getOrderInternalId()) ? inserted : skipped).add(order);
+        }
+        if (inserted.isEmpty()) {
+            return skipped;
+        }
+        final List<Long> orderIds = allocateIds("SEQ_ORD_ID", inserted.size());
+        final List<Long> executionIds = allocateIds("SEQ_EXC_ID", inserted.size());
+        final List<Object> orderArgs = new ArrayList<>(inserted.size() * 10);
+        final List<Object> executionArgs = new ArrayList<>(inserted.size() * 8);
+        for (int i = 0; i < inserted.size(); i++) {
+            final Order order = inserted.get(i);
+            final Execution execution = order.getExecution();
+            orderArgs.add(orderIds.get(i));
+            orderArgs.add(order.getOrderInternalId());
+            orderArgs.add(order.getAccountId());
+            orderArgs.add(order.getSymbol());
+            orderArgs.add(order.getSide().name());
+            orderArgs.add(order.getQuantity());
+            orderArgs.add(order.getStatus().name());
+            orderArgs.add(utc(order.getCreatedAt()));
+            orderArgs.add(order.getVersion());
+            orderArgs.add(order.getIdempotencyKey());
+            executionArgs.add(executionIds.get(i));
+            executionArgs.add(execution.getInternalId());
+            executionArgs.add(orderIds.get(i));
+            executionArgs.add(FixedPrice.toBigDecimal(execution.getPrice()));
+            executionArgs.add(utc(execution.getCreatedAt()));
+            executionArgs.add(execution.getVersion());
+            executionArgs.add(utc(execution.getPriceTimestamp()));
+            executionArgs.add(execution.getPriceAgeMs());
+        }
+        jdbcTemplate.update(multiRowInsert(INSERT_ORDERS, ORDER_ROW, inserted.size()), orderArgs.toArray());
+        jdbcTemplate.update(multiRowInsert(INSERT_EXECUTIONS, EXECUTION_ROW, inserted.size()), executionArgs.toArray());
+        return skipped;
+    }
+
+    /**
+     * Completes pending orders with the status they were given and inserts the executions of the processed ones.
+     * Only orders still pending are completed, so an order queued twice is completed once.
+     *
+     * @param orders the pending orders, each PROCESSED with its execution set or FAILED without one
+     * @return the orders that were completed, in the given order
+     */
+    public List<Order> completeAll(List<Order> orders) {
+        final List<Object> orderArgs = new ArrayList<>(orders.size() * 3);
+        for (Order order : orders) {
+            orderArgs.add(order.getOrderInternalId());
+            orderArgs.add(utc(order.getCreatedAt()));
+            orderArgs.add(order.getStatus().name());
+        }
+        final Map<UUID, Long> orderIds = new HashMap<>();
+        jdbcTemplate.query(multiRowInsert(COMPLETE_ORDERS, COMPLETED_ROW, orders.size()) + ONLY_PENDING,
+                (ResultSet rs) -> {
+                    orderIds.put(rs.getObject(1, UUID.class), rs.getLong(2));
+                }, orderArgs.toArray());
+        final List<Order> completed = new ArrayList<>(orderIds.size());
+        final List<Order> executed = new ArrayList<>(orderIds.size());
+        for (Order order : orders) {
+            if (orderIds.containsKey(order.getOrderInternalId())) {
+                order.setVersion(order.getVersion() + 1);
+                completed.add(order);
+                if (order.getExecution() != null) {
+                    executed.add(order);
+                }
+            }
+        }
+        if (executed.isEmpty()) {
+            return completed;
+        }
+        final List<Long> executionIds = allocateIds("SEQ_EXC_ID", executed.size());
+        final List<Object> executionArgs = new ArrayList<>(executed.size() * 8);
+        for (int i = 0; i < executed.size(); i++) {
+            final Order order = executed.get(i);
+            final Execution execution = order.getExecution();
+            executionArgs.add(executionIds.get(i));
+            executionArgs.add(execution.getInternalId());
+            executionArgs.add(orderIds.get(order.getOrderInternalId()));
+            executionArgs.add(FixedPrice.toBigDecimal(execution.getPrice()));
+            executionArgs.add(utc(execution.getCreatedAt()));
+            executionArgs.add(execution.getVersion());
+            executionArgs.add(utc(execution.getPriceTimestamp()));
+            executionArgs.add(execution.getPriceAgeMs());
+        }
+        jdbcTemplate.update(multiRowInsert(INSERT_EXECUTIONS, EXECUTION_ROW, executed.size()), executionArgs.toArray());
+        return completed;
+    }
+
+    /**
+     * Reads a page of the orders still pending, oldest first.
+     *
+     * @param createdAfter the creation time of the last order of the previous page, or the epoch for the first page
+     * @param idAfter the id of the last order of the previous page, or 0 for the first page
+     * @param limit the maximum number of orders in the page
+     * @return the pending orders, without executions
+     */
+    public List<Order> findPending(Instant createdAfter, long idAfter, int limit) {
+        return jdbcTemplate.query(SELECT_PENDING, (rs, rowNum) -> Order.builder()
+                .ordId(rs.getLong("ORD_ID"))
+                .orderInternalId(rs.getObject("ORD_INTERNAL_ID", UUID.class))
+                .accountId(rs.getString("ORD_ACCOUNT_ID"))
+                .symbol(rs.getString("ORD_SYMBOL"))
+                .side(OrderSide.valueOf(rs.getString("ORD_SIDE")))
+                .quantity(rs.getInt("ORD_QUANTITY"))
+                .status(OrderStatus.PENDING)
+                .createdAt(rs.getObject("ORD_CREATED", OffsetDateTime.class).toInstant())
+                .version(rs.getInt("ORD_VERSION"))
+                .idempotencyKey(rs.getString("ORD_IDEMPOTENCY_KEY"))
+                .build(), utc(createdAfter), idAfter, limit);
+    }
+
+    /**
+     * Reserves enough id blocks from a sequence with a single query.
+     * A nextval value v reserves the ids v - 49 to v, matching Hibernate's pooled optimizer;
+     * ids below 1 of the very first block are skipped.
+     *
+     * @param sequence the sequence to reserve the ids from
+     * @param count the number of ids needed
+     * @return at least count unused ids
+     */
+    List<Long> allocateIds(String sequence, int count) {
+        final List<Long> ids = new ArrayList<>(count + ID_BLOCK_SIZE);
+        while (ids.size() < count) {
+            final int blocks = (count - ids.size() + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+            final List<Long> values = jdbcTemplate.queryForList(
+                    "SELECT nextval('" + sequence + "') FROM generate_series(1, ?)", Long.class, blocks);
+            for (long value : values) {
+                for (long id = Math.max(1, value - ID_BLOCK_SIZE + 1); id <= value; id++) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static String multiRowInsert(String insert, String row, int rows) {
+        final StringBuilder sql = new StringBuilder(insert.length() + rows * (row.length() + 2)).append(insert);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(row);
+        }
+        return sql.toString();
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return instant == null ? null : instant.atOffset(ZoneOffset.UTC);
+    }
+}
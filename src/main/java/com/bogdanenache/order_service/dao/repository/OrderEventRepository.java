@@ -0,0 +1,90 @@
+package com.bogdanenache.order_service.dao.repository;
+
+import com.bogdanenache.order_service.dao.entity.OrderEvent;
+import com.bogdanenache.order_service.dao.entity.OrderEvent.EventType;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Writes and relays the ORDER_OUTBOX table in batches.
+ * Events are inserted in the caller's transaction, next to the orders they describe. The relay locks the oldest
+ * events with SKIP LOCKED, so several instances relaying at the same time each take a different batch instead of
+ * waiting on each other, and deletes them in the same transaction once they are published.
+ * Must be called inside a transaction; the caller decides when to commit.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderEventRepository {
+
+    private static final String INSERT_EVENTS = "INSERT INTO ORDER_OUTBOX (OBX_TYPE, OBX_ORDER_INTERNAL_ID, OBX_ACCOUNT_ID, "
+            + "OBX_PAYLOAD, OBX_CREATED) VALUES ";
+    private static final String EVENT_ROW = "(?, ?, ?, ?, ?)";
+    private static final String LOCK_OLDEST = "SELECT OBX_ID, OBX_TYPE, OBX_ORDER_INTERNAL_ID, OBX_ACCOUNT_ID, OBX_PAYLOAD, OBX_CREATED "
+            + "FROM ORDER_OUTBOX ORDER BY OBX_ID LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String DELETE_EVENTS = "DELETE FROM ORDER_OUTBOX WHERE OBX_ID IN ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts events with one multi-row INSERT.
+     *
+     * @param events the events to insert
+     */
+    public void insertAll(List<OrderEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        final List<Object> args = new ArrayList<>(events.size() * 5);
+        for (OrderEvent event : events) {
+            args.add(event.getType().name());
+            args.add(event.getOrderInternalId());
+            args.add(event.getAccountId());
+            args.add(event.getPayload());
+            args.add(event.getCreatedAt().atOffset(ZoneOffset.UTC));
+        }
+        jdbcTemplate.update(INSERT_EVENTS + String.join(", ", Collections.nCopies(events.size(), EVENT_ROW)), args.toArray());
+    }
+
+    /**
+     * Locks the oldest events not locked by another transaction until the current transaction ends.
+     *
+     * @param limit the maximum number of events
+     * @return the locked events, oldest first
+     */
+    public List<OrderEvent> lockOldest(int limit) {
+        return jdbcTemplate.query(LOCK_OLDEST, OrderEventRepository::mapEvent, limit);
+    }
+
+    /**
+     * Deletes published events.
+     *
+     * @param events the events to delete
+     */
+    public void deleteAll(List<OrderEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(DELETE_EVENTS + "(" + String.join(", ", Collections.nCopies(events.size(), "?")) + ")",
+                events.stream().map(OrderEvent::getId).toArray());
+    }
+
+    private static OrderEvent mapEvent(ResultSet rs, int rowNum) throws SQLException {
+        return OrderEvent.builder()
+                .id(rs.getLong("OBX_ID"))
+                .type(EventType.valueOf(rs.getString("OBX_TYPE")))
+                .orderInternalId(rs.getObject("OBX_ORDER_INTERNAL_ID", UUID.class))
+                .accountId(rs.getString("OBX_ACCOUNT_ID"))
+                .payload(rs.getBytes("OBX_PAYLOAD"))
+                .createdAt(rs.getObject("OBX_CREATED", OffsetDateTime.class).toInstant())
+                .build();
+    }
+}
@@ -0,0 +1,150 @@
+package com.bogdanenache.order_service.dao.repository;
+
+import com.bogdanenache.order_service.dao.entity.Execution;
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dto.FixedPrice;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Inserts a single order and its execution with prepared statements, without a persistence context.
+ * Placed orders are never updated, so none of what Hibernate does on a save is needed: no snapshot for dirty
+ * checking, no version handling, no cascade and no entity kept in a session. The key row is inserted first
+ * and skipped when the idempotency key is already used; the order and its execution are then written with
+ * one statement. The statements never change, so the driver prepares them once per connection.
+ * The rows are the ones {@link OrderRepository} and {@link OrderBatchRepository} write, with ids taken from
+ * the same SEQ_ORD_ID and SEQ_EXC_ID blocks. An order accepted before it is priced is inserted the same way,
+ * without its execution.
+ * Must be called inside a transaction; the caller decides when to commit.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderInsertRepository {
+
+    private static final String INSERT_KEY = "INSERT INTO ORDER_KEYS (ORK_ORDER_INTERNAL_ID, ORK_IDEMPOTENCY_KEY, ORK_CREATED) "
+            + "VALUES (?, ?, ?) ON CONFLICT (ORK_IDEMPOTENCY_KEY) DO NOTHING";
+    private static final String INSERT_ORDER_AND_EXECUTION = "WITH INSERTED_ORDER AS (INSERT INTO ORDERS (ORD_ID, ORD_INTERNAL_ID, "
+            + "ORD_ACCOUNT_ID, ORD_SYMBOL, ORD_SIDE, ORD_QUANTITY, ORD_STATUS, ORD_CREATED, ORD_VERSION, ORD_IDEMPOTENCY_KEY) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)) "
+            + "INSERT INTO EXECUTIONS (EXC_ID, EXC_INTERNAL_ID, ORD_ORDER_ID, EXC_PRICE, EXC_CREATED, EXC_VERSION, "
+            + "EXC_PRICE_TIMESTAMP, EXC_PRICE_AGE_MS) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ORDER = "INSERT INTO ORDERS (ORD_ID, ORD_INTERNAL_ID, ORD_ACCOUNT_ID, ORD_SYMBOL, ORD_SIDE, "
+            + "ORD_QUANTITY, ORD_STATUS, ORD_CREATED, ORD_VERSION, ORD_IDEMPOTENCY_KEY) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OrderBatchRepository orderBatchRepo;
+    private final IdBlock orderIds = new IdBlock("SEQ_ORD_ID");
+    private final IdBlock executionIds = new IdBlock("SEQ_EXC_ID");
+
+    /**
+     * Inserts the order and the execution attached to it, unless its idempotency key is already used.
+     *
+     * @param order the order to insert, with its execution set
+     * @return whether the order was inserted, false if its idempotency key is already used
+     */
+    public boolean insert(Order order) {
+        if (!claimKey(order)) {
+            return false;
+        }
+        final long orderId = orderIds.next();
+        final long executionId = executionIds.next();
+        final Execution execution = order.getExecution();
+        jdbcTemplate.update(INSERT_ORDER_AND_EXECUTION, statement -> {
+            setOrder(statement, orderId, order);
+            statement.setLong(11, executionId);
+            statement.setObject(12, execution.getInternalId());
+            statement.setLong(13, orderId);
+            statement.setBigDecimal(14, FixedPrice.toBigDecimal(execution.getPrice()));
+            setUtc(statement, 15, execution.getCreatedAt());
+            statement.setInt(16, execution.getVersion());
+            setUtc(statement, 17, execution.getPriceTimestamp());
+            if (execution.getPriceAgeMs() == null) {
+                statement.setNull(18, Types.BIGINT);
+            } else {
+                statement.setLong(18, execution.getPriceAgeMs());
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Inserts an order without an execution, unless its idempotency key is already used.
+     *
+     * @param order the order to insert, not executed yet
+     * @return whether the order was inserted, false if its idempotency key is already used
+     */
+    public boolean insertPending(Order order) {
+        if (!claimKey(order)) {
+            return false;
+        }
+        final long orderId = orderIds.next();
+        jdbcTemplate.update(INSERT_ORDER, statement -> setOrder(statement, orderId, order));
+        return true;
+    }
+
+    private boolean claimKey(Order order) {
+        return jdbcTemplate.update(INSERT_KEY, statement -> {
+            statement.setObject(1, order.getOrderInternalId());
+            statement.setString(2, order.getIdempotencyKey());
+            setUtc(statement, 3, order.getCreatedAt());
+        }) > 0;
+    }
+
+    private static void setOrder(PreparedStatement statement, long orderId, Order order) throws SQLException {
+        statement.setLong(1, orderId);
+        statement.setObject(2, order.getOrderInternalId());
+        statement.setString(3, order.getAccountId());
+        statement.setString(4, order.getSymbol());
+        statement.setString(5, order.getSide().name());
+        statement.setInt(6, order.getQuantity());
+        statement.setString(7, order.getStatus().name());
+        setUtc(statement, 8, order.getCreatedAt());
+        statement.setInt(9, order.getVersion());
+        statement.setString(10, order.getIdempotencyKey());
+    }
+
+    private static void setUtc(PreparedStatement statement, int index, Instant instant) throws SQLException {
+        // bound the way OrderBatchRepository binds them, so both write the same timestamps
+        statement.setObject(index, instant == null ? null : instant.atOffset(ZoneOffset.UTC));
+    }
+
+    /**
+     * The ids left in the block last reserved from a sequence. A block is reserved with one nextval when the
+     * previous one is used up, so ids cost a round trip once every 50 orders, as they do with Hibernate's pooled optimizer.
+     * The block is guarded by a lock rather than a synchronized method, because the refill runs a query and a virtual
+     * thread blocked inside a monitor pins its carrier thread.
+     */
+    private final class IdBlock {
+
+        private final String sequence;
+        private final ReentrantLock lock = new ReentrantLock();
+        private long next;
+        private long last = -1;
+
+        private IdBlock(String sequence) {
+            this.sequence = sequence;
+        }
+
+        private long next() {
+            lock.lock();
+            try {
+                if (next > last) {
+                    final List<Long> block = orderBatchRepo.allocateIds(sequence, 1);
+                    next = block.getFirst();
+                    last = block.getLast();
+                }
+                return next++;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
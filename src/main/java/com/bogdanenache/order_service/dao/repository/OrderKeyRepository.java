@@ -0,0 +1,16 @@
+package com.bogdanenache.order_service.dao.repository;
+
+import com.bogdanenache.order_service.dao.entity.OrderKey;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Stores the idempotency key and creation time of every order.
+ */
+@Repository
+public interface OrderKeyRepository extends CrudRepository<OrderKey, UUID> {
+
+    Optional<OrderKey> findByIdempotencyKey(String idempotencyKey);
+}
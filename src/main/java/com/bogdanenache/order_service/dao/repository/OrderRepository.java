@@ -1,24 +1,89 @@
 package com.bogdanenache.order_service.dao.repository;
 
 import com.bogdanenache.order_service.dao.entity.Order;
-import java.util.Collection;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
  * The interface OrderRepository provides methods to access and manipulate Order entities in the database.
  * It extends CrudRepository to inherit basic CRUD operations.
- * Custom query methods are defined to retrieve orders by their internal ID and account ID.
+ * Custom query methods are defined to retrieve orders by their internal ID and to page through an account's orders;
+ * both read {@link OrderView} rows joined with the execution in a single statement.
  */
 
 @Repository
 public interface OrderRepository extends CrudRepository<Order, Long> {
 
+    String VIEW = "select new com.bogdanenache.order_service.dao.repository.OrderView("
+            + "o.ordId, o.orderInternalId, o.accountId, o.symbol, o.side, o.quantity, o.status, o.createdAt, "
+            + "e.internalId, e.price, e.createdAt) ";
 
-    Order getOrderByOrderInternalId(String internalId);
+    /**
+     * An execution is never created before its order, so the join only scans EXECUTIONS partitions from the order's month on.
+     */
+    String JOIN_EXECUTION = "left join o.execution e on e.createdAt >= o.createdAt ";
 
-    Collection<Order> getOrderByAccountId(String accountId);
+    String SELECT_VIEW = VIEW + "from Order o " + JOIN_EXECUTION;
 
-    Optional<Order> findByIdempotencyKey(String idempotencyKey);
+    String EXPORT_FETCH_SIZE = "1000";
+
+    /**
+     * Returns an order and its execution in one query. The creation time is taken from ORDER_KEYS,
+     * so only the ORDERS partition holding the order is scanned.
+     *
+     * @param internalId the internal id of the order
+     * @return the order, or empty if there is none
+     */
+    @Query(VIEW + "from OrderKey k join Order o on o.orderInternalId = k.orderInternalId and o.createdAt = k.createdAt "
+            + JOIN_EXECUTION + "where k.orderInternalId = :internalId")
+    Optional<OrderView> findViewByOrderInternalId(@Param("internalId") UUID internalId);
+
+    /**
+     * Returns the newest orders of an account with their executions in one query.
+     *
+     * @param accountId the account id
+     * @param limit the maximum number of orders returned
+     * @return the orders, newest first
+     */
+    @Query(SELECT_VIEW + "where o.accountId = :accountId order by o.createdAt desc, o.ordId desc")
+    List<OrderView> findFirstPageByAccountId(@Param("accountId") String accountId, Limit limit);
+
+    /**
+     * Returns the orders of an account created before the given position with their executions in one query,
+     * walking the (ORD_ACCOUNT_ID, ORD_CREATED, ORD_ID) index so every page costs the same as the first one.
+     * The separate bound on the creation time lets partitions newer than the cursor be pruned.
+     *
+     * @param accountId the account id
+     * @param createdAt the creation time of the last order of the previous page
+     * @param ordId the id of the last order of the previous page
+     * @param limit the maximum number of orders returned
+     * @return the orders, newest first
+     */
+    @Query(SELECT_VIEW + "where o.accountId = :accountId and o.createdAt <= :createdAt and (o.createdAt, o.ordId) < (:createdAt, :ordId) "
+            + "order by o.createdAt desc, o.ordId desc")
+    List<OrderView> findPageByAccountIdAfter(@Param("accountId") String accountId, @Param("createdAt") Instant createdAt,
+            @Param("ordId") Long ordId, Limit limit);
+
+    /**
+     * Streams every order of an account with its execution, oldest first. Rows are fetched from a server-side
+     * cursor in batches of EXPORT_FETCH_SIZE, so only one batch is held in memory at a time.
+     * Must be called inside a transaction and the stream must be closed.
+     *
+     * @param accountId the account id
+     * @return the orders, oldest first
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(SELECT_VIEW + "where o.accountId = :accountId order by o.createdAt, o.ordId")
+    Stream<OrderView> streamByAccountId(@Param("accountId") String accountId);
 }
@@ -0,0 +1,38 @@
+package com.bogdanenache.order_service.dao.repository;
+
+import com.bogdanenache.order_service.dao.entity.Order.OrderSide;
+import com.bogdanenache.order_service.dao.entity.Order.OrderStatus;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Read-only row of an order joined with its execution, selected with a constructor expression
+ * so reads neither hydrate entities nor fill the persistence context.
+ * The execution columns are null for orders that were never executed.
+ *
+ * @param ordId the database id of the order
+ * @param orderInternalId the public id of the order
+ * @param accountId the account the order belongs to
+ * @param symbol the traded symbol
+ * @param side the side of the order
+ * @param quantity the ordered quantity
+ * @param status the status of the order
+ * @param createdAt the creation time of the order
+ * @param executionInternalId the public id of the execution, or null
+ * @param executionPrice the execution price scaled by 10^6, or null
+ * @param executionCreatedAt the creation time of the execution, or null
+ */
+public record OrderView(
+        Long ordId,
+        UUID orderInternalId,
+        String accountId,
+        String symbol,
+        OrderSide side,
+        Integer quantity,
+        OrderStatus status,
+        Instant createdAt,
+        UUID executionInternalId,
+        Long executionPrice,
+        Instant executionCreatedAt
+) {
+}
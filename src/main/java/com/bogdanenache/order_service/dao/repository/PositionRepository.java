@@ -0,0 +1,118 @@
+package com.bogdanenache.order_service.dao.repository;
+
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.entity.Order.OrderSide;
+import com.bogdanenache.order_service.dao.entity.Position;
+import com.bogdanenache.order_service.dto.FixedPrice;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Maintains the POSITIONS table. Orders are added with one multi-row upsert that adds their quantities and notionals
+ * to the running totals in the database, so concurrent transactions never read a position to write it back and
+ * never lose an update. The orders of a batch are summed per position first, because an upsert may touch a row
+ * only once, and the rows are written in key order so two transactions updating the same positions lock them
+ * in the same order instead of deadlocking.
+ * Must be called inside a transaction; the caller decides when to commit.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PositionRepository {
+
+    private static final String UPSERT_POSITIONS = "INSERT INTO POSITIONS (POS_ACCOUNT_ID, POS_SYMBOL, POS_BOUGHT_QUANTITY, "
+            + "POS_BOUGHT_NOTIONAL, POS_SOLD_QUANTITY, POS_SOLD_NOTIONAL, POS_UPDATED) VALUES ";
+    private static final String POSITION_ROW = "(?, ?, ?, ?, ?, ?, ?)";
+    private static final String ON_CONFLICT = " ON CONFLICT (POS_ACCOUNT_ID, POS_SYMBOL) DO UPDATE SET "
+            + "POS_BOUGHT_QUANTITY = POSITIONS.POS_BOUGHT_QUANTITY + EXCLUDED.POS_BOUGHT_QUANTITY, "
+            + "POS_BOUGHT_NOTIONAL = POSITIONS.POS_BOUGHT_NOTIONAL + EXCLUDED.POS_BOUGHT_NOTIONAL, "
+            + "POS_SOLD_QUANTITY = POSITIONS.POS_SOLD_QUANTITY + EXCLUDED.POS_SOLD_QUANTITY, "
+            + "POS_SOLD_NOTIONAL = POSITIONS.POS_SOLD_NOTIONAL + EXCLUDED.POS_SOLD_NOTIONAL, "
+            + "POS_UPDATED = GREATEST(POSITIONS.POS_UPDATED, EXCLUDED.POS_UPDATED)";
+    private static final String SELECT_BY_ACCOUNT = "SELECT POS_ACCOUNT_ID, POS_SYMBOL, POS_BOUGHT_QUANTITY, POS_BOUGHT_NOTIONAL, "
+            + "POS_SOLD_QUANTITY, POS_SOLD_NOTIONAL, POS_UPDATED FROM POSITIONS WHERE POS_ACCOUNT_ID = ? ORDER BY POS_SYMBOL";
+    private static final Comparator<Position.Key> KEY_ORDER = Comparator.comparing(Position.Key::getAccountId)
+            .thenComparing(Position.Key::getSymbol);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds executed orders to the positions of their accounts, creating the positions that do not exist yet.
+     *
+     * @param orders the orders to add, each with its execution set
+     */
+    public void addAll(Collection<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        final Map<Position.Key, Position> deltas = new TreeMap<>(KEY_ORDER);
+        for (Order order : orders) {
+            final Position delta = deltas.computeIfAbsent(new Position.Key(order.getAccountId(), order.getSymbol()),
+                    key -> Position.builder()
+                            .accountId(key.getAccountId())
+                            .symbol(key.getSymbol())
+                            .boughtNotional(BigDecimal.ZERO)
+                            .soldNotional(BigDecimal.ZERO)
+                            .updatedAt(order.getCreatedAt())
+                            .build());
+            final BigDecimal notional = FixedPrice.toBigDecimal(order.getExecution().getPrice())
+                    .multiply(BigDecimal.valueOf(order.getQuantity()));
+            if (order.getSide() == OrderSide.BUY) {
+                delta.setBoughtQuantity(delta.getBoughtQuantity() + order.getQuantity());
+                delta.setBoughtNotional(delta.getBoughtNotional().add(notional));
+            } else {
+                delta.setSoldQuantity(delta.getSoldQuantity() + order.getQuantity());
+                delta.setSoldNotional(delta.getSoldNotional().add(notional));
+            }
+            if (order.getCreatedAt().isAfter(delta.getUpdatedAt())) {
+                delta.setUpdatedAt(order.getCreatedAt());
+            }
+        }
+        final List<Object> args = new ArrayList<>(deltas.size() * 7);
+        for (Position delta : deltas.values()) {
+            args.add(delta.getAccountId());
+            args.add(delta.getSymbol());
+            args.add(delta.getBoughtQuantity());
+            args.add(delta.getBoughtNotional());
+            args.add(delta.getSoldQuantity());
+            args.add(delta.getSoldNotional());
+            args.add(delta.getUpdatedAt().atOffset(ZoneOffset.UTC));
+        }
+        jdbcTemplate.update(UPSERT_POSITIONS + String.join(", ", Collections.nCopies(deltas.size(), POSITION_ROW)) + ON_CONFLICT,
+                args.toArray());
+    }
+
+    /**
+     * Reads the positions of an account, one row per symbol it traded.
+     *
+     * @param accountId the account id
+     * @return the positions ordered by symbol
+     */
+    public List<Position> findByAccountId(String accountId) {
+        return jdbcTemplate.query(SELECT_BY_ACCOUNT, PositionRepository::mapPosition, accountId);
+    }
+
+    private static Position mapPosition(ResultSet rs, int rowNum) throws SQLException {
+        return Position.builder()
+                .accountId(rs.getString("POS_ACCOUNT_ID"))
+                .symbol(rs.getString("POS_SYMBOL"))
+                .boughtQuantity(rs.getLong("POS_BOUGHT_QUANTITY"))
+                .boughtNotional(rs.getBigDecimal("POS_BOUGHT_NOTIONAL"))
+                .soldQuantity(rs.getLong("POS_SOLD_QUANTITY"))
+                .soldNotional(rs.getBigDecimal("POS_SOLD_NOTIONAL"))
+                .updatedAt(rs.getObject("POS_UPDATED", OffsetDateTime.class).toInstant())
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.bogdanenache.order_service.dto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point representation of a price as a long scaled by 10^6, the scale of the EXC_PRICE column.
+ * Prices travel through the cache, the execution path and the persistence mapping as plain longs;
+ * they are converted to BigDecimal only where they enter or leave the service as JSON.
+ */
+public final class FixedPrice {
+
+    /**
+     * Number of decimals kept by a fixed-point price.
+     */
+    public static final int SCALE = 6;
+
+    private FixedPrice() {
+    }
+
+    /**
+     * Converts a decimal price to its fixed-point value, rounding half up beyond six decimals.
+     *
+     * @param price the decimal price
+     * @return the price scaled by 10^6
+     * @throws ArithmeticException if the price does not fit in a long at scale 6
+     */
+    public static long of(BigDecimal price) {
+        return price.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts a fixed-point price to a decimal with scale 6.
+     *
+     * @param price the price scaled by 10^6
+     * @return the decimal price
+     */
+    public static BigDecimal toBigDecimal(long price) {
+        return BigDecimal.valueOf(price, SCALE);
+    }
+}
@@ -0,0 +1,36 @@
+package com.bogdanenache.order_service.dto;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Input formats of the bulk order import.
+ * NDJSON lines are orders as written by the account export; CSV files start with a header naming their columns.
+ */
+public enum ImportFormat {
+
+    CSV(".csv"),
+    NDJSON(".ndjson");
+
+    private final String extension;
+
+    ImportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Finds the format of a file from its extension.
+     *
+     * @param fileName the name of the file
+     * @return the format, or empty if the extension is not known
+     */
+    public static Optional<ImportFormat> ofFileName(String fileName) {
+        final String name = fileName.toLowerCase(Locale.ROOT);
+        for (ImportFormat format : values()) {
+            if (name.endsWith(format.extension)) {
+                return Optional.of(format);
+            }
+        }
+        return name.endsWith(".jsonl") ? Optional.of(NDJSON) : Optional.empty();
+    }
+}
@@ -0,0 +1,14 @@
+package com.bogdanenache.order_service.dto;
+
+/**
+ * Outcome of a bulk order import run.
+ *
+ * @param importId the id of the import, the key of its checkpoint
+ * @param resumedFrom the number of input records skipped because an earlier run already loaded them
+ * @param imported the number of orders loaded by this run
+ * @param rejected the number of records rejected by this run because they were not valid orders
+ * @param rowsPerSecond the number of records loaded or rejected per second by this run
+ */
+public record ImportResult(String importId, long resumedFrom, long imported, long rejected, double rowsPerSecond) {
+
+}
@@ -0,0 +1,43 @@
+package com.bogdanenache.order_service.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position after the last order of a page of an account's orders, which are listed newest first.
+ * Clients receive it as an opaque string and send it back to fetch the next page.
+ *
+ * @param createdAt the creation time of the last order of the page
+ * @param ordId the database id of the last order of the page, breaking ties between orders created at the same time
+ */
+public record OrderCursor(Instant createdAt, long ordId) {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /**
+     * Decodes a cursor received from a client. Used by Spring to bind the cursor request parameter.
+     *
+     * @param cursor the opaque cursor
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()}
+     */
+    public static OrderCursor valueOf(String cursor) {
+        final String[] parts = new String(DECODER.decode(cursor), StandardCharsets.US_ASCII).split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid order cursor: " + cursor);
+        }
+        return new OrderCursor(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])), Long.parseLong(parts[2]));
+    }
+
+    /**
+     * Encodes the cursor as an opaque URL-safe string.
+     *
+     * @return the encoded cursor
+     */
+    public String encode() {
+        final String cursor = createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + ordId;
+        return ENCODER.encodeToString(cursor.getBytes(StandardCharsets.US_ASCII));
+    }
+}
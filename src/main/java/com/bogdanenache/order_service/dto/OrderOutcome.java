@@ -0,0 +1,49 @@
+package com.bogdanenache.order_service.dto;
+
+import com.bogdanenache.order_service.exception.ErrorCode;
+
+/**
+ * Outcome of placing an order: the placed order, the order accepted for asynchronous processing,
+ * or the reason it was rejected.
+ */
+public sealed interface OrderOutcome {
+
+    /**
+     * Rejection of an order whose symbol the price feed does not know.
+     */
+    OrderOutcome UNKNOWN_SYMBOL = new Rejected(ErrorCode.UNPROCESSABLE_ENTITY);
+
+    /**
+     * Rejection of an order that could not be priced because the price feed is unavailable.
+     */
+    OrderOutcome FEED_UNAVAILABLE = new Rejected(ErrorCode.SERVICE_UNAVAILABLE);
+
+    /**
+     * Rejection of an order that could not be queued because the processing buffer is full.
+     */
+    OrderOutcome BUFFER_FULL = new Rejected(ErrorCode.TOO_MANY_REQUESTS);
+
+    /**
+     * The order was executed and saved.
+     *
+     * @param order the placed order
+     */
+    record Placed(OrderDTO order) implements OrderOutcome {
+    }
+
+    /**
+     * The order was saved pending and queued to be priced and executed.
+     *
+     * @param order the pending order
+     */
+    record Accepted(OrderDTO order) implements OrderOutcome {
+    }
+
+    /**
+     * The order was not placed.
+     *
+     * @param errorCode the reason, mapped to the error response
+     */
+    record Rejected(ErrorCode errorCode) implements OrderOutcome {
+    }
+}
@@ -0,0 +1,13 @@
+package com.bogdanenache.order_service.dto;
+
+import java.util.List;
+
+/**
+ * A page of an account's orders, newest first.
+ *
+ * @param orders the orders of the page
+ * @param next the cursor of the next page, or null if this is the last page
+ */
+public record OrderPage(List<OrderDTO> orders, OrderCursor next) {
+
+}
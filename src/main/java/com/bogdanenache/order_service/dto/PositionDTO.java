@@ -0,0 +1,16 @@
+package com.bogdanenache.order_service.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Net position of an account in one symbol.
+ *
+ * @param symbol the traded symbol
+ * @param netQuantity the bought quantity minus the sold quantity, negative for a net short position
+ * @param boughtQuantity the total quantity of the BUY orders
+ * @param soldQuantity the total quantity of the SELL orders
+ * @param averagePrice the average execution price of all orders in the symbol, weighted by their quantity
+ */
+public record PositionDTO(String symbol, long netQuantity, long boughtQuantity, long soldQuantity, BigDecimal averagePrice) {
+
+}
@@ -0,0 +1,32 @@
+package com.bogdanenache.order_service.dto;
+
+/**
+ * Outcome of a price lookup. Expected failures are values rather than exceptions,
+ * so an unknown symbol or an unavailable feed costs no more than a successful lookup.
+ */
+public sealed interface PriceResult {
+
+    /**
+     * The feed returned a price for the symbol.
+     *
+     * @param snapshot the price and the moment it was fetched
+     */
+    record Priced(PriceSnapshot snapshot) implements PriceResult {
+    }
+
+    /**
+     * The feed does not know the symbol.
+     *
+     * @param symbol the symbol that was looked up
+     */
+    record UnknownSymbol(String symbol) implements PriceResult {
+    }
+
+    /**
+     * The feed could not be reached, failed or returned no usable price.
+     *
+     * @param symbol the symbol that was looked up
+     */
+    record FeedUnavailable(String symbol) implements PriceResult {
+    }
+}
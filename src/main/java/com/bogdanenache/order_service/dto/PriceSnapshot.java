@@ -0,0 +1,27 @@
+package com.bogdanenache.order_service.dto;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A price read from the price feed together with the moment it was fetched.
+ * The fetch timestamp identifies the snapshot an order executed against.
+ * The price is a {@link FixedPrice} value.
+ */
+public record PriceSnapshot(
+        String symbol,
+        long price,
+        Instant fetchedAt
+) {
+
+    /**
+     * Computes how old this snapshot is at the given moment.
+     *
+     * @param now the reference moment
+     * @return the age of the snapshot, never negative
+     */
+    public Duration ageAt(Instant now) {
+        Duration age = Duration.between(fetchedAt, now);
+        return age.isNegative() ? Duration.ZERO : age;
+    }
+}
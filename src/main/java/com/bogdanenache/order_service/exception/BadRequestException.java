@@ -65,7 +65,10 @@ public class BadRequestException extends RuntimeException {
      * Each message can be formatted with additional parameters.
      */
     public enum Message {
-        PRICE_NOT_FOUND_FOR_SYMBOL("Price not found for symbol: %s.");
+        PRICE_NOT_FOUND_FOR_SYMBOL("Price not found for symbol: %s."),
+        MISSING_IMPORT_COLUMN("Import header has no %s column."),
+        UNKNOWN_IMPORT_FORMAT("Unknown import format of %s."),
+        CONCURRENT_IMPORT("Import %s is being run elsewhere.");
 
         final String msg;
 
@@ -2,6 +2,8 @@ package com.bogdanenache.order_service.mapper;
 
 import com.bogdanenache.order_service.dao.entity.Execution;
 import com.bogdanenache.order_service.dto.ExecutionDTO;
+import com.bogdanenache.order_service.dto.FixedPrice;
+import java.math.BigDecimal;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
@@ -14,8 +16,12 @@ public interface ExecutionMapper {
 
     @Mapping(target = "orderId", source = "orderId",  qualifiedByName= "orderId")
     @Mapping(target = "id", source = "execution",  qualifiedByName= "internalId")
+    @Mapping(target = "price", source = "execution.price",  qualifiedByName= "toDecimalPrice")
     ExecutionDTO mapExecutionToExecutionDto(Execution execution, String orderId);
 
+    @Mapping(target = "price", source = "price",  qualifiedByName= "toFixedPrice")
+    @Mapping(target = "priceTimestamp", ignore = true)
+    @Mapping(target = "priceAgeMs", ignore = true)
     Execution mapExecutionDtoToExecution(ExecutionDTO executionDTO);
 
     @Named("orderId")
@@ -25,6 +31,16 @@ public interface ExecutionMapper {
 
     @Named("internalId")
     static String orderId(Execution execution) {
-        return execution.getInternalId();
+        return execution.getInternalId().toString();
+    }
+
+    @Named("toDecimalPrice")
+    static BigDecimal toDecimalPrice(long price) {
+        return FixedPrice.toBigDecimal(price);
+    }
+
+    @Named("toFixedPrice")
+    static long toFixedPrice(BigDecimal price) {
+        return FixedPrice.of(price);
     }
 }
\ No newline at end of file
@@ -1,8 +1,11 @@
 package com.bogdanenache.order_service.mapper;
 
 import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.repository.OrderView;
 import com.bogdanenache.order_service.dto.ExecutionDTO;
+import com.bogdanenache.order_service.dto.FixedPrice;
 import com.bogdanenache.order_service.dto.OrderDTO;
+import com.bogdanenache.order_service.dto.TimeOrderedUuid;
 import java.time.Instant;
 import java.util.UUID;
 import org.mapstruct.Mapper;
@@ -10,7 +13,7 @@ import org.mapstruct.Mapping;
 import org.mapstruct.Named;
 import org.mapstruct.factory.Mappers;
 
-@Mapper
+@Mapper(uses = ExecutionMapper.class)
 public interface OrderMapper {
 
     OrderMapper INSTANCE = Mappers.getMapper(OrderMapper.class);
@@ -20,6 +23,10 @@ public interface OrderMapper {
     @Mapping(target = "id", source = "order.orderInternalId")
     OrderDTO orderToOrderDto(Order order, ExecutionDTO executionDTO);
 
+    @Mapping(target = "execution", source = "view", qualifiedByName = "viewExecution")
+    @Mapping(target = "id", source = "orderInternalId")
+    OrderDTO orderViewToOrderDto(OrderView view);
+
     @Mapping(target = "createdAt", source = "orderDTO", qualifiedByName = "createdAt")
     @Mapping(target = "orderInternalId", source = "orderDTO", qualifiedByName = "mapToOrderInternalId")
     @Mapping(target = "idempotencyKey", source = "idempotencyKey")
@@ -27,8 +34,19 @@ public interface OrderMapper {
 
 
     @Named("mapToOrderInternalId")
-    static String mapToOrderInternalId(OrderDTO orderDTO) {
-        return UUID.randomUUID().toString();
+    static UUID mapToOrderInternalId(OrderDTO orderDTO) {
+        // time-ordered, so new orders are appended to the right of the internal id indexes
+        return TimeOrderedUuid.next();
+    }
+
+    @Named("viewExecution")
+    static ExecutionDTO viewExecution(OrderView view) {
+        // orders that were never executed have no execution row to join
+        if (view.executionInternalId() == null) {
+            return null;
+        }
+        return new ExecutionDTO(view.executionInternalId().toString(), view.orderInternalId().toString(),
+                FixedPrice.toBigDecimal(view.executionPrice()), view.executionCreatedAt());
     }
 
     @Named("createdAt")
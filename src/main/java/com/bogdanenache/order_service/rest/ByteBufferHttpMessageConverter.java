@@ -0,0 +1,67 @@
+package com.bogdanenache.order_service.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes a response body that is already encoded, such as an order served by the near cache, from its buffer.
+ * Tomcat copies the buffer straight into the response, so a direct buffer is never copied to the heap first;
+ * other containers get it in small chunks. The buffer's own position is left untouched.
+ */
+@Component
+public class ByteBufferHttpMessageConverter extends AbstractHttpMessageConverter<ByteBuffer> {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    public ByteBufferHttpMessageConverter() {
+        super(MediaType.ALL);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ByteBuffer.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected ByteBuffer readInternal(Class<? extends ByteBuffer> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Request bodies are not read as buffers", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(ByteBuffer body, MediaType contentType) {
+        return (long) body.remaining();
+    }
+
+    @Override
+    protected void writeInternal(ByteBuffer body, HttpOutputMessage outputMessage) throws IOException {
+        final ByteBuffer source = body.duplicate();
+        final OutputStream out = outputMessage.getBody();
+        if (out instanceof CoyoteOutputStream tomcat) {
+            tomcat.write(source);
+            return;
+        }
+        if (source.hasArray()) {
+            out.write(source.array(), source.arrayOffset() + source.position(), source.remaining());
+            return;
+        }
+        final byte[] chunk = new byte[Math.min(source.remaining(), CHUNK_SIZE)];
+        while (source.hasRemaining()) {
+            final int length = Math.min(source.remaining(), chunk.length);
+            source.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+    }
+}
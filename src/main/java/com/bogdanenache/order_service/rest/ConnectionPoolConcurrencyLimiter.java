@@ -0,0 +1,101 @@
+package com.bogdanenache.order_service.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Bounds the number of requests in flight when requests are served on virtual threads.
+ * Tomcat's thread pool no longer limits concurrency in that mode, so without a bound every request of a burst
+ * gets a thread and they all end up queued on the database pool until its connection timeout. The limit is derived
+ * from the size of the primary pool: a request holds a connection for a small share of its time, the rest is spent
+ * on the price feed, so each connection is shared by a configured number of requests. A request that cannot get
+ * a permit within the acquire timeout is answered 503 at once; actuator endpoints are never limited.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class ConnectionPoolConcurrencyLimiter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+    private final ObjectMapper objectMapper;
+    private final Counter rejected;
+
+    /**
+     * Creates the limiter and registers its metrics.
+     *
+     * @param objectMapper the mapper used to write the error response of a rejected request
+     * @param meterRegistry the registry where available permits and rejected requests are published
+     * @param maximumPoolSize the maximum size of the primary connection pool
+     * @param requestsPerConnection the number of requests in flight allowed per pooled connection
+     * @param acquireTimeout the maximum time a request waits for a permit before it is rejected
+     */
+    public ConnectionPoolConcurrencyLimiter(ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${order-service.virtual-threads.requests-per-connection:50}") int requestsPerConnection,
+            @Value("${order-service.virtual-threads.acquire-timeout:100ms}") Duration acquireTimeout) {
+        final int limit = maximumPoolSize * requestsPerConnection;
+        this.permits = new Semaphore(limit);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.objectMapper = objectMapper;
+        this.rejected = Counter.builder("http.server.requests.limited")
+                .description("Requests rejected because the in-flight request limit was reached")
+                .register(meterRegistry);
+        Gauge.builder("http.server.requests.permits", permits, Semaphore::availablePermits)
+                .description("Permits left for requests in flight")
+                .register(meterRegistry);
+        log.info("Requests in flight limited to {}: {} connections, {} requests per connection",
+                limit, maximumPoolSize, requestsPerConnection);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        final boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(response);
+            return;
+        }
+        if (!acquired) {
+            reject(response);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        rejected.increment();
+        response.setStatus(ErrorResponses.SERVICE_UNAVAILABLE.getStatusCode().value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ErrorResponses.SERVICE_UNAVAILABLE.getBody());
+    }
+}
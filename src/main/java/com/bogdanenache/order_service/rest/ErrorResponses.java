@@ -0,0 +1,48 @@
+package com.bogdanenache.order_service.rest;
+
+import com.bogdanenache.order_service.dto.ErrorResponse;
+import com.bogdanenache.order_service.exception.ErrorCode;
+import java.util.EnumMap;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Pre-built error responses for the error codes whose body does not depend on the request.
+ * Rejecting a request with one of them allocates nothing, so a flood of rejected orders
+ * costs about as much as the accepted ones.
+ */
+final class ErrorResponses {
+
+    static final ResponseEntity<ErrorResponse> INTERNAL_ERROR =
+            build(HttpStatus.INTERNAL_SERVER_ERROR, ErrorCode.INTERNAL_ERROR, "An unexpected error occurred");
+    static final ResponseEntity<ErrorResponse> SERVICE_UNAVAILABLE =
+            build(HttpStatus.SERVICE_UNAVAILABLE, ErrorCode.SERVICE_UNAVAILABLE, "Service is currently unavailable");
+    static final ResponseEntity<ErrorResponse> UNPROCESSABLE_ENTITY =
+            build(HttpStatus.UNPROCESSABLE_ENTITY, ErrorCode.UNPROCESSABLE_ENTITY, "An unexpected error occurred while processing the request");
+    static final ResponseEntity<ErrorResponse> TOO_MANY_REQUESTS =
+            build(HttpStatus.TOO_MANY_REQUESTS, ErrorCode.TOO_MANY_REQUESTS, "An unexpected error occurred while processing the request");
+
+    private static final Map<ErrorCode, ResponseEntity<ErrorResponse>> BY_ERROR_CODE = new EnumMap<>(Map.of(
+            ErrorCode.INTERNAL_ERROR, INTERNAL_ERROR,
+            ErrorCode.SERVICE_UNAVAILABLE, SERVICE_UNAVAILABLE,
+            ErrorCode.UNPROCESSABLE_ENTITY, UNPROCESSABLE_ENTITY,
+            ErrorCode.TOO_MANY_REQUESTS, TOO_MANY_REQUESTS));
+
+    private ErrorResponses() {
+    }
+
+    /**
+     * Returns the pre-built response for an error code.
+     *
+     * @param errorCode the error code
+     * @return the pre-built response, or the internal error response for codes without one
+     */
+    static ResponseEntity<ErrorResponse> of(ErrorCode errorCode) {
+        return BY_ERROR_CODE.getOrDefault(errorCode, INTERNAL_ERROR);
+    }
+
+    private static ResponseEntity<ErrorResponse> build(HttpStatus status, ErrorCode errorCode, String message) {
+        return ResponseEntity.status(status).body(new ErrorResponse(errorCode.name(), message));
+    }
+}
@@ -1,5 +1,7 @@
 package com.bogdanenache.order_service.rest;
 
+import com.bogdanenache.order_service.dto.ErrorResponse;
+import com.bogdanenache.order_service.dto.OrderCursor;
 import com.bogdanenache.order_service.dto.OrderDTO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,40 +12,68 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import java.nio.ByteBuffer;
 import java.util.List;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 public interface OrderAPI {
 
 
     @Operation(summary = "Create a new  order",
-            description = "Places a BUY or SELL order and executes it at the current price.. Use 'X-Idempotency-Key' header to ensure safe retries.")
+            description = "Places a BUY or SELL order and executes it at the current price.. Use 'X-Idempotency-Key' header to ensure safe retries: "
+                    + "a request repeating a key gets the response of the first request with that key. "
+                    + "In asynchronous mode the order is accepted as PENDING and executed shortly after; poll it by ID.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Order successfully created",
                     content = @Content(schema = @Schema(implementation = OrderDTO.class))),
-            @ApiResponse(responseCode = "400", description = "Invalid input", content = @Content)
+            @ApiResponse(responseCode = "202", description = "Order accepted as PENDING in asynchronous mode",
+                    content = @Content(schema = @Schema(implementation = OrderDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input", content = @Content),
+            @ApiResponse(responseCode = "422", description = "Unknown symbol",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "429", description = "Too many requests, or the asynchronous order buffer is full",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "503", description = "Price feed unavailable",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
-    ResponseEntity<OrderDTO> createOrder(@RequestBody @Valid OrderDTO orderDTO,
+    ResponseEntity<?> createOrder(@RequestBody @Valid OrderDTO orderDTO,
             @RequestHeader(value = "X-Idempotency-Key", required = false) String idempotencyKey);
 
 
-    @Operation(summary = "Get an order by ID", description = "Returns a single order if it exists.")
+    @Operation(summary = "Get an order by ID", description = "Returns a single order if it exists. Placed orders are served from an in-memory cache.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Order found",
                     content = @Content(schema = @Schema(implementation = OrderDTO.class))),
             @ApiResponse(responseCode = "404", description = "Order not found", content = @Content)
     })
-    ResponseEntity<OrderDTO> getOrderById(
+    ResponseEntity<ByteBuffer> getOrderById(
             @Parameter(description = "Internal order ID") @PathVariable("id") String id);
 
 
-    @Operation(summary = "Get all orders for an account", description = "Returns a list of orders for the specified account ID.")
+    @Operation(summary = "Get the orders of an account",
+            description = "Returns a page of orders for the specified account ID, newest first. "
+                    + "When more orders exist the X-Next-Cursor response header holds the cursor of the next page.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Orders found",
-                    content = @Content(schema = @Schema(implementation = OrderDTO.class)))
+                    content = @Content(schema = @Schema(implementation = OrderDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor", content = @Content)
     })
     ResponseEntity<List<OrderDTO>> getOrdersByAccountId(
-            @Parameter(description = "Account ID to fetch orders for") @RequestParam("accountId") String accountId);
+            @Parameter(description = "Account ID to fetch orders for") @RequestParam("accountId") String accountId,
+            @Parameter(description = "Maximum number of orders in the page, at most 500") @RequestParam(value = "limit", defaultValue = "50") int limit,
+            @Parameter(description = "Cursor returned in X-Next-Cursor with the previous page") @RequestParam(value = "cursor", required = false) OrderCursor cursor);
+
+
+    @Operation(summary = "Export all orders of an account",
+            description = "Streams every order of the specified account ID as newline-delimited JSON, oldest first, one order per line. "
+                    + "Orders are written as they are read, so accounts of any size are exported with constant memory.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Orders exported",
+                    content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = OrderDTO.class)))
+    })
+    ResponseEntity<StreamingResponseBody> exportOrdersByAccountId(
+            @Parameter(description = "Account ID to export orders for") @RequestParam("accountId") String accountId);
 
 }
@@ -0,0 +1,35 @@
+package com.bogdanenache.order_service.rest;
+
+import com.bogdanenache.order_service.dto.ImportResult;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import java.io.IOException;
+import java.io.InputStream;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+
+public interface OrderImportAPI {
+
+
+    @Operation(summary = "Import historical orders in bulk",
+            description = "Loads orders from a CSV (text/csv) or newline-delimited JSON (application/x-ndjson) body. "
+                    + "CSV files start with a header naming the columns accountId, symbol, side, quantity, createdAt and price, "
+                    + "and optionally id and status; NDJSON lines are orders as written by the account export. "
+                    + "Orders are loaded in chunks and the progress is checkpointed under the import id: posting the same "
+                    + "input with the same import id again resumes after the last loaded chunk.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished, invalid records are counted as rejected",
+                    content = @Content(schema = @Schema(implementation = ImportResult.class))),
+            @ApiResponse(responseCode = "422", description = "Missing CSV column or the import is running elsewhere", content = @Content)
+    })
+    ResponseEntity<ImportResult> importOrders(
+            @Parameter(description = "Id of the import, at most 64 characters") @PathVariable("importId") String importId,
+            @RequestHeader("Content-Type") String contentType,
+            InputStream body) throws IOException;
+
+}
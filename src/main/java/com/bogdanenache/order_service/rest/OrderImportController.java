@@ -0,0 +1,42 @@
+package com.bogdanenache.order_service.rest;
+
+import com.bogdanenache.order_service.dto.ImportFormat;
+import com.bogdanenache.order_service.dto.ImportResult;
+import com.bogdanenache.order_service.service.OrderImportService;
+import java.io.IOException;
+import java.io.InputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+public class OrderImportController implements OrderImportAPI {
+
+    static final int MAX_IMPORT_ID_LENGTH = 64;
+
+    private final OrderImportService orderImportService;
+
+    @PostMapping(value = "/admin/orders/import/{importId}", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImportResult> importOrders(@PathVariable("importId") String importId,
+            @RequestHeader("Content-Type") String contentType,
+            InputStream body) throws IOException {
+        log.info("Received request to import orders: {}, {}", importId, contentType);
+        if (importId.length() > MAX_IMPORT_ID_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+        // the body is read as a stream while the orders are loaded, it is never held in memory
+        final ImportFormat format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? ImportFormat.NDJSON
+                : ImportFormat.CSV;
+        return ResponseEntity.ok(orderImportService.importOrders(importId, format, body));
+    }
+
+}
@@ -1,12 +1,18 @@
 package com.bogdanenache.order_service.rest;
 
+import com.bogdanenache.order_service.dto.OrderCursor;
 import com.bogdanenache.order_service.dto.OrderDTO;
-import com.bogdanenache.order_service.service.IdempotencyService;
+import com.bogdanenache.order_service.dto.OrderOutcome.Accepted;
+import com.bogdanenache.order_service.dto.OrderOutcome.Placed;
+import com.bogdanenache.order_service.dto.OrderOutcome.Rejected;
+import com.bogdanenache.order_service.service.IdempotentResponseService;
+import com.bogdanenache.order_service.service.OrderExportService;
 import com.bogdanenache.order_service.service.OrderService;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import java.nio.ByteBuffer;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,41 +26,67 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequiredArgsConstructor
 @Slf4j
 public class OrderRestController implements OrderAPI {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int MAX_PAGE_SIZE = 500;
+
     private final OrderService orderService;
-    private final IdempotencyService idempotencyService;
+    private final OrderExportService orderExportService;
+    private final IdempotentResponseService idempotentResponses;
 
     @RateLimiter(name ="orderServiceRateLimiter")
     @PostMapping(value = "/orders", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<OrderDTO> createOrder(
+    public ResponseEntity<?> createOrder(
             @RequestBody @Valid OrderDTO orderDTO,
             @RequestHeader(value = "X-Idempotency-Key", required = false) String idempotencyKey) {
         log.info("Received request to create a new order: {}", orderDTO);
 
-        // Validate idempotency key before placing the order
-        idempotencyService.validateIdempotencyKey(idempotencyKey);
-
-        return new ResponseEntity<>(orderService.placeOrder(orderDTO, idempotencyKey), HttpStatus.CREATED);
+        // A reused idempotency key replays the response of the first request instead of placing the order again
+        return idempotentResponses.respond(idempotencyKey, () -> switch (orderService.placeOrder(orderDTO, idempotencyKey)) {
+            case Placed placed -> new ResponseEntity<>(placed.order(), HttpStatus.CREATED);
+            case Accepted accepted -> new ResponseEntity<>(accepted.order(), HttpStatus.ACCEPTED);
+            case Rejected rejected -> ErrorResponses.of(rejected.errorCode());
+        });
     }
 
     @GetMapping(value = "/orders/{id}", produces =  MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<OrderDTO> getOrderById(@PathVariable(value = "id") String id) {
+    public ResponseEntity<ByteBuffer> getOrderById(@PathVariable(value = "id") String id) {
         log.info("Received request to get an order by id: {}", id);
-        var orderDTO = orderService.getOrderByInternalId(id);
-        return orderDTO.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+        // the body is the order already encoded by the near cache, it is not mapped to an OrderDTO again
+        // and is written from the cached buffer by ByteBufferHttpMessageConverter
+        var order = orderService.getEncodedOrderByInternalId(id);
+        return order.map(body -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body))
+                .orElseGet(() -> ResponseEntity.notFound().build());
 
     }
 
     @GetMapping(value = "/orders", produces =  MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<OrderDTO>> getOrdersByAccountId(@RequestParam("accountId") String accountId) {
-        log.info("Received request to get all orders by accountId: {}", accountId);
-        return ResponseEntity.ok(orderService.getOrderByAccountId(accountId));
+    public ResponseEntity<List<OrderDTO>> getOrdersByAccountId(@RequestParam("accountId") String accountId,
+            @RequestParam(value = "limit", defaultValue = "50") int limit,
+            @RequestParam(value = "cursor", required = false) OrderCursor cursor) {
+        log.info("Received request to get orders by accountId: {}, limit: {}", accountId, limit);
+        var page = orderService.getOrderByAccountId(accountId, cursor, Math.clamp(limit, 1, MAX_PAGE_SIZE));
+        var response = ResponseEntity.ok();
+        if (page.next() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.next().encode());
+        }
+        return response.body(page.orders());
+
+    }
 
+    @GetMapping(value = "/orders/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportOrdersByAccountId(@RequestParam("accountId") String accountId) {
+        log.info("Received request to export orders by accountId: {}", accountId);
+        // written on an async thread while the cursor is read, the request thread is released immediately
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> orderExportService.exportOrders(accountId, out));
     }
 
 }
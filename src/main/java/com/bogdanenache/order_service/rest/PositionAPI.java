@@ -0,0 +1,28 @@
+package com.bogdanenache.order_service.rest;
+
+import com.bogdanenache.order_service.dto.PositionDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+
+public interface PositionAPI {
+
+
+    @Operation(summary = "Get the positions of an account",
+            description = "Returns the net quantity and the volume-weighted average execution price of every symbol "
+                    + "the account traded. Positions are kept up to date as orders are placed, so they do not need "
+                    + "to be computed from the orders of the account.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Positions found, empty if the account placed no order",
+                    content = @Content(schema = @Schema(implementation = PositionDTO.class)))
+    })
+    ResponseEntity<List<PositionDTO>> getPositions(
+            @Parameter(description = "Account ID to fetch positions for") @PathVariable("accountId") String accountId);
+
+}
@@ -0,0 +1,27 @@
+package com.bogdanenache.order_service.rest;
+
+import com.bogdanenache.order_service.dto.PositionDTO;
+import com.bogdanenache.order_service.service.PositionService;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+public class PositionRestController implements PositionAPI {
+
+    private final PositionService positionService;
+
+    @GetMapping(value = "/accounts/{accountId}/positions", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<PositionDTO>> getPositions(@PathVariable("accountId") String accountId) {
+        log.info("Received request to get positions by accountId: {}", accountId);
+        return ResponseEntity.ok(positionService.getPositions(accountId));
+    }
+
+}
@@ -61,8 +61,7 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGeneric(Exception ex) {
         log.error(ex.getMessage(), ex);
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(new ErrorResponse(ErrorCode.INTERNAL_ERROR.name(), "An unexpected error occurred"));
+        return ErrorResponses.INTERNAL_ERROR;
     }
 
     /**
@@ -74,8 +73,7 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
     @ExceptionHandler(UnexpectedException.class)
     public ResponseEntity<ErrorResponse> handleUnexpectedException(Exception ex) {
         log.error(ex.getMessage(), ex);
-        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
-                .body(new ErrorResponse(ErrorCode.SERVICE_UNAVAILABLE.name(), "Service is currently unavailable"));
+        return ErrorResponses.SERVICE_UNAVAILABLE;
     }
 
     /**
@@ -100,8 +98,7 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
     @ExceptionHandler(BadRequestException.class)
     public ResponseEntity<ErrorResponse> handleBadRequestException(BadRequestException ex) {
         log.error(ex.getMessage(), ex);
-        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
-                .body(new ErrorResponse(ErrorCode.UNPROCESSABLE_ENTITY.name(), "An unexpected error occurred while processing the request"));
+        return ErrorResponses.UNPROCESSABLE_ENTITY;
     }
 
     /**
@@ -113,8 +110,7 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
     @ExceptionHandler(RequestNotPermitted.class)
     public ResponseEntity<ErrorResponse> handleRateLimitExceeded(RequestNotPermitted ex) {
         log.error(ex.getMessage(), ex);
-        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
-                .body(new ErrorResponse(ErrorCode.TOO_MANY_REQUESTS.name(), "An unexpected error occurred while processing the request"));
+        return ErrorResponses.TOO_MANY_REQUESTS;
     }
 
     /**
@@ -0,0 +1,79 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.OrderEvent;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Appends published order events to a newline-delimited JSON file, one {@code {"type":..., "order":...}} document
+ * per line. Each batch is written with one write and forced to disk before publish returns, so an event deleted
+ * from the outbox is never lost with the page cache. Writers are serialised with a lock rather than a monitor,
+ * so a virtual thread waiting for the disk does not pin its carrier thread.
+ */
+@Component
+@ConditionalOnProperty(name = "order-service.outbox.sink", havingValue = "file")
+public class FileOrderEventSink implements OrderEventSink {
+
+    private final FileChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Opens the file for appending, creating it and its directory when missing.
+     *
+     * @param file the file events are appended to
+     * @throws IOException if the file cannot be opened
+     */
+    public FileOrderEventSink(@Value("${order-service.outbox.file:order-events.ndjson}") Path file) throws IOException {
+        final Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void publish(List<OrderEvent> events) {
+        final ByteArrayOutputStream lines = new ByteArrayOutputStream(events.size() * 512);
+        for (OrderEvent event : events) {
+            // the payload is already JSON, it is embedded without being parsed again
+            lines.writeBytes(("{\"type\":\"" + event.getType() + "\",\"order\":").getBytes(StandardCharsets.UTF_8));
+            lines.writeBytes(event.getPayload());
+            lines.writeBytes("}\n".getBytes(StandardCharsets.UTF_8));
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+        lock.lock();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to append order events", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the file when the application shuts down.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        channel.close();
+    }
+}
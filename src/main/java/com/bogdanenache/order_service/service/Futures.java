@@ -0,0 +1,35 @@
+package com.bogdanenache.order_service.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helpers for waiting on futures shared between request threads.
+ */
+final class Futures {
+
+    private Futures() {
+    }
+
+    /**
+     * Waits for a future and rethrows its failure without the CompletionException wrapper,
+     * so callers see the same exception types as a direct call would throw.
+     *
+     * @param future the future to wait for
+     * @param <T> the type of the result
+     * @return the result of the future
+     */
+    static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
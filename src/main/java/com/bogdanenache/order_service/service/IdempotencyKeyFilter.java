@@ -0,0 +1,114 @@
+package com.bogdanenache.order_service.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of recently used idempotency keys. A key the filter has never seen is certainly not among
+ * the recent keys, so its database lookup can be skipped; a key it reports may be a false positive.
+ * Keys are kept in two generations of the configured capacity: once the current one is full it becomes
+ * the previous one and the oldest generation is dropped, keeping the false positive rate bounded.
+ */
+final class IdempotencyKeyFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final int capacity;
+    private final int bits;
+    private final int hashes;
+
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    /**
+     * Creates an empty filter.
+     *
+     * @param capacity the number of keys a generation holds before it is rotated
+     * @param falsePositiveRate the false positive rate of a full generation
+     */
+    IdempotencyKeyFilter(int capacity, double falsePositiveRate) {
+        this.capacity = capacity;
+        this.bits = (int) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN2 * LN2));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * LN2));
+        this.current = new Generation(bits);
+        this.previous = new Generation(bits);
+    }
+
+    /**
+     * Tells whether a key may have been added recently.
+     *
+     * @param key the idempotency key
+     * @return false if the key was certainly not added within the last two generations
+     */
+    boolean mightContain(String key) {
+        final long hash = hash(key);
+        return current.contains(hash, bits, hashes) || previous.contains(hash, bits, hashes);
+    }
+
+    /**
+     * Adds a key, rotating the generations when the current one is full.
+     *
+     * @param key the idempotency key
+     */
+    void put(String key) {
+        final Generation generation = current;
+        generation.add(hash(key), bits, hashes);
+        if (generation.size.incrementAndGet() == capacity) {
+            // only the put that filled the generation gets here
+            previous = generation;
+            current = new Generation(bits);
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the key, finished with a murmur3 mix so both halves are well distributed.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static final class Generation {
+
+        private final AtomicLongArray words;
+        private final AtomicInteger size = new AtomicInteger();
+
+        private Generation(int bits) {
+            this.words = new AtomicLongArray((bits + 63) >>> 6);
+        }
+
+        /**
+         * Derives the bit positions of a key from the two halves of its hash (Kirsch-Mitzenmacher).
+         */
+        private static int index(long hash, int i, int bits) {
+            final int combined = (int) hash + i * (int) (hash >>> 32);
+            return (combined & Integer.MAX_VALUE) % bits;
+        }
+
+        private boolean contains(long hash, int bits, int hashes) {
+            for (int i = 0; i < hashes; i++) {
+                final int index = index(hash, i, bits);
+                if ((words.get(index >>> 6) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void add(long hash, int bits, int hashes) {
+            for (int i = 0; i < hashes; i++) {
+                final int index = index(hash, i, bits);
+                final long mask = 1L << index;
+                words.getAndAccumulate(index >>> 6, mask, (word, bit) -> word | bit);
+            }
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.bogdanenache.order_service.service;
 
-import com.bogdanenache.order_service.dao.repository.OrderRepository;
+import com.bogdanenache.order_service.dao.repository.OrderKeyRepository;
 import com.bogdanenache.order_service.exception.IdempotencyHeaderException;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import static com.bogdanenache.order_service.exception.IdempotencyHeaderException.Message.INVALID_IDEMPOTENCY_KEY;
@@ -11,17 +13,40 @@ import static com.bogdanenache.order_service.exception.IdempotencyHeaderExceptio
 
 /**
  * Service class for handling idempotency key validation logic.
+ * Uniqueness is enforced by the UQ_ORD_IDEMPOTENCY_KEY constraint of ORDER_KEYS when the order is inserted;
+ * the check done here only rejects reused keys early. Keys a filter of recently used keys has
+ * never seen skip the database lookup, keys it reports are checked exactly.
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class IdempotencyService {
 
-    private final OrderRepository orderRepository;
+    private final OrderKeyRepository orderKeyRepository;
+    private final IdempotencyKeyFilter recentKeys;
+    private final Counter lookupsSkipped;
+    private final Counter lookupsDone;
+
+    /**
+     * Creates the service with an empty filter of recently used keys.
+     *
+     * @param orderKeyRepository the repository used for the exact check of reported keys
+     * @param meterRegistry the registry where skipped and performed key lookups are counted
+     * @param filterCapacity the number of keys a filter generation holds before it is rotated
+     * @param filterFalsePositiveRate the share of fresh keys that are looked up although they are unused
+     */
+    public IdempotencyService(OrderKeyRepository orderKeyRepository,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.idempotency.filter-capacity:1000000}") int filterCapacity,
+            @Value("${order-service.idempotency.filter-false-positive-rate:0.01}") double filterFalsePositiveRate) {
+        this.orderKeyRepository = orderKeyRepository;
+        this.recentKeys = new IdempotencyKeyFilter(filterCapacity, filterFalsePositiveRate);
+        this.lookupsSkipped = meterRegistry.counter("idempotency.key.lookups", "outcome", "skipped");
+        this.lookupsDone = meterRegistry.counter("idempotency.key.lookups", "outcome", "checked");
+    }
 
     /**
      * Validates the provided idempotency key.
-     * Ensures the key is of valid length and checks if it already exists in the repository.
+     * Ensures the key is of valid length and, if it may have been used recently, checks if it already exists in the repository.
      * Logs appropriate messages and throws exceptions for invalid or duplicate keys.
      *
      * @param idempotencyKey the idempotency key to validate
@@ -29,11 +54,17 @@ public class IdempotencyService {
      */
     public void validateIdempotencyKey(String idempotencyKey) {
         validateKeyLength(idempotencyKey);
-        orderRepository.findByIdempotencyKey(idempotencyKey)
-                .ifPresent(order -> {
-                    log.error("Idempotency key {} already exists for order {}", idempotencyKey, order.getOrderInternalId());
-                    throw new IdempotencyHeaderException(USED_IDEMPOTENCY_KEY.with(idempotencyKey));
-                });
+        if (recentKeys.mightContain(idempotencyKey)) {
+            lookupsDone.increment();
+            orderKeyRepository.findByIdempotencyKey(idempotencyKey)
+                    .ifPresent(key -> {
+                        log.error("Idempotency key {} already exists for order {}", idempotencyKey, key.getOrderInternalId());
+                        throw new IdempotencyHeaderException(USED_IDEMPOTENCY_KEY.with(idempotencyKey));
+                    });
+        } else {
+            lookupsSkipped.increment();
+        }
+        recentKeys.put(idempotencyKey);
         log.info("Idempotency key {} is available for new order", idempotencyKey);
     }
 
@@ -44,7 +75,7 @@ public class IdempotencyService {
      * @param idempotencyKey the idempotency key to validate
      * @throws IdempotencyHeaderException if the key is null or its length is invalid
      */
-    private void validateKeyLength(String idempotencyKey) {
+    public void validateKeyLength(String idempotencyKey) {
         if (idempotencyKey == null || idempotencyKey.length() < 30 || idempotencyKey.length() > 36) {
             throw new IdempotencyHeaderException(INVALID_IDEMPOTENCY_KEY.with(idempotencyKey));
         }
@@ -0,0 +1,103 @@
+package com.bogdanenache.order_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deletes the idempotent responses older than their TTL from IDEMPOTENT_RESPONSES, they are no longer replayed.
+ * Runs on a dedicated thread at start-up and then at a fixed interval, whether or not the order tables are partitioned;
+ * several instances purging at the same time is harmless.
+ */
+@Slf4j
+@Component
+public class IdempotentResponsePurge {
+
+    /**
+     * Number of IDEMPOTENT_RESPONSES rows deleted by one statement, so a purge never holds locks for long.
+     */
+    static final int BATCH_SIZE = 10_000;
+
+    private static final String PURGE_RESPONSES = "DELETE FROM IDEMPOTENT_RESPONSES WHERE IDR_IDEMPOTENCY_KEY IN "
+            + "(SELECT IDR_IDEMPOTENCY_KEY FROM IDEMPOTENT_RESPONSES WHERE IDR_CREATED < ? LIMIT " + BATCH_SIZE + ")";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final Duration interval;
+    private final Counter purged;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates the purge job.
+     *
+     * @param jdbcTemplate the template expired responses are deleted through
+     * @param meterRegistry the registry where purged responses are counted
+     * @param ttl how long an idempotent response is replayed, it is purged afterwards
+     * @param interval the delay between two purges
+     */
+    public IdempotentResponsePurge(JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.idempotency.response-ttl:24h}") Duration ttl,
+            @Value("${order-service.idempotency.purge-interval:1h}") Duration interval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.interval = interval;
+        this.purged = Counter.builder("idempotency.responses.purged")
+                .description("Idempotent responses deleted after their TTL")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the purge thread, running the first purge right away.
+     */
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("idempotent-response-purge").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::run, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the purge thread.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Deletes the idempotent responses stored before the given time, in batches.
+     *
+     * @param expiredBefore the time before which responses are no longer replayed
+     */
+    void purge(Instant expiredBefore) {
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_RESPONSES, expiredBefore.atOffset(ZoneOffset.UTC));
+            purged.increment(deleted);
+        } while (deleted == BATCH_SIZE);
+    }
+
+    private void run() {
+        try {
+            purge(Instant.now().minus(ttl));
+        } catch (RuntimeException e) {
+            // the next run retries, expired responses are only kept a little longer
+            log.error("Purging idempotent responses failed", e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.IdempotentResponse;
+import com.bogdanenache.order_service.dao.repository.IdempotentResponseRepository;
+import com.bogdanenache.order_service.exception.ErrorCode;
+import com.bogdanenache.order_service.exception.IdempotencyHeaderException;
+import com.bogdanenache.order_service.exception.UnexpectedException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import static com.bogdanenache.order_service.exception.UnexpectedException.Message.UNABLE_TO_SERIALIZE_RESPONSE;
+
+/**
+ * Replays the response of a request whose idempotency key is used again. Responses are serialized once
+ * and kept in a size and TTL bounded cache backed by the IDEMPOTENT_RESPONSES table, so a retry gets the
+ * original bytes without placing the order again. A retry arriving while the first request is still running
+ * waits for its response instead of running concurrently.
+ * The response of a placed or accepted order is prepared before the order is saved and inserted in the same
+ * transaction, so a crash after the commit cannot leave a used key without a response to replay; other responses
+ * are stored once the request returned. Rows older than the TTL are purged by {@link IdempotentResponsePurge}.
+ * Server errors are not stored, so a request that failed on an unavailable dependency can be retried; neither are
+ * 429 responses, so an order turned away under load can be placed again with the same key.
+ */
+@Slf4j
+@Service
+public class IdempotentResponseService {
+
+    private final IdempotencyService idempotencyService;
+    private final IdempotentResponseRepository responseRepo;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+    private final Cache<String, ResponseEntity<byte[]>> responses;
+    private final ConcurrentHashMap<String, CompletableFuture<ResponseEntity<byte[]>>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ResponseEntity<byte[]>> prepared = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the service with an empty response cache.
+     *
+     * @param idempotencyService the service validating keys of requests that are not replayed
+     * @param responseRepo the repository where responses are stored
+     * @param objectMapper the mapper serializing response bodies
+     * @param meterRegistry the registry where replays are counted
+     * @param ttl how long a response is replayed after it was stored
+     * @param maximumSize the maximum number of responses kept in memory
+     */
+    public IdempotentResponseService(IdempotencyService idempotencyService,
+            IdempotentResponseRepository responseRepo,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.idempotency.response-ttl:24h}") Duration ttl,
+            @Value("${order-service.idempotency.response-cache-size:10000}") int maximumSize) {
+        this.idempotencyService = idempotencyService;
+        this.responseRepo = responseRepo;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.ttl = ttl;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Returns the stored response for the idempotency key, waits for the request already running with it,
+     * or runs the request and stores its response.
+     *
+     * @param idempotencyKey the idempotency key of the request
+     * @param request places the order and builds its response; only run when nothing can be replayed
+     * @return the JSON response, byte for byte the same for every request with the key
+     * @throws IdempotencyHeaderException if the key is invalid, or was used by an order whose response is no longer stored
+     */
+    public ResponseEntity<byte[]> respond(String idempotencyKey, Supplier<ResponseEntity<?>> request) {
+        idempotencyService.validateKeyLength(idempotencyKey);
+        final ResponseEntity<byte[]> cached = responses.getIfPresent(idempotencyKey);
+        if (cached != null) {
+            return replayed(cached, "cache");
+        }
+        final CompletableFuture<ResponseEntity<byte[]>> future = new CompletableFuture<>();
+        final CompletableFuture<ResponseEntity<byte[]>> running = inFlight.putIfAbsent(idempotencyKey, future);
+        if (running != null) {
+            return replayed(Futures.join(running), "in_flight");
+        }
+        try {
+            // the key may have been answered by another instance or before a restart, so a cache miss is looked up
+            final ResponseEntity<byte[]> response = load(idempotencyKey)
+                    .map(stored -> replayed(stored, "database"))
+                    .orElseGet(() -> execute(idempotencyKey, request));
+            future.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(idempotencyKey, future);
+        }
+    }
+
+    /**
+     * Reads a stored response that has not expired yet and caches it.
+     *
+     * @param idempotencyKey the idempotency key of the request
+     * @return the stored response, or empty if there is none
+     */
+    private Optional<ResponseEntity<byte[]>> load(String idempotencyKey) {
+        return responseRepo.findById(idempotencyKey)
+                .filter(stored -> stored.getCreatedAt().plus(ttl).isAfter(Instant.now()))
+                .map(stored -> {
+                    final ResponseEntity<byte[]> response = toResponse(stored.getStatus(), stored.getBody());
+                    responses.put(idempotencyKey, response);
+                    return response;
+                });
+    }
+
+    /**
+     * Serializes the response of an order about to be saved, to be inserted in the transaction that saves it.
+     * The request running with the key answers with exactly these bytes once it returns the same status.
+     *
+     * @param idempotencyKey the idempotency key the order is saved with
+     * @param status the status the order is answered with
+     * @param body the order returned in the response
+     * @return the response row to insert with the order
+     */
+    public IdempotentResponse prepare(String idempotencyKey, HttpStatus status, Object body) {
+        final byte[] serialized = serialize(body);
+        prepared.put(idempotencyKey, toResponse(status.value(), serialized));
+        return IdempotentResponse.builder()
+                .idempotencyKey(idempotencyKey)
+                .status(status.value())
+                .body(serialized)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    /**
+     * Validates the key, runs the request and stores its serialized response unless it is a server error or a 429.
+     * A response already saved with the order is only cached.
+     * A key found to be used after all, for example by a request answered on another instance at the same time,
+     * replays the stored response when there is one.
+     *
+     * @param idempotencyKey the idempotency key of the request
+     * @param request places the order and builds its response
+     * @return the serialized response
+     */
+    private ResponseEntity<byte[]> execute(String idempotencyKey, Supplier<ResponseEntity<?>> request) {
+        final ResponseEntity<?> result;
+        final ResponseEntity<byte[]> saved;
+        try {
+            idempotencyService.validateIdempotencyKey(idempotencyKey);
+            result = request.get();
+        } catch (IdempotencyHeaderException e) {
+            return load(idempotencyKey).map(stored -> replayed(stored, "database")).orElseThrow(() -> e);
+        } finally {
+            saved = prepared.remove(idempotencyKey);
+        }
+        if (saved != null && saved.getStatusCode().isSameCodeAs(result.getStatusCode())) {
+            responses.put(idempotencyKey, saved);
+            return saved;
+        }
+        final ResponseEntity<byte[]> response = toResponse(result.getStatusCode().value(), serialize(result.getBody()));
+        if (!result.getStatusCode().is5xxServerError() && result.getStatusCode() != HttpStatus.TOO_MANY_REQUESTS) {
+            store(idempotencyKey, response);
+        }
+        return response;
+    }
+
+    private void store(String idempotencyKey, ResponseEntity<byte[]> response) {
+        responses.put(idempotencyKey, response);
+        try {
+            responseRepo.save(IdempotentResponse.builder()
+                    .idempotencyKey(idempotencyKey)
+                    .status(response.getStatusCode().value())
+                    .body(response.getBody())
+                    .createdAt(Instant.now())
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // another node answered the same key first, its response is the one replayed from now on
+            log.warn("Response for idempotency key {} was already stored", idempotencyKey);
+            responses.invalidate(idempotencyKey);
+        }
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UnexpectedException(UNABLE_TO_SERIALIZE_RESPONSE.getFormatMessage(), ErrorCode.INTERNAL_ERROR, e);
+        }
+    }
+
+    private ResponseEntity<byte[]> replayed(ResponseEntity<byte[]> response, String source) {
+        meterRegistry.counter("idempotency.responses.replayed", "source", source).increment();
+        return response;
+    }
+
+    private static ResponseEntity<byte[]> toResponse(int status, byte[] body) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
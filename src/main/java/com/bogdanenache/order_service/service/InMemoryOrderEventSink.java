@@ -0,0 +1,31 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.OrderEvent;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps published order events in memory, for tests and local runs without a downstream system.
+ */
+@Component
+@ConditionalOnProperty(name = "order-service.outbox.sink", havingValue = "memory")
+public class InMemoryOrderEventSink implements OrderEventSink {
+
+    private final List<OrderEvent> published = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(List<OrderEvent> events) {
+        published.addAll(events);
+    }
+
+    /**
+     * Returns the events published so far, oldest first.
+     *
+     * @return the published events
+     */
+    public List<OrderEvent> published() {
+        return List.copyOf(published);
+    }
+}
@@ -0,0 +1,154 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.OrderEvent;
+import com.bogdanenache.order_service.dao.repository.OrderEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Publishes the order events of the outbox to the configured sink. Each poll drains the outbox batch by batch:
+ * a batch is locked, published and deleted in one transaction, so it is either deleted after being published
+ * or stays for the next poll. Several instances can relay at the same time, each locking a different batch.
+ * Runs on a dedicated thread with a fixed delay between polls that found the outbox empty.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "order-service.outbox.relay-enabled", havingValue = "true")
+public class OrderEventRelay {
+
+    private final OrderEventRepository orderEventRepo;
+    private final OrderEventSink sink;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Counter published;
+    private final DistributionSummary batchSizes;
+    private final Timer lag;
+    private final AtomicLong oldestAgeMs = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates the relay.
+     *
+     * @param orderEventRepo the repository events are locked and deleted through
+     * @param sink the sink events are published to
+     * @param transactionManager the transaction manager a batch is relayed in
+     * @param meterRegistry the registry where published events, batch sizes and lag are published
+     * @param batchSize the maximum number of events locked and published together
+     * @param pollInterval the delay before polling again once the outbox was found empty
+     */
+    public OrderEventRelay(OrderEventRepository orderEventRepo,
+            OrderEventSink sink,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.outbox.batch-size:500}") int batchSize,
+            @Value("${order-service.outbox.poll-interval:100ms}") Duration pollInterval) {
+        this.orderEventRepo = orderEventRepo;
+        this.sink = sink;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.published = Counter.builder("order.outbox.published")
+                .description("Number of order events published by the outbox relay")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("order.outbox.batch.size")
+                .description("Number of order events published in one batch")
+                .register(meterRegistry);
+        this.lag = Timer.builder("order.outbox.lag")
+                .description("Time from placing an order to publishing its event")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("order.outbox.oldest.age", oldestAgeMs, AtomicLong::get)
+                .description("Age of the oldest event in the last relayed batch, zero once the outbox is drained")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the relay thread.
+     */
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("order-event-relay").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::run, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the relay thread. A batch being published is rolled back and published again by the next relay.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Relays batches until a batch comes back smaller than the batch size.
+     *
+     * @return the number of events published
+     */
+    long drain() {
+        long total = 0;
+        int relayed;
+        do {
+            relayed = relayBatch();
+            total += relayed;
+        } while (relayed == batchSize);
+        return total;
+    }
+
+    /**
+     * Locks the oldest events, publishes them and deletes them in one transaction.
+     *
+     * @return the number of events published
+     */
+    int relayBatch() {
+        final Integer relayed = transactionTemplate.execute(status -> {
+            final List<OrderEvent> events = orderEventRepo.lockOldest(batchSize);
+            if (events.isEmpty()) {
+                oldestAgeMs.set(0);
+                return 0;
+            }
+            sink.publish(events);
+            orderEventRepo.deleteAll(events);
+            final long now = System.currentTimeMillis();
+            oldestAgeMs.set(now - events.getFirst().getCreatedAt().toEpochMilli());
+            events.forEach(event -> lag.record(now - event.getCreatedAt().toEpochMilli(), TimeUnit.MILLISECONDS));
+            return events.size();
+        });
+        published.increment(relayed);
+        if (relayed > 0) {
+            batchSizes.record(relayed);
+        }
+        return relayed;
+    }
+
+    private void run() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            // the batch stays in the outbox and is published by the next poll
+            log.error("Relaying order events failed", e);
+        }
+    }
+}
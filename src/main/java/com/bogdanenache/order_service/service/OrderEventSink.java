@@ -0,0 +1,21 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.OrderEvent;
+import java.util.List;
+
+/**
+ * Destination the outbox relay publishes order events to, selected with {@code order-service.outbox.sink}.
+ * There is no default sink, so the relay cannot start without one and drop events nothing reads.
+ * Delivery is at least once: a batch is deleted from the outbox only after publish returns, so a batch
+ * published just before a crash is published again. Consumers deduplicate on the order internal id.
+ */
+public interface OrderEventSink {
+
+    /**
+     * Publishes a batch of events, oldest first, and returns once they are durably handed over.
+     *
+     * @param events the events to publish
+     * @throws RuntimeException if the batch cannot be published; it stays in the outbox and is retried
+     */
+    void publish(List<OrderEvent> events);
+}
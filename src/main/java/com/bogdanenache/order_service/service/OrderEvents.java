@@ -0,0 +1,50 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.entity.OrderEvent;
+import com.bogdanenache.order_service.dao.entity.OrderEvent.EventType;
+import com.bogdanenache.order_service.exception.ErrorCode;
+import com.bogdanenache.order_service.exception.UnexpectedException;
+import com.bogdanenache.order_service.mapper.ExecutionMapper;
+import com.bogdanenache.order_service.mapper.OrderMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import static com.bogdanenache.order_service.exception.UnexpectedException.Message.UNABLE_TO_SERIALIZE_RESPONSE;
+
+/**
+ * Builds the outbox events of placed orders. The payload of an order-created event is the order encoded exactly
+ * like the response of GET /orders/{id}, so consumers never need to call back for the order.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderEvents {
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Builds the order-created event of an order about to be saved.
+     *
+     * @param order the order, with its execution set
+     * @return the event to insert with the order
+     */
+    public OrderEvent created(Order order) {
+        final String internalId = order.getOrderInternalId().toString();
+        final var executionDto = ExecutionMapper.INSTANCE.mapExecutionToExecutionDto(order.getExecution(), internalId);
+        final byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(OrderMapper.INSTANCE.orderToOrderDto(order, executionDto));
+        } catch (JsonProcessingException e) {
+            throw new UnexpectedException(UNABLE_TO_SERIALIZE_RESPONSE.getFormatMessage(), ErrorCode.INTERNAL_ERROR, e);
+        }
+        return OrderEvent.builder()
+                .type(EventType.ORDER_CREATED)
+                .orderInternalId(order.getOrderInternalId())
+                .accountId(order.getAccountId())
+                .payload(payload)
+                .createdAt(order.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.repository.OrderRepository;
+import com.bogdanenache.order_service.dao.repository.OrderView;
+import com.bogdanenache.order_service.mapper.OrderMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Exports the full order history of an account as newline-delimited JSON, one OrderDTO per line.
+ * Orders are read through a server-side cursor and written as they are fetched, so memory use does not
+ * depend on the number of orders. Writes block while the client is not reading, which in turn stops the
+ * cursor from fetching further rows.
+ */
+@Slf4j
+@Service
+public class OrderExportService {
+
+    private final OrderRepository orderRepo;
+    private final ObjectWriter writer;
+    private final Counter exportedRows;
+
+    /**
+     * Creates the service.
+     *
+     * @param orderRepo the repository orders are streamed from
+     * @param objectMapper the mapper serializing each order
+     * @param meterRegistry the registry where exported rows are counted
+     */
+    public OrderExportService(OrderRepository orderRepo, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.orderRepo = orderRepo;
+        // the generator buffers rows and flushes when its buffer is full instead of once per row
+        this.writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.exportedRows = Counter.builder("order.export.rows")
+                .description("Number of orders written by account exports")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Writes every order of an account to the output stream, oldest first, one JSON document per line.
+     * The output stream is flushed but not closed.
+     *
+     * @param accountId the account whose orders are exported
+     * @param out the stream the orders are written to
+     * @return the number of orders written
+     * @throws IOException if the client disconnects or the stream cannot be written
+     */
+    @Transactional(readOnly = true)
+    public long exportOrders(String accountId, OutputStream out) throws IOException {
+        long rows = 0;
+        try (Stream<OrderView> orders = orderRepo.streamByAccountId(accountId);
+                JsonGenerator generator = writer.createGenerator(out)) {
+            // lines are terminated explicitly instead of separating root values with a space
+            generator.setRootValueSeparator(null);
+            for (Iterator<OrderView> it = orders.iterator(); it.hasNext(); rows++) {
+                writer.writeValue(generator, OrderMapper.INSTANCE.orderViewToOrderDto(it.next()));
+                generator.writeRaw('\n');
+            }
+        } finally {
+            exportedRows.increment(rows);
+        }
+        log.info("Exported {} orders of account {}", rows, accountId);
+        return rows;
+    }
+}
@@ -0,0 +1,361 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.IdempotentResponse;
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.entity.OrderEvent;
+import com.bogdanenache.order_service.dao.entity.OrderKey;
+import com.bogdanenache.order_service.dao.repository.IdempotentResponseBatchRepository;
+import com.bogdanenache.order_service.dao.repository.OrderBatchRepository;
+import com.bogdanenache.order_service.dao.repository.OrderEventRepository;
+import com.bogdanenache.order_service.dao.repository.OrderInsertRepository;
+import com.bogdanenache.order_service.dao.repository.OrderKeyRepository;
+import com.bogdanenache.order_service.dao.repository.OrderRepository;
+import com.bogdanenache.order_service.dao.repository.PositionRepository;
+import com.bogdanenache.order_service.exception.IdempotencyHeaderException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.postgresql.util.PSQLException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.bogdanenache.order_service.exception.IdempotencyHeaderException.Message.USED_IDEMPOTENCY_KEY;
+
+/**
+ * Saves placed orders. When group commit is enabled, orders saved within a short window are
+ * written together in one transaction with multi-row inserts, so concurrent placements share a single commit.
+ * A group is flushed when the window elapses or when it reaches the maximum size, whichever comes first,
+ * and each caller returns once the shared commit succeeded.
+ * An order saved alone goes through JPA, or with lean writes enabled through prepared JDBC statements that skip
+ * the persistence context; both write the same rows.
+ * Every saved order gets its order-created event inserted into the outbox, its idempotent response stored and
+ * is added to the position of its account in the same transaction.
+ */
+@Slf4j
+@Component
+public class OrderGroupCommitter {
+
+    private final OrderRepository orderRepo;
+    private final OrderKeyRepository orderKeyRepo;
+    private final OrderBatchRepository orderBatchRepo;
+    private final OrderInsertRepository orderInsertRepo;
+    private final OrderEventRepository orderEventRepo;
+    private final OrderEvents orderEvents;
+    private final PositionRepository positionRepo;
+    private final IdempotentResponseBatchRepository responseRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final boolean leanWrites;
+    private final long windowNanos;
+    private final int maxSize;
+    private final DistributionSummary groupSize;
+    private final Timer flushLatency;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService writer;
+
+    private List<PendingOrder> pending = new ArrayList<>();
+
+    /**
+     * Creates the committer and, when enabled, its timer and writer threads.
+     *
+     * @param orderRepo the repository orders are saved through when group commit is disabled
+     * @param orderKeyRepo the repository the idempotency key of an order saved alone is claimed through
+     * @param orderBatchRepo the repository writing a group of orders with multi-row inserts
+     * @param orderInsertRepo the repository writing an order saved alone when lean writes are enabled
+     * @param orderEventRepo the repository the events of saved orders are inserted into the outbox through
+     * @param orderEvents the factory of the events of saved orders
+     * @param positionRepo the repository saved orders are added to the positions of their accounts through
+     * @param responseRepo the repository the responses of saved orders are stored through
+     * @param transactionManager the transaction manager a group is committed with
+     * @param meterRegistry the registry where group sizes and flush latencies are published
+     * @param enabled whether concurrent saves are grouped at all
+     * @param leanWrites whether an order saved alone is inserted with JDBC statements instead of through JPA
+     * @param window how long a group collects orders before it is flushed
+     * @param maxSize the number of orders after which a group is flushed without waiting for the window
+     * @param concurrency the number of groups that may be written at the same time
+     */
+    public OrderGroupCommitter(OrderRepository orderRepo,
+            OrderKeyRepository orderKeyRepo,
+            OrderBatchRepository orderBatchRepo,
+            OrderInsertRepository orderInsertRepo,
+            OrderEventRepository orderEventRepo,
+            OrderEvents orderEvents,
+            PositionRepository positionRepo,
+            IdempotentResponseBatchRepository responseRepo,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.group-commit.enabled:false}") boolean enabled,
+            @Value("${order-service.lean-writes.enabled:false}") boolean leanWrites,
+            @Value("${order-service.group-commit.window:2ms}") Duration window,
+            @Value("${order-service.group-commit.max-size:100}") int maxSize,
+            @Value("${order-service.group-commit.concurrency:2}") int concurrency) {
+        this.orderRepo = orderRepo;
+        this.orderKeyRepo = orderKeyRepo;
+        this.orderBatchRepo = orderBatchRepo;
+        this.orderInsertRepo = orderInsertRepo;
+        this.orderEventRepo = orderEventRepo;
+        this.orderEvents = orderEvents;
+        this.positionRepo = positionRepo;
+        this.responseRepo = responseRepo;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.leanWrites = leanWrites;
+        this.windowNanos = window.toNanos();
+        this.maxSize = maxSize;
+        this.groupSize = DistributionSummary.builder("order.group-commit.size")
+                .description("Number of orders written in one group commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flushLatency = Timer.builder("order.group-commit.flush.latency")
+                .description("Time taken to insert and commit one group of orders")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.scheduler = enabled
+                ? Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("order-commit-timer").daemon().factory())
+                : null;
+        this.writer = enabled
+                ? Executors.newFixedThreadPool(concurrency, Thread.ofPlatform().name("order-commit-writer-", 0).daemon().factory())
+                : null;
+    }
+
+    /**
+     * Saves an order with its execution and waits until it is committed.
+     * When group commit is disabled the order is saved in its own transaction instead.
+     *
+     * @param order the order to save, with its execution set
+     * @param response the response replayed for the idempotency key of the order, stored with it
+     * @return the saved order
+     * @throws IdempotencyHeaderException if another order with the same idempotency key was saved first
+     */
+    public Order save(Order order, IdempotentResponse response) {
+        if (!enabled) {
+            return saveAlone(order, response);
+        }
+        return Futures.join(submit(order, response));
+    }
+
+    /**
+     * Adds an order to the current group. Requires group commit to be enabled.
+     * The first order of a group starts its window, the order that fills the group flushes it immediately.
+     *
+     * @param order the order to save, with its execution set
+     * @param response the response replayed for the idempotency key of the order, stored with it
+     * @return a future completed once the group containing the order is committed
+     */
+    public CompletableFuture<Order> submit(Order order, IdempotentResponse response) {
+        final CompletableFuture<Order> future = new CompletableFuture<>();
+        List<PendingOrder> full = null;
+        lock.lock();
+        try {
+            if (pending.isEmpty()) {
+                final List<PendingOrder> group = pending;
+                scheduler.schedule(() -> flush(group), windowNanos, TimeUnit.NANOSECONDS);
+            }
+            pending.add(new PendingOrder(order, response, future));
+            if (pending.size() >= maxSize) {
+                full = takePending();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            write(full);
+        }
+        return future;
+    }
+
+    /**
+     * Flushes a group whose window elapsed, unless it was already flushed because it became full.
+     *
+     * @param group the group the timer was started for
+     */
+    private void flush(List<PendingOrder> group) {
+        lock.lock();
+        try {
+            if (pending != group || group.isEmpty()) {
+                return;
+            }
+            takePending();
+        } finally {
+            lock.unlock();
+        }
+        write(group);
+    }
+
+    /**
+     * Detaches the current group and starts a new one. Must be called while holding the lock.
+     *
+     * @return the detached group
+     */
+    private List<PendingOrder> takePending() {
+        final List<PendingOrder> group = pending;
+        pending = new ArrayList<>();
+        return group;
+    }
+
+    /**
+     * Writes a detached group with the events, responses and positions of its inserted orders in one transaction on the writer threads
+     * and completes its futures after the commit.
+     * Orders skipped by the insert because their idempotency key is already used fail with IdempotencyHeaderException.
+     * If the group cannot be written at all, every order is retried in its own transaction so only the offending one fails.
+     *
+     * @param group the group to write
+     */
+    private void write(List<PendingOrder> group) {
+        writer.execute(() -> {
+            groupSize.record(group.size());
+            final List<Order> orders = group.stream().map(PendingOrder::order).toList();
+            try {
+                final List<OrderEvent> events = orders.stream().map(orderEvents::created).toList();
+                final List<IdempotentResponse> responses = group.stream().map(PendingOrder::response).toList();
+                final List<Order> skipped = flushLatency.record(() -> transactionTemplate.execute(status -> {
+                    final List<Order> used = orderBatchRepo.insertAll(orders);
+                    orderEventRepo.insertAll(inserted(events, orders, used));
+                    responseRepo.insertAll(inserted(responses, orders, used));
+                    positionRepo.addAll(inserted(orders, orders, used));
+                    return used;
+                }));
+                group.forEach(pendingOrder -> {
+                    if (skipped.contains(pendingOrder.order())) {
+                        pendingOrder.future().completeExceptionally(usedKey(pendingOrder.order()));
+                    } else {
+                        pendingOrder.future().complete(pendingOrder.order());
+                    }
+                });
+            } catch (RuntimeException e) {
+                log.error("Group commit of {} orders failed, saving them one by one", group.size(), e);
+                group.forEach(this::saveAlone);
+            }
+        });
+    }
+
+    /**
+     * Keeps the elements belonging to orders that were inserted.
+     *
+     * @param elements the elements, one per order of the group in the same order
+     * @param orders the orders of the group
+     * @param skipped the orders skipped by the insert
+     * @return the elements of the inserted orders
+     */
+    private static <T> List<T> inserted(List<T> elements, List<Order> orders, List<Order> skipped) {
+        if (skipped.isEmpty()) {
+            return elements;
+        }
+        final List<T> inserted = new ArrayList<>(elements.size());
+        for (int i = 0; i < orders.size(); i++) {
+            if (!skipped.contains(orders.get(i))) {
+                inserted.add(elements.get(i));
+            }
+        }
+        return inserted;
+    }
+
+    private void saveAlone(PendingOrder pendingOrder) {
+        try {
+            pendingOrder.future().complete(saveAlone(pendingOrder.order(), pendingOrder.response()));
+        } catch (RuntimeException e) {
+            pendingOrder.future().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Saves an order in its own transaction. The key row is inserted first, so the insert is rejected by
+     * the idempotency key constraint before the order is written when a concurrent request already saved an order with the same key.
+     *
+     * @param order the order to save, with its execution set
+     * @param response the response replayed for the idempotency key of the order, stored with it
+     * @return the saved order
+     * @throws IdempotencyHeaderException if the idempotency key is already used
+     */
+    private Order saveAlone(Order order, IdempotentResponse response) {
+        final OrderEvent event = orderEvents.created(order);
+        try {
+            if (leanWrites) {
+                final boolean inserted = transactionTemplate.execute(status -> {
+                    if (!orderInsertRepo.insert(order)) {
+                        return false;
+                    }
+                    orderEventRepo.insertAll(List.of(event));
+                    responseRepo.insertAll(List.of(response));
+                    positionRepo.addAll(List.of(order));
+                    return true;
+                });
+                if (!inserted) {
+                    throw usedKey(order);
+                }
+                return order;
+            }
+            return transactionTemplate.execute(status -> {
+                orderKeyRepo.save(OrderKey.of(order));
+                final Order saved = orderRepo.save(order);
+                orderEventRepo.insertAll(List.of(event));
+                responseRepo.insertAll(List.of(response));
+                positionRepo.addAll(List.of(order));
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (isUsedKey(e)) {
+                throw usedKey(order);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Tells whether an insert was rejected because the idempotency key is already used: either an order holds the key,
+     * or a response was stored for it, for example a rejection answered by another instance.
+     *
+     * @param e the failure of the insert
+     * @return true if the idempotency key is already used
+     */
+    static boolean isUsedKey(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && OrderKey.IDEMPOTENCY_KEY_CONSTRAINT.equalsIgnoreCase(violation.getConstraintName())) {
+                return true;
+            }
+            if (cause instanceof PSQLException psql && psql.getServerErrorMessage() != null
+                    && IdempotentResponse.TABLE.equalsIgnoreCase(psql.getServerErrorMessage().getTable())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static IdempotencyHeaderException usedKey(Order order) {
+        log.error("Idempotency key {} was used concurrently, order {} is not saved", order.getIdempotencyKey(), order.getOrderInternalId());
+        return new IdempotencyHeaderException(USED_IDEMPOTENCY_KEY.with(order.getIdempotencyKey()));
+    }
+
+    /**
+     * Stops the timer and writer threads when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    private record PendingOrder(Order order, IdempotentResponse response, CompletableFuture<Order> future) {
+    }
+}
@@ -0,0 +1,64 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dto.ImportFormat;
+import com.bogdanenache.order_service.dto.ImportResult;
+import com.bogdanenache.order_service.exception.BadRequestException;
+import com.bogdanenache.order_service.exception.ErrorCode;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import static com.bogdanenache.order_service.exception.BadRequestException.Message.UNKNOWN_IMPORT_FORMAT;
+
+/**
+ * Runs a bulk order import from the command line, with the same jar as the service:
+ * <pre>
+ * java -jar order-service.jar --spring.main.web-application-type=none \
+ *     --order-service.import.file=orders.csv --order-service.import.id=venue-x-2019
+ * </pre>
+ * The format is taken from the file extension, .csv or .ndjson. Without a web server the application
+ * exits once the import is done; running the same command again after a failure resumes the import.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "order-service.import.file")
+public class OrderImportRunner implements ApplicationRunner {
+
+    private final OrderImportService orderImportService;
+    private final Path file;
+    private final String importId;
+
+    /**
+     * Creates the runner.
+     *
+     * @param orderImportService the service loading the orders
+     * @param file the file to import
+     * @param importId the id of the import, the file name when empty
+     */
+    public OrderImportRunner(OrderImportService orderImportService,
+            @Value("${order-service.import.file}") Path file,
+            @Value("${order-service.import.id:}") String importId) {
+        this.orderImportService = orderImportService;
+        this.file = file;
+        this.importId = importId;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        final ImportFormat format = ImportFormat.ofFileName(file.getFileName().toString())
+                .orElseThrow(() -> new BadRequestException(UNKNOWN_IMPORT_FORMAT.with(file), ErrorCode.VALIDATION_ERROR));
+        // the file name identifies the import unless an id is given
+        final String id = importId.isBlank() ? file.getFileName().toString() : importId;
+        try (InputStream in = Files.newInputStream(file)) {
+            final ImportResult result = orderImportService.importOrders(id, format, in);
+            log.info("Imported {} orders from {} at {} records/s, {} rejected, {} skipped as already imported",
+                    result.imported(), file, Math.round(result.rowsPerSecond()), result.rejected(), result.resumedFrom());
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.Execution;
+import com.bogdanenache.order_service.dao.entity.ImportCheckpoint;
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.entity.Order.OrderSide;
+import com.bogdanenache.order_service.dao.entity.Order.OrderStatus;
+import com.bogdanenache.order_service.dao.repository.ImportCheckpointRepository;
+import com.bogdanenache.order_service.dao.repository.OrderCopyRepository;
+import com.bogdanenache.order_service.dao.repository.PositionRepository;
+import com.bogdanenache.order_service.dto.ExecutionDTO;
+import com.bogdanenache.order_service.dto.FixedPrice;
+import com.bogdanenache.order_service.dto.ImportFormat;
+import com.bogdanenache.order_service.dto.ImportResult;
+import com.bogdanenache.order_service.dto.OrderDTO;
+import com.bogdanenache.order_service.dto.TimeOrderedUuid;
+import com.bogdanenache.order_service.exception.BadRequestException;
+import com.bogdanenache.order_service.exception.ErrorCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.bogdanenache.order_service.exception.BadRequestException.Message.CONCURRENT_IMPORT;
+import static com.bogdanenache.order_service.exception.BadRequestException.Message.MISSING_IMPORT_COLUMN;
+
+/**
+ * Loads historical orders in bulk, for backfills and migrations of books from other venues.
+ * The input is read as a stream, record by record, and validated with the rules of OrderDTO plus an execution
+ * price and a creation time; invalid records are counted and logged, not loaded. Valid orders are loaded in chunks
+ * with COPY, and each chunk commits together with the import's checkpoint, so a run that stops for any reason
+ * is resumed by running the same import id again: the records of committed chunks are skipped.
+ * Imported orders are historical, they publish no order events but are added to the positions of their accounts.
+ */
+@Slf4j
+@Service
+public class OrderImportService {
+
+    /**
+     * Columns of a CSV import, in any order; id and status are optional.
+     */
+    static final List<String> CSV_COLUMNS = List.of("id", "accountId", "symbol", "side", "quantity", "status", "createdAt", "price");
+
+    private static final Set<String> OPTIONAL_CSV_COLUMNS = Set.of("id", "status");
+
+    private final OrderCopyRepository orderCopyRepo;
+    private final ImportCheckpointRepository checkpointRepo;
+    private final PositionRepository positionRepo;
+    private final ObjectProvider<PartitionMaintenance> partitionMaintenance;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final Counter importedRows;
+    private final Counter rejectedRows;
+
+    /**
+     * Creates the service.
+     *
+     * @param orderCopyRepo the repository chunks of orders are copied through
+     * @param checkpointRepo the repository the progress of imports is kept in
+     * @param positionRepo the repository imported orders are added to the positions of their accounts through
+     * @param partitionMaintenance creates the partitions of past months, absent when the tables are not partitioned
+     * @param validator the validator applying the rules of OrderDTO
+     * @param objectMapper the mapper reading NDJSON records
+     * @param transactionManager the transaction manager a chunk and its checkpoint are committed with
+     * @param meterRegistry the registry where imported and rejected records are counted
+     * @param chunkSize the number of records loaded per transaction
+     */
+    public OrderImportService(OrderCopyRepository orderCopyRepo,
+            ImportCheckpointRepository checkpointRepo,
+            PositionRepository positionRepo,
+            ObjectProvider<PartitionMaintenance> partitionMaintenance,
+            Validator validator,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.import.chunk-size:10000}") int chunkSize) {
+        this.orderCopyRepo = orderCopyRepo;
+        this.checkpointRepo = checkpointRepo;
+        this.positionRepo = positionRepo;
+        this.partitionMaintenance = partitionMaintenance;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.importedRows = Counter.builder("order.import.rows").tag("result", "imported")
+                .description("Records read by bulk order imports")
+                .register(meterRegistry);
+        this.rejectedRows = Counter.builder("order.import.rows").tag("result", "rejected")
+                .description("Records read by bulk order imports")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Imports orders from a stream, resuming after the records committed by earlier runs of the same import.
+     * The stream is read to its end but not closed.
+     *
+     * @param importId the id of the import, the same for every run over the same input
+     * @param format the format of the input
+     * @param in the input
+     * @return the outcome of this run
+     * @throws IOException if the input cannot be read
+     * @throws BadRequestException if a CSV header misses a column or the import is run elsewhere at the same time
+     */
+    public ImportResult importOrders(String importId, ImportFormat format, InputStream in) throws IOException {
+        final long start = System.nanoTime();
+        final long resumedFrom = checkpointRepo.findById(importId).map(ImportCheckpoint::getRecords).orElse(0L);
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        final RecordReader records = format == ImportFormat.CSV ? csvReader(reader.readLine()) : this::readJson;
+        final Chunk chunk = new Chunk(resumedFrom);
+        long imported = 0;
+        long rejected = 0;
+        long record = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.isBlank() || ++record <= resumedFrom) {
+                continue;
+            }
+            final Order order = toOrder(importId, record, records, line);
+            if (order == null) {
+                chunk.rejected++;
+            } else {
+                chunk.orders.add(order);
+            }
+            // a chunk with no valid order is not committed on its own, its records are checkpointed with the next one
+            if (++chunk.records >= chunkSize && !chunk.orders.isEmpty()) {
+                imported += chunk.orders.size();
+                rejected += chunk.rejected;
+                commit(importId, chunk);
+                chunk.next();
+                log.info("Import {}: {} records loaded, {} rejected", importId, record, rejected);
+            }
+        }
+        if (chunk.records > 0) {
+            imported += chunk.orders.size();
+            rejected += chunk.rejected;
+            commit(importId, chunk);
+        }
+        final double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        final ImportResult result = new ImportResult(importId, resumedFrom, imported, rejected, (imported + rejected) / seconds);
+        log.info("Import {} finished: {}", importId, result);
+        return result;
+    }
+
+    /**
+     * Copies a chunk and advances the checkpoint in one transaction. The checkpoint is locked first and must be
+     * where this run left it, otherwise another run of the same import loaded records in the meantime.
+     * A chunk holding rejected records only, at the end of the input, just advances the checkpoint.
+     */
+    private void commit(String importId, Chunk chunk) {
+        createPartitions(chunk.orders);
+        transactionTemplate.executeWithoutResult(status -> {
+            final ImportCheckpoint checkpoint = checkpointRepo.findForUpdate(importId)
+                    .orElseGet(() -> ImportCheckpoint.builder().importId(importId).build());
+            if (checkpoint.getRecords() != chunk.from) {
+                throw new BadRequestException(CONCURRENT_IMPORT.with(importId), ErrorCode.CONFLICT);
+            }
+            if (!chunk.orders.isEmpty()) {
+                orderCopyRepo.copyAll(chunk.orders);
+                // failed orders were never executed, so they hold no position
+                positionRepo.addAll(chunk.orders.stream().filter(order -> order.getStatus() == OrderStatus.PROCESSED).toList());
+            }
+            checkpoint.setRecords(chunk.from + chunk.records);
+            checkpoint.setImported(checkpoint.getImported() + chunk.orders.size());
+            checkpoint.setRejected(checkpoint.getRejected() + chunk.rejected);
+            checkpoint.setUpdatedAt(Instant.now());
+            checkpointRepo.save(checkpoint);
+        });
+        importedRows.increment(chunk.orders.size());
+        rejectedRows.increment(chunk.rejected);
+    }
+
+    private void createPartitions(List<Order> orders) {
+        final PartitionMaintenance partitions = partitionMaintenance.getIfAvailable();
+        if (partitions == null || orders.isEmpty()) {
+            return;
+        }
+        Instant first = orders.getFirst().getCreatedAt();
+        Instant last = first;
+        for (Order order : orders) {
+            first = order.getCreatedAt().isBefore(first) ? order.getCreatedAt() : first;
+            last = order.getCreatedAt().isAfter(last) ? order.getCreatedAt() : last;
+        }
+        partitions.createPartitions(LocalDate.ofInstant(first, ZoneOffset.UTC), LocalDate.ofInstant(last, ZoneOffset.UTC));
+    }
+
+    /**
+     * Reads and validates one record.
+     *
+     * @return the order with its execution, or null if the record is not a valid order
+     */
+    private Order toOrder(String importId, long record, RecordReader records, String line) {
+        final OrderDTO dto;
+        try {
+            dto = records.read(line);
+        } catch (RuntimeException | IOException e) {
+            log.warn("Import {}: record {} rejected, it cannot be read: {}", importId, record, e.getMessage());
+            return null;
+        }
+        final String invalid = validate(dto);
+        if (invalid != null) {
+            log.warn("Import {}: record {} rejected, {}", importId, record, invalid);
+            return null;
+        }
+        final Instant createdAt = dto.createdAt() != null ? dto.createdAt() : dto.execution().createdAt();
+        final UUID internalId = dto.id() == null || dto.id().isBlank()
+                ? TimeOrderedUuid.at(createdAt)
+                : UUID.fromString(dto.id());
+        final Order order = Order.builder()
+                .orderInternalId(internalId)
+                .accountId(dto.accountId())
+                .symbol(dto.symbol())
+                .side(OrderSide.valueOf(dto.side()))
+                .quantity(dto.quantity())
+                .status(dto.status() == null ? OrderStatus.PROCESSED : OrderStatus.valueOf(dto.status()))
+                .createdAt(createdAt)
+                .idempotencyKey(internalId.toString())
+                .build();
+        final Instant executedAt = dto.execution().createdAt() != null ? dto.execution().createdAt() : createdAt;
+        order.setExecution(Execution.builder()
+                .order(order)
+                .internalId(dto.execution().id() == null ? TimeOrderedUuid.at(executedAt) : UUID.fromString(dto.execution().id()))
+                .price(FixedPrice.of(dto.execution().price()))
+                .priceTimestamp(executedAt)
+                .createdAt(executedAt)
+                .build());
+        return order;
+    }
+
+    /**
+     * Applies the rules of OrderDTO and the ones only an imported order has.
+     *
+     * @return why the record is invalid, or null if it is valid
+     */
+    private String validate(OrderDTO dto) {
+        final Set<ConstraintViolation<OrderDTO>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        if (dto.execution() == null || dto.execution().price() == null || dto.execution().price().signum() <= 0) {
+            return "price must be positive";
+        }
+        if (dto.createdAt() == null && dto.execution().createdAt() == null) {
+            return "createdAt must not be null";
+        }
+        if (dto.status() != null && !isStatus(dto.status())) {
+            return "status must be PROCESSED or FAILED";
+        }
+        if ((dto.id() != null && !dto.id().isBlank() && TimeOrderedUuid.parse(dto.id()).isEmpty())
+                || (dto.execution().id() != null && TimeOrderedUuid.parse(dto.execution().id()).isEmpty())) {
+            return "id must be a UUID";
+        }
+        return null;
+    }
+
+    // a pending order would be executed again by the order pipeline, so only completed orders are imported
+    private static boolean isStatus(String status) {
+        return OrderStatus.PROCESSED.name().equals(status) || OrderStatus.FAILED.name().equals(status);
+    }
+
+    private OrderDTO readJson(String line) throws IOException {
+        return objectMapper.readValue(line, OrderDTO.class);
+    }
+
+    /**
+     * Creates the reader of the records of a CSV input from its header line.
+     *
+     * @param header the first line of the input
+     * @return the record reader
+     * @throws BadRequestException if a required column is missing
+     */
+    static RecordReader csvReader(String header) {
+        final Map<String, Integer> columns = new HashMap<>();
+        final List<String> names = header == null ? List.of() : splitCsv(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).strip().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : CSV_COLUMNS) {
+            if (!OPTIONAL_CSV_COLUMNS.contains(column) && !columns.containsKey(column.toLowerCase(Locale.ROOT))) {
+                throw new BadRequestException(MISSING_IMPORT_COLUMN.with(column), ErrorCode.VALIDATION_ERROR);
+            }
+        }
+        return line -> {
+            final List<String> values = splitCsv(line);
+            final Map<String, String> row = new HashMap<>();
+            columns.forEach((column, index) -> {
+                if (index < values.size() && !values.get(index).isEmpty()) {
+                    row.put(column, values.get(index));
+                }
+            });
+            final Instant createdAt = Instant.parse(row.get("createdat"));
+            final String quantity = row.get("quantity");
+            return new OrderDTO(row.get("id"), row.get("accountid"), row.get("symbol"), row.get("side"),
+                    quantity == null ? null : Integer.valueOf(quantity), row.get("status"), createdAt,
+                    new ExecutionDTO(null, null, new BigDecimal(row.get("price")), createdAt));
+        };
+    }
+
+    /**
+     * Splits one CSV line into its fields. Fields may be quoted, a quote inside a quoted field is doubled;
+     * fields spanning several lines are not supported.
+     */
+    static List<String> splitCsv(String line) {
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Reads one record of the input as an order.
+     */
+    @FunctionalInterface
+    interface RecordReader {
+
+        OrderDTO read(String line) throws IOException;
+    }
+
+    /**
+     * The records read since the last commit.
+     */
+    private static final class Chunk {
+
+        private final List<Order> orders = new ArrayList<>();
+        private long from;
+        private int records;
+        private int rejected;
+
+        private Chunk(long from) {
+            this.from = from;
+        }
+
+        private void next() {
+            from += records;
+            records = 0;
+            rejected = 0;
+            orders.clear();
+        }
+    }
+}
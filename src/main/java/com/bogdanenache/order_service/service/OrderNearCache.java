@@ -0,0 +1,117 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dto.OrderDTO;
+import com.bogdanenache.order_service.exception.ErrorCode;
+import com.bogdanenache.order_service.exception.UnexpectedException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import static com.bogdanenache.order_service.exception.UnexpectedException.Message.UNABLE_TO_SERIALIZE_RESPONSE;
+
+/**
+ * Near cache of placed orders keyed by internal id. Orders never change once placed, so entries are never invalidated;
+ * orders still pending are encoded without being cached.
+ * Each order is kept as its JSON response body in a direct buffer outside the heap; only the small buffer handles
+ * are on-heap, which keeps large caches out of the way of the garbage collector. The cache is bounded by the total
+ * size of the encoded orders and evicts with Caffeine's W-TinyLFU policy. The memory of an evicted order is
+ * released when its buffer handle is collected, so the off-heap gauge counts a buffer until then.
+ * Hits hand out a read-only view of the cached buffer, the order is copied once, straight into the response.
+ */
+@Service
+public class OrderNearCache {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Cache<String, ByteBuffer> cache;
+    private final AtomicLong offHeapBytes = new AtomicLong();
+
+    /**
+     * Creates the cache and registers its hit, miss, eviction and memory metrics.
+     *
+     * @param objectMapper the mapper encoding orders exactly like the REST responses
+     * @param meterRegistry the registry where cache metrics are published
+     * @param enabled whether orders are cached at all
+     * @param maximumSize the maximum total size of the encoded orders kept off-heap
+     */
+    public OrderNearCache(ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.order-cache.enabled:true}") boolean enabled,
+            @Value("${order-service.order-cache.maximum-size:64MB}") DataSize maximumSize) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        final Cache<String, ByteBuffer> orders = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((String internalId, ByteBuffer order) -> order.capacity())
+                .recordStats()
+                // evictions run on the caller, the cache never holds more than its maximum size between puts
+                .executor(Runnable::run)
+                .build();
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, orders, "orderCache");
+        Gauge.builder("order.cache.off-heap.bytes", offHeapBytes, AtomicLong::get)
+                .description("Direct memory held by cached orders, including evicted ones not collected yet")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("order.cache.hit.ratio", orders, c -> c.stats().hitRate())
+                .description("Share of order lookups served from the near cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the JSON body of a cached order without decoding or copying it.
+     *
+     * @param internalId the internal id of the order
+     * @return a read-only view of the encoded order, or null if it is not cached
+     */
+    public ByteBuffer get(String internalId) {
+        final ByteBuffer order = cache.getIfPresent(internalId);
+        // each caller gets its own position, the cached buffer is never moved
+        return order == null ? null : order.duplicate();
+    }
+
+    /**
+     * Encodes an order and caches it off-heap.
+     *
+     * @param internalId the internal id of the order
+     * @param order the placed order
+     * @return the JSON body of the order
+     */
+    public ByteBuffer put(String internalId, OrderDTO order) {
+        final byte[] body = encode(order);
+        if (enabled) {
+            final int size = body.length;
+            final ByteBuffer direct = ByteBuffer.allocateDirect(size);
+            offHeapBytes.addAndGet(size);
+            // released with the direct memory, once the buffer and every view of it are collected
+            CLEANER.register(direct, () -> offHeapBytes.addAndGet(-size));
+            cache.put(internalId, direct.put(body).flip().asReadOnlyBuffer());
+        }
+        return ByteBuffer.wrap(body).asReadOnlyBuffer();
+    }
+
+    /**
+     * Encodes an order exactly like it is cached, without caching it.
+     *
+     * @param order the order
+     * @return the JSON body of the order
+     */
+    public byte[] encode(OrderDTO order) {
+        try {
+            return objectMapper.writeValueAsBytes(order);
+        } catch (JsonProcessingException e) {
+            throw new UnexpectedException(UNABLE_TO_SERIALIZE_RESPONSE.getFormatMessage(), ErrorCode.INTERNAL_ERROR, e);
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.IdempotentResponse;
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.entity.Order.OrderStatus;
+import com.bogdanenache.order_service.dao.entity.OrderEvent;
+import com.bogdanenache.order_service.dao.repository.IdempotentResponseBatchRepository;
+import com.bogdanenache.order_service.dao.repository.OrderBatchRepository;
+import com.bogdanenache.order_service.dao.repository.OrderEventRepository;
+import com.bogdanenache.order_service.dao.repository.OrderInsertRepository;
+import com.bogdanenache.order_service.dao.repository.PositionRepository;
+import com.bogdanenache.order_service.dto.OrderDTO;
+import com.bogdanenache.order_service.dto.OrderOutcome;
+import com.bogdanenache.order_service.dto.OrderOutcome.Accepted;
+import com.bogdanenache.order_service.dto.PriceResult;
+import com.bogdanenache.order_service.dto.PriceResult.FeedUnavailable;
+import com.bogdanenache.order_service.dto.PriceResult.Priced;
+import com.bogdanenache.order_service.dto.PriceResult.UnknownSymbol;
+import com.bogdanenache.order_service.exception.IdempotencyHeaderException;
+import com.bogdanenache.order_service.mapper.OrderMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.bogdanenache.order_service.exception.IdempotencyHeaderException.Message.USED_IDEMPOTENCY_KEY;
+
+/**
+ * Accepts orders without pricing them on the request thread. An accepted order is saved PENDING with its idempotency
+ * key and the response replayed for it in its own small transaction, so it survives a restart, and queued in a bounded ring buffer; the request is
+ * answered as soon as the order is committed. The buffer is split in shards by symbol, each an array allocated once
+ * and drained by its own consumer thread, which prices a batch of orders with one lookup per symbol and completes
+ * the whole batch, with its events and positions, in one transaction.
+ * A slot is reserved before the order is saved and freed once its batch is committed, so an order is only accepted
+ * when it can be queued; a full shard rejects new orders for its symbols. Orders for an unknown symbol are completed
+ * FAILED, as the synchronous path rejects them. A batch that cannot be committed, or whose orders could not be priced
+ * because the feed is unavailable, keeps its slots and the orders left pending are retried by its consumer with a
+ * growing backoff, so a shard whose batches fail fills up and turns new orders away instead of failing accepted ones.
+ * Orders left pending by a stopped instance are queued again on a separate thread when the application starts;
+ * an order is only completed while it is still pending, so one queued twice is executed once.
+ */
+@Slf4j
+@Component
+public class OrderPipeline {
+
+    private final PriceBook priceBook;
+    private final PriceCacheService priceCache;
+    private final OrderInsertRepository orderInsertRepo;
+    private final OrderBatchRepository orderBatchRepo;
+    private final OrderEventRepository orderEventRepo;
+    private final OrderEvents orderEvents;
+    private final PositionRepository positionRepo;
+    private final IdempotentResponseService idempotentResponses;
+    private final IdempotentResponseBatchRepository responseRepo;
+    private final ReplicaReadRouter readRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long retryBackoffMillis;
+    private final long maxRetryBackoffMillis;
+    private final Shard[] shards;
+    private final Counter rejected;
+    private final DistributionSummary batchSizes;
+    private final Timer batchLatency;
+    private final ExecutorService consumers;
+    private volatile Thread recovery;
+
+    /**
+     * Creates the pipeline and, when enabled, its buffers and consumer threads.
+     *
+     * @param priceBook the streamed prices, used before the price cache
+     * @param priceCache the cache in front of the price feed
+     * @param orderInsertRepo the repository accepted orders are saved pending through
+     * @param orderBatchRepo the repository a batch of pending orders is completed through
+     * @param orderEventRepo the repository the events of executed orders are inserted into the outbox through
+     * @param orderEvents the factory of the events of executed orders
+     * @param positionRepo the repository executed orders are added to the positions of their accounts through
+     * @param idempotentResponses the service preparing the responses of accepted orders
+     * @param responseRepo the repository the responses of accepted orders are stored through
+     * @param readRouter the router told about written orders, so they are read back from the primary
+     * @param transactionManager the transaction manager orders are saved and completed with
+     * @param meterRegistry the registry where buffer usage, rejections and batch metrics are published
+     * @param enabled whether orders are accepted asynchronously at all
+     * @param shards the number of shards, each with its own buffer and consumer thread
+     * @param bufferSize the number of orders a shard holds, rounded up to a power of two
+     * @param batchSize the maximum number of orders priced and completed together
+     * @param retryBackoff how long a consumer waits before retrying a batch that could not be committed
+     * @param maxRetryBackoff the longest wait between two retries, the backoff doubles after each failure up to it
+     */
+    public OrderPipeline(PriceBook priceBook,
+            PriceCacheService priceCache,
+            OrderInsertRepository orderInsertRepo,
+            OrderBatchRepository orderBatchRepo,
+            OrderEventRepository orderEventRepo,
+            OrderEvents orderEvents,
+            PositionRepository positionRepo,
+            IdempotentResponseService idempotentResponses,
+            IdempotentResponseBatchRepository responseRepo,
+            ReplicaReadRouter readRouter,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.async-orders.enabled:false}") boolean enabled,
+            @Value("${order-service.async-orders.shards:4}") int shards,
+            @Value("${order-service.async-orders.buffer-size:4096}") int bufferSize,
+            @Value("${order-service.async-orders.batch-size:100}") int batchSize,
+            @Value("${order-service.async-orders.retry-backoff:100ms}") Duration retryBackoff,
+            @Value("${order-service.async-orders.max-retry-backoff:10s}") Duration maxRetryBackoff) {
+        this.priceBook = priceBook;
+        this.priceCache = priceCache;
+        this.orderInsertRepo = orderInsertRepo;
+        this.orderBatchRepo = orderBatchRepo;
+        this.orderEventRepo = orderEventRepo;
+        this.orderEvents = orderEvents;
+        this.positionRepo = positionRepo;
+        this.idempotentResponses = idempotentResponses;
+        this.responseRepo = responseRepo;
+        this.readRouter = readRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.retryBackoffMillis = retryBackoff.toMillis();
+        this.maxRetryBackoffMillis = maxRetryBackoff.toMillis();
+        this.shards = new Shard[enabled ? shards : 0];
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new Shard(bufferSize <= 1 ? 1 : Integer.highestOneBit(bufferSize - 1) << 1);
+        }
+        this.rejected = Counter.builder("order.pipeline.rejected")
+                .description("Orders rejected because the buffer of their shard was full")
+                .register(meterRegistry);
+        Gauge.builder("order.pipeline.buffered", this, OrderPipeline::buffered)
+                .description("Orders accepted and not completed yet")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("order.pipeline.batch.size")
+                .description("Number of orders priced and completed together")
+                .register(meterRegistry);
+        this.batchLatency = Timer.builder("order.pipeline.batch.latency")
+                .description("Time taken to price and complete one batch of orders")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.consumers = enabled
+                ? Executors.newFixedThreadPool(shards, Thread.ofPlatform().name("order-pipeline-", 0).daemon().factory())
+                : null;
+        for (Shard shard : this.shards) {
+            consumers.execute(shard::consume);
+        }
+    }
+
+    /**
+     * Whether orders are accepted asynchronously.
+     *
+     * @return true if orders are accepted asynchronously
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Saves an order pending, together with the response replayed for its key, and queues it to be priced and executed.
+     * Requires the pipeline to be enabled.
+     *
+     * @param orderDTO the data transfer object containing order details
+     * @param idempotencyKey to be saved along the order to ensure idempotency
+     * @return the accepted pending order, or the rejection when the buffer of its shard is full
+     * @throws IdempotencyHeaderException if the idempotency key is already used
+     */
+    public OrderOutcome accept(OrderDTO orderDTO, String idempotencyKey) {
+        final Order order = OrderMapper.INSTANCE.orderDtoToOrder(orderDTO, idempotencyKey);
+        order.setStatus(OrderStatus.PENDING);
+        final Shard shard = shardOf(order);
+        if (!shard.tryReserve()) {
+            rejected.increment();
+            return OrderOutcome.BUFFER_FULL;
+        }
+        final OrderDTO accepted = OrderMapper.INSTANCE.orderToOrderDto(order, null);
+        try {
+            final IdempotentResponse response = idempotentResponses.prepare(idempotencyKey, HttpStatus.ACCEPTED, accepted);
+            if (!savePending(order, response)) {
+                log.error("Idempotency key {} was used concurrently, order {} is not accepted", idempotencyKey, order.getOrderInternalId());
+                throw new IdempotencyHeaderException(USED_IDEMPOTENCY_KEY.with(idempotencyKey));
+            }
+        } catch (RuntimeException e) {
+            shard.release(1);
+            throw e;
+        }
+        final String internalId = order.getOrderInternalId().toString();
+        readRouter.recordWrite(internalId, order.getAccountId());
+        shard.publish(order);
+        return new Accepted(accepted);
+    }
+
+    /**
+     * Saves an accepted order pending together with its response in one transaction.
+     *
+     * @param order the pending order
+     * @param response the response replayed for its idempotency key
+     * @return false if the idempotency key is already used by an order or a stored response
+     */
+    private boolean savePending(Order order, IdempotentResponse response) {
+        try {
+            return transactionTemplate.execute(status -> {
+                if (!orderInsertRepo.insertPending(order)) {
+                    return false;
+                }
+                responseRepo.insertAll(List.of(response));
+                return true;
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (OrderGroupCommitter.isUsedKey(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Starts queuing the orders left pending by a previous run on a separate thread, so the application is not held
+     * up while the buffers are full.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!enabled) {
+            return;
+        }
+        final Instant startedAt = Instant.now();
+        recovery = Thread.ofPlatform().name("order-pipeline-recovery").daemon().start(() -> {
+            try {
+                queuePending(startedAt);
+            } catch (RuntimeException e) {
+                // the orders stay pending and are queued again at the next start
+                log.error("Queuing the orders left pending failed", e);
+            }
+        });
+    }
+
+    /**
+     * Queues the orders left pending by a previous run, oldest first, waiting for room in the buffers.
+     * Orders accepted after the application started are already queued and are skipped.
+     *
+     * @param startedAt when the application started
+     */
+    void queuePending(Instant startedAt) {
+        Instant createdAfter = Instant.EPOCH;
+        long idAfter = 0;
+        int recovered = 0;
+        while (true) {
+            final List<Order> page = orderBatchRepo.findPending(createdAfter, idAfter, batchSize);
+            for (Order order : page) {
+                if (!order.getCreatedAt().isBefore(startedAt)) {
+                    log.info("Queued {} orders left pending", recovered);
+                    return;
+                }
+                final Shard shard = shardOf(order);
+                if (!shard.reserve()) {
+                    return;
+                }
+                shard.publish(order);
+                recovered++;
+            }
+            if (page.size() < batchSize) {
+                log.info("Queued {} orders left pending", recovered);
+                return;
+            }
+            createdAfter = page.getLast().getCreatedAt();
+            idAfter = page.getLast().getOrdId();
+        }
+    }
+
+    /**
+     * Prices a batch of pending orders, one lookup per symbol, and completes them with the events and positions of
+     * the executed ones in one transaction. Orders for an unknown symbol are completed FAILED; orders that could not
+     * be priced because the feed is unavailable are left pending, as is the whole batch when it cannot be committed.
+     *
+     * @param batch the pending orders, all of the same shard
+     * @return the orders left pending, empty once the whole batch is committed
+     */
+    List<Order> process(List<Order> batch) {
+        batchSizes.record(batch.size());
+        return batchLatency.record(() -> {
+            final Map<String, PriceResult> prices = new HashMap<>();
+            final List<Order> completable = new ArrayList<>(batch.size());
+            final List<Order> unpriced = new ArrayList<>();
+            for (Order order : batch) {
+                final PriceResult price = prices.computeIfAbsent(order.getSymbol(), symbol -> priceBook.getPrice(symbol)
+                        .<PriceResult>map(Priced::new)
+                        .orElseGet(() -> priceCache.getPrice(symbol)));
+                switch (price) {
+                    case Priced priced -> {
+                        order.setStatus(OrderStatus.PROCESSED);
+                        order.setExecution(OrderService.populateExecution(order, priced.snapshot()));
+                        completable.add(order);
+                    }
+                    case UnknownSymbol unknown -> {
+                        order.setStatus(OrderStatus.FAILED);
+                        completable.add(order);
+                    }
+                    case FeedUnavailable unavailable -> unpriced.add(order);
+                }
+            }
+            if (completable.isEmpty()) {
+                return unpriced;
+            }
+            try {
+                final List<Order> completed = transactionTemplate.execute(status -> {
+                    final List<Order> done = orderBatchRepo.completeAll(completable);
+                    final List<Order> executed = done.stream().filter(order -> order.getExecution() != null).toList();
+                    final List<OrderEvent> events = executed.stream().map(orderEvents::created).toList();
+                    orderEventRepo.insertAll(events);
+                    positionRepo.addAll(executed);
+                    return done;
+                });
+                completed.forEach(order -> readRouter.recordWrite(order.getOrderInternalId().toString(), order.getAccountId()));
+                return unpriced;
+            } catch (RuntimeException e) {
+                log.error("Completing {} pending orders failed", completable.size(), e);
+                return batch;
+            }
+        });
+    }
+
+    private Shard shardOf(Order order) {
+        return shards[Math.floorMod(order.getSymbol().hashCode(), shards.length)];
+    }
+
+    private double buffered() {
+        long buffered = 0;
+        for (Shard shard : shards) {
+            buffered += shard.reserved();
+        }
+        return buffered;
+    }
+
+    /**
+     * Stops the consumer threads when the application shuts down. Orders still queued stay pending in the database.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (recovery != null) {
+            recovery.interrupt();
+        }
+        if (consumers != null) {
+            consumers.shutdownNow();
+        }
+    }
+
+    /**
+     * A ring buffer of orders with a single consumer. Slots are reserved before an order is saved, published once
+     * it is committed and released after the batch holding it is completed, so the buffer never overflows.
+     */
+    private final class Shard {
+
+        private final Order[] slots;
+        private final int mask;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition published = lock.newCondition();
+        private final Condition released = lock.newCondition();
+        private long head;
+        private long tail;
+        private int reserved;
+
+        private Shard(int capacity) {
+            this.slots = new Order[capacity];
+            this.mask = capacity - 1;
+        }
+
+        private boolean tryReserve() {
+            lock.lock();
+            try {
+                if (reserved == slots.length) {
+                    return false;
+                }
+                reserved++;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Waits until a slot is free and reserves it.
+         *
+         * @return whether a slot was reserved, false if the thread was interrupted
+         */
+        private boolean reserve() {
+            lock.lock();
+            try {
+                while (reserved == slots.length) {
+                    released.await();
+                }
+                reserved++;
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void publish(Order order) {
+            lock.lock();
+            try {
+                slots[(int) (tail++ & mask)] = order;
+                published.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void release(int count) {
+            lock.lock();
+            try {
+                reserved -= count;
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int reserved() {
+            lock.lock();
+            try {
+                return reserved;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Drains the buffer in batches until the consumer thread is interrupted. A batch is retried until it is
+         * committed, its slots are only released afterwards.
+         */
+        private void consume() {
+            final List<Order> batch = new ArrayList<>(batchSize);
+            while (!Thread.currentThread().isInterrupted()) {
+                lock.lock();
+                try {
+                    while (head == tail) {
+                        published.await();
+                    }
+                    while (head != tail && batch.size() < batchSize) {
+                        final int slot = (int) (head++ & mask);
+                        batch.add(slots[slot]);
+                        slots[slot] = null;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    if (!processUntilCommitted(List.copyOf(batch))) {
+                        return;
+                    }
+                } finally {
+                    release(batch.size());
+                    batch.clear();
+                }
+            }
+        }
+
+        /**
+         * Processes a batch, then retries the orders left pending, waiting before each retry twice as long as before
+         * the previous one.
+         *
+         * @param batch the pending orders taken from the buffer
+         * @return whether every order of the batch was committed, false if the thread was interrupted first; the orders
+         *         left then stay pending and are queued again at the next start
+         */
+        private boolean processUntilCommitted(List<Order> batch) {
+            long backoff = retryBackoffMillis;
+            List<Order> pending = batch;
+            while (!(pending = processSafely(pending)).isEmpty()) {
+                log.warn("Retrying {} pending orders in {} ms", pending.size(), backoff);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoff = Math.min(backoff * 2, maxRetryBackoffMillis);
+            }
+            return true;
+        }
+
+        private List<Order> processSafely(List<Order> batch) {
+            try {
+                return process(batch);
+            } catch (RuntimeException e) {
+                log.error("Processing {} pending orders failed", batch.size(), e);
+                return batch;
+            }
+        }
+    }
+}
@@ -4,19 +4,27 @@ import com.bogdanenache.order_service.dao.entity.Execution;
 import com.bogdanenache.order_service.dao.entity.Order;
 import com.bogdanenache.order_service.dao.entity.Order.OrderStatus;
 import com.bogdanenache.order_service.dao.repository.OrderRepository;
+import com.bogdanenache.order_service.dao.repository.OrderView;
 import com.bogdanenache.order_service.dto.OrderDTO;
-import com.bogdanenache.order_service.exception.BadRequestException;
-import com.bogdanenache.order_service.exception.BadRequestException.Message;
-import com.bogdanenache.order_service.exception.ErrorCode;
+import com.bogdanenache.order_service.dto.OrderCursor;
+import com.bogdanenache.order_service.dto.OrderOutcome;
+import com.bogdanenache.order_service.dto.OrderOutcome.Placed;
+import com.bogdanenache.order_service.dto.OrderPage;
+import com.bogdanenache.order_service.dto.PriceResult;
+import com.bogdanenache.order_service.dto.PriceResult.FeedUnavailable;
+import com.bogdanenache.order_service.dto.PriceResult.Priced;
+import com.bogdanenache.order_service.dto.PriceResult.UnknownSymbol;
+import com.bogdanenache.order_service.dto.PriceSnapshot;
+import com.bogdanenache.order_service.dto.TimeOrderedUuid;
 import com.bogdanenache.order_service.mapper.ExecutionMapper;
 import com.bogdanenache.order_service.mapper.OrderMapper;
-import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 import lombok.RequiredArgsConstructor;
-import org.springframework.retry.ExhaustedRetryException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 /**
@@ -26,100 +34,135 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class OrderService {
 
-    private final PriceFeedService priceFeed;
+    private final PriceBook priceBook;
+    private final PriceCacheService priceCache;
     private final OrderRepository orderRepo;
+    private final OrderGroupCommitter orderCommitter;
+    private final OrderNearCache orderCache;
+    private final ReplicaReadRouter readRouter;
+    private final OrderPipeline orderPipeline;
+    private final IdempotentResponseService idempotentResponses;
 
     /**
-     * Populates an Execution entity with the given order and price.
+     * Populates an Execution entity with the given order and price snapshot.
+     * The snapshot timestamp and its age at execution time are recorded along the price.
      *
      * @param order the order associated with the execution
-     * @param price the price at which the order is executed
+     * @param snapshot the price snapshot at which the order is executed
      * @return a populated Execution entity
      */
-    private static Execution populateExecution(Order order, BigDecimal price) {
+    static Execution populateExecution(Order order, PriceSnapshot snapshot) {
+        final Instant now = Instant.now();
         return Execution.builder()
                 .order(order)
-                .price(price)
-                .internalId(UUID.randomUUID().toString())
-                .createdAt(Instant.now())
+                .price(snapshot.price())
+                .priceTimestamp(snapshot.fetchedAt())
+                .priceAgeMs(snapshot.ageAt(now).toMillis())
+                .internalId(TimeOrderedUuid.next())
+                .createdAt(now)
                 .build();
     }
 
     /**
      * Places an order based on the provided OrderDTO.
-     * Handles price retrieval and order processing logic.
-     * If the price is unavailable, the order is marked as FAILED.
+     * The price is read from the streamed price book and only fetched through the price cache
+     * when the book has no fresh price for the symbol. An unknown symbol or an unavailable price feed
+     * rejects the order without saving it.
+     * With asynchronous orders enabled the order is only saved pending and queued, it is priced and executed later.
      *
      * @param orderDTO the data transfer object containing order details
      * @param idempotencyKey to be saved along the order to ensure idempotency
-     * @return the processed OrderDTO with execution details if applicable
-     * @throws BadRequestException if the price for the symbol is not found
-     * @throws ExhaustedRetryException if other unexpected errors occur during price retrieval
+     * @return the placed or accepted order, or the reason it was rejected
      */
-    public OrderDTO placeOrder(OrderDTO orderDTO, String idempotencyKey) {
-        final Optional<BigDecimal> price;
-        try {
-            price = priceFeed.getPrice(orderDTO.symbol());
-        } catch (ExhaustedRetryException e) {
-            if (e.getRootCause().getMessage().contains("400 Bad Request") || e.getRootCause().getMessage().contains("404 Not Found")) {
-                throw new BadRequestException(Message.PRICE_NOT_FOUND_FOR_SYMBOL.with(orderDTO.symbol()), ErrorCode.BAD_REQUEST, e);
-            } else {
-                throw e;
-            }
+    public OrderOutcome placeOrder(OrderDTO orderDTO, String idempotencyKey) {
+        if (orderPipeline.isEnabled()) {
+            return orderPipeline.accept(orderDTO, idempotencyKey);
         }
-        final Order order = populateOrder(orderDTO, price, idempotencyKey);
-        if (price.isEmpty()) {
-            order.setStatus(OrderStatus.FAILED);
-            return OrderMapper.INSTANCE.orderToOrderDto(orderRepo.save(order), null);
-        }
-        final Execution execution = populateExecution(order, price.get());
+        final PriceResult price = priceBook.getPrice(orderDTO.symbol())
+                .<PriceResult>map(Priced::new)
+                .orElseGet(() -> priceCache.getPrice(orderDTO.symbol()));
+        return switch (price) {
+            case Priced priced -> new Placed(executeOrder(orderDTO, priced.snapshot(), idempotencyKey));
+            case UnknownSymbol unknown -> OrderOutcome.UNKNOWN_SYMBOL;
+            case FeedUnavailable unavailable -> OrderOutcome.FEED_UNAVAILABLE;
+        };
+    }
+
+    /**
+     * Executes an order at the given price snapshot and saves it together with the response replayed for its key.
+     *
+     * @param orderDTO the data transfer object containing order details
+     * @param snapshot the price snapshot at which the order is executed
+     * @param idempotencyKey to be saved along the order to ensure idempotency
+     * @return the processed OrderDTO with execution details
+     */
+    private OrderDTO executeOrder(OrderDTO orderDTO, PriceSnapshot snapshot, String idempotencyKey) {
+        final Order order = OrderMapper.INSTANCE.orderDtoToOrder(orderDTO, idempotencyKey);
+        order.setStatus(OrderStatus.PROCESSED);
+        final Execution execution = populateExecution(order, snapshot);
         order.setExecution(execution);
-        var executionDto = ExecutionMapper.INSTANCE.mapExecutionToExecutionDto(execution, order.getOrderInternalId());
+        final String internalId = order.getOrderInternalId().toString();
+        var executionDto = ExecutionMapper.INSTANCE.mapExecutionToExecutionDto(execution, internalId);
 
-        return OrderMapper.INSTANCE.orderToOrderDto(orderRepo.save(order), executionDto);
+        final OrderDTO placed = OrderMapper.INSTANCE.orderToOrderDto(order, executionDto);
+        orderCommitter.save(order, idempotentResponses.prepare(idempotencyKey, HttpStatus.CREATED, placed));
+        // placed orders never change, so they are cached as soon as they are committed
+        orderCache.put(internalId, placed);
+        readRouter.recordWrite(internalId, order.getAccountId());
+        return placed;
     }
 
     /**
-     * Retrieves an order by its internal ID.
+     * Retrieves an order by its internal ID, together with its execution in a single query.
+     * The order is read from the replica unless it was placed within the replica's maximum lag.
      *
      * @param internalId the internal ID of the order
-     * @return an Optional containing the OrderDTO if found, or empty if not found
+     * @return an Optional containing the OrderDTO if found, or empty if not found or the id is not a UUID
      */
     public Optional<OrderDTO> getOrderByInternalId(String internalId) {
-        var order = orderRepo.getOrderByOrderInternalId(internalId);
-        if (order == null) {
-            return Optional.empty();
-        }
-        var executionDto = ExecutionMapper.INSTANCE.mapExecutionToExecutionDto(order.getExecution(), order.getOrderInternalId());
-        return Optional.of(OrderMapper.INSTANCE.orderToOrderDto(order, executionDto));
+        return TimeOrderedUuid.parse(internalId)
+                .flatMap(id -> readRouter.readOrder(id.toString(), () -> orderRepo.findViewByOrderInternalId(id)))
+                .map(OrderMapper.INSTANCE::orderViewToOrderDto);
     }
 
     /**
-     * Retrieves all orders associated with a specific account ID.
+     * Retrieves an order by its internal ID as its encoded JSON body. Orders are served from the near cache
+     * when present and read from the database and cached otherwise. Pending orders are still to change,
+     * so they are encoded without being cached.
      *
-     * @param accountId the account ID for which orders are retrieved
-     * @return a list of OrderDTOs representing the orders for the account
+     * @param internalId the internal ID of the order
+     * @return an Optional containing a read-only view of the JSON body of the order if found, or empty if not found
      */
-    public List<OrderDTO> getOrderByAccountId(String accountId) {
-        return orderRepo.getOrderByAccountId(accountId)
-                .stream()
-                .map(x -> OrderMapper.INSTANCE.orderToOrderDto(x,
-                        ExecutionMapper.INSTANCE.mapExecutionToExecutionDto(x.getExecution(),
-                                x.getExecution().getInternalId())))
-                .toList();
+    public Optional<ByteBuffer> getEncodedOrderByInternalId(String internalId) {
+        final ByteBuffer cached = orderCache.get(internalId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return getOrderByInternalId(internalId).map(order -> OrderStatus.PENDING.name().equals(order.status())
+                ? ByteBuffer.wrap(orderCache.encode(order)).asReadOnlyBuffer()
+                : orderCache.put(internalId, order));
     }
 
     /**
-     * Populates an Order entity based on the provided OrderDTO and price.
-     * Sets the order status based on the availability of the price.
+     * Retrieves a page of the orders associated with a specific account ID, newest first.
+     * Orders and executions are read with one query, whatever the size of the page, from the replica
+     * unless the account placed an order within the replica's maximum lag.
      *
-     * @param orderDTO the data transfer object containing order details
-     * @param price the price associated with the order, if available
-     * @return a populated Order entity
+     * @param accountId the account ID for which orders are retrieved
+     * @param cursor the position returned with the previous page, or null for the first page
+     * @param limit the maximum number of orders in the page
+     * @return the page of OrderDTOs and the cursor of the next page, if any
      */
-    private Order populateOrder(OrderDTO orderDTO, Optional<BigDecimal> price, String idempotencyKey) {
-        final Order order = OrderMapper.INSTANCE.orderDtoToOrder(orderDTO, idempotencyKey);
-        order.setStatus(price.isEmpty() ? OrderStatus.FAILED : OrderStatus.PROCESSED);
-        return order;
+    public OrderPage getOrderByAccountId(String accountId, OrderCursor cursor, int limit) {
+        // one extra row tells whether there is a next page without a count query
+        final Limit pageLimit = Limit.of(limit + 1);
+        final List<OrderView> orders = readRouter.readAccount(accountId, () -> cursor == null
+                ? orderRepo.findFirstPageByAccountId(accountId, pageLimit)
+                : orderRepo.findPageByAccountIdAfter(accountId, cursor.createdAt(), cursor.ordId(), pageLimit));
+        final List<OrderView> page = orders.size() > limit ? orders.subList(0, limit) : orders;
+        final OrderCursor next = orders.size() > limit
+                ? new OrderCursor(page.getLast().createdAt(), page.getLast().ordId())
+                : null;
+        return new OrderPage(page.stream().map(OrderMapper.INSTANCE::orderViewToOrderDto).toList(), next);
     }
-}
\ No newline at end of file
+}
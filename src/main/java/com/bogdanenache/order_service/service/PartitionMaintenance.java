@@ -0,0 +1,174 @@
+package com.bogdanenache.order_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the monthly partitions of ORDERS and EXECUTIONS in step with time. Partitions are created
+ * a few months ahead, so an insert never waits for DDL, and partitions older than the retention are
+ * detached into the ORDER_ARCHIVE schema together with the ORDER_KEYS rows of their orders.
+ * Executions cannot reference their partitioned order through a foreign key, so each run counts the recent executions
+ * whose order is missing instead.
+ * Runs on a dedicated thread at start-up and then at a fixed interval; every step is idempotent,
+ * so several instances running it at the same time is harmless.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "order-service.partitions.enabled", havingValue = "true")
+public class PartitionMaintenance {
+
+    static final List<String> PARTITIONED_TABLES = List.of("ORDERS", "EXECUTIONS");
+
+    /**
+     * Number of ORDER_KEYS rows deleted by one statement, so purging a month never holds locks for long.
+     */
+    static final int KEY_PURGE_BATCH_SIZE = 10_000;
+
+    private static final String CREATE_PARTITIONS = "SELECT ORDER_SERVICE.CREATE_MONTHLY_PARTITIONS(?, ?, ?)";
+    private static final String ARCHIVE_PARTITIONS = "SELECT ORDER_SERVICE.ARCHIVE_PARTITIONS(?, ?)";
+    private static final String COUNT_ORPHANED_EXECUTIONS = "SELECT COUNT(*) FROM EXECUTIONS e WHERE e.EXC_CREATED >= ? "
+            + "AND NOT EXISTS (SELECT 1 FROM ORDERS o WHERE o.ORD_ID = e.ORD_ORDER_ID AND o.ORD_CREATED <= e.EXC_CREATED)";
+    private static final String PURGE_KEYS = "DELETE FROM ORDER_KEYS WHERE ORK_ORDER_INTERNAL_ID IN "
+            + "(SELECT ORK_ORDER_INTERNAL_ID FROM ORDER_KEYS WHERE ORK_CREATED < ? LIMIT " + KEY_PURGE_BATCH_SIZE + ")";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int premakeMonths;
+    private final int retentionMonths;
+    private final Duration interval;
+    private final Counter partitionsCreated;
+    private final Counter partitionsArchived;
+    private final AtomicLong orphanedExecutions = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates the maintenance job.
+     *
+     * @param jdbcTemplate the template the partition functions are called through
+     * @param meterRegistry the registry where created and archived partitions and orphaned executions are counted
+     * @param premakeMonths how many months after the current one always have a partition
+     * @param retentionMonths how many months before the current one stay in the live tables
+     * @param interval the delay between two runs
+     */
+    public PartitionMaintenance(JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.partitions.premake-months:3}") int premakeMonths,
+            @Value("${order-service.partitions.retention-months:24}") int retentionMonths,
+            @Value("${order-service.partitions.interval:6h}") Duration interval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.premakeMonths = premakeMonths;
+        this.retentionMonths = retentionMonths;
+        this.interval = interval;
+        this.partitionsCreated = Counter.builder("order.partitions").tag("action", "created")
+                .description("Monthly partitions created or archived by the maintenance job")
+                .register(meterRegistry);
+        this.partitionsArchived = Counter.builder("order.partitions").tag("action", "archived")
+                .description("Monthly partitions created or archived by the maintenance job")
+                .register(meterRegistry);
+        Gauge.builder("order.executions.orphaned", orphanedExecutions, AtomicLong::get)
+                .description("Executions created within the last two maintenance intervals whose order is missing")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the maintenance thread, running the first maintenance right away.
+     */
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("partition-maintenance").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::run, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the maintenance thread.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates the partitions up to premakeMonths after the given day and archives the partitions
+     * that ended retentionMonths before the month of the given day, then purges the keys of the archived orders.
+     * Partition bounds are in UTC, the time zone creation times are stored in.
+     *
+     * @param today the current day in UTC
+     */
+    void maintain(LocalDate today) {
+        final LocalDate month = today.withDayOfMonth(1);
+        final LocalDate archiveBefore = month.minusMonths(retentionMonths);
+        for (String table : PARTITIONED_TABLES) {
+            final Integer created = jdbcTemplate.queryForObject(CREATE_PARTITIONS, Integer.class,
+                    table, month, month.plusMonths(premakeMonths));
+            final Integer archived = jdbcTemplate.queryForObject(ARCHIVE_PARTITIONS, Integer.class, table, archiveBefore);
+            partitionsCreated.increment(created == null ? 0 : created);
+            partitionsArchived.increment(archived == null ? 0 : archived);
+            log.info("Partitions of {}: {} created, {} archived", table, created, archived);
+        }
+        int purged;
+        do {
+            purged = jdbcTemplate.update(PURGE_KEYS, archiveBefore.atStartOfDay());
+        } while (purged == KEY_PURGE_BATCH_SIZE);
+    }
+
+    /**
+     * Counts the executions created since the given time whose order is missing, the integrity a foreign key used to enforce.
+     * Only recent executions are checked so the scan stays within the latest partitions.
+     *
+     * @param since the creation time of the oldest execution checked
+     * @return the number of orphaned executions
+     */
+    long checkExecutions(Instant since) {
+        final Long orphaned = jdbcTemplate.queryForObject(COUNT_ORPHANED_EXECUTIONS, Long.class, since.atOffset(ZoneOffset.UTC));
+        orphanedExecutions.set(orphaned == null ? 0 : orphaned);
+        if (orphanedExecutions.get() > 0) {
+            log.error("{} executions created since {} reference a missing order", orphanedExecutions.get(), since);
+        }
+        return orphanedExecutions.get();
+    }
+
+    /**
+     * Creates the missing partitions of every partitioned table for the months from one day to another, both included.
+     * Used before loading orders created in months the maintenance does not keep partitions for.
+     *
+     * @param from a day of the first month, in UTC
+     * @param to a day of the last month, in UTC
+     */
+    public void createPartitions(LocalDate from, LocalDate to) {
+        for (String table : PARTITIONED_TABLES) {
+            final Integer created = jdbcTemplate.queryForObject(CREATE_PARTITIONS, Integer.class, table, from, to);
+            partitionsCreated.increment(created == null ? 0 : created);
+        }
+    }
+
+    private void run() {
+        try {
+            maintain(LocalDate.now(ZoneOffset.UTC));
+            // runs overlap so an execution committed during a check is still seen by the next one
+            checkExecutions(Instant.now().minus(interval.multipliedBy(2)));
+        } catch (RuntimeException e) {
+            // the next run retries, partitions are created months ahead of need
+            log.error("Partition maintenance failed", e);
+        }
+    }
+}
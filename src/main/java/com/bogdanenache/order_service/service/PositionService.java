@@ -0,0 +1,46 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.Position;
+import com.bogdanenache.order_service.dao.repository.PositionRepository;
+import com.bogdanenache.order_service.dto.FixedPrice;
+import com.bogdanenache.order_service.dto.PositionDTO;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service class responsible for reading the positions of an account. Positions are maintained by the transactions
+ * saving orders, so reading them costs one row per symbol held whatever the number of orders of the account.
+ */
+@Service
+@RequiredArgsConstructor
+public class PositionService {
+
+    private final PositionRepository positionRepo;
+    private final ReplicaReadRouter readRouter;
+
+    /**
+     * Retrieves the positions of an account, from the replica unless the account placed an order within
+     * the replica's maximum lag.
+     *
+     * @param accountId the account id
+     * @return the positions ordered by symbol, empty if the account never placed an order
+     */
+    public List<PositionDTO> getPositions(String accountId) {
+        return readRouter.readAccount(accountId, () -> positionRepo.findByAccountId(accountId)).stream()
+                .map(PositionService::toDto)
+                .toList();
+    }
+
+    private static PositionDTO toDto(Position position) {
+        final long volume = position.getBoughtQuantity() + position.getSoldQuantity();
+        final BigDecimal averagePrice = volume == 0
+                ? null
+                : position.getBoughtNotional().add(position.getSoldNotional())
+                        .divide(BigDecimal.valueOf(volume), FixedPrice.SCALE, RoundingMode.HALF_UP);
+        return new PositionDTO(position.getSymbol(), position.getBoughtQuantity() - position.getSoldQuantity(),
+                position.getBoughtQuantity(), position.getSoldQuantity(), averagePrice);
+    }
+}
@@ -0,0 +1,202 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dto.FixedPrice;
+import com.bogdanenache.order_service.dto.PriceItem;
+import com.bogdanenache.order_service.dto.PriceResult;
+import com.bogdanenache.order_service.dto.PriceResult.FeedUnavailable;
+import com.bogdanenache.order_service.dto.PriceResult.Priced;
+import com.bogdanenache.order_service.dto.PriceResult.UnknownSymbol;
+import com.bogdanenache.order_service.dto.PriceSnapshot;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Collects price lookups arriving within a short window and sends them to the price feed as one
+ * multi-symbol request. A batch is sent when the window elapses or when it reaches the maximum size,
+ * whichever comes first, and each caller's future is completed from the shared response.
+ */
+@Slf4j
+@Component
+public class PriceBatcher {
+
+    private final ResilientPriceFeed priceFeed;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxSize;
+    private final DistributionSummary batchSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService sender;
+
+    private Map<String, CompletableFuture<PriceResult>> pending = new HashMap<>();
+
+    /**
+     * Creates the batcher and, when enabled, its timer and sender threads.
+     *
+     * @param priceFeed the price feed receiving the batched requests
+     * @param meterRegistry the registry where the size of the sent batches is published
+     * @param enabled whether lookups are batched at all
+     * @param window how long a batch collects lookups before it is sent
+     * @param maxSize the number of symbols after which a batch is sent without waiting for the window
+     * @param concurrency the number of batch requests that may be in flight at the same time
+     */
+    public PriceBatcher(ResilientPriceFeed priceFeed,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.price-batch.enabled:false}") boolean enabled,
+            @Value("${order-service.price-batch.window:5ms}") Duration window,
+            @Value("${order-service.price-batch.max-size:50}") int maxSize,
+            @Value("${order-service.price-batch.concurrency:4}") int concurrency) {
+        this.priceFeed = priceFeed;
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.maxSize = maxSize;
+        this.batchSize = DistributionSummary.builder("price.feed.batch.size")
+                .description("Number of symbols sent to the price feed in one batch request")
+                .register(meterRegistry);
+        this.scheduler = enabled
+                ? Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("price-batch-timer").daemon().factory())
+                : null;
+        this.sender = enabled
+                ? Executors.newFixedThreadPool(concurrency, Thread.ofPlatform().name("price-batch-sender-", 0).daemon().factory())
+                : null;
+    }
+
+    /**
+     * Adds a symbol to the current batch and waits for the batch response.
+     * When batching is disabled the price is fetched with a single-symbol request instead.
+     *
+     * @param symbol the symbol for which the price is requested
+     * @return the lookup outcome
+     */
+    public PriceResult getPrice(String symbol) {
+        if (!enabled) {
+            return priceFeed.getPrice(symbol);
+        }
+        return Futures.join(submit(symbol));
+    }
+
+    /**
+     * Adds a symbol to the current batch. Requires batching to be enabled.
+     * The first symbol of a batch starts its window, the symbol that fills the batch sends it immediately.
+     *
+     * @param symbol the symbol for which the price is requested
+     * @return a future completed when the batch response arrives
+     */
+    public CompletableFuture<PriceResult> submit(String symbol) {
+        final CompletableFuture<PriceResult> future;
+        Map<String, CompletableFuture<PriceResult>> full = null;
+        lock.lock();
+        try {
+            final CompletableFuture<PriceResult> existing = pending.get(symbol);
+            if (existing != null) {
+                return existing;
+            }
+            if (pending.isEmpty()) {
+                final Map<String, CompletableFuture<PriceResult>> batch = pending;
+                scheduler.schedule(() -> flush(batch), windowNanos, TimeUnit.NANOSECONDS);
+            }
+            future = new CompletableFuture<>();
+            pending.put(symbol, future);
+            if (pending.size() >= maxSize) {
+                full = takePending();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            send(full);
+        }
+        return future;
+    }
+
+    /**
+     * Sends a batch whose window elapsed, unless it was already sent because it became full.
+     *
+     * @param batch the batch the timer was started for
+     */
+    private void flush(Map<String, CompletableFuture<PriceResult>> batch) {
+        lock.lock();
+        try {
+            if (pending != batch || batch.isEmpty()) {
+                return;
+            }
+            takePending();
+        } finally {
+            lock.unlock();
+        }
+        send(batch);
+    }
+
+    /**
+     * Detaches the current batch and starts a new one. Must be called while holding the lock.
+     *
+     * @return the detached batch
+     */
+    private Map<String, CompletableFuture<PriceResult>> takePending() {
+        final Map<String, CompletableFuture<PriceResult>> batch = pending;
+        pending = new HashMap<>();
+        return batch;
+    }
+
+    /**
+     * Sends a detached batch on the sender threads and completes its futures from the response.
+     * Symbols missing from the response are unknown; a failed request or a missing price leaves the feed unavailable.
+     *
+     * @param batch the batch to send
+     */
+    private void send(Map<String, CompletableFuture<PriceResult>> batch) {
+        sender.execute(() -> {
+            batchSize.record(batch.size());
+            try {
+                final List<PriceItem> items = priceFeed.getPrices(List.copyOf(batch.keySet()));
+                final Instant fetchedAt = Instant.now();
+                final Map<String, PriceItem> bySymbol = items.stream()
+                        .filter(item -> item.symbol() != null)
+                        .collect(Collectors.toMap(PriceItem::symbol, Function.identity(), (first, second) -> first));
+                batch.forEach((symbol, future) -> {
+                    final PriceItem item = bySymbol.get(symbol);
+                    if (item == null) {
+                        future.complete(new UnknownSymbol(symbol));
+                    } else if (item.price() == null) {
+                        future.complete(new FeedUnavailable(symbol));
+                    } else {
+                        future.complete(new Priced(new PriceSnapshot(symbol, FixedPrice.of(item.price()), fetchedAt)));
+                    }
+                });
+            } catch (RuntimeException e) {
+                log.error("Batch price request failed for symbols: {}", batch.keySet(), e);
+                batch.forEach((symbol, future) -> future.complete(new FeedUnavailable(symbol)));
+            }
+        });
+    }
+
+    /**
+     * Stops the timer and sender threads when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (sender != null) {
+            sender.shutdown();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dto.PriceSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory book of the latest streamed price per symbol.
+ * Reads never block; a price older than the configured max age is treated as missing
+ * so the caller falls back to the price feed.
+ */
+@Component
+public class PriceBook {
+
+    private final ConcurrentMap<String, PriceSnapshot> prices = new ConcurrentHashMap<>();
+    private final Duration maxAge;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter staleReads;
+
+    /**
+     * Creates the price book and registers its metrics.
+     *
+     * @param meterRegistry the registry where book size and lookup outcomes are published
+     * @param maxAge the maximum age of a streamed price that may be used to execute an order
+     */
+    public PriceBook(MeterRegistry meterRegistry,
+            @Value("${order-service.price-stream.max-age:1s}") Duration maxAge) {
+        this.maxAge = maxAge;
+        Gauge.builder("price.book.symbols", prices, Map::size)
+                .description("Number of symbols held in the streamed price book")
+                .register(meterRegistry);
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+        this.staleReads = lookups(meterRegistry, "stale");
+    }
+
+    /**
+     * Records a streamed price, unless the book already holds a more recent one for the symbol.
+     *
+     * @param snapshot the streamed price
+     */
+    public void update(PriceSnapshot snapshot) {
+        prices.merge(snapshot.symbol(), snapshot,
+                (current, candidate) -> candidate.fetchedAt().isBefore(current.fetchedAt()) ? current : candidate);
+    }
+
+    /**
+     * Returns the streamed price for a symbol if the book has a fresh one.
+     *
+     * @param symbol the symbol for which the price is requested
+     * @return an Optional containing the price snapshot, or empty if the symbol is unknown or its price is stale
+     */
+    public Optional<PriceSnapshot> getPrice(String symbol) {
+        final PriceSnapshot snapshot = prices.get(symbol);
+        if (snapshot == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        if (snapshot.ageAt(Instant.now()).compareTo(maxAge) > 0) {
+            staleReads.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(snapshot);
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("price.book.lookups")
+                .description("Price book lookups by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,105 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dto.PriceResult;
+import com.bogdanenache.order_service.dto.PriceResult.FeedUnavailable;
+import com.bogdanenache.order_service.dto.PriceResult.Priced;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service class keeping a bounded-staleness, per-symbol cache of prices in front of the price feed.
+ * Entries are never served once older than the configured max age, hot symbols are refreshed
+ * in the background before they expire and the cache is bounded in size.
+ * Unknown symbols are cached like prices, so repeated lookups of a bad symbol do not reach the feed.
+ * A missing price is loaded outside the cache and put afterwards: a load through the cache runs inside the lock of
+ * the backing map, which would pin the carrier of a virtual thread for the whole feed call. Concurrent loads of
+ * the same symbol are still collapsed into one call by the coalescer.
+ */
+@Slf4j
+@Service
+public class PriceCacheService {
+
+    private final PriceBatcher priceBatcher;
+    private final PriceLookupCoalescer coalescer;
+    private final LoadingCache<String, PriceResult> cache;
+    private final DistributionSummary snapshotAge;
+
+    /**
+     * Creates the price cache and registers its metrics.
+     *
+     * @param priceBatcher the remote price feed, batched when enabled, used to load missing or expired prices
+     * @param coalescer collapses concurrent loads and refreshes of the same symbol into one feed call
+     * @param meterRegistry the registry where hit, miss, eviction and staleness metrics are published
+     * @param maxAge the maximum age of a price that may be used to execute an order
+     * @param refreshAfter the age after which an accessed price is refreshed in the background
+     * @param maximumSize the maximum number of symbols kept in the cache
+     */
+    public PriceCacheService(PriceBatcher priceBatcher,
+            PriceLookupCoalescer coalescer,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.price-cache.max-age:1s}") Duration maxAge,
+            @Value("${order-service.price-cache.refresh-after:500ms}") Duration refreshAfter,
+            @Value("${order-service.price-cache.maximum-size:1000}") long maximumSize) {
+        this.priceBatcher = priceBatcher;
+        this.coalescer = coalescer;
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(maxAge)
+                .recordStats();
+        if (refreshAfter.compareTo(maxAge) < 0 && !refreshAfter.isZero()) {
+            builder.refreshAfterWrite(refreshAfter);
+        } else {
+            log.warn("Price refresh-ahead disabled: refresh-after {} must be positive and lower than max-age {}",
+                    refreshAfter, maxAge);
+        }
+        final LoadingCache<String, PriceResult> loadingCache = builder.build(this::load);
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, loadingCache, "priceCache");
+        this.snapshotAge = DistributionSummary.builder("price.cache.snapshot.age")
+                .description("Age of the price snapshot used to execute an order")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the price for a given symbol, served from the cache when it is fresh enough
+     * and loaded from the price feed otherwise.
+     *
+     * @param symbol the symbol for which the price is requested
+     * @return the lookup outcome
+     */
+    public PriceResult getPrice(String symbol) {
+        PriceResult result = cache.getIfPresent(symbol);
+        if (result == null) {
+            result = load(symbol);
+            if (result == null) {
+                return new FeedUnavailable(symbol);
+            }
+            cache.put(symbol, result);
+        }
+        if (result instanceof Priced priced) {
+            snapshotAge.record(priced.snapshot().ageAt(Instant.now()).toMillis());
+        }
+        return result;
+    }
+
+    /**
+     * Loads the price for a symbol from the price feed, joining any lookup of the same symbol already in flight.
+     * Returning null leaves the symbol uncached so the next lookup asks the feed again.
+     *
+     * @param symbol the symbol to load
+     * @return the lookup outcome, or null if the feed is unavailable
+     */
+    private PriceResult load(String symbol) {
+        final PriceResult result = coalescer.getPrice(symbol, () -> priceBatcher.getPrice(symbol));
+        return result instanceof FeedUnavailable ? null : result;
+    }
+}
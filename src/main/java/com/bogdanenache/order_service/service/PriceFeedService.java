@@ -1,18 +1,25 @@
 package com.bogdanenache.order_service.service;
 
+import com.bogdanenache.order_service.dto.FixedPrice;
 import com.bogdanenache.order_service.dto.PriceItem;
+import com.bogdanenache.order_service.dto.PriceResult;
+import com.bogdanenache.order_service.dto.PriceResult.FeedUnavailable;
+import com.bogdanenache.order_service.dto.PriceResult.Priced;
+import com.bogdanenache.order_service.dto.PriceResult.UnknownSymbol;
+import com.bogdanenache.order_service.dto.PriceSnapshot;
 import com.bogdanenache.order_service.exception.BadRequestException;
 import com.bogdanenache.order_service.exception.BadRequestException.Message;
 import com.bogdanenache.order_service.exception.ErrorCode;
 import com.bogdanenache.order_service.exception.UnexpectedException;
-import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Recover;
@@ -40,20 +47,24 @@ public class PriceFeedService {
     @Value("${order-service.price-feed-url}")
     private String priceFeedUrl; // WireMock URL
 
+    @Value("${order-service.price-feed-batch-url:}")
+    private String priceFeedBatchUrl; // WireMock URL serving several symbols per request
+
     /**
      * Fetches the price for a given symbol from the price feed API.
-     * Implements retry logic for handling transient errors.
+     * Implements retry logic for handling transient errors. A symbol rejected by the feed is returned
+     * as {@link UnknownSymbol} without retrying; once retries are exhausted {@link #recover} returns
+     * {@link FeedUnavailable}.
      *
      * @param symbol the symbol for which the price is to be fetched
-     * @return an Optional containing the price if available, or empty if not
-     * @throws BadRequestException if the symbol is not found or the request is invalid
-     * @throws UnexpectedException for server errors or unexpected runtime exceptions
+     * @return the priced snapshot, or UnknownSymbol if the feed does not know the symbol
+     * @throws UnexpectedException for server errors or unexpected runtime exceptions, to trigger a retry
      */
     @Retryable(retryFor = UnexpectedException.class,
             maxAttemptsExpression = "#{${order-service.retry.maxAttempts:3}}",
             backoff = @Backoff(delayExpression = "#{${order-service.retry.backoff.delay:200}}",
                     maxDelayExpression = "#{${order-service.retry.backoff.maxDelay:500}}"))
-    public Optional<BigDecimal> getPrice(String symbol) {
+    public PriceResult getPrice(String symbol) {
         final ResponseEntity<PriceItem> response;
         try {
             String url = priceFeedUrl + "?symbol={symbol}";
@@ -63,27 +74,70 @@ public class PriceFeedService {
             log.error("Server error while fetching price for symbol: {}", symbol, e);
             throw new UnexpectedException(FAILED_TO_FETCH_SYMBOL.with(symbol), ErrorCode.INTERNAL_SERVER_ERROR, e);
         } catch (HttpClientErrorException e) {
-            log.error("Client error while fetching price for symbol: {}", symbol, e);
-            throw new BadRequestException(Message.PRICE_NOT_FOUND_FOR_SYMBOL.with(symbol), ErrorCode.BAD_REQUEST, e);
+            log.warn("Price feed rejected symbol: {}", symbol);
+            return new UnknownSymbol(symbol);
         } catch (RuntimeException e) {
             log.error("Unexpected error while fetching price for symbol: {}", symbol, e);
             throw new UnexpectedException(FAILED_TO_FETCH_SYMBOL.with(symbol), ErrorCode.INTERNAL_SERVER_ERROR, e);
         }
+        if (response != null && response.getStatusCode().is4xxClientError()) {
+            log.warn("Price feed rejected symbol: {}", symbol);
+            return new UnknownSymbol(symbol);
+        }
         final PriceItem priceFeedResponse = validateResponse(response);
 
-        return Optional.of(priceFeedResponse.price());
+        return new Priced(new PriceSnapshot(symbol, FixedPrice.of(priceFeedResponse.price()), Instant.now()));
+    }
+
+    /**
+     * Fetches the prices for several symbols from the price feed API in a single request.
+     * Symbols unknown to the feed are left out of the returned list.
+     * Implements the same retry logic as {@link #getPrice(String)}.
+     *
+     * @param symbols the symbols for which the prices are to be fetched
+     * @return the price items returned by the feed
+     * @throws BadRequestException if the feed rejects the request
+     * @throws UnexpectedException for server errors or unexpected runtime exceptions
+     */
+    @Retryable(retryFor = UnexpectedException.class,
+            maxAttemptsExpression = "#{${order-service.retry.maxAttempts:3}}",
+            backoff = @Backoff(delayExpression = "#{${order-service.retry.backoff.delay:200}}",
+                    maxDelayExpression = "#{${order-service.retry.backoff.maxDelay:500}}"))
+    public List<PriceItem> getPrices(Collection<String> symbols) {
+        final String joinedSymbols = String.join(",", symbols);
+        final ResponseEntity<PriceItem[]> response;
+        try {
+            String url = priceFeedBatchUrl + "?symbols={symbols}";
+            response = restTemplate.getForEntity(url, PriceItem[].class, joinedSymbols);
+
+        } catch (HttpServerErrorException e) {
+            log.error("Server error while fetching prices for symbols: {}", joinedSymbols, e);
+            throw new UnexpectedException(FAILED_TO_FETCH_SYMBOL.with(joinedSymbols), ErrorCode.INTERNAL_SERVER_ERROR, e);
+        } catch (HttpClientErrorException e) {
+            log.error("Client error while fetching prices for symbols: {}", joinedSymbols, e);
+            throw new BadRequestException(Message.PRICE_NOT_FOUND_FOR_SYMBOL.with(joinedSymbols), ErrorCode.BAD_REQUEST, e);
+        } catch (RuntimeException e) {
+            log.error("Unexpected error while fetching prices for symbols: {}", joinedSymbols, e);
+            throw new UnexpectedException(FAILED_TO_FETCH_SYMBOL.with(joinedSymbols), ErrorCode.INTERNAL_SERVER_ERROR, e);
+        }
+        if (response == null || response.getBody() == null) {
+            throw new UnexpectedException(INVALID_RESPONSE.getFormatMessage(), ErrorCode.INTERNAL_SERVER_ERROR);
+        }
+        return Arrays.stream(response.getBody())
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     /**
      * Validates the response from the price feed API.
-     * Ensures the response and its body are not null.
+     * Ensures the response, its body and the price are not null.
      *
      * @param response the ResponseEntity containing the price feed data
      * @return the PriceItem object from the response body
-     * @throws UnexpectedException if the response or its body is null
+     * @throws UnexpectedException if the response, its body or the price is null
      */
     private PriceItem validateResponse(ResponseEntity<PriceItem> response) {
-        if (response == null || response.getBody() == null) {
+        if (response == null || response.getBody() == null || response.getBody().price() == null) {
             throw new UnexpectedException(INVALID_RESPONSE.getFormatMessage(), ErrorCode.INTERNAL_SERVER_ERROR);
         }
         return response.getBody();
@@ -91,16 +145,29 @@ public class PriceFeedService {
 
     /**
      * Recovery method for handling failures after all retry attempts are exhausted.
-     * Logs the retry count and recovery time, then rethrows the exception.
+     * Logs the retry count and recovery time, then reports the feed as unavailable.
      *
      * @param unexpectedException the exception that caused the failure
      * @param symbol the symbol for which the price was being fetched
-     * @throws UnexpectedException rethrows the original exception after logging recovery details
+     * @return FeedUnavailable for the symbol
      */
     @Recover
-    public Optional<BigDecimal> recover(UnexpectedException unexpectedException, String symbol) {
+    public PriceResult recover(UnexpectedException unexpectedException, String symbol) {
         log.info("Retry Number: {} ", RetrySynchronizationManager.getContext().getRetryCount());
         log.info("Retry connection to price feed recovered at : {}", LocalDateTime.now());
+        return new FeedUnavailable(symbol);
+    }
+
+    /**
+     * Recovery method for handling failures of a batch request after all retry attempts are exhausted.
+     *
+     * @param unexpectedException the exception that caused the failure
+     * @param symbols the symbols for which the prices were being fetched
+     * @throws UnexpectedException rethrows the original exception after logging recovery details
+     */
+    @Recover
+    public List<PriceItem> recoverBatch(UnexpectedException unexpectedException, Collection<String> symbols) {
+        log.info("Batch retry Number: {} for symbols {}", RetrySynchronizationManager.getContext().getRetryCount(), symbols);
         throw unexpectedException;
     }
 
@@ -0,0 +1,66 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dto.PriceResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Collapses concurrent price lookups for the same symbol into a single outbound call.
+ * The first caller for a symbol performs the lookup, every caller arriving while it is in flight
+ * waits for it and receives the same result or the same failure.
+ */
+@Component
+public class PriceLookupCoalescer {
+
+    private final ConcurrentMap<String, CompletableFuture<PriceResult>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executedLookups;
+    private final Counter coalescedLookups;
+
+    /**
+     * Creates the coalescer and registers its metrics.
+     *
+     * @param meterRegistry the registry where executed and saved lookups are counted
+     */
+    public PriceLookupCoalescer(MeterRegistry meterRegistry) {
+        this.executedLookups = Counter.builder("price.feed.lookups.executed")
+                .description("Price lookups sent to the price feed")
+                .register(meterRegistry);
+        this.coalescedLookups = Counter.builder("price.feed.lookups.coalesced")
+                .description("Price lookups served by joining an in-flight lookup for the same symbol")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the lookup for a symbol unless one is already in flight, in which case it waits for that one.
+     *
+     * @param symbol the symbol being looked up
+     * @param lookup the outbound lookup to run if no lookup for the symbol is in flight
+     * @return the result of the lookup
+     * @throws RuntimeException the exception thrown by the in-flight lookup, unchanged
+     */
+    public PriceResult getPrice(String symbol, Supplier<PriceResult> lookup) {
+        final CompletableFuture<PriceResult> own = new CompletableFuture<>();
+        final CompletableFuture<PriceResult> existing = inFlight.putIfAbsent(symbol, own);
+        if (existing != null) {
+            coalescedLookups.increment();
+            return Futures.join(existing);
+        }
+
+        executedLookups.increment();
+        try {
+            final PriceResult result = lookup.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(symbol, own);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dto.FixedPrice;
+import com.bogdanenache.order_service.dto.PriceItem;
+import com.bogdanenache.order_service.dto.PriceSnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Subscribes to the server-sent events stream of price ticks and keeps the {@link PriceBook} up to date.
+ * Each event carries one price item as JSON in its data field. The subscription runs on a dedicated
+ * thread and reconnects after the configured delay whenever the stream ends or fails. An event that cannot be
+ * recorded, such as malformed JSON or a price out of range, is counted and skipped without ending the subscription.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "order-service.price-stream.enabled", havingValue = "true")
+public class PriceStreamSubscriber {
+
+    private static final String DATA_FIELD = "data:";
+
+    private final PriceBook priceBook;
+    private final ObjectMapper objectMapper;
+    private final URI streamUri;
+    private final Duration reconnectDelay;
+    private final HttpClient httpClient;
+    private final Counter ticks;
+    private final Counter skipped;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    /**
+     * Creates the subscriber.
+     *
+     * @param priceBook the book updated with every received tick
+     * @param objectMapper the mapper used to read the JSON price items
+     * @param meterRegistry the registry where received and skipped ticks are counted
+     * @param streamUrl the URL of the price stream
+     * @param reconnectDelay the delay before reconnecting after the stream ended or failed
+     */
+    public PriceStreamSubscriber(PriceBook priceBook,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.price-stream.url}") String streamUrl,
+            @Value("${order-service.price-stream.reconnect-delay:1s}") Duration reconnectDelay) {
+        this.priceBook = priceBook;
+        this.objectMapper = objectMapper;
+        this.streamUri = URI.create(streamUrl);
+        this.reconnectDelay = reconnectDelay;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.ticks = Counter.builder("price.stream.ticks")
+                .description("Price ticks received from the price stream")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("price.stream.skipped")
+                .description("Price stream events skipped because they could not be recorded")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the subscription thread.
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = Thread.ofPlatform().name("price-stream").daemon().start(this::run);
+    }
+
+    /**
+     * Stops the subscription thread.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Keeps the subscription open until the subscriber is stopped.
+     */
+    private void run() {
+        while (running) {
+            try {
+                subscribe();
+            } catch (IOException e) {
+                log.warn("Price stream {} failed: {}", streamUri, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (running) {
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                log.info("Reconnecting to price stream {}", streamUri);
+            }
+        }
+    }
+
+    /**
+     * Opens the stream and reads events until it ends.
+     *
+     * @throws IOException if the stream cannot be opened or read
+     * @throws InterruptedException if the thread is interrupted while connecting
+     */
+    private void subscribe() throws IOException, InterruptedException {
+        final HttpRequest request = HttpRequest.newBuilder(streamUri)
+                .header("Accept", "text/event-stream")
+                .GET()
+                .build();
+        final HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+        try (Stream<String> lines = response.body()) {
+            if (response.statusCode() != 200) {
+                log.warn("Price stream {} answered with status {}", streamUri, response.statusCode());
+                return;
+            }
+            log.info("Subscribed to price stream {}", streamUri);
+            final StringBuilder data = new StringBuilder();
+            final Iterator<String> iterator = lines.iterator();
+            while (running && iterator.hasNext()) {
+                onLine(iterator.next(), data);
+            }
+        }
+    }
+
+    /**
+     * Handles one line of the event stream. Data lines are accumulated until the blank line
+     * that ends the event; comments and other fields are ignored.
+     *
+     * @param line the received line
+     * @param data the data accumulated for the current event
+     */
+    private void onLine(String line, StringBuilder data) {
+        if (line.isEmpty()) {
+            if (!data.isEmpty()) {
+                onEvent(data.toString());
+                data.setLength(0);
+            }
+            return;
+        }
+        if (line.startsWith(DATA_FIELD)) {
+            if (!data.isEmpty()) {
+                data.append('\n');
+            }
+            data.append(line.substring(DATA_FIELD.length()).strip());
+        }
+    }
+
+    /**
+     * Records the price carried by an event in the price book, skipping the event if it cannot be recorded.
+     *
+     * @param json the event data
+     */
+    private void onEvent(String json) {
+        try {
+            final PriceItem item = objectMapper.readValue(json, PriceItem.class);
+            if (item.symbol() == null || item.price() == null) {
+                log.warn("Ignoring incomplete price tick: {}", json);
+                skipped.increment();
+                return;
+            }
+            priceBook.update(new PriceSnapshot(item.symbol(), FixedPrice.of(item.price()), Instant.now()));
+            ticks.increment();
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed price tick: {}", json);
+            skipped.increment();
+        } catch (RuntimeException e) {
+            // one bad tick must not end the subscription thread
+            log.warn("Ignoring price tick that cannot be recorded: {}", json, e);
+            skipped.increment();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.configs.ReadWriteRoutingDataSource;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Decides whether an order read is served by the read replica or by the primary.
+ * Reads go to the replica in a read-only transaction, except reads of an order or account written by this
+ * instance within the replica's maximum lag: those go to the primary, so a client reading the order it
+ * just placed always finds it.
+ */
+@Component
+public class ReplicaReadRouter {
+
+    private final boolean enabled;
+    private final TransactionTemplate replicaTransaction;
+    private final Cache<String, Boolean> recentWrites;
+    private final Counter primaryReads;
+    private final Counter replicaReads;
+
+    /**
+     * Creates the router.
+     *
+     * @param transactionManager the transaction manager replica reads run in
+     * @param meterRegistry the registry where reads are counted by target
+     * @param enabled whether a replica is configured at all; without one every read runs as before
+     * @param maxLag how long after a write the written order and account are read from the primary
+     * @param recentWritesSize the maximum number of recently written orders and accounts remembered
+     */
+    public ReplicaReadRouter(PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.replica.enabled:false}") boolean enabled,
+            @Value("${order-service.replica.max-lag:5s}") Duration maxLag,
+            @Value("${order-service.replica.recent-writes-size:100000}") long recentWritesSize) {
+        this.enabled = enabled;
+        this.replicaTransaction = new TransactionTemplate(transactionManager);
+        this.replicaTransaction.setReadOnly(true);
+        this.recentWrites = Caffeine.newBuilder()
+                .expireAfterWrite(maxLag)
+                .maximumSize(recentWritesSize)
+                .build();
+        this.primaryReads = Counter.builder("order.reads").tag("target", "primary")
+                .description("Order reads by the database they were served from")
+                .register(meterRegistry);
+        this.replicaReads = Counter.builder("order.reads").tag("target", "replica")
+                .description("Order reads by the database they were served from")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records that an order was committed on the primary, so reads of it and of its account
+     * stay on the primary until the replica has caught up.
+     *
+     * @param internalId the internal id of the order
+     * @param accountId the account of the order
+     */
+    public void recordWrite(String internalId, String accountId) {
+        if (enabled) {
+            recentWrites.put(orderKey(internalId), Boolean.TRUE);
+            recentWrites.put(accountKey(accountId), Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Reads an order, from the primary if it was written recently and from the replica otherwise.
+     *
+     * @param internalId the internal id of the order
+     * @param read the read to run
+     * @param <T> the type of the result
+     * @return the result of the read
+     */
+    public <T> T readOrder(String internalId, Supplier<T> read) {
+        return read(orderKey(internalId), read);
+    }
+
+    /**
+     * Reads orders of an account, from the primary if one of them was written recently and from the replica otherwise.
+     *
+     * @param accountId the account id
+     * @param read the read to run
+     * @param <T> the type of the result
+     * @return the result of the read
+     */
+    public <T> T readAccount(String accountId, Supplier<T> read) {
+        return read(accountKey(accountId), read);
+    }
+
+    private <T> T read(String key, Supplier<T> read) {
+        if (!enabled) {
+            return read.get();
+        }
+        if (recentWrites.getIfPresent(key) != null) {
+            primaryReads.increment();
+            return read.get();
+        }
+        replicaReads.increment();
+        // the transaction takes its connection inside the replica scope and returns it on commit
+        return ReadWriteRoutingDataSource.onReplica(() -> replicaTransaction.execute(status -> read.get()));
+    }
+
+    private static String orderKey(String internalId) {
+        return "order:" + internalId;
+    }
+
+    private static String accountKey(String accountId) {
+        return "account:" + accountId;
+    }
+}
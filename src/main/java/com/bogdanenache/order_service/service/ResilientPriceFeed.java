@@ -0,0 +1,283 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dto.PriceItem;
+import com.bogdanenache.order_service.dto.PriceResult;
+import com.bogdanenache.order_service.dto.PriceResult.FeedUnavailable;
+import com.bogdanenache.order_service.dto.PriceResult.Priced;
+import com.bogdanenache.order_service.dto.PriceResult.UnknownSymbol;
+import com.bogdanenache.order_service.exception.BadRequestException;
+import com.bogdanenache.order_service.exception.ErrorCode;
+import com.bogdanenache.order_service.exception.UnexpectedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.retry.ExhaustedRetryException;
+import org.springframework.stereotype.Component;
+
+import static com.bogdanenache.order_service.exception.UnexpectedException.Message.UNABLE_TO_CALL_PRICE_FEED;
+
+/**
+ * Guards the price feed with a circuit breaker and, for single-symbol lookups, hedged requests.
+ * Once the feed degrades the breaker opens and lookups fail fast instead of waiting on timeouts and retries.
+ * When hedging is enabled a lookup that has not answered within the recent p95 feed latency
+ * is sent a second time and whichever attempt answers first wins. In virtual-thread mode each attempt runs on
+ * its own virtual thread, so hedging is bounded by the price feed connection pool instead of a thread pool.
+ * Outcomes are counted per symbol only for symbols the feed priced before, up to a maximum number of them; any other
+ * symbol, such as one a client made up, is counted as unknown so the metric cannot grow without bound.
+ */
+@Slf4j
+@Component
+public class ResilientPriceFeed {
+
+    private static final String CIRCUIT_BREAKER_NAME = "priceFeed";
+    private static final String BATCH = "batch";
+    private static final String UNKNOWN = "unknown";
+    private static final double HEDGE_PERCENTILE = 0.95;
+    private static final long MIN_LATENCY_SAMPLES = 20;
+    private static final long HEDGE_DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final UnexpectedException FEED_UNAVAILABLE =
+            new UnexpectedException(UNABLE_TO_CALL_PRICE_FEED, ErrorCode.SERVICE_UNAVAILABLE);
+
+    private final PriceFeedService priceFeed;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final Timer latency;
+    private final boolean hedgingEnabled;
+    private final long minHedgeDelayNanos;
+    private final int maxTaggedSymbols;
+    private final Set<String> taggedSymbols = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor;
+
+    private volatile long hedgeDelayNanos;
+    private volatile long hedgeDelayUpdatedAt = System.nanoTime();
+
+    /**
+     * Creates the guarded price feed.
+     *
+     * @param priceFeed the remote price feed
+     * @param circuitBreakerRegistry the registry holding the priceFeed circuit breaker configuration
+     * @param meterRegistry the registry where feed latency and per-symbol outcomes are published
+     * @param hedgingEnabled whether slow single-symbol lookups are hedged
+     * @param initialHedgeDelay the hedge delay used until enough latency samples were collected
+     * @param minHedgeDelay the lower bound of the hedge delay
+     * @param concurrency the number of threads running hedged lookups, ignored with virtual threads
+     * @param virtualThreads whether hedged lookups run on virtual threads
+     * @param maxTaggedSymbols the number of priced symbols whose outcomes are counted under their own tag
+     */
+    public ResilientPriceFeed(PriceFeedService priceFeed,
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${order-service.price-hedging.enabled:false}") boolean hedgingEnabled,
+            @Value("${order-service.price-hedging.initial-delay:100ms}") Duration initialHedgeDelay,
+            @Value("${order-service.price-hedging.min-delay:20ms}") Duration minHedgeDelay,
+            @Value("${order-service.price-hedging.concurrency:64}") int concurrency,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${order-service.price-metrics.max-symbols:1000}") int maxTaggedSymbols) {
+        this.priceFeed = priceFeed;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER_NAME);
+        this.meterRegistry = meterRegistry;
+        this.latency = Timer.builder("price.feed.latency")
+                .description("Latency of a single price feed lookup attempt")
+                .publishPercentiles(HEDGE_PERCENTILE)
+                .register(meterRegistry);
+        this.hedgingEnabled = hedgingEnabled;
+        this.minHedgeDelayNanos = minHedgeDelay.toNanos();
+        this.maxTaggedSymbols = maxTaggedSymbols;
+        this.hedgeDelayNanos = Math.max(initialHedgeDelay.toNanos(), minHedgeDelayNanos);
+        if (!hedgingEnabled) {
+            this.executor = null;
+        } else if (virtualThreads) {
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("price-hedge-", 0).factory());
+        } else {
+            this.executor = Executors.newFixedThreadPool(concurrency, Thread.ofPlatform().name("price-hedge-", 0).daemon().factory());
+        }
+    }
+
+    /**
+     * Fetches the price for a symbol through the circuit breaker, hedging the request when enabled.
+     * Never throws: an open circuit or a failed lookup is returned as {@link FeedUnavailable}.
+     *
+     * @param symbol the symbol for which the price is to be fetched
+     * @return the lookup outcome
+     */
+    public PriceResult getPrice(String symbol) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            recordOutcome(symbol, "rejected");
+            return new FeedUnavailable(symbol);
+        }
+        final long start = System.nanoTime();
+        final Attempt attempt = hedgingEnabled ? hedged(symbol) : attempt(symbol, false);
+        final long duration = System.nanoTime() - start;
+        switch (attempt.result()) {
+            case Priced priced -> {
+                circuitBreaker.onSuccess(duration, TimeUnit.NANOSECONDS);
+                if (taggedSymbols.size() < maxTaggedSymbols) {
+                    taggedSymbols.add(symbol);
+                }
+                recordOutcome(symbol, attempt.hedge() ? "hedge_won" : "success");
+            }
+            case UnknownSymbol unknown -> {
+                // the feed answered, so an unknown symbol does not count against it
+                circuitBreaker.onSuccess(duration, TimeUnit.NANOSECONDS);
+                recordOutcome(symbol, "unknown_symbol");
+            }
+            case FeedUnavailable unavailable -> {
+                circuitBreaker.onError(duration, TimeUnit.NANOSECONDS, FEED_UNAVAILABLE);
+                recordOutcome(symbol, "failure");
+            }
+        }
+        return attempt.result();
+    }
+
+    /**
+     * Fetches the prices for several symbols in one request through the circuit breaker.
+     *
+     * @param symbols the symbols for which the prices are to be fetched
+     * @return the price items returned by the feed
+     * @throws UnexpectedException if the circuit breaker is open or the feed failed
+     */
+    public List<PriceItem> getPrices(Collection<String> symbols) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            recordCall(BATCH, "rejected");
+            throw FEED_UNAVAILABLE;
+        }
+        final long start = System.nanoTime();
+        try {
+            final List<PriceItem> items = latency.record(() -> priceFeed.getPrices(symbols));
+            circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            recordCall(BATCH, "success");
+            return items;
+        } catch (BadRequestException | ExhaustedRetryException e) {
+            // the feed answered, a rejected request does not count against it
+            circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            recordCall(BATCH, "unknown_symbol");
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, e);
+            recordCall(BATCH, "failure");
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the lookup and, if it has not answered within the hedge delay, a second one,
+     * returning the first attempt that got an answer from the feed.
+     *
+     * @param symbol the symbol for which the price is to be fetched
+     * @return the winning attempt, or the primary one if neither got an answer
+     */
+    private Attempt hedged(String symbol) {
+        final CompletableFuture<Attempt> primary = CompletableFuture.supplyAsync(() -> attempt(symbol, false), executor);
+        try {
+            return primary.get(hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            recordOutcome(symbol, "hedged");
+            final CompletableFuture<Attempt> hedge = CompletableFuture.supplyAsync(() -> attempt(symbol, true), executor);
+            return Futures.join(firstAnswered(primary, hedge));
+        } catch (ExecutionException e) {
+            log.error("Price lookup for symbol {} failed", symbol, e.getCause());
+            return new Attempt(new FeedUnavailable(symbol), false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Attempt(new FeedUnavailable(symbol), false);
+        }
+    }
+
+    /**
+     * Runs one timed lookup attempt. A failure is returned as FeedUnavailable.
+     *
+     * @param symbol the symbol for which the price is to be fetched
+     * @param hedge whether this attempt is the hedge
+     * @return the attempt result
+     */
+    private Attempt attempt(String symbol, boolean hedge) {
+        final Supplier<PriceResult> lookup = () -> priceFeed.getPrice(symbol);
+        try {
+            return new Attempt(latency.record(lookup), hedge);
+        } catch (RuntimeException e) {
+            log.error("Price lookup for symbol {} failed", symbol, e);
+            return new Attempt(new FeedUnavailable(symbol), hedge);
+        }
+    }
+
+    /**
+     * Combines two attempts into a future completed by the first one that got an answer,
+     * or with the primary attempt once neither did.
+     */
+    private static CompletableFuture<Attempt> firstAnswered(CompletableFuture<Attempt> primary, CompletableFuture<Attempt> hedge) {
+        final CompletableFuture<Attempt> result = new CompletableFuture<>();
+        primary.thenAccept(first -> {
+            if (first.answered()) {
+                result.complete(first);
+            } else {
+                hedge.thenAccept(second -> result.complete(second.answered() ? second : first));
+            }
+        });
+        hedge.thenAccept(second -> {
+            if (second.answered()) {
+                result.complete(second);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the current hedge delay, the p95 feed latency refreshed at most once per second.
+     *
+     * @return the hedge delay in nanoseconds
+     */
+    private long hedgeDelayNanos() {
+        final long now = System.nanoTime();
+        if (now - hedgeDelayUpdatedAt > HEDGE_DELAY_REFRESH_NANOS && latency.count() >= MIN_LATENCY_SAMPLES) {
+            hedgeDelayUpdatedAt = now;
+            for (ValueAtPercentile value : latency.takeSnapshot().percentileValues()) {
+                if (value.percentile() == HEDGE_PERCENTILE) {
+                    hedgeDelayNanos = Math.max(minHedgeDelayNanos, (long) value.value(TimeUnit.NANOSECONDS));
+                }
+            }
+        }
+        return hedgeDelayNanos;
+    }
+
+    private void recordOutcome(String symbol, String outcome) {
+        recordCall(taggedSymbols.contains(symbol) ? symbol : UNKNOWN, outcome);
+    }
+
+    private void recordCall(String tag, String outcome) {
+        meterRegistry.counter("price.feed.calls", "symbol", tag, "outcome", outcome).increment();
+    }
+
+    /**
+     * Stops the hedging threads when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private record Attempt(PriceResult result, boolean hedge) {
+
+        boolean answered() {
+            return !(result instanceof FeedUnavailable);
+        }
+    }
+}
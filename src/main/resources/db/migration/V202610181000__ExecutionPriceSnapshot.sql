@@ -0,0 +1,5 @@
+ALTER TABLE ORDER_SERVICE.EXECUTIONS
+    ADD COLUMN EXC_PRICE_TIMESTAMP TIMESTAMP(6) WITHOUT TIME ZONE;
+
+ALTER TABLE ORDER_SERVICE.EXECUTIONS
+    ADD COLUMN EXC_PRICE_AGE_MS NUMERIC(10, 0);
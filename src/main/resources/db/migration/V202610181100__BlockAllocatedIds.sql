@@ -0,0 +1,9 @@
+-- Hibernate reserves blocks of 50 ids per nextval (pooled optimizer), so the increment must match the allocation size.
+-- The next block starts right after the last value handed out, so ids already in use are never reissued.
+ALTER SEQUENCE ORDER_SERVICE.SEQ_ORD_ID
+    INCREMENT BY 50
+    CACHE 1;
+
+ALTER SEQUENCE ORDER_SERVICE.SEQ_EXC_ID
+    INCREMENT BY 50
+    CACHE 1;
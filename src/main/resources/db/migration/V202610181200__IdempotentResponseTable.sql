@@ -0,0 +1,12 @@
+CREATE TABLE ORDER_SERVICE.IDEMPOTENT_RESPONSES
+(
+    IDR_IDEMPOTENCY_KEY CHARACTER VARYING(36)          NOT NULL,
+    IDR_STATUS          NUMERIC(3, 0)                  NOT NULL,
+    IDR_BODY            BYTEA                          NOT NULL,
+    IDR_CREATED         TIMESTAMP(6) WITHOUT TIME ZONE NOT NULL
+) WITH (
+      OIDS = FALSE
+    );
+
+ALTER TABLE ORDER_SERVICE.IDEMPOTENT_RESPONSES
+    ADD CONSTRAINT PK_IDEMPOTENT_RESPONSE PRIMARY KEY (IDR_IDEMPOTENCY_KEY);
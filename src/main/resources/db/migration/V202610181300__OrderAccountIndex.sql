@@ -0,0 +1,2 @@
+CREATE INDEX IF NOT EXISTS IDX_ORD_ACCOUNT_CREATED
+    ON ORDER_SERVICE.ORDERS (ORD_ACCOUNT_ID, ORD_CREATED DESC, ORD_ID DESC);
@@ -0,0 +1,152 @@
+-- ORDERS and EXECUTIONS become range partitioned by creation time, one partition per month, so indexes and vacuum
+-- work stay bounded by the size of a month. A unique constraint on a partitioned table must include the partition key,
+-- so the one order per idempotency key rule moves to ORDER_KEYS, which also maps an order's internal id to its
+-- creation time so a read by internal id scans a single partition.
+--
+-- Downtime: the existing rows are copied into the partitioned tables in this migration's single transaction, holding
+-- an exclusive lock on ORDERS and EXECUTIONS until it commits. Writes and reads of orders are blocked for the whole copy,
+-- so the migration runs in a maintenance window sized to the row count of both tables.
+--
+-- Weaker constraints: a foreign key cannot reference a partitioned table unless it names the whole partition key, and an
+-- execution does not store its order's creation time, so FK_ORDER_EXECUTION_01 is not recreated. IDX_EXC_ORDER_ID keeps
+-- the lookup by order and PartitionMaintenance counts executions whose order is missing. ORD_ID and EXC_ID stay unique
+-- through their sequences only, the primary keys include the creation time.
+
+CREATE SCHEMA IF NOT EXISTS ORDER_ARCHIVE;
+
+-- Creates the missing monthly partitions of a table from the month of p_from to the month of p_to, named <table>_pYYYYMM.
+CREATE OR REPLACE FUNCTION ORDER_SERVICE.CREATE_MONTHLY_PARTITIONS(p_table TEXT, p_from DATE, p_to DATE)
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    v_month   DATE    := date_trunc('month', p_from)::DATE;
+    v_name    TEXT;
+    v_created INTEGER := 0;
+BEGIN
+    WHILE v_month <= p_to
+        LOOP
+            v_name := lower(p_table) || '_p' || to_char(v_month, 'YYYYMM');
+            IF to_regclass('order_service.' || v_name) IS NULL THEN
+                EXECUTE format('CREATE TABLE order_service.%I PARTITION OF order_service.%I FOR VALUES FROM (%L) TO (%L)',
+                               v_name, lower(p_table), v_month, (v_month + INTERVAL '1 month')::DATE);
+                v_created := v_created + 1;
+            END IF;
+            v_month := (v_month + INTERVAL '1 month')::DATE;
+        END LOOP;
+    RETURN v_created;
+END;
+$$;
+
+-- Detaches the monthly partitions of a table ending on or before p_before and moves them to ORDER_ARCHIVE,
+-- where they can be dumped and dropped without touching the live table.
+CREATE OR REPLACE FUNCTION ORDER_SERVICE.ARCHIVE_PARTITIONS(p_table TEXT, p_before DATE)
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    v_partition RECORD;
+    v_archived  INTEGER := 0;
+BEGIN
+    FOR v_partition IN
+        SELECT c.relname
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = ('order_service.' || lower(p_table))::REGCLASS
+          AND c.relname ~ ('^' || lower(p_table) || '_p[0-9]{6}$')
+          AND to_date(right(c.relname, 6), 'YYYYMM') + INTERVAL '1 month' <= p_before
+        ORDER BY c.relname
+        LOOP
+            EXECUTE format('ALTER TABLE order_service.%I DETACH PARTITION order_service.%I', lower(p_table), v_partition.relname);
+            EXECUTE format('ALTER TABLE order_service.%I SET SCHEMA order_archive', v_partition.relname);
+            v_archived := v_archived + 1;
+        END LOOP;
+    RETURN v_archived;
+END;
+$$;
+
+ALTER TABLE ORDER_SERVICE.EXECUTIONS
+    RENAME TO EXECUTIONS_LEGACY;
+
+ALTER TABLE ORDER_SERVICE.ORDERS
+    RENAME TO ORDERS_LEGACY;
+
+CREATE TABLE ORDER_SERVICE.ORDERS
+(
+    LIKE ORDER_SERVICE.ORDERS_LEGACY
+) PARTITION BY RANGE (ORD_CREATED);
+
+CREATE TABLE ORDER_SERVICE.EXECUTIONS
+(
+    LIKE ORDER_SERVICE.EXECUTIONS_LEGACY
+) PARTITION BY RANGE (EXC_CREATED);
+
+SELECT ORDER_SERVICE.CREATE_MONTHLY_PARTITIONS('ORDERS',
+                                               LEAST(COALESCE((SELECT MIN(ORD_CREATED) FROM ORDER_SERVICE.ORDERS_LEGACY)::DATE, CURRENT_DATE), CURRENT_DATE),
+                                               (CURRENT_DATE + INTERVAL '3 months')::DATE);
+
+SELECT ORDER_SERVICE.CREATE_MONTHLY_PARTITIONS('EXECUTIONS',
+                                               LEAST(COALESCE((SELECT MIN(EXC_CREATED) FROM ORDER_SERVICE.EXECUTIONS_LEGACY)::DATE, CURRENT_DATE), CURRENT_DATE),
+                                               (CURRENT_DATE + INTERVAL '3 months')::DATE);
+
+INSERT INTO ORDER_SERVICE.ORDERS
+SELECT *
+FROM ORDER_SERVICE.ORDERS_LEGACY;
+
+INSERT INTO ORDER_SERVICE.EXECUTIONS
+SELECT *
+FROM ORDER_SERVICE.EXECUTIONS_LEGACY;
+
+CREATE TABLE ORDER_SERVICE.ORDER_KEYS
+(
+    ORK_ORDER_INTERNAL_ID CHARACTER VARYING(36)          NOT NULL,
+    ORK_IDEMPOTENCY_KEY   CHARACTER VARYING(36)          NOT NULL,
+    ORK_CREATED           TIMESTAMP(6) WITHOUT TIME ZONE NOT NULL
+) WITH (
+      OIDS = FALSE
+    );
+
+INSERT INTO ORDER_SERVICE.ORDER_KEYS (ORK_ORDER_INTERNAL_ID, ORK_IDEMPOTENCY_KEY, ORK_CREATED)
+SELECT ORD_INTERNAL_ID, ORD_IDEMPOTENCY_KEY, ORD_CREATED
+FROM ORDER_SERVICE.ORDERS_LEGACY;
+
+-- frees the constraint and index names for the new tables
+DROP TABLE ORDER_SERVICE.EXECUTIONS_LEGACY;
+
+DROP TABLE ORDER_SERVICE.ORDERS_LEGACY;
+
+ALTER TABLE ORDER_SERVICE.ORDER_KEYS
+    ADD CONSTRAINT PK_ORDER_KEY PRIMARY KEY (ORK_ORDER_INTERNAL_ID);
+
+ALTER TABLE ORDER_SERVICE.ORDER_KEYS
+    ADD CONSTRAINT UQ_ORD_IDEMPOTENCY_KEY UNIQUE (ORK_IDEMPOTENCY_KEY);
+
+CREATE INDEX IDX_ORK_CREATED
+    ON ORDER_SERVICE.ORDER_KEYS (ORK_CREATED);
+
+ALTER TABLE ORDER_SERVICE.ORDERS
+    ADD CONSTRAINT PK_ORDER PRIMARY KEY (ORD_ID, ORD_CREATED);
+
+ALTER TABLE ORDER_SERVICE.ORDERS
+    ADD CONSTRAINT CHK_ORDER_01 CHECK (ORD_SIDE IN ('BUY', 'SELL'));
+
+ALTER TABLE ORDER_SERVICE.ORDERS
+    ADD CONSTRAINT CHK_ORDER_02 CHECK (ORD_STATUS IN ('PROCESSED', 'FAILED'));
+
+ALTER TABLE ORDER_SERVICE.ORDERS
+    ADD CONSTRAINT CHK_ORDER_03 UNIQUE (ORD_INTERNAL_ID, ORD_CREATED);
+
+CREATE INDEX IDX_ORD_ACCOUNT_CREATED
+    ON ORDER_SERVICE.ORDERS (ORD_ACCOUNT_ID, ORD_CREATED DESC, ORD_ID DESC);
+
+-- an execution row references its order by id only, the order's partition is found through its creation time
+ALTER TABLE ORDER_SERVICE.EXECUTIONS
+    ADD CONSTRAINT PK_EXECUTION PRIMARY KEY (EXC_ID, EXC_CREATED);
+
+ALTER TABLE ORDER_SERVICE.EXECUTIONS
+    ADD CONSTRAINT CHK_EXECUTION_01 UNIQUE (EXC_INTERNAL_ID, EXC_CREATED);
+
+CREATE INDEX IDX_EXC_ORDER_ID
+    ON ORDER_SERVICE.EXECUTIONS (ORD_ORDER_ID);
@@ -0,0 +1,21 @@
+CREATE TABLE ORDER_SERVICE.ORDER_OUTBOX
+(
+    OBX_ID                BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    OBX_TYPE              CHARACTER VARYING(20)          NOT NULL,
+    OBX_ORDER_INTERNAL_ID UUID                           NOT NULL,
+    OBX_ACCOUNT_ID        CHARACTER VARYING(36)          NOT NULL,
+    OBX_PAYLOAD           BYTEA                          NOT NULL,
+    OBX_CREATED           TIMESTAMP(6) WITHOUT TIME ZONE NOT NULL
+) WITH (
+      OIDS = FALSE
+    );
+
+ALTER TABLE ORDER_SERVICE.ORDER_OUTBOX
+    ADD CONSTRAINT PK_ORDER_OUTBOX PRIMARY KEY (OBX_ID);
+
+ALTER TABLE ORDER_SERVICE.ORDER_OUTBOX
+    ADD CONSTRAINT CHK_ORDER_OUTBOX_01 CHECK (OBX_TYPE IN ('ORDER_CREATED'));
+
+-- rows live for one relay poll; vacuum the deleted rows early so locking the oldest never walks past dead ones
+ALTER TABLE ORDER_SERVICE.ORDER_OUTBOX
+    SET (AUTOVACUUM_VACUUM_SCALE_FACTOR = 0, AUTOVACUUM_VACUUM_THRESHOLD = 1000);
@@ -0,0 +1,13 @@
+CREATE TABLE ORDER_SERVICE.IMPORT_CHECKPOINTS
+(
+    ICP_IMPORT_ID CHARACTER VARYING(64)          NOT NULL,
+    ICP_RECORDS   BIGINT                         NOT NULL,
+    ICP_IMPORTED  BIGINT                         NOT NULL,
+    ICP_REJECTED  BIGINT                         NOT NULL,
+    ICP_UPDATED   TIMESTAMP(6) WITHOUT TIME ZONE NOT NULL
+) WITH (
+      OIDS = FALSE
+    );
+
+ALTER TABLE ORDER_SERVICE.IMPORT_CHECKPOINTS
+    ADD CONSTRAINT PK_IMPORT_CHECKPOINT PRIMARY KEY (ICP_IMPORT_ID);
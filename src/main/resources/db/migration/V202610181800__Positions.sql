@@ -0,0 +1,34 @@
+CREATE TABLE ORDER_SERVICE.POSITIONS
+(
+    POS_ACCOUNT_ID      CHARACTER VARYING(36)          NOT NULL,
+    POS_SYMBOL          CHARACTER VARYING(20)          NOT NULL,
+    POS_BOUGHT_QUANTITY BIGINT                         NOT NULL,
+    POS_BOUGHT_NOTIONAL NUMERIC(38, 6)                 NOT NULL,
+    POS_SOLD_QUANTITY   BIGINT                         NOT NULL,
+    POS_SOLD_NOTIONAL   NUMERIC(38, 6)                 NOT NULL,
+    POS_UPDATED         TIMESTAMP(6) WITHOUT TIME ZONE NOT NULL
+) WITH (
+      OIDS = FALSE
+    );
+
+ALTER TABLE ORDER_SERVICE.POSITIONS
+    ADD CONSTRAINT PK_POSITION PRIMARY KEY (POS_ACCOUNT_ID, POS_SYMBOL);
+
+-- hot positions are updated by every order of their account; leave room for HOT updates that skip the index
+ALTER TABLE ORDER_SERVICE.POSITIONS
+    SET (FILLFACTOR = 80);
+
+-- positions of the orders placed before the table existed
+INSERT INTO ORDER_SERVICE.POSITIONS (POS_ACCOUNT_ID, POS_SYMBOL, POS_BOUGHT_QUANTITY, POS_BOUGHT_NOTIONAL,
+                                     POS_SOLD_QUANTITY, POS_SOLD_NOTIONAL, POS_UPDATED)
+SELECT O.ORD_ACCOUNT_ID,
+       O.ORD_SYMBOL,
+       COALESCE(SUM(O.ORD_QUANTITY) FILTER (WHERE O.ORD_SIDE = 'BUY'), 0),
+       COALESCE(SUM(O.ORD_QUANTITY * E.EXC_PRICE) FILTER (WHERE O.ORD_SIDE = 'BUY'), 0),
+       COALESCE(SUM(O.ORD_QUANTITY) FILTER (WHERE O.ORD_SIDE = 'SELL'), 0),
+       COALESCE(SUM(O.ORD_QUANTITY * E.EXC_PRICE) FILTER (WHERE O.ORD_SIDE = 'SELL'), 0),
+       MAX(O.ORD_CREATED)
+FROM ORDER_SERVICE.ORDERS O
+         JOIN ORDER_SERVICE.EXECUTIONS E ON E.ORD_ORDER_ID = O.ORD_ID
+WHERE O.ORD_STATUS = 'PROCESSED'
+GROUP BY O.ORD_ACCOUNT_ID, O.ORD_SYMBOL;
@@ -0,0 +1,11 @@
+-- orders accepted asynchronously are saved PENDING and completed once they were priced
+ALTER TABLE ORDER_SERVICE.ORDERS
+    DROP CONSTRAINT CHK_ORDER_02;
+
+ALTER TABLE ORDER_SERVICE.ORDERS
+    ADD CONSTRAINT CHK_ORDER_02 CHECK (ORD_STATUS IN ('PROCESSED', 'FAILED', 'PENDING'));
+
+-- pending orders are queued again at startup; the partial index only holds the few rows still pending
+CREATE INDEX IDX_ORD_PENDING
+    ON ORDER_SERVICE.ORDERS (ORD_CREATED, ORD_ID)
+    WHERE ORD_STATUS = 'PENDING';
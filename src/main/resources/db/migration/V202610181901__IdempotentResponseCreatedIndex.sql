@@ -0,0 +1,3 @@
+-- stored responses are purged once their TTL elapsed, oldest first
+CREATE INDEX IDX_IDR_CREATED
+    ON ORDER_SERVICE.IDEMPOTENT_RESPONSES (IDR_CREATED);
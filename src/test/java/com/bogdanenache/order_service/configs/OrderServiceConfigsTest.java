@@ -0,0 +1,46 @@
+package com.bogdanenache.order_service.configs;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class OrderServiceConfigsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OrderServiceConfigs configs;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        configs = new OrderServiceConfigs();
+    }
+
+    @Test
+    void priceFeedConnectionManager_shouldApplyPoolLimits_andPublishPoolMetrics() {
+        try (PoolingHttpClientConnectionManager connectionManager = configs.priceFeedConnectionManager(meterRegistry,
+                20, 5, Duration.ofMillis(100), Duration.ofSeconds(1), Duration.ofMinutes(1))) {
+
+            assertEquals(20, connectionManager.getMaxTotal());
+            assertEquals(5, connectionManager.getDefaultMaxPerRoute());
+            assertEquals(20, meterRegistry.get("httpcomponents.httpclient.pool.total.max").gauge().value());
+            assertNotNull(meterRegistry.get("httpcomponents.httpclient.pool.total.pending").gauge());
+        }
+    }
+
+    @Test
+    void priceFeedHttpClient_shouldRegisterConnectionAcquireTimer() throws Exception {
+        PoolingHttpClientConnectionManager connectionManager = configs.priceFeedConnectionManager(meterRegistry,
+                20, 5, Duration.ofMillis(100), Duration.ofSeconds(1), Duration.ofMinutes(1));
+        try (CloseableHttpClient httpClient = configs.priceFeedHttpClient(connectionManager, meterRegistry,
+                Duration.ofMillis(100), Duration.ofSeconds(1), Duration.ofSeconds(30))) {
+
+            assertNotNull(meterRegistry.get("price.feed.http.connection.acquire").timer());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.bogdanenache.order_service.configs;
+
+import java.sql.Connection;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private ReadWriteRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource primary = mock(DataSource.class);
+        DataSource replica = mock(DataSource.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        dataSource = new ReadWriteRoutingDataSource(primary, replica);
+        dataSource.afterPropertiesSet();
+    }
+
+    @Test
+    void getConnection_shouldUsePrimary_byDefault() throws Exception {
+        assertSame(primaryConnection, dataSource.getConnection());
+    }
+
+    @Test
+    void getConnection_shouldUseReplica_onlyWithinReplicaRead() throws Exception {
+        assertSame(replicaConnection, ReadWriteRoutingDataSource.onReplica(this::connection));
+        assertSame(primaryConnection, dataSource.getConnection());
+    }
+
+    @Test
+    void onReplica_shouldStayOnReplica_whenNested() throws Exception {
+        Connection nested = ReadWriteRoutingDataSource.onReplica(() -> {
+            ReadWriteRoutingDataSource.onReplica(this::connection);
+            return connection();
+        });
+
+        assertSame(replicaConnection, nested);
+        assertSame(primaryConnection, dataSource.getConnection());
+    }
+
+    private Connection connection() {
+        try {
+            return dataSource.getConnection();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
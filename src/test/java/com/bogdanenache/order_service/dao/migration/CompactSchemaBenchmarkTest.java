@@ -0,0 +1,81 @@
+package com.bogdanenache.order_service.dao.migration;
+
+import com.bogdanenache.order_service.dto.TimeOrderedUuid;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Compares the previous and the compact ORDERS layout: rows inserted per second and table and index size
+ * after the same number of rows. The compact layout is measured with random (v4) and time-ordered (v7) ids
+ * to separate the gain of the smaller columns from the gain of appending to the internal id index.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@Testcontainers
+class CompactSchemaBenchmarkTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final int BATCH_SIZE = 1_000;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(DockerImageName.parse("postgres:17"));
+
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void createTables() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(POSTGRES.getJdbcUrl() + "&reWriteBatchedInserts=true",
+                POSTGRES.getUsername(), POSTGRES.getPassword()));
+        jdbc.execute("CREATE TABLE legacy_orders (ORD_ID NUMERIC(10, 0) PRIMARY KEY, ORD_INTERNAL_ID CHARACTER VARYING(36) UNIQUE, "
+                + "ORD_ACCOUNT_ID CHARACTER VARYING(36), ORD_QUANTITY CHARACTER VARYING(8), ORD_CREATED TIMESTAMP(6), "
+                + "ORD_VERSION NUMERIC(6, 0), EXC_PRICE NUMERIC(100, 6))");
+        for (String table : List.of("compact_orders_v4", "compact_orders_v7")) {
+            jdbc.execute("CREATE TABLE " + table + " (ORD_ID BIGINT PRIMARY KEY, ORD_INTERNAL_ID UUID UNIQUE, "
+                    + "ORD_ACCOUNT_ID CHARACTER VARYING(36), ORD_QUANTITY INTEGER, ORD_CREATED TIMESTAMP(6), "
+                    + "ORD_VERSION INTEGER, EXC_PRICE NUMERIC(18, 6))");
+        }
+    }
+
+    @Test
+    void insert_rowsPerSecondAndSize() {
+        measure("legacy varchar ids", "legacy_orders", id -> UUID.randomUUID().toString(), quantity -> Integer.toString(quantity));
+        measure("compact uuid v4", "compact_orders_v4", id -> UUID.randomUUID(), quantity -> quantity);
+        measure("compact uuid v7", "compact_orders_v7", id -> TimeOrderedUuid.next(), quantity -> quantity);
+    }
+
+    private void measure(String layout, String table, Function<Long, Object> internalId, Function<Integer, Object> quantity) {
+        final String insert = "INSERT INTO " + table + " VALUES (?, ?, ?, ?, ?, ?, ?)";
+        final String accountId = UUID.randomUUID().toString();
+        final long start = System.nanoTime();
+        for (long first = 1; first <= ROWS; first += BATCH_SIZE) {
+            final List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+            for (long id = first; id < first + BATCH_SIZE; id++) {
+                rows.add(new Object[]{id, internalId.apply(id), accountId, quantity.apply((int) (id % 100) + 1),
+                        LocalDateTime.now(), 0, new BigDecimal("150.250000")});
+            }
+            jdbc.batchUpdate(insert, rows);
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        jdbc.execute("VACUUM ANALYZE " + table);
+        final long tableBytes = jdbc.queryForObject("SELECT pg_table_size(?::regclass)", Long.class, table);
+        final long indexBytes = jdbc.queryForObject("SELECT pg_indexes_size(?::regclass)", Long.class, table);
+        final long internalIdIndexBytes = jdbc.queryForObject("SELECT pg_relation_size(?::regclass)", Long.class,
+                table + "_ord_internal_id_key");
+
+        System.out.printf("%-20s %,d rows in %.2f s, %,.0f rows/s, table %d MB, indexes %d MB (internal id index %d MB)%n",
+                layout, ROWS, seconds, ROWS / seconds, tableBytes >> 20, indexBytes >> 20, internalIdIndexBytes >> 20);
+    }
+}
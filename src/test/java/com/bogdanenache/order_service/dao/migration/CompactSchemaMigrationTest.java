@@ -0,0 +1,82 @@
+package com.bogdanenache.order_service.dao.migration;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs the real Flyway migrations against a Postgres container: rows written with the previous schema
+ * must survive the move to compact columns, and the constraints must be back on the new columns.
+ */
+@Testcontainers
+class CompactSchemaMigrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(DockerImageName.parse("postgres:17"));
+
+    @Test
+    void migrate_shouldRetypeColumnsAndKeepRows() {
+        migrate("202610181400");
+        JdbcTemplate jdbc = jdbc();
+        String internalId = UUID.randomUUID().toString();
+        LocalDateTime createdAt = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MICROS);
+        jdbc.update("INSERT INTO ORDER_SERVICE.ORDER_KEYS VALUES (?, 'idempotency-key-of-a-legacy-order', ?)", internalId, createdAt);
+        jdbc.update("INSERT INTO ORDER_SERVICE.ORDERS VALUES (51, ?, 'account', 'AAPL', 'BUY', '3', 'PROCESSED', ?, 0, "
+                + "'idempotency-key-of-a-legacy-order')", internalId, createdAt);
+        jdbc.update("INSERT INTO ORDER_SERVICE.EXECUTIONS VALUES (51, ?, 51, 150.25, now(), 0, now(), 12)", UUID.randomUUID().toString());
+
+        migrate(null);
+
+        assertEquals(List.of("bigint", "uuid", "integer", "integer"), types("orders", "ord_id", "ord_internal_id", "ord_quantity", "ord_version"));
+        assertEquals(List.of("bigint", "uuid", "bigint", "numeric", "bigint"),
+                types("executions", "exc_id", "exc_internal_id", "ord_order_id", "exc_price", "exc_price_age_ms"));
+        assertEquals(List.of("uuid", "character varying"), types("order_keys", "ork_order_internal_id", "ork_idempotency_key"));
+        assertEquals(UUID.fromString(internalId), jdbc.queryForObject(
+                "SELECT o.ORD_INTERNAL_ID FROM ORDER_SERVICE.ORDER_KEYS k JOIN ORDER_SERVICE.ORDERS o "
+                        + "ON o.ORD_INTERNAL_ID = k.ORK_ORDER_INTERNAL_ID AND o.ORD_CREATED = k.ORK_CREATED WHERE o.ORD_QUANTITY = 3", UUID.class));
+        assertEquals(new BigDecimal("150.250000"), jdbc.queryForObject("SELECT EXC_PRICE FROM ORDER_SERVICE.EXECUTIONS", BigDecimal.class));
+        assertEquals(List.of("chk_execution_01", "chk_order_03", "pk_execution", "pk_order", "pk_order_key", "uq_ord_idempotency_key"),
+                jdbc.queryForList("SELECT conname FROM pg_constraint WHERE conrelid IN ('order_service.orders'::regclass, "
+                        + "'order_service.executions'::regclass, 'order_service.order_keys'::regclass) AND contype IN ('p', 'u') "
+                        + "ORDER BY conname", String.class));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM pg_index WHERE NOT indisvalid", Integer.class));
+        assertThrows(DuplicateKeyException.class, () -> jdbc.update(
+                "INSERT INTO ORDER_SERVICE.ORDERS SELECT * FROM ORDER_SERVICE.ORDERS WHERE ORD_ID = 51"));
+    }
+
+    private static void migrate(String target) {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .schemas("order_service")
+                .javaMigrations(new V202610181500__CompactSchema())
+                .target(target == null ? "latest" : target)
+                .load()
+                .migrate();
+    }
+
+    private static List<String> types(String table, String... columns) {
+        return List.of(columns).stream()
+                .map(column -> jdbc().queryForObject("SELECT data_type FROM information_schema.columns "
+                        + "WHERE table_schema = 'order_service' AND table_name = ? AND column_name = ?", String.class, table, column))
+                .toList();
+    }
+
+    private static JdbcTemplate jdbc() {
+        return new JdbcTemplate(new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+    }
+}
@@ -0,0 +1,209 @@
+package com.bogdanenache.order_service.dao.repository;
+
+import com.bogdanenache.order_service.dao.entity.Execution;
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.entity.Order.OrderSide;
+import com.bogdanenache.order_service.dao.entity.Order.OrderStatus;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderBatchRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private OrderBatchRepository orderBatchRepo;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        orderBatchRepo = new OrderBatchRepository(jdbcTemplate);
+    }
+
+    @Test
+    void allocateIds_shouldUseWholeBlockBelowEachSequenceValue() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(2))).thenReturn(List.of(150L, 200L));
+
+        List<Long> ids = orderBatchRepo.allocateIds("SEQ_ORD_ID", 60);
+
+        assertEquals(LongStream.rangeClosed(101, 200).boxed().toList(), ids);
+    }
+
+    @Test
+    void allocateIds_shouldSkipIdsBelowOne_forFirstBlockOfNewSequence() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1))).thenReturn(List.of(1L), List.of(51L));
+
+        List<Long> ids = orderBatchRepo.allocateIds("SEQ_ORD_ID", 3);
+
+        assertEquals(1L, ids.get(0));
+        assertEquals(2L, ids.get(1));
+        verify(jdbcTemplate, times(2)).queryForList(anyString(), eq(Long.class), eq(1));
+    }
+
+    @Test
+    void insertAll_shouldInsertEachTableWithOneMultiRowStatement() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1))).thenReturn(List.of(100L));
+        when(jdbcTemplate.queryForList(startsWith("INSERT INTO ORDER_KEYS"), eq(UUID.class), any(Object[].class)))
+                .thenReturn(List.of(internalId("first"), internalId("second")));
+
+        List<Order> skipped = orderBatchRepo.insertAll(List.of(order("first"), order("second")));
+
+        assertTrue(skipped.isEmpty());
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).queryForList(endsWith("?), (?, ?, ?) ON CONFLICT (ORK_IDEMPOTENCY_KEY) DO NOTHING RETURNING ORK_ORDER_INTERNAL_ID"),
+                eq(UUID.class), args.capture());
+        assertEquals(6, args.getValue().length);
+        verify(jdbcTemplate).update(startsWith("INSERT INTO ORDERS"), args.capture());
+        assertEquals(20, args.getValue().length);
+        assertEquals(51L, args.getValue()[0]);
+        verify(jdbcTemplate).update(endsWith("?), (?, ?, ?, ?, ?, ?, ?, ?)"), args.capture());
+        assertEquals(16, args.getValue().length);
+        // the execution references the id given to its order
+        assertEquals(51L, args.getValue()[2]);
+        assertEquals(new BigDecimal("10.000000"), args.getValue()[3]);
+    }
+
+    @Test
+    void insertAll_shouldSkipOrderAndExecution_whenOrderIdempotencyKeyIsUsed() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1))).thenReturn(List.of(100L));
+        when(jdbcTemplate.queryForList(startsWith("INSERT INTO ORDER_KEYS"), eq(UUID.class), any(Object[].class)))
+                .thenReturn(List.of(internalId("fresh")));
+        Order reused = order("reused");
+
+        List<Order> skipped = orderBatchRepo.insertAll(List.of(reused, order("fresh")));
+
+        assertEquals(List.of(reused), skipped);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).update(startsWith("INSERT INTO ORDERS"), args.capture());
+        assertEquals(10, args.getValue().length);
+        assertEquals(internalId("fresh"), args.getValue()[1]);
+        verify(jdbcTemplate).update(startsWith("INSERT INTO EXECUTIONS"), args.capture());
+        assertEquals(8, args.getValue().length);
+        assertEquals(51L, args.getValue()[2]);
+    }
+
+    @Test
+    void insertAll_shouldWriteNothingElse_whenEveryIdempotencyKeyIsUsed() {
+        when(jdbcTemplate.queryForList(startsWith("INSERT INTO ORDER_KEYS"), eq(UUID.class), any(Object[].class)))
+                .thenReturn(List.of());
+        Order reused = order("reused");
+
+        List<Order> skipped = orderBatchRepo.insertAll(List.of(reused));
+
+        assertEquals(List.of(reused), skipped);
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(Long.class), anyInt());
+    }
+
+    @Test
+    void completeAll_shouldUpdatePendingOrdersWithOneStatement_andInsertExecutionsOfProcessedOnes() throws Exception {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1))).thenReturn(List.of(100L));
+        completedRows(internalId("processed"), internalId("failed"));
+        Order processed = order("processed");
+        Order failed = order("failed");
+        failed.setStatus(OrderStatus.FAILED);
+        failed.setExecution(null);
+
+        List<Order> completed = orderBatchRepo.completeAll(List.of(processed, failed));
+
+        assertEquals(List.of(processed, failed), completed);
+        assertEquals(1, processed.getVersion());
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(endsWith("AND O.ORD_STATUS = 'PENDING' RETURNING O.ORD_INTERNAL_ID, O.ORD_ID"),
+                any(RowCallbackHandler.class), args.capture());
+        assertEquals(6, args.getValue().length);
+        assertEquals("FAILED", args.getValue()[5]);
+        verify(jdbcTemplate).update(startsWith("INSERT INTO EXECUTIONS"), args.capture());
+        assertEquals(8, args.getValue().length);
+        // the execution references the id of the completed order
+        assertEquals(7L, args.getValue()[2]);
+    }
+
+    @Test
+    void completeAll_shouldSkipOrders_whenNoLongerPending() throws Exception {
+        completedRows();
+
+        List<Order> completed = orderBatchRepo.completeAll(List.of(order("completed")));
+
+        assertTrue(completed.isEmpty());
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(Long.class), anyInt());
+    }
+
+    @Test
+    void findPending_shouldReadPageAfterGivenOrder() {
+        Instant createdAfter = Instant.parse("2026-10-18T09:30:00Z");
+
+        orderBatchRepo.findPending(createdAfter, 42L, 100);
+
+        verify(jdbcTemplate).query(endsWith("(ORD_CREATED, ORD_ID) > (?, ?) ORDER BY ORD_CREATED, ORD_ID LIMIT ?"),
+                any(RowMapper.class), eq(createdAfter.atOffset(ZoneOffset.UTC)), eq(42L), eq(100));
+    }
+
+    /**
+     * Answers the update of pending orders with the given orders as completed, each with the id 7.
+     */
+    private void completedRows(UUID... internalIds) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (UUID internalId : internalIds) {
+                when(rs.getObject(1, UUID.class)).thenReturn(internalId);
+                when(rs.getLong(2)).thenReturn(7L);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("UPDATE ORDERS"), any(RowCallbackHandler.class), any(Object[].class));
+    }
+
+    private static Order order(String idempotencyKey) {
+        Order order = Order.builder()
+                .orderInternalId(internalId(idempotencyKey))
+                .accountId("accountId")
+                .symbol("AAPL")
+                .side(OrderSide.BUY)
+                .quantity(1)
+                .status(OrderStatus.PROCESSED)
+                .createdAt(Instant.now())
+                .idempotencyKey(idempotencyKey)
+                .build();
+        order.setExecution(Execution.builder()
+                .order(order)
+                .internalId(UUID.randomUUID())
+                .price(10_000_000L)
+                .createdAt(Instant.now())
+                .priceTimestamp(Instant.now())
+                .priceAgeMs(0L)
+                .build());
+        return order;
+    }
+
+    private static UUID internalId(String idempotencyKey) {
+        return UUID.nameUUIDFromBytes(idempotencyKey.getBytes(StandardCharsets.UTF_8));
+    }
+}
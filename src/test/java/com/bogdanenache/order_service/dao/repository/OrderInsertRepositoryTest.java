@@ -0,0 +1,130 @@
+package com.bogdanenache.order_service.dao.repository;
+
+import com.bogdanenache.order_service.dao.entity.Execution;
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.entity.Order.OrderSide;
+import com.bogdanenache.order_service.dao.entity.Order.OrderStatus;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderInsertRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private OrderBatchRepository orderBatchRepo;
+    private OrderInsertRepository orderInsertRepo;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        orderBatchRepo = mock(OrderBatchRepository.class);
+        when(orderBatchRepo.allocateIds(anyString(), anyInt())).thenReturn(LongStream.rangeClosed(101, 150).boxed().toList());
+        orderInsertRepo = new OrderInsertRepository(jdbcTemplate, orderBatchRepo);
+    }
+
+    @Test
+    void insert_shouldWriteOrderAndExecutionWithOneStatement_andReuseTheIdBlock() throws Exception {
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class))).thenReturn(1);
+        Order first = order();
+
+        assertTrue(orderInsertRepo.insert(first));
+        assertTrue(orderInsertRepo.insert(order()));
+
+        ArgumentCaptor<PreparedStatementSetter> setters = ArgumentCaptor.forClass(PreparedStatementSetter.class);
+        verify(jdbcTemplate, times(2)).update(startsWith("WITH INSERTED_ORDER AS (INSERT INTO ORDERS"), setters.capture());
+        PreparedStatement statement = mock(PreparedStatement.class);
+        setters.getAllValues().getFirst().setValues(statement);
+        verify(statement).setLong(1, 101L);
+        verify(statement).setObject(2, first.getOrderInternalId());
+        verify(statement).setString(5, "BUY");
+        verify(statement).setInt(6, 5);
+        verify(statement).setString(7, "PROCESSED");
+        verify(statement).setLong(13, 101L);
+        verify(statement).setBigDecimal(14, new BigDecimal("150.250000"));
+        verify(statement).setNull(18, Types.BIGINT);
+        setters.getAllValues().getLast().setValues(statement);
+        verify(statement).setLong(1, 102L);
+        // one block per sequence serves both orders
+        verify(orderBatchRepo, times(1)).allocateIds("SEQ_ORD_ID", 1);
+        verify(orderBatchRepo, times(1)).allocateIds("SEQ_EXC_ID", 1);
+    }
+
+    @Test
+    void insert_shouldSkipOrder_whenIdempotencyKeyIsUsed() {
+        when(jdbcTemplate.update(startsWith("INSERT INTO ORDER_KEYS"), any(PreparedStatementSetter.class))).thenReturn(0);
+
+        assertFalse(orderInsertRepo.insert(order()));
+
+        verify(jdbcTemplate, never()).update(startsWith("WITH INSERTED_ORDER"), any(PreparedStatementSetter.class));
+        verify(orderBatchRepo, never()).allocateIds(anyString(), anyInt());
+    }
+
+    @Test
+    void insertPending_shouldWriteOrderWithoutExecution() throws Exception {
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class))).thenReturn(1);
+        Order order = order();
+        order.setStatus(OrderStatus.PENDING);
+        order.setExecution(null);
+
+        assertTrue(orderInsertRepo.insertPending(order));
+
+        ArgumentCaptor<PreparedStatementSetter> setter = ArgumentCaptor.forClass(PreparedStatementSetter.class);
+        verify(jdbcTemplate).update(startsWith("INSERT INTO ORDERS"), setter.capture());
+        PreparedStatement statement = mock(PreparedStatement.class);
+        setter.getValue().setValues(statement);
+        verify(statement).setLong(1, 101L);
+        verify(statement).setString(7, "PENDING");
+        verify(jdbcTemplate, never()).update(startsWith("WITH INSERTED_ORDER"), any(PreparedStatementSetter.class));
+        verify(orderBatchRepo, never()).allocateIds("SEQ_EXC_ID", 1);
+    }
+
+    @Test
+    void insertPending_shouldSkipOrder_whenIdempotencyKeyIsUsed() {
+        when(jdbcTemplate.update(startsWith("INSERT INTO ORDER_KEYS"), any(PreparedStatementSetter.class))).thenReturn(0);
+
+        assertFalse(orderInsertRepo.insertPending(order()));
+
+        verify(jdbcTemplate, never()).update(startsWith("INSERT INTO ORDERS"), any(PreparedStatementSetter.class));
+    }
+
+    private static Order order() {
+        Instant now = Instant.now();
+        Order order = Order.builder()
+                .orderInternalId(UUID.randomUUID())
+                .accountId("account")
+                .symbol("AAPL")
+                .side(OrderSide.BUY)
+                .quantity(5)
+                .status(OrderStatus.PROCESSED)
+                .createdAt(now)
+                .idempotencyKey(UUID.randomUUID().toString())
+                .build();
+        order.setExecution(Execution.builder()
+                .order(order)
+                .internalId(UUID.randomUUID())
+                .price(150_250_000L)
+                .createdAt(now)
+                .build());
+        return order;
+    }
+}
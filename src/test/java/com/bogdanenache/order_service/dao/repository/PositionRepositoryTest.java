@@ -0,0 +1,67 @@
+package com.bogdanenache.order_service.dao.repository;
+
+import com.bogdanenache.order_service.dao.entity.Execution;
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.entity.Order.OrderSide;
+import com.bogdanenache.order_service.dto.FixedPrice;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class PositionRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private PositionRepository positionRepo;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        positionRepo = new PositionRepository(jdbcTemplate);
+    }
+
+    @Test
+    void addAll_shouldUpsertOneRowPerPosition_inKeyOrder() {
+        Instant now = Instant.parse("2026-10-18T10:00:00Z");
+        positionRepo.addAll(List.of(
+                order("b-account", "MSFT", OrderSide.BUY, 2, "300", now),
+                order("a-account", "AAPL", OrderSide.BUY, 10, "150.5", now),
+                order("a-account", "AAPL", OrderSide.SELL, 4, "151", now.plusSeconds(1)),
+                order("a-account", "AAPL", OrderSide.BUY, 1, "149", now)));
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).update(endsWith("POS_UPDATED = GREATEST(POSITIONS.POS_UPDATED, EXCLUDED.POS_UPDATED)"), args.capture());
+        assertEquals(List.of("a-account", "AAPL", 11L, new BigDecimal("1654.000000"), 4L, new BigDecimal("604.000000"),
+                        now.plusSeconds(1).atOffset(ZoneOffset.UTC),
+                        "b-account", "MSFT", 2L, new BigDecimal("600.000000"), 0L, BigDecimal.ZERO, now.atOffset(ZoneOffset.UTC)),
+                List.of(args.getValue()));
+    }
+
+    @Test
+    void addAll_shouldNotWrite_whenThereAreNoOrders() {
+        positionRepo.addAll(List.of());
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private static Order order(String accountId, String symbol, OrderSide side, int quantity, String price, Instant createdAt) {
+        Order order = new Order();
+        order.setAccountId(accountId);
+        order.setSymbol(symbol);
+        order.setSide(side);
+        order.setQuantity(quantity);
+        order.setCreatedAt(createdAt);
+        order.setExecution(Execution.builder().order(order).price(FixedPrice.of(new BigDecimal(price))).build());
+        return order;
+    }
+}
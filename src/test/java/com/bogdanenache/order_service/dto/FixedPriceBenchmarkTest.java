@@ -0,0 +1,81 @@
+package com.bogdanenache.order_service.dto;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.function.LongUnaryOperator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the per-order cost of carrying a price as BigDecimal with the fixed-point representation.
+ * Each order reads the cached price, compares it with the previous one and computes the notional.
+ * Binding the price to the NUMERIC column costs one BigDecimal in both representations and is left out.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class FixedPriceBenchmarkTest {
+
+    private static final int WARMUP = 200_000;
+    private static final int ORDERS = 1_000_000;
+    private static final int QUANTITY = 17;
+
+    private final BigDecimal[] decimalPrices = {
+            new BigDecimal("203.752321"), new BigDecimal("2203.554388"), new BigDecimal("0.000125")
+    };
+    private final long[] fixedPrices = {
+            FixedPrice.of(decimalPrices[0]), FixedPrice.of(decimalPrices[1]), FixedPrice.of(decimalPrices[2])
+    };
+
+    private BigDecimal decimalSink = BigDecimal.ZERO;
+    private long fixedSink;
+
+    @Test
+    void executionPath_decimalVersusFixedPoint() {
+        final Result decimal = measure(this::decimalOrder);
+        final Result fixed = measure(this::fixedOrder);
+
+        System.out.printf("BigDecimal price:  %6.1f ns/order %6.1f bytes/order%n", decimal.nanosPerOrder(), decimal.bytesPerOrder());
+        System.out.printf("fixed-point price: %6.1f ns/order %6.1f bytes/order%n", fixed.nanosPerOrder(), fixed.bytesPerOrder());
+        assertEquals(FixedPrice.of(decimalSink), fixedSink);
+    }
+
+    private long decimalOrder(long i) {
+        final BigDecimal price = decimalPrices[(int) (i % decimalPrices.length)];
+        final BigDecimal previous = decimalPrices[(int) ((i + 1) % decimalPrices.length)];
+        final BigDecimal notional = price.multiply(BigDecimal.valueOf(QUANTITY)).setScale(FixedPrice.SCALE, RoundingMode.HALF_UP);
+        final BigDecimal executed = price.max(previous);
+        decimalSink = notional.max(executed);
+        return i;
+    }
+
+    private long fixedOrder(long i) {
+        final long price = fixedPrices[(int) (i % fixedPrices.length)];
+        final long previous = fixedPrices[(int) ((i + 1) % fixedPrices.length)];
+        final long notional = Math.multiplyExact(price, QUANTITY);
+        final long executed = Math.max(price, previous);
+        fixedSink = Math.max(notional, executed);
+        return i;
+    }
+
+    private Result measure(LongUnaryOperator order) {
+        for (int i = 0; i < WARMUP; i++) {
+            order.applyAsLong(i);
+        }
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().threadId();
+        final long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        final long start = System.nanoTime();
+        for (int i = 0; i < ORDERS; i++) {
+            order.applyAsLong(i);
+        }
+        final long elapsed = System.nanoTime() - start;
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return new Result((double) elapsed / ORDERS, (double) allocated / ORDERS);
+    }
+
+    private record Result(double nanosPerOrder, double bytesPerOrder) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.bogdanenache.order_service.dto;
+
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FixedPriceTest {
+
+    @Test
+    void of_shouldScaleDecimalPrice() {
+        assertEquals(203_752_321L, FixedPrice.of(new BigDecimal("203.752321")));
+        assertEquals(10_000_000L, FixedPrice.of(BigDecimal.TEN));
+        assertEquals(1_500_000L, FixedPrice.of(new BigDecimal("1.5")));
+        assertEquals(-1L, FixedPrice.of(new BigDecimal("-0.000001")));
+    }
+
+    @Test
+    void of_shouldRoundHalfUp_beyondSixDecimals() {
+        assertEquals(1_000_001L, FixedPrice.of(new BigDecimal("1.0000005")));
+        assertEquals(1_000_000L, FixedPrice.of(new BigDecimal("1.0000004")));
+    }
+
+    @Test
+    void of_shouldFail_whenPriceDoesNotFitInLong() {
+        assertThrows(ArithmeticException.class, () -> FixedPrice.of(new BigDecimal("10000000000000000")));
+    }
+
+    @Test
+    void toBigDecimal_shouldKeepColumnScale() {
+        assertEquals(new BigDecimal("203.752321"), FixedPrice.toBigDecimal(203_752_321L));
+        assertEquals(new BigDecimal("10.000000"), FixedPrice.toBigDecimal(10_000_000L));
+    }
+}
@@ -0,0 +1,31 @@
+package com.bogdanenache.order_service.dto;
+
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderCursorTest {
+
+    @Test
+    void valueOf_shouldDecodeEncodedCursor() {
+        OrderCursor cursor = new OrderCursor(Instant.parse("2026-10-18T13:00:00.123456789Z"), 4_200L);
+
+        assertEquals(cursor, OrderCursor.valueOf(cursor.encode()));
+    }
+
+    @Test
+    void encode_shouldBeUrlSafe() {
+        String encoded = new OrderCursor(Instant.now(), Long.MAX_VALUE).encode();
+
+        assertEquals(encoded, encoded.replaceAll("[^A-Za-z0-9_-]", ""));
+    }
+
+    @Test
+    void valueOf_shouldFail_whenCursorIsNotEncodedByService() {
+        assertThrows(IllegalArgumentException.class, () -> OrderCursor.valueOf("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> OrderCursor.valueOf("bm90OmE6Y3Vyc29y"));
+        assertThrows(IllegalArgumentException.class, () -> OrderCursor.valueOf("MTIz"));
+    }
+}
@@ -0,0 +1,52 @@
+package com.bogdanenache.order_service.dto;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedUuidTest {
+
+    @Test
+    void of_shouldSetVersionVariantAndTimestamp() {
+        long epochMillis = 1_792_328_400_000L;
+
+        UUID uuid = TimeOrderedUuid.of(epochMillis, -1L, -1L);
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(epochMillis, uuid.getMostSignificantBits() >>> 16);
+        assertEquals("01a14f18-fc80-7fff-bfff-ffffffffffff", uuid.toString());
+    }
+
+    @Test
+    void next_shouldSortByCreationTime_acrossMilliseconds() throws Exception {
+        UUID first = TimeOrderedUuid.next();
+        Thread.sleep(2);
+        UUID second = TimeOrderedUuid.next();
+
+        assertTrue(first.toString().compareTo(second.toString()) < 0);
+        assertTrue(first.compareTo(second) < 0);
+    }
+
+    @Test
+    void at_shouldCarryTheGivenTime() {
+        Instant createdAt = Instant.parse("2019-03-01T10:15:30.123Z");
+
+        UUID uuid = TimeOrderedUuid.at(createdAt);
+
+        assertEquals(7, uuid.version());
+        assertEquals(createdAt.toEpochMilli(), uuid.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void parse_shouldReturnEmpty_whenIdIsNotUuid() {
+        UUID uuid = TimeOrderedUuid.next();
+
+        assertEquals(Optional.of(uuid), TimeOrderedUuid.parse(uuid.toString()));
+        assertEquals(Optional.empty(), TimeOrderedUuid.parse("invalid-id"));
+    }
+}
@@ -0,0 +1,165 @@
+package com.bogdanenache.order_service.rest;
+
+import com.bogdanenache.order_service.BaseTest;
+import com.bogdanenache.order_service.OrderServiceApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Compares how a market-open burst is absorbed when orders are priced on the request thread and when they are
+ * accepted asynchronously. The burst spreads over a few symbols, each priced by a feed that answers in 100ms, and
+ * the clients keep more orders in flight than Tomcat has threads. Each mode runs in its own application context.
+ * Prints the accepted orders per second and the responses by status for both modes, the time the asynchronous mode
+ * took to execute the whole burst, then the gain in acceptance rate. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class AsyncOrderBenchmarkTest extends BaseTest {
+
+    private static final String PROPERTIES = """
+            server.tomcat.threads.max=200
+            order-service.http-client.max-total=1000
+            order-service.http-client.max-per-route=1000
+            order-service.async-orders.shards=4
+            order-service.async-orders.buffer-size=16384
+            resilience4j.ratelimiter.instances.orderServiceRateLimiter.limitForPeriod=1000000
+            """;
+    private static final int WARMUP = 1_000;
+    private static final int ORDERS = 20_000;
+    private static final int SYMBOLS_PER_BURST = 20;
+    private static final int IN_FLIGHT = 400;
+    private static final AtomicLong BURSTS = new AtomicLong();
+    private static final Map<String, Double> ORDERS_PER_SECOND = new ConcurrentHashMap<>();
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @AfterAll
+    static void printGain() {
+        final Double sync = ORDERS_PER_SECOND.get("sync");
+        final Double async = ORDERS_PER_SECOND.get("async");
+        if (sync != null && async != null) {
+            System.out.printf("asynchronous acceptance: %.2fx the acceptance rate of synchronous orders%n", async / sync);
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = RANDOM_PORT, classes = OrderServiceApplication.class,
+            properties = "order-service.async-orders.enabled=false")
+    @TestPropertySource(properties = PROPERTIES)
+    @Import(TestcontainersConfiguration.class)
+    @ActiveProfiles("test")
+    @Testcontainers
+    class SyncOrders {
+
+        @Autowired
+        private ObjectMapper objectMapper;
+
+        @LocalServerPort
+        private Integer port;
+
+        @Test
+        void placeBurst_synchronously() throws Exception {
+            run("sync", port, objectMapper);
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = RANDOM_PORT, classes = OrderServiceApplication.class,
+            properties = "order-service.async-orders.enabled=true")
+    @TestPropertySource(properties = PROPERTIES)
+    @Import(TestcontainersConfiguration.class)
+    @ActiveProfiles("test")
+    @Testcontainers
+    class AsyncOrders {
+
+        @Autowired
+        private ObjectMapper objectMapper;
+
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        @LocalServerPort
+        private Integer port;
+
+        @Test
+        void placeBurst_asynchronously() throws Exception {
+            final long start = System.nanoTime();
+            run("async", port, objectMapper);
+            final long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(5);
+            while (meterRegistry.get("order.pipeline.buffered").gauge().value() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            System.out.printf("async    orders: all executed %,.0f ms after the first order was sent, %,.1f orders per batch on average%n",
+                    (System.nanoTime() - start) / 1e6, meterRegistry.get("order.pipeline.batch.size").summary().mean());
+        }
+    }
+
+    private void run(String mode, int port, ObjectMapper objectMapper) throws Exception {
+        burst(WARMUP, port, objectMapper, new ConcurrentHashMap<>());
+        final Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        final long start = System.nanoTime();
+        burst(ORDERS, port, objectMapper, statuses);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        final double ordersPerSecond = ORDERS / seconds;
+        ORDERS_PER_SECOND.put(mode, ordersPerSecond);
+        System.out.printf("%-8s orders: %,8.0f accepted orders/s, %d in flight, responses by status %s%n",
+                mode, ordersPerSecond, IN_FLIGHT, statuses);
+    }
+
+    /**
+     * Sends a burst of orders over symbols not priced before, so every symbol waits on the slow feed once.
+     */
+    private void burst(int orders, int port, ObjectMapper objectMapper, Map<Integer, AtomicInteger> statuses) throws Exception {
+        final long firstSymbol = BURSTS.getAndIncrement() * SYMBOLS_PER_BURST;
+        final Semaphore inFlight = new Semaphore(IN_FLIGHT);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < orders; i++) {
+                final String symbol = "SLOW" + (firstSymbol + i % SYMBOLS_PER_BURST);
+                inFlight.acquire();
+                clients.submit(() -> {
+                    try {
+                        statuses.computeIfAbsent(post(symbol, port, objectMapper), status -> new AtomicInteger()).incrementAndGet();
+                    } finally {
+                        inFlight.release();
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    private int post(String symbol, int port, ObjectMapper objectMapper) throws Exception {
+        final HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/orders"))
+                .header("X-Idempotency-Key", UUID.randomUUID().toString())
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(createOrder(1, symbol))))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
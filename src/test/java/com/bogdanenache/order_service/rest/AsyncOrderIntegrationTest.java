@@ -0,0 +1,118 @@
+package com.bogdanenache.order_service.rest;
+
+import com.bogdanenache.order_service.BaseTest;
+import com.bogdanenache.order_service.OrderServiceApplication;
+import com.bogdanenache.order_service.dto.OrderDTO;
+import com.bogdanenache.order_service.service.InMemoryOrderEventSink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Places orders with asynchronous acceptance enabled: each one is answered PENDING and read back until the
+ * consumer thread of its shard has executed or failed it.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, classes = OrderServiceApplication.class, properties = {
+        "order-service.async-orders.enabled=true",
+        "resilience4j.ratelimiter.instances.orderServiceRateLimiter.limitForPeriod=100000"})
+@Import(TestcontainersConfiguration.class)
+@ActiveProfiles("test")
+@Testcontainers
+public class AsyncOrderIntegrationTest extends BaseTest {
+
+    private static final String IDEMPOTENCY_HEADER_NAME = "X-Idempotency-Key";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @LocalServerPort
+    private Integer port;
+
+    @Autowired
+    private InMemoryOrderEventSink orderEventSink;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("Accepts an order as PENDING and executes it shortly after")
+    public void shouldAcceptOrderAndExecuteItAsynchronously() throws Exception {
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        var response = post(createOrder(3, "AAPL"), idempotencyKey);
+
+        Assertions.assertEquals(202, response.getStatusCode().value());
+        Assertions.assertEquals("PENDING", response.getBody().status());
+        Assertions.assertNull(response.getBody().execution());
+        OrderDTO executed = awaitCompleted(response.getBody().id());
+        Assertions.assertEquals("PROCESSED", executed.status());
+        Assertions.assertNotNull(executed.execution());
+        Assertions.assertEquals(executed.id(), executed.execution().orderId());
+        // the outbox relay publishes the event on its own thread
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (orderEventSink.published().stream().noneMatch(event -> event.getOrderInternalId().toString().equals(executed.id()))
+                && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        Assertions.assertTrue(orderEventSink.published().stream()
+                .anyMatch(event -> event.getOrderInternalId().toString().equals(executed.id())));
+
+        // a retry with the same key is answered as the first request, without accepting another order
+        var retried = post(createOrder(3, "AAPL"), idempotencyKey);
+        Assertions.assertEquals(202, retried.getStatusCode().value());
+        Assertions.assertEquals(response.getBody().id(), retried.getBody().id());
+    }
+
+    @Test
+    @DisplayName("Accepts an order for an unknown symbol and fails it once it cannot be priced")
+    public void shouldFailAcceptedOrder_whenSymbolIsUnknown() throws Exception {
+        var response = post(createOrder(1, "notfound"), UUID.randomUUID().toString());
+
+        Assertions.assertEquals(202, response.getStatusCode().value());
+        OrderDTO failed = awaitCompleted(response.getBody().id());
+        Assertions.assertEquals("FAILED", failed.status());
+        Assertions.assertNull(failed.execution());
+    }
+
+    private ResponseEntity<OrderDTO> post(OrderDTO orderDTO, String idempotencyKey) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(IDEMPOTENCY_HEADER_NAME, idempotencyKey);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return restTemplate.postForEntity("http://localhost:" + port + "/orders", new HttpEntity<>(orderDTO, headers), OrderDTO.class);
+    }
+
+    /**
+     * Reads the order until it is no longer pending.
+     */
+    private OrderDTO awaitCompleted(String id) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        OrderDTO order = get(id);
+        while ("PENDING".equals(order.status()) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            order = get(id);
+        }
+        return order;
+    }
+
+    private OrderDTO get(String id) throws Exception {
+        var response = restTemplate.getForEntity("http://localhost:" + port + "/orders/" + id, byte[].class);
+        Assertions.assertEquals(200, response.getStatusCode().value());
+        return objectMapper.readValue(response.getBody(), OrderDTO.class);
+    }
+}
@@ -0,0 +1,36 @@
+package com.bogdanenache.order_service.rest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ByteBufferHttpMessageConverterTest {
+
+    private final ByteBufferHttpMessageConverter converter = new ByteBufferHttpMessageConverter();
+
+    @Test
+    void write_shouldCopyDirectBufferWithoutMovingIt() throws Exception {
+        byte[] body = "{\"id\":\"internalId\"}".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer cached = ByteBuffer.allocateDirect(body.length).put(body).flip().asReadOnlyBuffer();
+        MockHttpOutputMessage response = new MockHttpOutputMessage();
+
+        converter.write(cached, MediaType.APPLICATION_JSON, response);
+
+        assertEquals(new String(body, StandardCharsets.UTF_8), response.getBodyAsString());
+        assertEquals(body.length, response.getHeaders().getContentLength());
+        assertEquals(0, cached.position());
+    }
+
+    @Test
+    void converter_shouldOnlyWriteBuffers() {
+        assertTrue(converter.canWrite(ByteBuffer.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canRead(ByteBuffer.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(String.class, MediaType.APPLICATION_JSON));
+    }
+}
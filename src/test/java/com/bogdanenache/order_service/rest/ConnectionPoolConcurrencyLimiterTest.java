@@ -0,0 +1,66 @@
+package com.bogdanenache.order_service.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolConcurrencyLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConnectionPoolConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // one connection shared by two requests
+        limiter = new ConnectionPoolConcurrencyLimiter(new ObjectMapper(), meterRegistry, 1, 2, Duration.ofMillis(10));
+    }
+
+    @Test
+    void doFilter_shouldRejectRequest_whenLimitIsReached() throws Exception {
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        AtomicInteger served = new AtomicInteger();
+        FilterChain third = (request, response) -> served.incrementAndGet();
+        FilterChain second = (request, response) -> {
+            served.incrementAndGet();
+            limiter.doFilter(request("/orders"), rejected, third);
+        };
+        FilterChain first = (request, response) -> {
+            served.incrementAndGet();
+            limiter.doFilter(request("/orders"), new MockHttpServletResponse(), second);
+        };
+
+        limiter.doFilter(request("/orders"), new MockHttpServletResponse(), first);
+
+        assertEquals(2, served.get());
+        assertEquals(503, rejected.getStatus());
+        assertTrue(rejected.getContentAsString().contains("SERVICE_UNAVAILABLE"));
+        assertEquals(1, meterRegistry.get("http.server.requests.limited").counter().count());
+        assertEquals(2, meterRegistry.get("http.server.requests.permits").gauge().value());
+    }
+
+    @Test
+    void doFilter_shouldNotLimitActuator() throws Exception {
+        limiter = new ConnectionPoolConcurrencyLimiter(new ObjectMapper(), meterRegistry, 0, 2, Duration.ZERO);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicInteger served = new AtomicInteger();
+
+        limiter.doFilter(request("/actuator/health"), response, (req, res) -> served.incrementAndGet());
+
+        assertEquals(1, served.get());
+        assertEquals(200, response.getStatus());
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        return new MockHttpServletRequest("POST", uri);
+    }
+}
@@ -0,0 +1,132 @@
+package com.bogdanenache.order_service.rest;
+
+import com.bogdanenache.order_service.BaseTest;
+import com.bogdanenache.order_service.OrderServiceApplication;
+import com.bogdanenache.order_service.dao.entity.Execution;
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.entity.Order.OrderSide;
+import com.bogdanenache.order_service.dao.entity.Order.OrderStatus;
+import com.bogdanenache.order_service.dao.entity.OrderKey;
+import com.bogdanenache.order_service.dao.repository.OrderInsertRepository;
+import com.bogdanenache.order_service.dao.repository.OrderKeyRepository;
+import com.bogdanenache.order_service.dao.repository.OrderRepository;
+import com.bogdanenache.order_service.dto.FixedPrice;
+import com.bogdanenache.order_service.dto.OrderOutcome.Placed;
+import com.bogdanenache.order_service.dto.TimeOrderedUuid;
+import com.bogdanenache.order_service.exception.IdempotencyHeaderException;
+import com.bogdanenache.order_service.service.OrderService;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Places orders with lean writes enabled and checks the rows they produce are the ones written through JPA.
+ */
+@SpringBootTest(classes = OrderServiceApplication.class, properties = "order-service.lean-writes.enabled=true")
+@Import(TestcontainersConfiguration.class)
+@ActiveProfiles("test")
+@Testcontainers
+public class LeanOrderWritesIntegrationTest extends BaseTest {
+
+    private static final String ROW = "SELECT O.ORD_ACCOUNT_ID, O.ORD_SYMBOL, O.ORD_SIDE, O.ORD_QUANTITY, O.ORD_STATUS, O.ORD_CREATED, "
+            + "O.ORD_VERSION, E.EXC_PRICE, E.EXC_CREATED, E.EXC_VERSION, E.EXC_PRICE_TIMESTAMP, E.EXC_PRICE_AGE_MS, K.ORK_CREATED "
+            + "FROM ORDERS O JOIN EXECUTIONS E ON E.ORD_ORDER_ID = O.ORD_ID "
+            + "JOIN ORDER_KEYS K ON K.ORK_ORDER_INTERNAL_ID = O.ORD_INTERNAL_ID WHERE O.ORD_INTERNAL_ID = ?";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderInsertRepository orderInsertRepo;
+
+    @Autowired
+    private OrderKeyRepository orderKeyRepo;
+
+    @Autowired
+    private OrderRepository orderRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("Places orders without going through the persistence context")
+    public void shouldPlaceOrdersWithoutPersistenceContext() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        var placed = orderService.placeOrder(createOrder(4, "AAPL"), idempotencyKey);
+
+        Assertions.assertInstanceOf(Placed.class, placed);
+        Assertions.assertEquals(0, statistics.getEntityInsertCount());
+        var order = orderService.getOrderByInternalId(((Placed) placed).order().id());
+        Assertions.assertTrue(order.isPresent());
+        Assertions.assertEquals(4, order.get().quantity());
+        Assertions.assertNotNull(order.get().execution());
+        Assertions.assertThrows(IdempotencyHeaderException.class, () -> orderService.placeOrder(createOrder(4, "AAPL"), idempotencyKey));
+    }
+
+    @Test
+    @DisplayName("Writes the same rows as a save through JPA")
+    public void shouldWriteTheRowsJpaWrites() {
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        Order saved = order(createdAt);
+        Order inserted = order(createdAt);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            orderKeyRepo.save(OrderKey.of(saved));
+            orderRepo.save(saved);
+        });
+        Assertions.assertEquals(Boolean.TRUE, transactionTemplate.execute(status -> orderInsertRepo.insert(inserted)));
+
+        Map<String, Object> jpaRow = jdbcTemplate.queryForMap(ROW, saved.getOrderInternalId());
+        Map<String, Object> leanRow = jdbcTemplate.queryForMap(ROW, inserted.getOrderInternalId());
+        Assertions.assertEquals(jpaRow, leanRow);
+    }
+
+    private static Order order(Instant createdAt) {
+        UUID internalId = TimeOrderedUuid.next();
+        Order order = Order.builder()
+                .orderInternalId(internalId)
+                .accountId("lean-writes-account")
+                .symbol("AAPL")
+                .side(OrderSide.SELL)
+                .quantity(7)
+                .status(OrderStatus.PROCESSED)
+                .createdAt(createdAt)
+                .idempotencyKey(UUID.randomUUID().toString())
+                .build();
+        order.setExecution(Execution.builder()
+                .order(order)
+                .internalId(TimeOrderedUuid.next())
+                .price(FixedPrice.of(new BigDecimal("150.123456")))
+                .priceTimestamp(createdAt.minusMillis(20))
+                .priceAgeMs(20L)
+                .createdAt(createdAt)
+                .build());
+        return order;
+    }
+}
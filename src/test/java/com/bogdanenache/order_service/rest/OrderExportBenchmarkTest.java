@@ -0,0 +1,96 @@
+package com.bogdanenache.order_service.rest;
+
+import com.bogdanenache.order_service.OrderServiceApplication;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Measures the throughput of the NDJSON account export in rows per second against a seeded Postgres container.
+ * The account is seeded directly with generate_series; rows get negative ids so they never collide with sequence ids.
+ * The heap used after the export is printed next to the throughput to show it does not grow with the row count.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = RANDOM_PORT, classes = OrderServiceApplication.class)
+@Import(TestcontainersConfiguration.class)
+@ActiveProfiles("test")
+@Testcontainers
+class OrderExportBenchmarkTest {
+
+    private static final int ORDERS = 500_000;
+    private static final int RUNS = 3;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @LocalServerPort
+    private Integer port;
+
+    private String accountId;
+
+    @BeforeEach
+    void seed() {
+        accountId = UUID.randomUUID().toString();
+        final long offset = jdbcTemplate.queryForObject("SELECT COALESCE(MIN(ORD_ID), 0) FROM ORDERS", Long.class);
+        jdbcTemplate.update("INSERT INTO ORDERS (ORD_ID, ORD_INTERNAL_ID, ORD_ACCOUNT_ID, ORD_SYMBOL, ORD_SIDE, ORD_QUANTITY, "
+                + "ORD_STATUS, ORD_CREATED, ORD_VERSION, ORD_IDEMPOTENCY_KEY) "
+                + "SELECT ? - n, gen_random_uuid(), ?, 'AAPL', 'BUY', n % 100 + 1, 'PROCESSED', "
+                + "now() - n * interval '1 millisecond', 0, gen_random_uuid()::text FROM generate_series(1, ?) n",
+                Math.min(offset, 0), accountId, ORDERS);
+        jdbcTemplate.update("INSERT INTO EXECUTIONS (EXC_ID, EXC_INTERNAL_ID, ORD_ORDER_ID, EXC_PRICE, EXC_CREATED, EXC_VERSION) "
+                + "SELECT ? - n, gen_random_uuid(), ? - n, 150.250000, now(), 0 FROM generate_series(1, ?) n",
+                Math.min(offset, 0), Math.min(offset, 0), ORDERS);
+        jdbcTemplate.execute("ANALYZE ORDERS");
+        jdbcTemplate.execute("ANALYZE EXECUTIONS");
+    }
+
+    @Test
+    void export_rowsPerSecond() {
+        for (int run = 0; run < RUNS; run++) {
+            final long start = System.nanoTime();
+            final long rows = export();
+            final double seconds = (System.nanoTime() - start) / 1e9;
+            System.gc();
+            final MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+            System.out.printf("export run %d: %d rows in %.2f s, %,.0f rows/s, heap used after export %d MB%n",
+                    run, rows, seconds, rows / seconds, heap.getUsed() >> 20);
+            Assertions.assertEquals(ORDERS, rows);
+        }
+    }
+
+    private long export() {
+        return restTemplate.execute("http://localhost:" + port + "/orders/export?accountId=" + accountId, HttpMethod.GET, null,
+                response -> {
+                    long lines = 0;
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8))) {
+                        while (reader.readLine() != null) {
+                            lines++;
+                        }
+                    }
+                    return lines;
+                });
+    }
+}
@@ -0,0 +1,116 @@
+package com.bogdanenache.order_service.rest;
+
+import com.bogdanenache.order_service.OrderServiceApplication;
+import com.bogdanenache.order_service.dao.entity.Execution;
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.entity.Order.OrderSide;
+import com.bogdanenache.order_service.dao.entity.Order.OrderStatus;
+import com.bogdanenache.order_service.dao.entity.OrderKey;
+import com.bogdanenache.order_service.dao.repository.OrderKeyRepository;
+import com.bogdanenache.order_service.dao.repository.OrderRepository;
+import com.bogdanenache.order_service.dto.FixedPrice;
+import com.bogdanenache.order_service.dto.ImportFormat;
+import com.bogdanenache.order_service.dto.ImportResult;
+import com.bogdanenache.order_service.dto.TimeOrderedUuid;
+import com.bogdanenache.order_service.service.OrderImportService;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Compares the rows per second of the COPY import with saving the same orders one by one through JPA,
+ * the way orders were loaded before the import existed. Both load into the same Postgres container and commit
+ * every 10 000 orders. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(classes = OrderServiceApplication.class)
+@Import(TestcontainersConfiguration.class)
+@ActiveProfiles("test")
+@Testcontainers
+class OrderImportBenchmarkTest {
+
+    private static final int ORDERS = 200_000;
+    private static final int JPA_ORDERS = 20_000;
+    private static final int CHUNK = 10_000;
+    private static final Instant START = Instant.parse("2019-01-01T00:00:00Z");
+
+    @Autowired
+    private OrderImportService orderImportService;
+
+    @Autowired
+    private OrderRepository orderRepo;
+
+    @Autowired
+    private OrderKeyRepository orderKeyRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void import_rowsPerSecond() throws Exception {
+        final String accountId = UUID.randomUUID().toString();
+        final StringBuilder csv = new StringBuilder(ORDERS * 100).append("accountId,symbol,side,quantity,createdAt,price\n");
+        for (int i = 0; i < ORDERS; i++) {
+            csv.append(accountId).append(",AAPL,").append(i % 2 == 0 ? "BUY" : "SELL").append(',').append(i % 100 + 1)
+                    .append(',').append(START.plusSeconds(i)).append(",150.25\n");
+        }
+
+        final long copyStart = System.nanoTime();
+        final ImportResult result = orderImportService.importOrders(UUID.randomUUID().toString(), ImportFormat.CSV,
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+        final double copySeconds = (System.nanoTime() - copyStart) / 1e9;
+        Assertions.assertEquals(ORDERS, result.imported());
+
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        final long jpaStart = System.nanoTime();
+        for (int from = 0; from < JPA_ORDERS; from += CHUNK) {
+            final int chunkStart = from;
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = chunkStart; i < chunkStart + CHUNK; i++) {
+                    final Order order = order(accountId, i);
+                    orderKeyRepo.save(OrderKey.of(order));
+                    orderRepo.save(order);
+                }
+            });
+        }
+        final double jpaSeconds = (System.nanoTime() - jpaStart) / 1e9;
+
+        System.out.printf("import COPY: %d rows in %.2f s, %,.0f rows/s%n", ORDERS, copySeconds, ORDERS / copySeconds);
+        System.out.printf("import JPA:  %d rows in %.2f s, %,.0f rows/s%n", JPA_ORDERS, jpaSeconds, JPA_ORDERS / jpaSeconds);
+    }
+
+    private static Order order(String accountId, int i) {
+        final Instant createdAt = START.plusSeconds(i);
+        final UUID internalId = TimeOrderedUuid.at(createdAt);
+        final Order order = Order.builder()
+                .orderInternalId(internalId)
+                .accountId(accountId)
+                .symbol("AAPL")
+                .side(i % 2 == 0 ? OrderSide.BUY : OrderSide.SELL)
+                .quantity(i % 100 + 1)
+                .status(OrderStatus.PROCESSED)
+                .createdAt(createdAt)
+                .idempotencyKey(internalId.toString())
+                .build();
+        order.setExecution(Execution.builder()
+                .order(order)
+                .internalId(TimeOrderedUuid.at(createdAt))
+                .price(FixedPrice.of(new BigDecimal("150.25")))
+                .priceTimestamp(createdAt)
+                .createdAt(createdAt)
+                .build());
+        return order;
+    }
+}
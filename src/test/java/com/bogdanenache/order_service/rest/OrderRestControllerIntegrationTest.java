@@ -2,9 +2,19 @@ package com.bogdanenache.order_service.rest;
 
 import com.bogdanenache.order_service.BaseTest;
 import com.bogdanenache.order_service.OrderServiceApplication;
+import com.bogdanenache.order_service.dao.entity.OrderEvent;
 import com.bogdanenache.order_service.dto.ErrorResponse;
+import com.bogdanenache.order_service.dto.ImportResult;
 import com.bogdanenache.order_service.dto.OrderDTO;
+import com.bogdanenache.order_service.dto.OrderOutcome.Placed;
+import com.bogdanenache.order_service.dto.PositionDTO;
 import com.bogdanenache.order_service.dto.Side;
+import com.bogdanenache.order_service.service.InMemoryOrderEventSink;
+import com.bogdanenache.order_service.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -21,7 +31,10 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 
@@ -40,6 +53,18 @@ public class OrderRestControllerIntegrationTest extends BaseTest {
     @LocalServerPort
     private Integer port;
 
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private InMemoryOrderEventSink orderEventSink;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
 
     @Test
     @DisplayName("Calls API to create an order successfully")
@@ -117,6 +142,54 @@ public class OrderRestControllerIntegrationTest extends BaseTest {
         Assertions.assertEquals(orderDTO.accountId(), getResponse.getBody()[0].accountId());
         Assertions.assertNotNull(getResponse.getBody()[0].execution());
     }
+    @Test
+    @DisplayName("Calls API to get orders by accountId page by page")
+    public void shouldGetOrdersByAccountIdPageByPage() {
+        String accountId = UUID.randomUUID().toString();
+        for (int i = 0; i < 3; i++) {
+            var orderDTO = createOrder(1, "AAPL");
+            orderService.placeOrder(new OrderDTO(null, accountId, orderDTO.symbol(), orderDTO.side(), orderDTO.quantity(),
+                    null, null, null), UUID.randomUUID().toString());
+        }
+
+        var firstPage = restTemplate.getForEntity("http://localhost:" + port + "/orders?accountId=" + accountId + "&limit=2", OrderDTO[].class);
+        Assertions.assertEquals(200, firstPage.getStatusCode().value());
+        Assertions.assertEquals(2, firstPage.getBody().length);
+        String cursor = firstPage.getHeaders().getFirst(OrderRestController.NEXT_CURSOR_HEADER);
+        Assertions.assertNotNull(cursor);
+
+        var lastPage = restTemplate.getForEntity("http://localhost:" + port + "/orders?accountId=" + accountId + "&limit=2&cursor=" + cursor, OrderDTO[].class);
+        Assertions.assertEquals(1, lastPage.getBody().length);
+        Assertions.assertNull(lastPage.getHeaders().getFirst(OrderRestController.NEXT_CURSOR_HEADER));
+        Assertions.assertTrue(Stream.of(firstPage.getBody()).noneMatch(order -> order.id().equals(lastPage.getBody()[0].id())));
+    }
+
+    @Test
+    @DisplayName("Calls API to export all orders of an account as newline-delimited JSON")
+    public void shouldExportOrdersByAccountIdAsNdjson() {
+        String accountId = UUID.randomUUID().toString();
+        for (int i = 0; i < 3; i++) {
+            var orderDTO = createOrder(i + 1, "AAPL");
+            orderService.placeOrder(new OrderDTO(null, accountId, orderDTO.symbol(), orderDTO.side(), orderDTO.quantity(),
+                    null, null, null), UUID.randomUUID().toString());
+        }
+
+        var response = restTemplate.getForEntity("http://localhost:" + port + "/orders/export?accountId=" + accountId, String.class);
+        Assertions.assertEquals(200, response.getStatusCode().value());
+        Assertions.assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        var lines = response.getBody().split("\n");
+        Assertions.assertEquals(3, lines.length);
+        Assertions.assertTrue(lines[0].contains("\"quantity\":1"));
+        Assertions.assertTrue(lines[2].contains("\"quantity\":3"));
+    }
+
+    @Test
+    @DisplayName("Calls API to get orders by accountId with an invalid cursor and fails")
+    public void shouldFailToGetOrdersByAccountIdWithInvalidCursor() {
+        var response = restTemplate.getForEntity("http://localhost:" + port + "/orders?accountId=account&cursor=not-a-cursor", ErrorResponse.class);
+        Assertions.assertEquals(400, response.getStatusCode().value());
+    }
+
     @Test
     @DisplayName("Returns SERVICE_UNAVAILABLE when dependent service fails")
     public void shouldReturnServiceUnavailableWhenPriceFeedFails() {
@@ -176,8 +249,8 @@ public class OrderRestControllerIntegrationTest extends BaseTest {
     }
 
     @Test
-    @DisplayName("Calls API and fails if idempotency header is reused")
-    public void shouldFailToCreateOrderIfIdempotencyHeaderIsReused() {
+    @DisplayName("Calls API twice with the same idempotency header and gets the first response replayed")
+    public void shouldReplayResponseIfIdempotencyHeaderIsReused() {
         var orderDTO = createOrder(10, "AAPL");
         HttpHeaders headers = new HttpHeaders();
         String idempotencyKeyHeader = UUID.randomUUID().toString();
@@ -185,16 +258,155 @@ public class OrderRestControllerIntegrationTest extends BaseTest {
         headers.setContentType(MediaType.APPLICATION_JSON);
         HttpEntity<OrderDTO> httpEntity = new HttpEntity<>(orderDTO, headers);
 
-        var responseSuccessfully = restTemplate.postForEntity("http://localhost:" + port + "/orders", httpEntity, OrderDTO.class);
-        var responseUnuccessfully = restTemplate.postForEntity("http://localhost:" + port + "/orders", httpEntity, ErrorResponse.class);
+        var responseSuccessfully = restTemplate.postForEntity("http://localhost:" + port + "/orders", httpEntity, String.class);
+        var responseReplayed = restTemplate.postForEntity("http://localhost:" + port + "/orders", httpEntity, String.class);
 
         Assertions.assertNotNull(responseSuccessfully.getBody());
         Assertions.assertEquals(201, responseSuccessfully.getStatusCode().value());
 
-        Assertions.assertNotNull(responseUnuccessfully.getBody());
-        Assertions.assertEquals(400, responseUnuccessfully.getStatusCode().value());
-        Assertions.assertEquals("Idempotency key " + idempotencyKeyHeader +" is already used.", responseUnuccessfully.getBody().message());
+        Assertions.assertEquals(201, responseReplayed.getStatusCode().value());
+        Assertions.assertEquals(responseSuccessfully.getBody(), responseReplayed.getBody());
+
+        var ordersForAccount = restTemplate.getForEntity("http://localhost:" + port + "/orders?accountId=" + orderDTO.accountId(), OrderDTO[].class);
+        Assertions.assertEquals(1, ordersForAccount.getBody().length);
+    }
+
+    @Test
+    @DisplayName("Places orders without a sequence round trip per insert")
+    public void shouldPlaceOrdersWithoutSequenceRoundTripPerInsert() {
+        int orders = 20;
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        for (int i = 0; i < orders; i++) {
+            var outcome = orderService.placeOrder(createOrder(1, "AAPL"), UUID.randomUUID().toString());
+            Assertions.assertInstanceOf(Placed.class, outcome);
+        }
+
+        // one insert per order key, order and execution, ids come from blocks reserved with at most one nextval per sequence
+        Assertions.assertEquals(3L * orders, statistics.getEntityInsertCount());
+        Assertions.assertTrue(statistics.getPrepareStatementCount() <= 3L * orders + 4,
+                "statements: " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Reads an account's orders with their executions in one statement")
+    public void shouldReadAccountOrdersWithConstantStatementCount() {
+        String accountId = UUID.randomUUID().toString();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int orders : new int[] {1, 10}) {
+            while (orderService.getOrderByAccountId(accountId, null, 50).orders().size() < orders) {
+                var orderDTO = createOrder(1, "AAPL");
+                orderService.placeOrder(new OrderDTO(null, accountId, orderDTO.symbol(), orderDTO.side(), orderDTO.quantity(),
+                        null, null, null), UUID.randomUUID().toString());
+            }
+            statistics.clear();
+
+            var page = orderService.getOrderByAccountId(accountId, null, 50);
+            var order = orderService.getOrderByInternalId(page.orders().getFirst().id());
+
+            Assertions.assertEquals(orders, page.orders().size());
+            Assertions.assertTrue(page.orders().stream().allMatch(o -> o.id().equals(o.execution().orderId())));
+            Assertions.assertTrue(order.isPresent());
+            Assertions.assertNotNull(order.get().execution());
+            Assertions.assertEquals(2, statistics.getPrepareStatementCount());
+            Assertions.assertEquals(0, statistics.getEntityLoadCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Serves a placed order by id from the near cache without querying the database")
+    public void shouldGetPlacedOrderByIdWithoutQuery() {
+        var placed = orderService.placeOrder(createOrder(2, "AAPL"), UUID.randomUUID().toString());
+        String id = ((Placed) placed).order().id();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        var response = restTemplate.getForEntity("http://localhost:" + port + "/orders/" + id, OrderDTO.class);
+
+        Assertions.assertEquals(200, response.getStatusCode().value());
+        Assertions.assertEquals(id, response.getBody().id());
+        Assertions.assertNotNull(response.getBody().execution());
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Publishes an order-created event for a placed order through the outbox")
+    public void shouldPublishOrderCreatedEvent() throws Exception {
+        var placed = orderService.placeOrder(createOrder(3, "AAPL"), UUID.randomUUID().toString());
+        String id = ((Placed) placed).order().id();
+
+        // the relay polls the outbox on its own thread
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        Optional<OrderEvent> event = publishedEvent(id);
+        while (event.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            event = publishedEvent(id);
+        }
+
+        Assertions.assertTrue(event.isPresent());
+        Assertions.assertEquals(((Placed) placed).order(), objectMapper.readValue(event.get().getPayload(), OrderDTO.class));
+    }
+
+    @Test
+    @DisplayName("Calls API to import historical orders from CSV, rejecting invalid rows")
+    public void shouldImportOrdersFromCsv() {
+        String accountId = UUID.randomUUID().toString();
+        String csv = "accountId,symbol,side,quantity,createdAt,price\n"
+                + accountId + ",AAPL,BUY,10,2019-03-01T10:15:30Z,150.25\n"
+                + accountId + ",MSFT,SELL,-1,2019-03-01T10:15:31Z,310.5\n"
+                + accountId + ",MSFT,SELL,5,2019-03-02T08:00:00Z,310.5\n";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+
+        var response = restTemplate.postForEntity("http://localhost:" + port + "/admin/orders/import/" + accountId,
+                new HttpEntity<>(csv, headers), ImportResult.class);
+        Assertions.assertEquals(200, response.getStatusCode().value());
+        Assertions.assertEquals(2, response.getBody().imported());
+        Assertions.assertEquals(1, response.getBody().rejected());
+
+        var orders = restTemplate.getForEntity("http://localhost:" + port + "/orders?accountId=" + accountId, OrderDTO[].class);
+        Assertions.assertEquals(2, orders.getBody().length);
+        Assertions.assertTrue(Stream.of(orders.getBody()).allMatch(order -> order.execution() != null));
+
+        // the same import again resumes after the last chunk and loads nothing twice
+        var repeated = restTemplate.postForEntity("http://localhost:" + port + "/admin/orders/import/" + accountId,
+                new HttpEntity<>(csv, headers), ImportResult.class);
+        Assertions.assertEquals(3, repeated.getBody().resumedFrom());
+        Assertions.assertEquals(0, repeated.getBody().imported());
+    }
+
+    @Test
+    @DisplayName("Calls API to get the positions of an account kept up to date by placed orders")
+    public void shouldGetPositionsByAccountId() {
+        String accountId = UUID.randomUUID().toString();
+        for (var side : new Side[]{Side.BUY, Side.BUY, Side.SELL}) {
+            orderService.placeOrder(new OrderDTO(null, accountId, "AAPL", side.name(), 5, null, null, null),
+                    UUID.randomUUID().toString());
+        }
+        orderService.placeOrder(new OrderDTO(null, accountId, "MSFT", Side.SELL.name(), 3, null, null, null),
+                UUID.randomUUID().toString());
+
+        var response = restTemplate.getForEntity("http://localhost:" + port + "/accounts/" + accountId + "/positions", PositionDTO[].class);
+        Assertions.assertEquals(200, response.getStatusCode().value());
+        Assertions.assertEquals(2, response.getBody().length);
+        Assertions.assertEquals("AAPL", response.getBody()[0].symbol());
+        Assertions.assertEquals(5, response.getBody()[0].netQuantity());
+        Assertions.assertEquals(10, response.getBody()[0].boughtQuantity());
+        Assertions.assertEquals(5, response.getBody()[0].soldQuantity());
+        Assertions.assertNotNull(response.getBody()[0].averagePrice());
+        Assertions.assertEquals("MSFT", response.getBody()[1].symbol());
+        Assertions.assertEquals(-3, response.getBody()[1].netQuantity());
+
+        var none = restTemplate.getForEntity("http://localhost:" + port + "/accounts/" + UUID.randomUUID() + "/positions", PositionDTO[].class);
+        Assertions.assertEquals(0, none.getBody().length);
+    }
 
+    private Optional<OrderEvent> publishedEvent(String internalId) {
+        return orderEventSink.published().stream()
+                .filter(event -> event.getOrderInternalId().toString().equals(internalId))
+                .findFirst();
     }
 
 }
@@ -0,0 +1,124 @@
+package com.bogdanenache.order_service.rest;
+
+import com.bogdanenache.order_service.OrderServiceApplication;
+import com.bogdanenache.order_service.dao.entity.Execution;
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.entity.Order.OrderSide;
+import com.bogdanenache.order_service.dao.entity.Order.OrderStatus;
+import com.bogdanenache.order_service.dao.entity.OrderKey;
+import com.bogdanenache.order_service.dao.repository.OrderInsertRepository;
+import com.bogdanenache.order_service.dao.repository.OrderKeyRepository;
+import com.bogdanenache.order_service.dao.repository.OrderRepository;
+import com.bogdanenache.order_service.dto.FixedPrice;
+import com.bogdanenache.order_service.dto.TimeOrderedUuid;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Compares saving an order alone through JPA with the lean JDBC insert, each order in its own transaction as
+ * placements are. Prints the latency percentiles and the bytes allocated per order by the saving thread,
+ * which include the transaction and the driver in both cases. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(classes = OrderServiceApplication.class)
+@Import(TestcontainersConfiguration.class)
+@ActiveProfiles("test")
+@Testcontainers
+class OrderWriteBenchmarkTest {
+
+    private static final int WARMUP = 2_000;
+    private static final int ORDERS = 10_000;
+
+    @Autowired
+    private OrderRepository orderRepo;
+
+    @Autowired
+    private OrderKeyRepository orderKeyRepo;
+
+    @Autowired
+    private OrderInsertRepository orderInsertRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void saveAlone_jpaVersusLeanInsert() {
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        final Consumer<Order> jpa = order -> transactionTemplate.executeWithoutResult(status -> {
+            orderKeyRepo.save(OrderKey.of(order));
+            orderRepo.save(order);
+        });
+        final Consumer<Order> lean = order -> transactionTemplate.execute(status -> orderInsertRepo.insert(order));
+
+        measure(jpa);
+        measure(lean);
+        final Result jpaResult = measure(jpa);
+        final Result leanResult = measure(lean);
+
+        System.out.printf("JPA save:    p50 %6.1f us p99 %6.1f us %8.0f bytes/order%n",
+                jpaResult.p50Micros(), jpaResult.p99Micros(), jpaResult.bytesPerOrder());
+        System.out.printf("lean insert: p50 %6.1f us p99 %6.1f us %8.0f bytes/order%n",
+                leanResult.p50Micros(), leanResult.p99Micros(), leanResult.bytesPerOrder());
+    }
+
+    private Result measure(Consumer<Order> save) {
+        for (int i = 0; i < WARMUP; i++) {
+            save.accept(order(i));
+        }
+        final Order[] orders = new Order[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            orders[i] = order(i);
+        }
+        final long[] latencies = new long[ORDERS];
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().threadId();
+        final long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ORDERS; i++) {
+            final long start = System.nanoTime();
+            save.accept(orders[i]);
+            latencies[i] = System.nanoTime() - start;
+        }
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        Arrays.sort(latencies);
+        return new Result(latencies[ORDERS / 2] / 1e3, latencies[ORDERS * 99 / 100] / 1e3, (double) allocated / ORDERS);
+    }
+
+    private static Order order(int i) {
+        final Instant now = Instant.now();
+        final Order order = Order.builder()
+                .orderInternalId(TimeOrderedUuid.next())
+                .accountId("benchmark-account")
+                .symbol("AAPL")
+                .side(i % 2 == 0 ? OrderSide.BUY : OrderSide.SELL)
+                .quantity(i % 100 + 1)
+                .status(OrderStatus.PROCESSED)
+                .createdAt(now)
+                .idempotencyKey(UUID.randomUUID().toString())
+                .build();
+        order.setExecution(Execution.builder()
+                .order(order)
+                .internalId(TimeOrderedUuid.next())
+                .price(FixedPrice.of(new BigDecimal("150.25")))
+                .priceTimestamp(now)
+                .priceAgeMs(0L)
+                .createdAt(now)
+                .build());
+        return order;
+    }
+
+    private record Result(double p50Micros, double p99Micros, double bytesPerOrder) {
+    }
+}
@@ -0,0 +1,126 @@
+package com.bogdanenache.order_service.rest;
+
+import com.bogdanenache.order_service.BaseTest;
+import com.bogdanenache.order_service.OrderServiceApplication;
+import com.bogdanenache.order_service.dto.OrderDTO;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistrar;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Runs the service against two independent Postgres containers, a primary and a stand-in replica that is
+ * never replicated to. An order found only on the replica proves a read was routed there, an order found
+ * only on the primary proves it was not.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, classes = OrderServiceApplication.class,
+        properties = "order-service.replica.enabled=true")
+@Import({TestcontainersConfiguration.class, ReadReplicaRoutingIntegrationTest.ReplicaConfiguration.class})
+@ActiveProfiles("test")
+@Testcontainers
+public class ReadReplicaRoutingIntegrationTest extends BaseTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @LocalServerPort
+    private Integer port;
+
+    @Autowired
+    @Qualifier("replicaPostgresContainer")
+    private PostgreSQLContainer<?> replica;
+
+    @Test
+    @DisplayName("Reads the orders of an account from the replica")
+    public void shouldReadAccountOrdersFromReplica() {
+        String accountId = UUID.randomUUID().toString();
+        UUID internalId = UUID.randomUUID();
+        insertOnReplica(accountId, internalId);
+
+        var orders = restTemplate.getForEntity("http://localhost:" + port + "/orders?accountId=" + accountId, OrderDTO[].class);
+        var order = restTemplate.getForEntity("http://localhost:" + port + "/orders/" + internalId, OrderDTO.class);
+
+        Assertions.assertEquals(1, orders.getBody().length);
+        Assertions.assertEquals(internalId.toString(), orders.getBody()[0].id());
+        Assertions.assertEquals(200, order.getStatusCode().value());
+        Assertions.assertEquals(internalId.toString(), order.getBody().execution().orderId());
+    }
+
+    @Test
+    @DisplayName("Writes orders to the primary and reads an account that just placed one from the primary")
+    public void shouldReadYourWritesFromPrimary() {
+        var orderDTO = createOrder(4, "AAPL");
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Idempotency-Key", UUID.randomUUID().toString());
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        var created = restTemplate.postForEntity("http://localhost:" + port + "/orders", new HttpEntity<>(orderDTO, headers), OrderDTO.class);
+        var orders = restTemplate.getForEntity("http://localhost:" + port + "/orders?accountId=" + orderDTO.accountId(), OrderDTO[].class);
+
+        Assertions.assertEquals(201, created.getStatusCode().value());
+        Assertions.assertEquals(1, orders.getBody().length);
+        Assertions.assertEquals(created.getBody().id(), orders.getBody()[0].id());
+        Assertions.assertEquals(0, replicaJdbc().queryForObject(
+                "SELECT COUNT(*) FROM orders WHERE ord_account_id = ?", Integer.class, orderDTO.accountId()));
+    }
+
+    private void insertOnReplica(String accountId, UUID internalId) {
+        JdbcTemplate jdbc = replicaJdbc();
+        long id = jdbc.queryForObject("SELECT COALESCE(MAX(ord_id), 0) + 1 FROM orders", Long.class);
+        String idempotencyKey = UUID.randomUUID().toString();
+        OffsetDateTime createdAt = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MICROS);
+        jdbc.update("INSERT INTO order_keys (ork_order_internal_id, ork_idempotency_key, ork_created) VALUES (?, ?, ?)",
+                internalId, idempotencyKey, createdAt);
+        jdbc.update("INSERT INTO orders (ord_id, ord_internal_id, ord_account_id, ord_symbol, ord_side, ord_quantity, "
+                + "ord_status, ord_created, ord_version, ord_idempotency_key) "
+                + "VALUES (?, ?, ?, 'AAPL', 'BUY', 3, 'PROCESSED', ?, 0, ?)", id, internalId, accountId, createdAt, idempotencyKey);
+        jdbc.update("INSERT INTO executions (exc_id, exc_internal_id, ord_order_id, exc_price, exc_created, exc_version) "
+                + "VALUES (?, ?, ?, 150.25, ?, 0)", id, UUID.randomUUID(), id, createdAt);
+    }
+
+    private JdbcTemplate replicaJdbc() {
+        return new JdbcTemplate(new DriverManagerDataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword()));
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class ReplicaConfiguration {
+
+        @Bean
+        PostgreSQLContainer<?> replicaPostgresContainer() {
+            return new PostgreSQLContainer<>(DockerImageName.parse("postgres:17"))
+                    .withInitScript("db/replica-schema.sql");
+        }
+
+        @Bean
+        DynamicPropertyRegistrar replicaPropertyRegistrar(@Qualifier("replicaPostgresContainer") PostgreSQLContainer<?> replica) {
+            return registry -> {
+                registry.add("order-service.replica.url", replica::getJdbcUrl);
+                registry.add("order-service.replica.username", replica::getUsername);
+                registry.add("order-service.replica.password", replica::getPassword);
+            };
+        }
+    }
+}
@@ -21,6 +21,8 @@ class TestcontainersConfiguration {
     @Bean
     WireMockContainer wiremockServer() {
          return new WireMockContainer("wiremock/wiremock:3.6.0")
+                // delayed responses are sent by a scheduler, so slow prices do not hold a container thread each
+                .withCliArg("--async-response-enabled=true")
                 .withMappingFromResource("wiremock/a1.json")
                 .withMappingFromResource("wiremock/a2.json")
                 .withMappingFromResource("wiremock/a3.json")
@@ -30,13 +32,17 @@ class TestcontainersConfiguration {
                 .withMappingFromResource("wiremock/badrequest.json")
                 .withMappingFromResource("wiremock/notfound.json")
                 .withMappingFromResource("wiremock/smallprice.json")
-                .withMappingFromResource("wiremock/bigprice.json");
+                .withMappingFromResource("wiremock/bigprice.json")
+                .withMappingFromResource("wiremock/batch.json")
+                .withMappingFromResource("wiremock/batcherror.json")
+                .withMappingFromResource("wiremock/slowprice.json");
     }
 
     @Bean
     DynamicPropertyRegistrar dynamicPropertyRegistrar(WireMockContainer wiremockServer) {
         return registry -> {
             registry.add("order-service.price-feed-url", () -> wiremockServer.getBaseUrl() + "/price");
+            registry.add("order-service.price-feed-batch-url", () -> wiremockServer.getBaseUrl() + "/prices");
         };
     }
 
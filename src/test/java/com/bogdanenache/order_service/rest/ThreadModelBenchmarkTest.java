@@ -0,0 +1,148 @@
+package com.bogdanenache.order_service.rest;
+
+import com.bogdanenache.order_service.BaseTest;
+import com.bogdanenache.order_service.OrderServiceApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Compares the order throughput of request handling on Tomcat's platform thread pool with virtual threads, while
+ * every order waits 100ms on the price feed. Each symbol is priced once, so no lookup is served from the cache or
+ * coalesced with another. The clients keep more orders in flight than Tomcat has threads but fewer than the
+ * in-flight limit of the virtual-thread mode, and the price feed pool is sized so it is not the bottleneck.
+ * Each mode runs in its own application context. Prints orders per second and the responses by status for both
+ * modes, then the gain. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class ThreadModelBenchmarkTest extends BaseTest {
+
+    private static final String PROPERTIES = """
+            server.tomcat.threads.max=200
+            order-service.http-client.max-total=1000
+            order-service.http-client.max-per-route=1000
+            order-service.virtual-threads.requests-per-connection=50
+            resilience4j.ratelimiter.instances.orderServiceRateLimiter.limitForPeriod=1000000
+            """;
+    private static final int WARMUP = 1_000;
+    private static final int ORDERS = 10_000;
+    private static final int IN_FLIGHT = 400;
+    private static final AtomicLong SYMBOLS = new AtomicLong();
+    private static final Map<String, Double> ORDERS_PER_SECOND = new ConcurrentHashMap<>();
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @AfterAll
+    static void printGain() {
+        final Double platform = ORDERS_PER_SECOND.get("platform");
+        final Double virtual = ORDERS_PER_SECOND.get("virtual");
+        if (platform != null && virtual != null) {
+            System.out.printf("virtual threads: %.2fx the throughput of platform threads%n", virtual / platform);
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = RANDOM_PORT, classes = OrderServiceApplication.class,
+            properties = "spring.threads.virtual.enabled=false")
+    @TestPropertySource(properties = PROPERTIES)
+    @Import(TestcontainersConfiguration.class)
+    @ActiveProfiles("test")
+    @Testcontainers
+    class PlatformThreads {
+
+        @Autowired
+        private ObjectMapper objectMapper;
+
+        @LocalServerPort
+        private Integer port;
+
+        @Test
+        void placeOrders_onPlatformThreads() throws Exception {
+            run("platform", port, objectMapper);
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = RANDOM_PORT, classes = OrderServiceApplication.class,
+            properties = "spring.threads.virtual.enabled=true")
+    @TestPropertySource(properties = PROPERTIES)
+    @Import(TestcontainersConfiguration.class)
+    @ActiveProfiles("test")
+    @Testcontainers
+    class VirtualThreads {
+
+        @Autowired
+        private ObjectMapper objectMapper;
+
+        @LocalServerPort
+        private Integer port;
+
+        @Test
+        void placeOrders_onVirtualThreads() throws Exception {
+            run("virtual", port, objectMapper);
+        }
+    }
+
+    private void run(String mode, int port, ObjectMapper objectMapper) throws Exception {
+        load(WARMUP, port, objectMapper, new ConcurrentHashMap<>());
+        final Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        final long start = System.nanoTime();
+        load(ORDERS, port, objectMapper, statuses);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        final double ordersPerSecond = ORDERS / seconds;
+        ORDERS_PER_SECOND.put(mode, ordersPerSecond);
+        System.out.printf("%-8s threads: %,8.0f orders/s, %d in flight, responses by status %s%n",
+                mode, ordersPerSecond, IN_FLIGHT, statuses);
+    }
+
+    private void load(int orders, int port, ObjectMapper objectMapper, Map<Integer, AtomicInteger> statuses) throws Exception {
+        final Semaphore inFlight = new Semaphore(IN_FLIGHT);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < orders; i++) {
+                final String symbol = "SLOW" + SYMBOLS.incrementAndGet();
+                inFlight.acquire();
+                clients.submit(() -> {
+                    try {
+                        statuses.computeIfAbsent(post(symbol, port, objectMapper), status -> new AtomicInteger()).incrementAndGet();
+                    } finally {
+                        inFlight.release();
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    private int post(String symbol, int port, ObjectMapper objectMapper) throws Exception {
+        final HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/orders"))
+                .header("X-Idempotency-Key", UUID.randomUUID().toString())
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(createOrder(1, symbol))))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,133 @@
+package com.bogdanenache.order_service.rest;
+
+import com.bogdanenache.order_service.BaseTest;
+import com.bogdanenache.order_service.OrderServiceApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Places orders concurrently with requests served on virtual threads and records every pinned virtual thread with JFR.
+ * The orders go through a cached price, a slow feed with hedging, and a failing feed retried with backoff, so the
+ * request, price feed and retry paths all run on virtual threads. Any pinning reached from our code, in our own
+ * monitors or in a driver or library we call, fails the test with the stack traces.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, classes = OrderServiceApplication.class, properties = {
+        "spring.threads.virtual.enabled=true",
+        "order-service.price-hedging.enabled=true",
+        "order-service.retry.backoff.delay=20",
+        "order-service.retry.backoff.maxDelay=50",
+        "resilience4j.ratelimiter.instances.orderServiceRateLimiter.limitForPeriod=100000"})
+@Import(TestcontainersConfiguration.class)
+@ActiveProfiles("test")
+@Testcontainers
+public class VirtualThreadPinningIntegrationTest extends BaseTest {
+
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+    private static final String OUR_PACKAGE = "com.bogdanenache.";
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @LocalServerPort
+    private Integer port;
+
+    @Test
+    @DisplayName("Places orders on virtual threads without pinning their carriers")
+    public void shouldPlaceOrdersWithoutPinning() {
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable(PINNED).withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent(PINNED, pinned::add);
+            recording.startAsync();
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 200; i++) {
+                    final String symbol = switch (i % 10) {
+                        case 0 -> "error";
+                        case 1, 2, 3 -> "AAPL";
+                        default -> "SLOW" + i;
+                    };
+                    clients.submit(() -> statuses.computeIfAbsent(post(symbol), status -> new AtomicInteger()).incrementAndGet());
+                }
+            }
+            // waits until the events recorded so far were delivered
+            recording.stop();
+        }
+
+        Assertions.assertEquals(180, statuses.getOrDefault(201, new AtomicInteger()).get(), () -> "Responses by status: " + statuses);
+        Assertions.assertEquals(20, statuses.getOrDefault(503, new AtomicInteger()).get(), () -> "Responses by status: " + statuses);
+        List<String> ours = pinned.stream()
+                .filter(VirtualThreadPinningIntegrationTest::reachedFromOurCode)
+                .map(VirtualThreadPinningIntegrationTest::describe)
+                .toList();
+        Assertions.assertTrue(ours.isEmpty(), () -> "Carrier threads pinned from our code:\n" + String.join("\n\n", ours));
+    }
+
+    private int post(String symbol) throws Exception {
+        // a client without a connection pool limit, so every order is in flight at the same time
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/orders"))
+                .header("X-Idempotency-Key", UUID.randomUUID().toString())
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(createOrder(1, symbol))))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * Whether the pinned thread served a request or a hedged lookup, or has our code on its stack.
+     * The thread is checked as well because JFR truncates deep stacks before it reaches the controller.
+     */
+    private static boolean reachedFromOurCode(RecordedEvent event) {
+        final String thread = event.getThread() == null ? "" : event.getThread().getJavaName();
+        if (thread.startsWith("tomcat-handler-") || thread.startsWith("price-hedge-")) {
+            return true;
+        }
+        return event.getStackTrace() != null && event.getStackTrace().getFrames().stream()
+                .anyMatch(frame -> frame.getMethod().getType().getName().startsWith(OUR_PACKAGE));
+    }
+
+    private static String describe(RecordedEvent event) {
+        final String thread = event.getThread() == null ? "unknown thread" : event.getThread().getJavaName();
+        if (event.getStackTrace() == null) {
+            return event.getDuration() + " on " + thread;
+        }
+        return event.getDuration() + " on " + thread + "\n" + event.getStackTrace().getFrames().stream()
+                .map(VirtualThreadPinningIntegrationTest::describeFrame)
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String describeFrame(RecordedFrame frame) {
+        return "    at " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
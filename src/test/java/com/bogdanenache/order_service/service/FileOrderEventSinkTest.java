@@ -0,0 +1,42 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.OrderEvent;
+import com.bogdanenache.order_service.dao.entity.OrderEvent.EventType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileOrderEventSinkTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void publish_shouldAppendOneLinePerEvent_acrossRestarts() throws Exception {
+        Path file = directory.resolve("events/order-events.ndjson");
+
+        FileOrderEventSink sink = new FileOrderEventSink(file);
+        sink.publish(List.of(event("{\"id\":\"a\"}"), event("{\"id\":\"b\"}")));
+        sink.close();
+        FileOrderEventSink restarted = new FileOrderEventSink(file);
+        restarted.publish(List.of(event("{\"id\":\"c\"}")));
+        restarted.close();
+
+        assertEquals(List.of(
+                "{\"type\":\"ORDER_CREATED\",\"order\":{\"id\":\"a\"}}",
+                "{\"type\":\"ORDER_CREATED\",\"order\":{\"id\":\"b\"}}",
+                "{\"type\":\"ORDER_CREATED\",\"order\":{\"id\":\"c\"}}"), Files.readAllLines(file));
+    }
+
+    private static OrderEvent event(String payload) {
+        return OrderEvent.builder()
+                .type(EventType.ORDER_CREATED)
+                .payload(payload.getBytes(StandardCharsets.UTF_8))
+                .build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.bogdanenache.order_service.service;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyKeyFilterTest {
+
+    @Test
+    void mightContain_shouldReportEveryAddedKey() {
+        IdempotencyKeyFilter filter = new IdempotencyKeyFilter(1000, 0.01);
+        String key = UUID.randomUUID().toString();
+
+        assertFalse(filter.mightContain(key));
+        filter.put(key);
+
+        assertTrue(filter.mightContain(key));
+    }
+
+    @Test
+    void mightContain_shouldKeepFalsePositivesNearConfiguredRate() {
+        IdempotencyKeyFilter filter = new IdempotencyKeyFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+
+        // one full generation, expected rate 1%
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void mightContain_shouldForgetKeys_afterTwoRotations() {
+        IdempotencyKeyFilter filter = new IdempotencyKeyFilter(100, 0.000001);
+        String oldest = UUID.randomUUID().toString();
+        filter.put(oldest);
+        for (int i = 1; i < 100; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+        assertTrue(filter.mightContain(oldest));
+
+        for (int i = 0; i < 100; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+
+        assertFalse(filter.mightContain(oldest));
+    }
+}
@@ -1,35 +1,40 @@
 package com.bogdanenache.order_service.service;
 
-import com.bogdanenache.order_service.dao.entity.Order;
-import com.bogdanenache.order_service.dao.repository.OrderRepository;
+import com.bogdanenache.order_service.dao.entity.OrderKey;
+import com.bogdanenache.order_service.dao.repository.OrderKeyRepository;
 import com.bogdanenache.order_service.exception.IdempotencyHeaderException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Optional;
+import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class IdempotencyServiceTest {
 
-    private OrderRepository orderRepository;
+    private OrderKeyRepository orderKeyRepository;
     private IdempotencyService idempotencyService;
 
     @BeforeEach
     void setUp() {
-        orderRepository = mock(OrderRepository.class);
-        idempotencyService = new IdempotencyService(orderRepository);
+        orderKeyRepository = mock(OrderKeyRepository.class);
+        idempotencyService = new IdempotencyService(orderKeyRepository, new SimpleMeterRegistry(), 1000, 0.01);
     }
 
     @Test
     void validateIdempotencyKey_shouldThrowException_whenKeyAlreadyExists() {
         String idempotencyKey = "12345678901234567890123456789012";
-        Order order = new Order();
-        order.setOrderInternalId("orderId");
-        when(orderRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.of(order));
+        OrderKey key = new OrderKey();
+        key.setOrderInternalId(UUID.randomUUID());
+        when(orderKeyRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.of(key));
+        // the first use is not looked up, it only makes the filter see the key
+        idempotencyService.validateIdempotencyKey(idempotencyKey);
 
         IdempotencyHeaderException exception = assertThrows(IdempotencyHeaderException.class,
                 () -> idempotencyService.validateIdempotencyKey(idempotencyKey));
@@ -38,13 +43,23 @@ public class IdempotencyServiceTest {
     }
 
     @Test
-    void validateIdempotencyKey_shouldLogMessage_whenKeyIsAvailable() {
+    void validateIdempotencyKey_shouldSkipLookup_whenKeyWasNotUsedRecently() {
         String idempotencyKey = "12345678901234567890123456789012";
-        when(orderRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
 
         idempotencyService.validateIdempotencyKey(idempotencyKey);
 
-        verify(orderRepository).findByIdempotencyKey(idempotencyKey);
+        verify(orderKeyRepository, never()).findByIdempotencyKey(idempotencyKey);
+    }
+
+    @Test
+    void validateIdempotencyKey_shouldLookUpKey_whenKeyWasUsedRecently() {
+        String idempotencyKey = "12345678901234567890123456789012";
+        when(orderKeyRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
+
+        idempotencyService.validateIdempotencyKey(idempotencyKey);
+        idempotencyService.validateIdempotencyKey(idempotencyKey);
+
+        verify(orderKeyRepository).findByIdempotencyKey(idempotencyKey);
     }
 
     @Test
@@ -0,0 +1,44 @@
+package com.bogdanenache.order_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotentResponsePurgeTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotentResponsePurge responsePurge;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        responsePurge = new IdempotentResponsePurge(jdbcTemplate, meterRegistry, Duration.ofHours(24), Duration.ofHours(1));
+    }
+
+    @Test
+    void purge_shouldDeleteExpiredResponsesInBatches_untilNoneAreLeft() {
+        Instant expiredBefore = Instant.parse("2026-10-17T12:00:00Z");
+        when(jdbcTemplate.update(startsWith("DELETE FROM IDEMPOTENT_RESPONSES"), any(Object[].class)))
+                .thenReturn(IdempotentResponsePurge.BATCH_SIZE, 3);
+
+        responsePurge.purge(expiredBefore);
+
+        verify(jdbcTemplate, times(2)).update(startsWith("DELETE FROM IDEMPOTENT_RESPONSES"), eq(expiredBefore.atOffset(ZoneOffset.UTC)));
+        assertEquals(IdempotentResponsePurge.BATCH_SIZE + 3, meterRegistry.get("idempotency.responses.purged").counter().count());
+    }
+}
@@ -0,0 +1,195 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.IdempotentResponse;
+import com.bogdanenache.order_service.dao.repository.IdempotentResponseRepository;
+import com.bogdanenache.order_service.dto.ErrorResponse;
+import com.bogdanenache.order_service.exception.IdempotencyHeaderException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotentResponseServiceTest {
+
+    private static final String KEY = "12345678901234567890123456789012";
+
+    private IdempotencyService idempotencyService;
+    private IdempotentResponseRepository responseRepo;
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotentResponseService idempotentResponses;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = mock(IdempotencyService.class);
+        responseRepo = mock(IdempotentResponseRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        idempotentResponses = new IdempotentResponseService(idempotencyService, responseRepo, new ObjectMapper(),
+                meterRegistry, Duration.ofHours(1), 100);
+    }
+
+    @Test
+    void respond_shouldReplayStoredBytes_whenKeyIsReused() {
+        AtomicInteger placed = new AtomicInteger();
+        Supplier<ResponseEntity<?>> request = () -> new ResponseEntity<>(Map.of("id", placed.incrementAndGet()), HttpStatus.CREATED);
+
+        ResponseEntity<byte[]> first = idempotentResponses.respond(KEY, request);
+        ResponseEntity<byte[]> second = idempotentResponses.respond(KEY, request);
+
+        assertEquals(1, placed.get());
+        assertEquals(201, second.getStatusCode().value());
+        assertEquals("{\"id\":1}", new String(second.getBody(), StandardCharsets.UTF_8));
+        assertSame(first.getBody(), second.getBody());
+        verify(responseRepo, times(1)).save(any());
+        assertEquals(1, meterRegistry.counter("idempotency.responses.replayed", "source", "cache").count());
+    }
+
+    @Test
+    void respond_shouldWaitForRequestInFlight_insteadOfRunningItAgain() throws Exception {
+        AtomicInteger placed = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<ResponseEntity<?>> request = () -> {
+            placed.incrementAndGet();
+            started.countDown();
+            await(release);
+            return new ResponseEntity<>(Map.of("id", 1), HttpStatus.CREATED);
+        };
+
+        CompletableFuture<ResponseEntity<byte[]>> first = CompletableFuture.supplyAsync(() -> idempotentResponses.respond(KEY, request));
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<ResponseEntity<byte[]>> duplicate = CompletableFuture.supplyAsync(() -> idempotentResponses.respond(KEY, request));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertArrayEquals(first.get(5, TimeUnit.SECONDS).getBody(), duplicate.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals(1, placed.get());
+    }
+
+    @Test
+    void respond_shouldNotStoreServerErrors() {
+        AtomicInteger placed = new AtomicInteger();
+        Supplier<ResponseEntity<?>> request = () -> {
+            placed.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ErrorResponse("SERVICE_UNAVAILABLE", "Service is currently unavailable"));
+        };
+
+        idempotentResponses.respond(KEY, request);
+        ResponseEntity<byte[]> retried = idempotentResponses.respond(KEY, request);
+
+        assertEquals(2, placed.get());
+        assertEquals(503, retried.getStatusCode().value());
+        verify(responseRepo, never()).save(any());
+    }
+
+    @Test
+    void respond_shouldNotStoreTooManyRequests() {
+        AtomicInteger placed = new AtomicInteger();
+        Supplier<ResponseEntity<?>> request = () -> placed.incrementAndGet() == 1
+                ? ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(new ErrorResponse("TOO_MANY_REQUESTS", "Too many requests"))
+                : ResponseEntity.status(HttpStatus.ACCEPTED).body("accepted");
+
+        idempotentResponses.respond(KEY, request);
+        ResponseEntity<byte[]> retried = idempotentResponses.respond(KEY, request);
+
+        assertEquals(2, placed.get());
+        assertEquals(202, retried.getStatusCode().value());
+        verify(responseRepo, times(1)).save(any());
+    }
+
+    @Test
+    void respond_shouldReplayResponseFromDatabase_whenKeyIsNotCached() {
+        byte[] body = "{\"id\":\"stored\"}".getBytes(StandardCharsets.UTF_8);
+        when(responseRepo.findById(KEY)).thenReturn(Optional.of(stored(body)));
+
+        ResponseEntity<byte[]> response = idempotentResponses.respond(KEY, () -> {
+            throw new AssertionError("order must not be placed again");
+        });
+
+        assertEquals(201, response.getStatusCode().value());
+        assertArrayEquals(body, response.getBody());
+        verify(idempotencyService, never()).validateIdempotencyKey(KEY);
+    }
+
+    @Test
+    void respond_shouldReplayResponseFromDatabase_whenInsertFindsKeyUsed() {
+        byte[] body = "{\"id\":\"stored\"}".getBytes(StandardCharsets.UTF_8);
+        when(responseRepo.findById(KEY)).thenReturn(Optional.of(stored(body)));
+
+        ResponseEntity<byte[]> response = idempotentResponses.respond(KEY, () -> {
+            throw new IdempotencyHeaderException("Idempotency key " + KEY + " is already used.");
+        });
+
+        assertArrayEquals(body, response.getBody());
+    }
+
+    @Test
+    void respond_shouldRethrow_whenKeyIsUsedAndNoResponseIsStored() {
+        doThrow(new IdempotencyHeaderException("Idempotency key " + KEY + " is already used."))
+                .when(idempotencyService).validateIdempotencyKey(KEY);
+        when(responseRepo.findById(KEY)).thenReturn(Optional.empty());
+
+        assertThrows(IdempotencyHeaderException.class,
+                () -> idempotentResponses.respond(KEY, () -> new ResponseEntity<>(HttpStatus.CREATED)));
+    }
+
+    @Test
+    void respond_shouldOnlyCacheResponse_whenItWasSavedWithTheOrder() {
+        AtomicInteger placed = new AtomicInteger();
+        Supplier<ResponseEntity<?>> request = () -> {
+            placed.incrementAndGet();
+            IdempotentResponse saved = idempotentResponses.prepare(KEY, HttpStatus.CREATED, Map.of("id", 1));
+            assertEquals("{\"id\":1}", new String(saved.getBody(), StandardCharsets.UTF_8));
+            return new ResponseEntity<>(Map.of("id", 1), HttpStatus.CREATED);
+        };
+
+        ResponseEntity<byte[]> first = idempotentResponses.respond(KEY, request);
+        ResponseEntity<byte[]> retried = idempotentResponses.respond(KEY, request);
+
+        assertEquals(1, placed.get());
+        assertEquals(201, first.getStatusCode().value());
+        assertSame(first.getBody(), retried.getBody());
+        verify(responseRepo, never()).save(any());
+    }
+
+    private static IdempotentResponse stored(byte[] body) {
+        return IdempotentResponse.builder()
+                .idempotencyKey(KEY)
+                .status(201)
+                .body(body)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
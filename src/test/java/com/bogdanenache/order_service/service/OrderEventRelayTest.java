@@ -0,0 +1,95 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.OrderEvent;
+import com.bogdanenache.order_service.dao.repository.OrderEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderEventRelayTest {
+
+    private static final int BATCH_SIZE = 3;
+
+    private OrderEventRepository orderEventRepo;
+    private InMemoryOrderEventSink sink;
+    private PlatformTransactionManager transactionManager;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderEventRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        orderEventRepo = mock(OrderEventRepository.class);
+        sink = new InMemoryOrderEventSink();
+        transactionManager = mock(PlatformTransactionManager.class);
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new OrderEventRelay(orderEventRepo, sink, transactionManager, meterRegistry, BATCH_SIZE, Duration.ofMillis(100));
+    }
+
+    @Test
+    void drain_shouldPublishAndDeleteBatches_untilBatchIsNotFull() {
+        List<OrderEvent> full = events(1, 3);
+        List<OrderEvent> last = events(4, 5);
+        when(orderEventRepo.lockOldest(BATCH_SIZE)).thenReturn(full, last);
+
+        assertEquals(5, relay.drain());
+
+        assertEquals(5, sink.published().size());
+        verify(orderEventRepo).deleteAll(full);
+        verify(orderEventRepo).deleteAll(last);
+        verify(transactionManager, times(2)).commit(any());
+        assertEquals(5, meterRegistry.get("order.outbox.published").counter().count());
+        assertEquals(2, meterRegistry.get("order.outbox.batch.size").summary().count());
+        assertEquals(5, meterRegistry.get("order.outbox.lag").timer().count());
+        assertTrue(meterRegistry.get("order.outbox.oldest.age").gauge().value() >= 60_000);
+    }
+
+    @Test
+    void drain_shouldResetOldestAge_whenOutboxIsEmpty() {
+        when(orderEventRepo.lockOldest(BATCH_SIZE)).thenReturn(events(1, 1), List.of());
+
+        relay.drain();
+        relay.drain();
+
+        assertEquals(0, meterRegistry.get("order.outbox.oldest.age").gauge().value());
+        verify(orderEventRepo, times(1)).deleteAll(anyList());
+    }
+
+    @Test
+    void relayBatch_shouldKeepEvents_whenSinkFails() {
+        OrderEventSink failingSink = mock(OrderEventSink.class);
+        doThrow(new IllegalStateException("sink down")).when(failingSink).publish(anyList());
+        relay = new OrderEventRelay(orderEventRepo, failingSink, transactionManager, meterRegistry, BATCH_SIZE, Duration.ofMillis(100));
+        when(orderEventRepo.lockOldest(BATCH_SIZE)).thenReturn(events(1, 2));
+
+        assertThrows(IllegalStateException.class, () -> relay.relayBatch());
+
+        verify(orderEventRepo, never()).deleteAll(anyList());
+        verify(transactionManager).rollback(any());
+        assertEquals(0, meterRegistry.get("order.outbox.published").counter().count());
+    }
+
+    private static List<OrderEvent> events(long first, long last) {
+        // placed a minute ago, so the measured lag is at least that
+        Instant createdAt = Instant.now().minusSeconds(60);
+        return LongStream.rangeClosed(first, last)
+                .<OrderEvent>mapToObj(id -> OrderEvent.builder().id(id).type(OrderEvent.EventType.ORDER_CREATED).createdAt(createdAt).build())
+                .toList();
+    }
+}
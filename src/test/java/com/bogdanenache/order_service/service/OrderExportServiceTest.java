@@ -0,0 +1,107 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.Order.OrderSide;
+import com.bogdanenache.order_service.dao.entity.Order.OrderStatus;
+import com.bogdanenache.order_service.dao.repository.OrderRepository;
+import com.bogdanenache.order_service.dao.repository.OrderView;
+import com.bogdanenache.order_service.dto.OrderDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderExportServiceTest {
+
+    private static final UUID FIRST = UUID.fromString("01a14f18-fc80-7000-8000-000000000001");
+    private static final UUID SECOND = UUID.fromString("01a14f18-fc80-7000-8000-000000000002");
+    private static final UUID EXECUTION_ID = UUID.fromString("01a14f18-fc80-7000-8000-000000000003");
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private OrderRepository orderRepo;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderExportService orderExportService;
+
+    @BeforeEach
+    void setUp() {
+        orderRepo = mock(OrderRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        orderExportService = new OrderExportService(orderRepo, objectMapper, meterRegistry);
+    }
+
+    @Test
+    void exportOrders_shouldWriteOneOrderPerLine() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(orderRepo.streamByAccountId("accountId"))
+                .thenReturn(Stream.of(view(FIRST, EXECUTION_ID), view(SECOND, null)).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = orderExportService.exportOrders("accountId", out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertEquals(2, rows);
+        assertEquals(3, lines.length);
+        assertEquals("", lines[2]);
+        OrderDTO first = objectMapper.readValue(lines[0], OrderDTO.class);
+        assertEquals(FIRST.toString(), first.id());
+        assertEquals(FIRST.toString(), first.execution().orderId());
+        assertNull(objectMapper.readValue(lines[1], OrderDTO.class).execution());
+        assertTrue(closed.get());
+        assertEquals(2, meterRegistry.counter("order.export.rows").count());
+    }
+
+    @Test
+    void exportOrders_shouldWriteNothing_whenAccountHasNoOrders() throws IOException {
+        when(orderRepo.streamByAccountId("accountId")).thenReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, orderExportService.exportOrders("accountId", out));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void exportOrders_shouldCloseCursorButNotResponse_whenClientDisconnects() {
+        AtomicBoolean cursorClosed = new AtomicBoolean();
+        AtomicBoolean responseClosed = new AtomicBoolean();
+        when(orderRepo.streamByAccountId("accountId"))
+                .thenReturn(Stream.generate(() -> view(FIRST, EXECUTION_ID)).onClose(() -> cursorClosed.set(true)));
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void close() {
+                responseClosed.set(true);
+            }
+        };
+
+        assertThrows(IOException.class, () -> orderExportService.exportOrders("accountId", disconnected));
+        assertTrue(cursorClosed.get());
+        assertFalse(responseClosed.get());
+    }
+
+    private static OrderView view(UUID internalId, UUID executionInternalId) {
+        Instant now = Instant.now();
+        return new OrderView(1L, internalId, "accountId", "AAPL", OrderSide.BUY, 5,
+                executionInternalId == null ? OrderStatus.FAILED : OrderStatus.PROCESSED, now,
+                executionInternalId, executionInternalId == null ? null : 150_250_000L, now);
+    }
+}
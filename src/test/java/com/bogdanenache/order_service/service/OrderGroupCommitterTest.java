@@ -0,0 +1,280 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.IdempotentResponse;
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.entity.OrderEvent;
+import com.bogdanenache.order_service.dao.entity.OrderKey;
+import com.bogdanenache.order_service.dao.repository.IdempotentResponseBatchRepository;
+import com.bogdanenache.order_service.dao.repository.OrderBatchRepository;
+import com.bogdanenache.order_service.dao.repository.OrderEventRepository;
+import com.bogdanenache.order_service.dao.repository.OrderInsertRepository;
+import com.bogdanenache.order_service.dao.repository.OrderKeyRepository;
+import com.bogdanenache.order_service.dao.repository.OrderRepository;
+import com.bogdanenache.order_service.dao.repository.PositionRepository;
+import com.bogdanenache.order_service.exception.IdempotencyHeaderException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderGroupCommitterTest {
+
+    private OrderRepository orderRepo;
+    private OrderKeyRepository orderKeyRepo;
+    private OrderBatchRepository orderBatchRepo;
+    private OrderInsertRepository orderInsertRepo;
+    private OrderEventRepository orderEventRepo;
+    private OrderEvents orderEvents;
+    private PositionRepository positionRepo;
+    private IdempotentResponseBatchRepository responseRepo;
+    private PlatformTransactionManager transactionManager;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderGroupCommitter orderCommitter;
+
+    @BeforeEach
+    void setUp() {
+        orderRepo = mock(OrderRepository.class);
+        orderKeyRepo = mock(OrderKeyRepository.class);
+        orderBatchRepo = mock(OrderBatchRepository.class);
+        orderInsertRepo = mock(OrderInsertRepository.class);
+        orderEventRepo = mock(OrderEventRepository.class);
+        orderEvents = mock(OrderEvents.class);
+        when(orderEvents.created(any())).thenAnswer(invocation -> event(invocation.getArgument(0)));
+        positionRepo = mock(PositionRepository.class);
+        responseRepo = mock(IdempotentResponseBatchRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        meterRegistry = new SimpleMeterRegistry();
+        orderCommitter = committer(Duration.ofMillis(50), 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderCommitter.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void submit_shouldWriteOrdersWithinWindow_inOneTransaction() throws Exception {
+        Order first = order("first-key");
+        Order second = order("second-key");
+
+        CompletableFuture<Order> firstSaved = orderCommitter.submit(first, response(first));
+        CompletableFuture<Order> secondSaved = orderCommitter.submit(second, response(second));
+
+        assertSame(first, firstSaved.get(5, TimeUnit.SECONDS));
+        assertSame(second, secondSaved.get(5, TimeUnit.SECONDS));
+        ArgumentCaptor<List<Order>> orders = ArgumentCaptor.forClass(List.class);
+        verify(orderBatchRepo, times(1)).insertAll(orders.capture());
+        assertEquals(List.of(first, second), orders.getValue());
+        ArgumentCaptor<List<OrderEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(orderEventRepo, times(1)).insertAll(events.capture());
+        assertEquals(List.of(first.getIdempotencyKey(), second.getIdempotencyKey()),
+                events.getValue().stream().map(OrderEvent::getAccountId).toList());
+        verify(positionRepo, times(1)).addAll(List.of(first, second));
+        ArgumentCaptor<List<IdempotentResponse>> responses = ArgumentCaptor.forClass(List.class);
+        verify(responseRepo, times(1)).insertAll(responses.capture());
+        assertEquals(List.of("first-key", "second-key"), responses.getValue().stream().map(IdempotentResponse::getIdempotencyKey).toList());
+        verify(transactionManager, times(1)).commit(any());
+        assertEquals(1, meterRegistry.get("order.group-commit.size").summary().count());
+        assertEquals(2, meterRegistry.get("order.group-commit.size").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("order.group-commit.flush.latency").timer().count());
+    }
+
+    @Test
+    void submit_shouldFlushImmediately_whenMaxSizeIsReached() throws Exception {
+        orderCommitter.shutdown();
+        orderCommitter = committer(Duration.ofMinutes(1), 3);
+
+        orderCommitter.submit(new Order(), new IdempotentResponse());
+        orderCommitter.submit(new Order(), new IdempotentResponse());
+        CompletableFuture<Order> third = orderCommitter.submit(new Order(), new IdempotentResponse());
+
+        third.get(5, TimeUnit.SECONDS);
+        verify(orderBatchRepo, times(1)).insertAll(anyList());
+    }
+
+    @Test
+    void submit_shouldSaveOrdersOneByOne_whenGroupCannotBeWritten() throws Exception {
+        Order valid = new Order();
+        Order duplicate = new Order();
+        doThrow(new DataIntegrityViolationException("duplicate key")).when(orderBatchRepo).insertAll(anyList());
+        when(orderRepo.save(valid)).thenReturn(valid);
+        when(orderRepo.save(duplicate)).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        CompletableFuture<Order> validSaved = orderCommitter.submit(valid, response(valid));
+        CompletableFuture<Order> duplicateSaved = orderCommitter.submit(duplicate, response(duplicate));
+
+        assertSame(valid, validSaved.get(5, TimeUnit.SECONDS));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> duplicateSaved.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DataIntegrityViolationException.class, failure.getCause());
+        // the group and the duplicate saved alone
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void submit_shouldFailOrder_whenInsertSkipsItsUsedIdempotencyKey() throws Exception {
+        Order fresh = order("fresh-key");
+        Order reused = order("reused-key");
+        when(orderBatchRepo.insertAll(anyList())).thenReturn(List.of(reused));
+
+        CompletableFuture<Order> freshSaved = orderCommitter.submit(fresh, response(fresh));
+        CompletableFuture<Order> reusedSaved = orderCommitter.submit(reused, response(reused));
+
+        assertSame(fresh, freshSaved.get(5, TimeUnit.SECONDS));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> reusedSaved.get(5, TimeUnit.SECONDS));
+        assertEquals("Idempotency key reused-key is already used.", failure.getCause().getMessage());
+        ArgumentCaptor<List<OrderEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(orderEventRepo).insertAll(events.capture());
+        assertEquals(List.of("fresh-key"), events.getValue().stream().map(OrderEvent::getAccountId).toList());
+        ArgumentCaptor<List<Order>> positions = ArgumentCaptor.forClass(List.class);
+        verify(positionRepo).addAll(positions.capture());
+        assertEquals(List.of(fresh), positions.getValue());
+        ArgumentCaptor<List<IdempotentResponse>> responses = ArgumentCaptor.forClass(List.class);
+        verify(responseRepo).insertAll(responses.capture());
+        assertEquals(List.of("fresh-key"), responses.getValue().stream().map(IdempotentResponse::getIdempotencyKey).toList());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void save_shouldRejectOrder_whenIdempotencyKeyConstraintIsViolated() {
+        orderCommitter.shutdown();
+        orderCommitter = aloneCommitter(false);
+        Order order = order("reused-key");
+        when(orderKeyRepo.save(any())).thenThrow(new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", new SQLException(), "uq_ord_idempotency_key")));
+
+        IdempotencyHeaderException exception = assertThrows(IdempotencyHeaderException.class, () -> orderCommitter.save(order, response(order)));
+
+        assertEquals("Idempotency key reused-key is already used.", exception.getMessage());
+        verify(orderRepo, never()).save(order);
+        verify(orderEventRepo, never()).insertAll(anyList());
+        verify(positionRepo, never()).addAll(anyList());
+    }
+
+    @Test
+    void save_shouldSaveThroughRepository_whenGroupCommitIsDisabled() {
+        orderCommitter.shutdown();
+        orderCommitter = aloneCommitter(false);
+        Order order = new Order();
+        when(orderRepo.save(order)).thenReturn(order);
+
+        assertSame(order, orderCommitter.save(order, response(order)));
+        verify(orderKeyRepo).save(any(OrderKey.class));
+        verify(orderEventRepo).insertAll(anyList());
+        verify(responseRepo).insertAll(anyList());
+        verify(positionRepo).addAll(List.of(order));
+        verify(orderBatchRepo, never()).insertAll(anyList());
+    }
+
+    @Test
+    void save_shouldInsertWithoutJpa_whenLeanWritesAreEnabled() {
+        orderCommitter.shutdown();
+        orderCommitter = aloneCommitter(true);
+        Order order = order("fresh-key");
+        when(orderInsertRepo.insert(order)).thenReturn(true);
+
+        assertSame(order, orderCommitter.save(order, response(order)));
+        verify(orderEventRepo).insertAll(anyList());
+        verify(responseRepo).insertAll(anyList());
+        verify(positionRepo).addAll(List.of(order));
+        verify(orderKeyRepo, never()).save(any());
+        verify(orderRepo, never()).save(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void save_shouldRejectOrder_whenLeanInsertFindsItsIdempotencyKeyUsed() {
+        orderCommitter.shutdown();
+        orderCommitter = aloneCommitter(true);
+        Order order = order("reused-key");
+        when(orderInsertRepo.insert(order)).thenReturn(false);
+
+        IdempotencyHeaderException exception = assertThrows(IdempotencyHeaderException.class, () -> orderCommitter.save(order, response(order)));
+
+        assertEquals("Idempotency key reused-key is already used.", exception.getMessage());
+        verify(orderEventRepo, never()).insertAll(anyList());
+        verify(responseRepo, never()).insertAll(anyList());
+        verify(positionRepo, never()).addAll(anyList());
+    }
+
+    @Test
+    void save_shouldRejectOrder_whenResponseIsAlreadyStoredForItsIdempotencyKey() {
+        orderCommitter.shutdown();
+        orderCommitter = aloneCommitter(true);
+        Order order = order("rejected-key");
+        when(orderInsertRepo.insert(order)).thenReturn(true);
+        doThrow(new DuplicateKeyException("duplicate key", new PSQLException(
+                new ServerErrorMessage("SERROR\0C23505\0Mduplicate key\0tidempotent_responses\0"))))
+                .when(responseRepo).insertAll(anyList());
+
+        IdempotencyHeaderException exception = assertThrows(IdempotencyHeaderException.class, () -> orderCommitter.save(order, response(order)));
+
+        assertEquals("Idempotency key rejected-key is already used.", exception.getMessage());
+        verify(positionRepo, never()).addAll(anyList());
+    }
+
+    @Test
+    void save_shouldRethrow_whenAnotherConstraintIsViolated() {
+        orderCommitter.shutdown();
+        orderCommitter = aloneCommitter(true);
+        Order order = order("fresh-key");
+        when(orderInsertRepo.insert(order)).thenReturn(true);
+        doThrow(new DuplicateKeyException("duplicate key", new PSQLException(
+                new ServerErrorMessage("SERROR\0C23505\0Mduplicate key\0torder_events\0"))))
+                .when(orderEventRepo).insertAll(anyList());
+
+        assertThrows(DuplicateKeyException.class, () -> orderCommitter.save(order, response(order)));
+    }
+
+    // the events carry the idempotency key of their order as account, telling which order they were built for
+    private static OrderEvent event(Order order) {
+        return OrderEvent.builder().accountId(order.getIdempotencyKey()).build();
+    }
+
+    private static IdempotentResponse response(Order order) {
+        return IdempotentResponse.builder().idempotencyKey(order.getIdempotencyKey()).build();
+    }
+
+    private static Order order(String idempotencyKey) {
+        Order order = new Order();
+        order.setIdempotencyKey(idempotencyKey);
+        return order;
+    }
+
+    private OrderGroupCommitter committer(Duration window, int maxSize) {
+        return new OrderGroupCommitter(orderRepo, orderKeyRepo, orderBatchRepo, orderInsertRepo, orderEventRepo, orderEvents, positionRepo,
+                responseRepo, transactionManager, meterRegistry, true, false, window, maxSize, 1);
+    }
+
+    private OrderGroupCommitter aloneCommitter(boolean leanWrites) {
+        return new OrderGroupCommitter(orderRepo, orderKeyRepo, orderBatchRepo, orderInsertRepo, orderEventRepo, orderEvents, positionRepo,
+                responseRepo, transactionManager, meterRegistry, false, leanWrites, Duration.ofMillis(50), 3, 1);
+    }
+}
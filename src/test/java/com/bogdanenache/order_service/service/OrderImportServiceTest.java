@@ -0,0 +1,221 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dao.entity.ImportCheckpoint;
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.repository.ImportCheckpointRepository;
+import com.bogdanenache.order_service.dao.repository.OrderCopyRepository;
+import com.bogdanenache.order_service.dao.repository.PositionRepository;
+import com.bogdanenache.order_service.dto.FixedPrice;
+import com.bogdanenache.order_service.dto.ImportFormat;
+import com.bogdanenache.order_service.dto.ImportResult;
+import com.bogdanenache.order_service.exception.BadRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderImportServiceTest {
+
+    private static final String HEADER = "accountId,symbol,side,quantity,createdAt,price";
+    private static final String ACCOUNT_ID = "dba7eb37-1d9c-41b8-912b-20259d087815";
+
+    private OrderCopyRepository orderCopyRepo;
+    private ImportCheckpointRepository checkpointRepo;
+    private PositionRepository positionRepo;
+    private PartitionMaintenance partitionMaintenance;
+    private SimpleMeterRegistry meterRegistry;
+    private List<List<Order>> copied;
+    private AtomicReference<ImportCheckpoint> checkpoint;
+    private OrderImportService importService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        orderCopyRepo = mock(OrderCopyRepository.class);
+        checkpointRepo = mock(ImportCheckpointRepository.class);
+        positionRepo = mock(PositionRepository.class);
+        partitionMaintenance = mock(PartitionMaintenance.class);
+        ObjectProvider<PartitionMaintenance> partitions = mock(ObjectProvider.class);
+        when(partitions.getIfAvailable()).thenReturn(partitionMaintenance);
+        meterRegistry = new SimpleMeterRegistry();
+        copied = new ArrayList<>();
+        // the chunk list is reused by the service, a copy is kept for the assertions
+        doAnswer(invocation -> {
+            List<Order> chunk = invocation.getArgument(0);
+            copied.add(List.copyOf(chunk));
+            return (long) chunk.size();
+        }).when(orderCopyRepo).copyAll(anyList());
+        // the checkpoint repository keeps what was saved, like the table would
+        checkpoint = new AtomicReference<>();
+        when(checkpointRepo.findById("import")).thenReturn(Optional.empty());
+        when(checkpointRepo.findForUpdate("import")).thenAnswer(invocation -> Optional.ofNullable(checkpoint.get()));
+        when(checkpointRepo.save(any())).thenAnswer(invocation -> {
+            checkpoint.set(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        importService = new OrderImportService(orderCopyRepo, checkpointRepo, positionRepo, partitions,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper().findAndRegisterModules(),
+                mock(PlatformTransactionManager.class), meterRegistry, 2);
+    }
+
+    @Test
+    void importOrders_shouldCopyValidRecordsInChunks_andRejectInvalidOnes() throws Exception {
+        ImportResult result = importService.importOrders("import", ImportFormat.CSV, csv(
+                row("AAPL", "BUY", "10", "2019-03-01T10:15:30Z", "150.25"),
+                row("AAPL", "HOLD", "10", "2019-03-01T10:15:31Z", "150.25"),
+                row("MSFT", "SELL", "0", "2019-03-01T10:15:32Z", "310.5"),
+                row("MSFT", "SELL", "5", "2019-04-02T08:00:00Z", "310.5"),
+                row("MSFT", "SELL", "5", "not-a-time", "310.5")));
+
+        assertEquals(new ImportResult("import", 0, 2, 3, result.rowsPerSecond()), result);
+        assertEquals(2, copied.size());
+        assertEquals(1, copied.get(0).size());
+        Order first = copied.get(0).getFirst();
+        assertEquals(Instant.parse("2019-03-01T10:15:30Z"), first.getCreatedAt());
+        assertEquals(FixedPrice.of(new BigDecimal("150.25")), first.getExecution().getPrice());
+        assertEquals(first.getOrderInternalId().toString(), first.getIdempotencyKey());
+        assertEquals(Instant.parse("2019-03-01T10:15:30Z").toEpochMilli(), first.getOrderInternalId().getMostSignificantBits() >>> 16);
+        assertEquals(1, copied.get(1).size());
+        verify(partitionMaintenance).createPartitions(LocalDate.of(2019, 3, 1), LocalDate.of(2019, 3, 1));
+        verify(partitionMaintenance).createPartitions(LocalDate.of(2019, 4, 2), LocalDate.of(2019, 4, 2));
+        // the last chunk only held a rejected record, it advances the checkpoint without a COPY
+        verify(checkpointRepo, times(3)).save(any());
+        verify(positionRepo, times(2)).addAll(anyList());
+        assertEquals(5, checkpoint.get().getRecords());
+        assertEquals(2, checkpoint.get().getImported());
+        assertEquals(3, checkpoint.get().getRejected());
+        assertEquals(2, meterRegistry.get("order.import.rows").tag("result", "imported").counter().count());
+        assertEquals(3, meterRegistry.get("order.import.rows").tag("result", "rejected").counter().count());
+    }
+
+    @Test
+    void importOrders_shouldCheckpointRejectedRecordsWithNextChunk() throws Exception {
+        importService.importOrders("import", ImportFormat.CSV, csv(
+                row("AAPL", "HOLD", "1", "2019-03-01T10:15:30Z", "150.25"),
+                row("AAPL", "BUY", "0", "2019-03-01T10:15:31Z", "150.25"),
+                row("AAPL", "BUY", "3", "2019-03-01T10:15:32Z", "150.25"),
+                row("AAPL", "BUY", "4", "2019-03-01T10:15:33Z", "150.25")));
+
+        assertEquals(2, copied.size());
+        assertEquals(3, copied.get(0).getFirst().getQuantity());
+        assertEquals(4, copied.get(1).getFirst().getQuantity());
+        verify(checkpointRepo, times(2)).save(any());
+        assertEquals(4, checkpoint.get().getRecords());
+        assertEquals(2, checkpoint.get().getImported());
+        assertEquals(2, checkpoint.get().getRejected());
+    }
+
+    @Test
+    void importOrders_shouldSkipCommittedRecords_whenResumed() throws Exception {
+        checkpoint.set(ImportCheckpoint.builder().importId("import").records(2).imported(2).build());
+        when(checkpointRepo.findById("import")).thenReturn(Optional.of(checkpoint.get()));
+
+        ImportResult result = importService.importOrders("import", ImportFormat.CSV, csv(
+                row("AAPL", "BUY", "1", "2019-03-01T10:15:30Z", "150.25"),
+                row("AAPL", "BUY", "2", "2019-03-01T10:15:31Z", "150.25"),
+                row("AAPL", "BUY", "3", "2019-03-01T10:15:32Z", "150.25")));
+
+        assertEquals(2, result.resumedFrom());
+        assertEquals(1, result.imported());
+        assertEquals(3, copied.getFirst().getFirst().getQuantity());
+        assertEquals(3, checkpoint.get().getRecords());
+        assertEquals(3, checkpoint.get().getImported());
+    }
+
+    @Test
+    void importOrders_shouldFail_whenAnotherRunAdvancedTheCheckpoint() {
+        checkpoint.set(ImportCheckpoint.builder().importId("import").records(2).build());
+
+        assertThrows(BadRequestException.class, () -> importService.importOrders("import", ImportFormat.CSV, csv(
+                row("AAPL", "BUY", "1", "2019-03-01T10:15:30Z", "150.25"))));
+
+        verify(orderCopyRepo, never()).copyAll(anyList());
+        verify(positionRepo, never()).addAll(anyList());
+        verify(checkpointRepo, never()).save(any());
+        assertEquals(2, checkpoint.get().getRecords());
+    }
+
+    @Test
+    void importOrders_shouldReadExportedOrders_fromNdjson() throws Exception {
+        UUID id = UUID.randomUUID();
+
+        ImportResult result = importService.importOrders("import", ImportFormat.NDJSON, input(exported(id, "PROCESSED") + "\n\n{broken\n"));
+
+        assertEquals(1, result.imported());
+        assertEquals(1, result.rejected());
+        assertEquals(id, copied.getFirst().getFirst().getOrderInternalId());
+    }
+
+    @Test
+    void importOrders_shouldOnlyAddProcessedOrdersToPositions() throws Exception {
+        importService.importOrders("import", ImportFormat.NDJSON,
+                input(exported(UUID.randomUUID(), "PROCESSED") + "\n" + exported(UUID.randomUUID(), "FAILED") + "\n"));
+
+        List<Order> imported = copied.getFirst();
+        assertEquals(2, imported.size());
+        verify(positionRepo).addAll(List.of(imported.getFirst()));
+    }
+
+    @Test
+    void importOrders_shouldRejectPendingOrders() throws Exception {
+        ImportResult result = importService.importOrders("import", ImportFormat.NDJSON, input(exported(UUID.randomUUID(), "PENDING") + "\n"));
+
+        assertEquals(0, result.imported());
+        assertEquals(1, result.rejected());
+        verify(orderCopyRepo, never()).copyAll(anyList());
+    }
+
+    @Test
+    void importOrders_shouldRejectInput_whenHeaderMissesAColumn() {
+        assertThrows(BadRequestException.class,
+                () -> importService.importOrders("import", ImportFormat.CSV, input("accountId,symbol,side,quantity,createdAt\n")));
+    }
+
+    @Test
+    void splitCsv_shouldUnquoteFields() {
+        assertEquals(List.of("a", "b,c", "say \"hi\"", ""), OrderImportService.splitCsv("a,\"b,c\",\"say \"\"hi\"\"\","));
+    }
+
+    private static String exported(UUID id, String status) {
+        return "{\"id\":\"" + id + "\",\"accountId\":\"" + ACCOUNT_ID + "\",\"symbol\":\"AAPL\",\"side\":\"BUY\","
+                + "\"quantity\":4,\"status\":\"" + status + "\",\"createdAt\":\"2019-03-01T10:15:30Z\",\"execution\":{\"id\":\""
+                + UUID.randomUUID() + "\",\"orderId\":\"" + id + "\",\"price\":150.25,\"createdAt\":\"2019-03-01T10:15:30Z\"}}";
+    }
+
+    private static String row(String symbol, String side, String quantity, String createdAt, String price) {
+        return String.join(",", ACCOUNT_ID, symbol, side, quantity, createdAt, price);
+    }
+
+    private static InputStream csv(String... rows) {
+        return input(HEADER + "\n" + String.join("\n", rows) + "\n");
+    }
+
+    private static InputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
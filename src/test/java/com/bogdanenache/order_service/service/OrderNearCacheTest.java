@@ -0,0 +1,98 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dto.ExecutionDTO;
+import com.bogdanenache.order_service.dto.OrderDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNearCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private SimpleMeterRegistry meterRegistry;
+    private OrderNearCache orderCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        orderCache = new OrderNearCache(objectMapper, meterRegistry, true, DataSize.ofMegabytes(1));
+    }
+
+    @Test
+    void get_shouldReturnEncodedOrder_whenOrderWasPut() throws Exception {
+        OrderDTO order = order("internalId");
+
+        byte[] encoded = bytes(orderCache.put("internalId", order));
+        ByteBuffer cached = orderCache.get("internalId");
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(order), encoded);
+        assertTrue(cached.isDirect());
+        assertTrue(cached.isReadOnly());
+        assertArrayEquals(encoded, bytes(cached));
+        // reading a hit does not move the buffer the next hit gets
+        assertArrayEquals(encoded, bytes(orderCache.get("internalId")));
+        assertEquals(order, objectMapper.readValue(bytes(orderCache.get("internalId")), OrderDTO.class));
+    }
+
+    @Test
+    void get_shouldReturnNull_whenOrderIsNotCached() {
+        assertNull(orderCache.get("unknown"));
+    }
+
+    @Test
+    void put_shouldOnlyEncode_whenCacheIsDisabled() {
+        meterRegistry = new SimpleMeterRegistry();
+        orderCache = new OrderNearCache(objectMapper, meterRegistry, false, DataSize.ofMegabytes(1));
+
+        ByteBuffer encoded = orderCache.put("internalId", order("internalId"));
+
+        assertTrue(encoded.remaining() > 0);
+        assertEquals(0, meterRegistry.get("order.cache.off-heap.bytes").gauge().value());
+        assertNull(orderCache.get("internalId"));
+    }
+
+    @Test
+    void cache_shouldPublishHitRatioAndOffHeapSize() {
+        ByteBuffer encoded = orderCache.put("internalId", order("internalId"));
+        orderCache.get("internalId");
+        orderCache.get("unknown");
+
+        assertEquals(0.5, meterRegistry.get("order.cache.hit.ratio").gauge().value());
+        assertEquals(encoded.remaining(), meterRegistry.get("order.cache.off-heap.bytes").gauge().value());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "orderCache").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void cache_shouldEvictOnCaller_whenMaximumSizeIsReached() {
+        meterRegistry = new SimpleMeterRegistry();
+        orderCache = new OrderNearCache(objectMapper, meterRegistry, true, DataSize.ofBytes(300));
+
+        orderCache.put("first", order("first"));
+        orderCache.put("second", order("second"));
+
+        assertEquals(1, meterRegistry.get("cache.evictions").tag("cache", "orderCache").functionCounter().count());
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static OrderDTO order(String internalId) {
+        Instant now = Instant.parse("2026-10-18T13:00:00Z");
+        return new OrderDTO(internalId, "accountId", "AAPL", "BUY", 10, "PROCESSED", now,
+                new ExecutionDTO("executionId", internalId, new BigDecimal("150.250000"), now));
+    }
+}
@@ -0,0 +1,303 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.BaseTest;
+import com.bogdanenache.order_service.dao.entity.Order;
+import com.bogdanenache.order_service.dao.entity.Order.OrderSide;
+import com.bogdanenache.order_service.dao.entity.Order.OrderStatus;
+import com.bogdanenache.order_service.dao.repository.IdempotentResponseBatchRepository;
+import com.bogdanenache.order_service.dao.repository.IdempotentResponseRepository;
+import com.bogdanenache.order_service.dao.repository.OrderBatchRepository;
+import com.bogdanenache.order_service.dao.repository.OrderEventRepository;
+import com.bogdanenache.order_service.dao.repository.OrderInsertRepository;
+import com.bogdanenache.order_service.dao.repository.PositionRepository;
+import com.bogdanenache.order_service.dto.OrderOutcome;
+import com.bogdanenache.order_service.dto.OrderOutcome.Accepted;
+import com.bogdanenache.order_service.dto.PriceResult.FeedUnavailable;
+import com.bogdanenache.order_service.dto.PriceResult.Priced;
+import com.bogdanenache.order_service.dto.PriceResult.UnknownSymbol;
+import com.bogdanenache.order_service.dto.PriceSnapshot;
+import com.bogdanenache.order_service.exception.IdempotencyHeaderException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderPipelineTest extends BaseTest {
+
+    private final CountDownLatch pricing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private PriceBook priceBook;
+    private PriceCacheService priceCache;
+    private OrderInsertRepository orderInsertRepo;
+    private OrderBatchRepository orderBatchRepo;
+    private PositionRepository positionRepo;
+    private IdempotentResponseBatchRepository responseRepo;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        priceBook = new PriceBook(new SimpleMeterRegistry(), Duration.ofSeconds(1));
+        priceCache = mock(PriceCacheService.class);
+        // SLOW is priced only once the test releases it, so its order holds a slot until then
+        when(priceCache.getPrice("SLOW")).thenAnswer(invocation -> {
+            pricing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new Priced(new PriceSnapshot("SLOW", 1_000_000L, Instant.now()));
+        });
+        orderInsertRepo = mock(OrderInsertRepository.class);
+        when(orderInsertRepo.insertPending(any())).thenReturn(true);
+        orderBatchRepo = mock(OrderBatchRepository.class);
+        when(orderBatchRepo.completeAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        positionRepo = mock(PositionRepository.class);
+        responseRepo = mock(IdempotentResponseBatchRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        pipeline = pipeline(true, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        pipeline.shutdown();
+    }
+
+    @Test
+    void accept_shouldSaveOrderPending_andExecuteItOnConsumerThread() throws Exception {
+        priceBook.update(new PriceSnapshot("AAPL", 2_000_000L, Instant.now()));
+
+        OrderOutcome outcome = pipeline.accept(createOrder(10, "AAPL"), UUID.randomUUID().toString());
+
+        assertEquals(OrderStatus.PENDING.name(), assertInstanceOf(Accepted.class, outcome).order().status());
+        // the response replayed for the key is stored in the transaction accepting the order
+        verify(responseRepo).insertAll(any());
+        awaitBuffered(0);
+        ArgumentCaptor<List<Order>> completed = captor();
+        verify(orderBatchRepo).completeAll(completed.capture());
+        Order order = completed.getValue().getFirst();
+        assertEquals(OrderStatus.PROCESSED, order.getStatus());
+        assertEquals(2_000_000L, order.getExecution().getPrice());
+        verify(positionRepo).addAll(List.of(order));
+    }
+
+    @Test
+    void accept_shouldRejectOrder_whenBufferOfShardIsFull() throws Exception {
+        pipeline.accept(createOrder(1, "SLOW"), UUID.randomUUID().toString());
+        assertTrue(pricing.await(5, TimeUnit.SECONDS));
+
+        OrderOutcome outcome = pipeline.accept(createOrder(1, "AAPL"), UUID.randomUUID().toString());
+
+        assertSame(OrderOutcome.BUFFER_FULL, outcome);
+        assertEquals(1, meterRegistry.get("order.pipeline.rejected").counter().count());
+        verify(orderInsertRepo, times(1)).insertPending(any());
+        release.countDown();
+        awaitBuffered(0);
+        assertInstanceOf(Accepted.class, pipeline.accept(createOrder(1, "AAPL"), UUID.randomUUID().toString()));
+    }
+
+    @Test
+    void accept_shouldFreeSlot_whenIdempotencyKeyIsUsed() {
+        when(orderInsertRepo.insertPending(any())).thenReturn(false, true);
+
+        assertThrows(IdempotencyHeaderException.class, () -> pipeline.accept(createOrder(1, "AAPL"), "used"));
+        verify(responseRepo, never()).insertAll(any());
+
+        // the only slot of the shard was freed, so the next order is accepted
+        assertInstanceOf(Accepted.class, pipeline.accept(createOrder(1, "AAPL"), UUID.randomUUID().toString()));
+    }
+
+    @Test
+    void accept_shouldRejectOrder_whenResponseIsAlreadyStoredForItsIdempotencyKey() {
+        doThrow(new DuplicateKeyException("duplicate key", new PSQLException(
+                new ServerErrorMessage("SERROR\0C23505\0Mduplicate key\0tidempotent_responses\0"))))
+                .doNothing()
+                .when(responseRepo).insertAll(any());
+
+        assertThrows(IdempotencyHeaderException.class, () -> pipeline.accept(createOrder(1, "AAPL"), "rejected"));
+
+        assertInstanceOf(Accepted.class, pipeline.accept(createOrder(1, "AAPL"), UUID.randomUUID().toString()));
+    }
+
+    @Test
+    void process_shouldPriceEachSymbolOnce_andFailOrdersThatCannotBePriced() {
+        when(priceCache.getPrice("AAPL")).thenReturn(new Priced(new PriceSnapshot("AAPL", 3_000_000L, Instant.now())));
+        when(priceCache.getPrice("UNKNOWN")).thenReturn(new UnknownSymbol("UNKNOWN"));
+        List<Order> batch = List.of(pending("AAPL", 1L), pending("AAPL", 2L), pending("UNKNOWN", 3L));
+
+        pipeline(false, 1).process(batch);
+
+        verify(priceCache, times(1)).getPrice("AAPL");
+        assertEquals(OrderStatus.PROCESSED, batch.get(1).getStatus());
+        assertNotNull(batch.get(1).getExecution());
+        assertEquals(OrderStatus.FAILED, batch.get(2).getStatus());
+        assertNull(batch.get(2).getExecution());
+        verify(orderBatchRepo).completeAll(batch);
+        verify(positionRepo).addAll(batch.subList(0, 2));
+    }
+
+    @Test
+    void process_shouldLeaveOrdersPending_whenBatchCannotBeCompleted() {
+        priceBook.update(new PriceSnapshot("AAPL", 2_000_000L, Instant.now()));
+        when(orderBatchRepo.completeAll(any())).thenThrow(new IllegalStateException("database unavailable"));
+
+        List<Order> batch = List.of(pending("AAPL", 1L));
+
+        assertEquals(batch, pipeline(false, 1).process(batch));
+
+        verify(positionRepo, never()).addAll(any());
+    }
+
+    @Test
+    void process_shouldLeaveOrdersPending_whenFeedIsUnavailable() {
+        when(priceCache.getPrice("AAPL")).thenReturn(new Priced(new PriceSnapshot("AAPL", 3_000_000L, Instant.now())));
+        when(priceCache.getPrice("MSFT")).thenReturn(new FeedUnavailable("MSFT"));
+        List<Order> batch = List.of(pending("AAPL", 1L), pending("MSFT", 2L));
+
+        List<Order> left = pipeline(false, 1).process(batch);
+
+        assertEquals(List.of(batch.get(1)), left);
+        assertEquals(OrderStatus.PENDING, batch.get(1).getStatus());
+        verify(orderBatchRepo).completeAll(List.of(batch.get(0)));
+    }
+
+    @Test
+    void consume_shouldRetryOrders_untilFeedIsAvailable() throws Exception {
+        when(priceCache.getPrice("AAPL"))
+                .thenReturn(new FeedUnavailable("AAPL"))
+                .thenReturn(new Priced(new PriceSnapshot("AAPL", 3_000_000L, Instant.now())));
+
+        pipeline.accept(createOrder(1, "AAPL"), UUID.randomUUID().toString());
+
+        awaitBuffered(0);
+        ArgumentCaptor<List<Order>> completed = captor();
+        verify(orderBatchRepo, times(1)).completeAll(completed.capture());
+        assertEquals(OrderStatus.PROCESSED, completed.getValue().getFirst().getStatus());
+    }
+
+    @Test
+    void consume_shouldRetryBatch_untilItIsCommitted() throws Exception {
+        priceBook.update(new PriceSnapshot("AAPL", 2_000_000L, Instant.now()));
+        when(orderBatchRepo.completeAll(any()))
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        pipeline.accept(createOrder(1, "AAPL"), UUID.randomUUID().toString());
+
+        // the slot stays reserved until the third attempt commits the batch
+        awaitBuffered(0);
+        verify(orderBatchRepo, times(3)).completeAll(any());
+        verify(positionRepo, times(1)).addAll(any());
+    }
+
+    @Test
+    void recover_shouldQueuePendingOrdersPageByPage() throws Exception {
+        priceBook.update(new PriceSnapshot("AAPL", 2_000_000L, Instant.now()));
+        pipeline.shutdown();
+        meterRegistry = new SimpleMeterRegistry();
+        pipeline = pipeline(true, 2);
+        Order first = pending("AAPL", 1L);
+        Order second = pending("AAPL", 2L);
+        Order third = pending("AAPL", 3L);
+        when(orderBatchRepo.findPending(Instant.EPOCH, 0L, 2)).thenReturn(List.of(first, second));
+        when(orderBatchRepo.findPending(second.getCreatedAt(), 2L, 2)).thenReturn(List.of(third));
+
+        pipeline.queuePending(Instant.now());
+
+        awaitBuffered(0);
+        ArgumentCaptor<List<Order>> completed = captor();
+        verify(orderBatchRepo, times(2)).findPending(any(), anyLong(), anyInt());
+        // the buffer holds one order, so recovery waits for each one to be completed before queuing the next
+        verify(orderBatchRepo, times(3)).completeAll(completed.capture());
+        List<Order> recovered = new ArrayList<>();
+        completed.getAllValues().forEach(recovered::addAll);
+        assertEquals(List.of(first, second, third), recovered);
+        verify(orderInsertRepo, never()).insertPending(any());
+    }
+
+    @Test
+    void recover_shouldNotWait_whenBuffersAreFull() throws Exception {
+        priceBook.update(new PriceSnapshot("AAPL", 2_000_000L, Instant.now()));
+        pipeline.accept(createOrder(1, "SLOW"), UUID.randomUUID().toString());
+        assertTrue(pricing.await(5, TimeUnit.SECONDS));
+        Order left = pending("AAPL", 1L);
+        when(orderBatchRepo.findPending(Instant.EPOCH, 0L, 1)).thenReturn(List.of(left));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> pipeline.recover());
+
+        release.countDown();
+        ArgumentCaptor<List<Order>> completed = captor();
+        verify(orderBatchRepo, timeout(5_000).times(2)).completeAll(completed.capture());
+        assertEquals(List.of(left), completed.getAllValues().getLast());
+    }
+
+    private OrderPipeline pipeline(boolean enabled, int batchSize) {
+        return new OrderPipeline(priceBook, priceCache, orderInsertRepo, orderBatchRepo, mock(OrderEventRepository.class),
+                new OrderEvents(new ObjectMapper().findAndRegisterModules()), positionRepo,
+                new IdempotentResponseService(mock(IdempotencyService.class), mock(IdempotentResponseRepository.class),
+                        new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry(), Duration.ofHours(1), 100),
+                responseRepo,
+                new ReplicaReadRouter(mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), false, Duration.ofSeconds(5), 1000),
+                mock(PlatformTransactionManager.class), meterRegistry, enabled, 1, 1, batchSize,
+                Duration.ofMillis(10), Duration.ofMillis(20));
+    }
+
+    private void awaitBuffered(double expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("order.pipeline.buffered").gauge().value() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, meterRegistry.get("order.pipeline.buffered").gauge().value());
+    }
+
+    private static Order pending(String symbol, long ordId) {
+        return Order.builder()
+                .ordId(ordId)
+                .orderInternalId(UUID.randomUUID())
+                .accountId("accountId")
+                .symbol(symbol)
+                .side(OrderSide.BUY)
+                .quantity(1)
+                .status(OrderStatus.PENDING)
+                .createdAt(Instant.now().minusSeconds(60).plusMillis(ordId))
+                .idempotencyKey(UUID.randomUUID().toString())
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<Order>> captor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
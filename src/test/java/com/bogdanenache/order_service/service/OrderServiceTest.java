@@ -1,110 +1,321 @@
 package com.bogdanenache.order_service.service;
 
 import com.bogdanenache.order_service.BaseTest;
+import com.bogdanenache.order_service.dao.entity.IdempotentResponse;
 import com.bogdanenache.order_service.dao.entity.Order;
 import com.bogdanenache.order_service.dao.entity.Order.OrderStatus;
+import com.bogdanenache.order_service.dao.repository.IdempotentResponseBatchRepository;
+import com.bogdanenache.order_service.dao.repository.IdempotentResponseRepository;
+import com.bogdanenache.order_service.dao.repository.OrderEventRepository;
+import com.bogdanenache.order_service.dao.repository.OrderKeyRepository;
 import com.bogdanenache.order_service.dao.repository.OrderRepository;
+import com.bogdanenache.order_service.dao.repository.OrderView;
+import com.bogdanenache.order_service.dao.repository.PositionRepository;
+import com.bogdanenache.order_service.dto.OrderCursor;
 import com.bogdanenache.order_service.dto.OrderDTO;
-import com.bogdanenache.order_service.exception.UnexpectedException;
+import com.bogdanenache.order_service.dto.OrderOutcome;
+import com.bogdanenache.order_service.dto.OrderOutcome.Accepted;
+import com.bogdanenache.order_service.dto.OrderOutcome.Placed;
+import com.bogdanenache.order_service.dto.OrderPage;
+import com.bogdanenache.order_service.dto.OrderOutcome.Rejected;
+import com.bogdanenache.order_service.dto.PriceResult.FeedUnavailable;
+import com.bogdanenache.order_service.dto.PriceResult.Priced;
+import com.bogdanenache.order_service.dto.PriceResult.UnknownSymbol;
+import com.bogdanenache.order_service.dto.PriceSnapshot;
+import com.bogdanenache.order_service.exception.ErrorCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.Mockito;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class OrderServiceTest extends BaseTest {
 
-    private PriceFeedService priceFeed;
+    private static final UUID INTERNAL_ID = UUID.fromString("01a14f18-fc80-7000-8000-000000000001");
+    private static final UUID EXECUTION_ID = UUID.fromString("01a14f18-fc80-7000-8000-000000000002");
+
+    private PriceBook priceBook;
+    private PriceCacheService priceCache;
     private OrderRepository orderRepo;
+    private OrderNearCache orderCache;
+    private OrderPipeline orderPipeline;
+    private IdempotentResponseBatchRepository responseRepo;
     private OrderService orderService;
 
     @BeforeEach
     void setUp() {
-        priceFeed = mock(PriceFeedService.class);
+        priceBook = new PriceBook(new SimpleMeterRegistry(), Duration.ofSeconds(1));
+        priceCache = mock(PriceCacheService.class);
         orderRepo = mock(OrderRepository.class);
-        orderService = new OrderService(priceFeed, orderRepo);
+        responseRepo = mock(IdempotentResponseBatchRepository.class);
+        OrderGroupCommitter orderCommitter = new OrderGroupCommitter(orderRepo, mock(OrderKeyRepository.class), null, null,
+                mock(OrderEventRepository.class), new OrderEvents(new ObjectMapper().findAndRegisterModules()), mock(PositionRepository.class),
+                responseRepo, mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), false, false, Duration.ofMillis(2), 100, 1);
+        orderCache = new OrderNearCache(new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry(), true, DataSize.ofMegabytes(1));
+        ReplicaReadRouter readRouter = new ReplicaReadRouter(mock(PlatformTransactionManager.class), new SimpleMeterRegistry(),
+                false, Duration.ofSeconds(5), 1000);
+        // a mocked pipeline is disabled, so orders are placed synchronously unless a test enables it
+        orderPipeline = mock(OrderPipeline.class);
+        IdempotentResponseService idempotentResponses = new IdempotentResponseService(mock(IdempotencyService.class),
+                mock(IdempotentResponseRepository.class), new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry(),
+                Duration.ofHours(1), 100);
+        orderService = new OrderService(priceBook, priceCache, orderRepo, orderCommitter, orderCache, readRouter, orderPipeline,
+                idempotentResponses);
     }
 
     @Test
     void placeOrder_shouldProcessOrder_whenPriceAvailable() {
         String idempotencyKey = UUID.randomUUID().toString();
         OrderDTO orderDTO = createOrder(10, "AAPL");
-        when(priceFeed.getPrice("symbol")).thenReturn(Optional.of(BigDecimal.ONE));
+        when(priceCache.getPrice("AAPL")).thenReturn(new Priced(new PriceSnapshot("AAPL", 1_000_000L, Instant.now())));
         Order order = new Order();
         order.setStatus(OrderStatus.PROCESSED);
         when(orderRepo.save(any())).thenReturn(order);
 
-        OrderDTO result = orderService.placeOrder(orderDTO, idempotencyKey);
+        OrderDTO result = placed(orderService.placeOrder(orderDTO, idempotencyKey));
 
         assertNotNull(result);
         assertEquals(OrderStatus.PROCESSED.name(), result.status());
     }
 
     @Test
-    void placeOrder_shouldFailOrder_whenPriceNotAvailable() {
+    void placeOrder_shouldRecordPriceSnapshot_whenOrderIsExecuted() {
+        Instant fetchedAt = Instant.now().minusMillis(200);
+        when(priceCache.getPrice("AAPL")).thenReturn(new Priced(new PriceSnapshot("AAPL", 10_000_000L, fetchedAt)));
+        when(orderRepo.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        orderService.placeOrder(createOrder(10, "AAPL"), UUID.randomUUID().toString());
+
+        ArgumentCaptor<Order> saved = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepo).save(saved.capture());
+        assertEquals(10_000_000L, saved.getValue().getExecution().getPrice());
+        assertEquals(fetchedAt, saved.getValue().getExecution().getPriceTimestamp());
+        assertTrue(saved.getValue().getExecution().getPriceAgeMs() >= 200);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void placeOrder_shouldSaveResponseWithOrder() throws Exception {
+        priceBook.update(new PriceSnapshot("AAPL", 2_000_000L, Instant.now()));
+        when(orderRepo.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
         String idempotencyKey = UUID.randomUUID().toString();
-        OrderDTO orderDTO = createOrder(10, "AAPL");
-        when(priceFeed.getPrice("symbol")).thenReturn(Optional.empty());
-        Order order = new Order();
-        order.setStatus(OrderStatus.FAILED);
-        when(orderRepo.save(any())).thenReturn(order);
 
-        OrderDTO result = orderService.placeOrder(orderDTO, idempotencyKey);
+        OrderDTO result = placed(orderService.placeOrder(createOrder(10, "AAPL"), idempotencyKey));
 
-        assertNotNull(result);
-        assertEquals(OrderStatus.FAILED.name(), result.status());
+        ArgumentCaptor<List<IdempotentResponse>> responses = ArgumentCaptor.forClass(List.class);
+        verify(responseRepo).insertAll(responses.capture());
+        IdempotentResponse response = responses.getValue().getFirst();
+        assertEquals(idempotencyKey, response.getIdempotencyKey());
+        assertEquals(201, response.getStatus());
+        assertEquals(result, new ObjectMapper().findAndRegisterModules().readValue(response.getBody(), OrderDTO.class));
+    }
+
+    @Test
+    void placeOrder_shouldUseStreamedPrice_whenPriceBookIsFresh() {
+        priceBook.update(new PriceSnapshot("AAPL", 2_000_000L, Instant.now()));
+        when(orderRepo.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        OrderDTO result = placed(orderService.placeOrder(createOrder(10, "AAPL"), UUID.randomUUID().toString()));
+
+        assertEquals(new BigDecimal("2.000000"), result.execution().price());
+        verify(priceCache, never()).getPrice(any());
+    }
+
+    @Test
+    void placeOrder_shouldFallBackToPriceCache_whenStreamedPriceIsStale() {
+        priceBook.update(new PriceSnapshot("AAPL", 2_000_000L, Instant.now().minusSeconds(5)));
+        when(priceCache.getPrice("AAPL")).thenReturn(new Priced(new PriceSnapshot("AAPL", 10_000_000L, Instant.now())));
+        when(orderRepo.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        OrderDTO result = placed(orderService.placeOrder(createOrder(10, "AAPL"), UUID.randomUUID().toString()));
+
+        assertEquals(new BigDecimal("10.000000"), result.execution().price());
     }
 
     @Test
-    void placeOrder_shouldThrow_whenPriceFeedThrows() {
+    void placeOrder_shouldRejectOrder_whenSymbolIsUnknown() {
         String idempotencyKey = UUID.randomUUID().toString();
+        OrderDTO orderDTO = createOrder(10, "badrequest");
+        when(priceCache.getPrice("badrequest")).thenReturn(new UnknownSymbol("badrequest"));
+
+        OrderOutcome result = orderService.placeOrder(orderDTO, idempotencyKey);
 
+        assertEquals(new Rejected(ErrorCode.UNPROCESSABLE_ENTITY), result);
+        verify(orderRepo, never()).save(any());
+    }
+
+    @Test
+    void placeOrder_shouldRejectOrder_whenPriceFeedIsUnavailable() {
+        String idempotencyKey = UUID.randomUUID().toString();
         OrderDTO orderDTO = createOrder(10, "AAPL");
-        when(priceFeed.getPrice("AAPL")).thenThrow(new UnexpectedException("fail"));
+        when(priceCache.getPrice("AAPL")).thenReturn(new FeedUnavailable("AAPL"));
+
+        OrderOutcome result = orderService.placeOrder(orderDTO, idempotencyKey);
 
-        assertThrows(UnexpectedException.class, () -> orderService.placeOrder(orderDTO, idempotencyKey));
+        assertEquals(new Rejected(ErrorCode.SERVICE_UNAVAILABLE), result);
+        verify(orderRepo, never()).save(any());
     }
 
     @Test
-    void getOrderByInternalId_shouldReturnOrder_whenFound() {
-        Order order = new Order();
-        order.setOrderInternalId("internalId");
-        when(orderRepo.getOrderByOrderInternalId("internalId")).thenReturn(order);
+    void placeOrder_shouldAcceptOrderThroughPipeline_whenAsyncOrdersEnabled() {
+        String idempotencyKey = UUID.randomUUID().toString();
+        OrderDTO orderDTO = createOrder(10, "AAPL");
+        OrderOutcome accepted = new Accepted(orderDTO);
+        when(orderPipeline.isEnabled()).thenReturn(true);
+        when(orderPipeline.accept(orderDTO, idempotencyKey)).thenReturn(accepted);
 
-        Optional<OrderDTO> result = orderService.getOrderByInternalId("internalId");
+        OrderOutcome result = orderService.placeOrder(orderDTO, idempotencyKey);
+
+        assertEquals(accepted, result);
+        verify(priceCache, never()).getPrice(any());
+        verify(orderRepo, never()).save(any());
+    }
+
+    @Test
+    void getOrderByInternalId_shouldReturnOrderWithExecution_whenFound() {
+        when(orderRepo.findViewByOrderInternalId(INTERNAL_ID)).thenReturn(Optional.of(view(1L, Instant.now(), EXECUTION_ID)));
+
+        Optional<OrderDTO> result = orderService.getOrderByInternalId(INTERNAL_ID.toString());
 
         assertTrue(result.isPresent());
+        assertEquals(INTERNAL_ID.toString(), result.get().id());
+        assertEquals("SELL", result.get().side());
+        assertEquals(EXECUTION_ID.toString(), result.get().execution().id());
+        assertEquals(INTERNAL_ID.toString(), result.get().execution().orderId());
+        assertEquals(new BigDecimal("150.250000"), result.get().execution().price());
+    }
+
+    @Test
+    void getOrderByInternalId_shouldReturnOrderWithoutExecution_whenOrderFailed() {
+        when(orderRepo.findViewByOrderInternalId(INTERNAL_ID)).thenReturn(Optional.of(view(1L, Instant.now(), null)));
+
+        Optional<OrderDTO> result = orderService.getOrderByInternalId(INTERNAL_ID.toString());
+
+        assertTrue(result.isPresent());
+        assertNull(result.get().execution());
     }
 
     @Test
     void getOrderByInternalId_shouldReturnEmpty_whenNotFound() {
-        when(orderRepo.getOrderByOrderInternalId("internalId")).thenReturn(null);
+        when(orderRepo.findViewByOrderInternalId(INTERNAL_ID)).thenReturn(Optional.empty());
 
-        Optional<OrderDTO> result = orderService.getOrderByInternalId("internalId");
+        Optional<OrderDTO> result = orderService.getOrderByInternalId(INTERNAL_ID.toString());
 
         assertTrue(result.isEmpty());
     }
 
     @Test
-    void getOrderByAccountId_shouldReturnList() {
-        Order order = new Order();
-        order.setExecution(Mockito.mock(com.bogdanenache.order_service.dao.entity.Execution.class));
-        when(orderRepo.getOrderByAccountId("accountId")).thenReturn(List.of(order));
+    void getOrderByInternalId_shouldReturnEmptyWithoutQuery_whenIdIsNotUuid() {
+        Optional<OrderDTO> result = orderService.getOrderByInternalId("invalid-id");
+
+        assertTrue(result.isEmpty());
+        verify(orderRepo, never()).findViewByOrderInternalId(any());
+    }
+
+    @Test
+    void getEncodedOrderByInternalId_shouldServePlacedOrderFromCache() {
+        priceBook.update(new PriceSnapshot("AAPL", 2_000_000L, Instant.now()));
+        when(orderRepo.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        OrderDTO placed = placed(orderService.placeOrder(createOrder(1, "AAPL"), UUID.randomUUID().toString()));
 
-        List<OrderDTO> result = orderService.getOrderByAccountId("accountId");
+        Optional<ByteBuffer> result = orderService.getEncodedOrderByInternalId(placed.id());
 
-        assertEquals(1, result.size());
+        assertTrue(result.isPresent());
+        assertTrue(StandardCharsets.UTF_8.decode(result.get()).toString().contains("\"id\":\"" + placed.id() + "\""));
+        verify(orderRepo, never()).findViewByOrderInternalId(any());
     }
 
+    @Test
+    void getEncodedOrderByInternalId_shouldReadOrderOnce_whenNotCached() {
+        when(orderRepo.findViewByOrderInternalId(INTERNAL_ID)).thenReturn(Optional.of(view(1L, Instant.now(), EXECUTION_ID)));
+
+        Optional<ByteBuffer> first = orderService.getEncodedOrderByInternalId(INTERNAL_ID.toString());
+        Optional<ByteBuffer> second = orderService.getEncodedOrderByInternalId(INTERNAL_ID.toString());
+
+        assertTrue(first.isPresent());
+        assertEquals(first.get(), second.get());
+        verify(orderRepo, times(1)).findViewByOrderInternalId(INTERNAL_ID);
+    }
+
+    @Test
+    void getEncodedOrderByInternalId_shouldNotCacheOrder_whenPending() {
+        Instant createdAt = Instant.now();
+        when(orderRepo.findViewByOrderInternalId(INTERNAL_ID)).thenReturn(Optional.of(new OrderView(1L, INTERNAL_ID,
+                "accountId", "AAPL", Order.OrderSide.BUY, 10, OrderStatus.PENDING, createdAt, null, null, null)));
+
+        Optional<ByteBuffer> result = orderService.getEncodedOrderByInternalId(INTERNAL_ID.toString());
+
+        assertTrue(result.isPresent());
+        assertTrue(StandardCharsets.UTF_8.decode(result.get()).toString().contains("\"status\":\"PENDING\""));
+        assertNull(orderCache.get(INTERNAL_ID.toString()));
+    }
+
+    @Test
+    void getEncodedOrderByInternalId_shouldReturnEmpty_whenNotFound() {
+        when(orderRepo.findViewByOrderInternalId(INTERNAL_ID)).thenReturn(Optional.empty());
+
+        assertTrue(orderService.getEncodedOrderByInternalId(INTERNAL_ID.toString()).isEmpty());
+        assertNull(orderCache.get(INTERNAL_ID.toString()));
+    }
+
+    @Test
+    void getOrderByAccountId_shouldReturnLastPage_withoutCursor() {
+        when(orderRepo.findFirstPageByAccountId("accountId", Limit.of(3)))
+                .thenReturn(List.of(view(1L, Instant.now(), EXECUTION_ID)));
+
+        OrderPage result = orderService.getOrderByAccountId("accountId", null, 2);
+
+        assertEquals(1, result.orders().size());
+        assertEquals(INTERNAL_ID.toString(), result.orders().getFirst().execution().orderId());
+        assertNull(result.next());
+    }
+
+    @Test
+    void getOrderByAccountId_shouldReturnCursorOfLastOrder_whenMoreOrdersExist() {
+        Instant createdAt = Instant.now();
+        List<OrderView> orders = List.of(view(3L, createdAt, EXECUTION_ID), view(2L, createdAt, null),
+                view(1L, createdAt.minusSeconds(1), EXECUTION_ID));
+        OrderCursor cursor = new OrderCursor(createdAt.plusSeconds(1), 4L);
+        when(orderRepo.findPageByAccountIdAfter("accountId", cursor.createdAt(), 4L, Limit.of(3))).thenReturn(orders);
+
+        OrderPage result = orderService.getOrderByAccountId("accountId", cursor, 2);
+
+        assertEquals(2, result.orders().size());
+        assertNull(result.orders().get(1).execution());
+        assertEquals(new OrderCursor(createdAt, 2L), result.next());
+    }
+
+    private static OrderView view(long ordId, Instant createdAt, UUID executionInternalId) {
+        return new OrderView(ordId, INTERNAL_ID, "accountId", "AAPL", Order.OrderSide.SELL, 10,
+                executionInternalId == null ? OrderStatus.FAILED : OrderStatus.PROCESSED, createdAt,
+                executionInternalId, executionInternalId == null ? null : 150_250_000L, createdAt);
+    }
+
+    private static OrderDTO placed(OrderOutcome outcome) {
+        return assertInstanceOf(Placed.class, outcome).order();
+    }
 }
@@ -0,0 +1,76 @@
+package com.bogdanenache.order_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PartitionMaintenanceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private PartitionMaintenance partitionMaintenance;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        partitionMaintenance = new PartitionMaintenance(jdbcTemplate, meterRegistry, 3, 24, Duration.ofHours(6));
+    }
+
+    @Test
+    void maintain_shouldCreateAheadAndArchiveBehind_forEachPartitionedTable() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT ORDER_SERVICE.CREATE_MONTHLY_PARTITIONS"), eq(Integer.class), any(Object[].class)))
+                .thenReturn(1);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT ORDER_SERVICE.ARCHIVE_PARTITIONS"), eq(Integer.class), any(Object[].class)))
+                .thenReturn(2);
+
+        partitionMaintenance.maintain(LocalDate.of(2026, 10, 18));
+
+        for (String table : PartitionMaintenance.PARTITIONED_TABLES) {
+            verify(jdbcTemplate).queryForObject(startsWith("SELECT ORDER_SERVICE.CREATE_MONTHLY_PARTITIONS"), eq(Integer.class),
+                    eq(table), eq(LocalDate.of(2026, 10, 1)), eq(LocalDate.of(2027, 1, 1)));
+            verify(jdbcTemplate).queryForObject(startsWith("SELECT ORDER_SERVICE.ARCHIVE_PARTITIONS"), eq(Integer.class),
+                    eq(table), eq(LocalDate.of(2024, 10, 1)));
+        }
+        assertEquals(2, meterRegistry.get("order.partitions").tag("action", "created").counter().count());
+        assertEquals(4, meterRegistry.get("order.partitions").tag("action", "archived").counter().count());
+    }
+
+    @Test
+    void maintain_shouldPurgeArchivedKeysInBatches_untilNoneAreLeft() {
+        when(jdbcTemplate.update(startsWith("DELETE FROM ORDER_KEYS"), any(Object[].class)))
+                .thenReturn(PartitionMaintenance.KEY_PURGE_BATCH_SIZE, PartitionMaintenance.KEY_PURGE_BATCH_SIZE, 7);
+
+        partitionMaintenance.maintain(LocalDate.of(2026, 10, 18));
+
+        verify(jdbcTemplate, times(3)).update(startsWith("DELETE FROM ORDER_KEYS"), eq(LocalDate.of(2024, 10, 1).atStartOfDay()));
+    }
+
+    @Test
+    void checkExecutions_shouldReportExecutionsWhoseOrderIsMissing() {
+        Instant since = Instant.parse("2026-10-18T00:00:00Z");
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM EXECUTIONS"), eq(Long.class), any(Object[].class)))
+                .thenReturn(2L, 0L);
+
+        assertEquals(2, partitionMaintenance.checkExecutions(since));
+        assertEquals(2, meterRegistry.get("order.executions.orphaned").gauge().value());
+
+        assertEquals(0, partitionMaintenance.checkExecutions(since));
+        assertEquals(0, meterRegistry.get("order.executions.orphaned").gauge().value());
+        verify(jdbcTemplate, times(2)).queryForObject(startsWith("SELECT COUNT(*) FROM EXECUTIONS"), eq(Long.class), eq(since.atOffset(ZoneOffset.UTC)));
+    }
+}
@@ -0,0 +1,125 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dto.PriceItem;
+import com.bogdanenache.order_service.dto.PriceResult;
+import com.bogdanenache.order_service.dto.PriceResult.FeedUnavailable;
+import com.bogdanenache.order_service.dto.PriceResult.Priced;
+import com.bogdanenache.order_service.dto.PriceResult.UnknownSymbol;
+import com.bogdanenache.order_service.dto.PriceSnapshot;
+import com.bogdanenache.order_service.exception.UnexpectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PriceBatcherTest {
+
+    private ResilientPriceFeed priceFeed;
+    private SimpleMeterRegistry meterRegistry;
+    private PriceBatcher priceBatcher;
+
+    @BeforeEach
+    void setUp() {
+        priceFeed = mock(ResilientPriceFeed.class);
+        meterRegistry = new SimpleMeterRegistry();
+        priceBatcher = new PriceBatcher(priceFeed, meterRegistry, true, Duration.ofMillis(50), 3, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        priceBatcher.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void submit_shouldSendOneRequest_forLookupsWithinWindow() throws Exception {
+        when(priceFeed.getPrices(anyCollection())).thenReturn(List.of(
+                new PriceItem("AAPL", BigDecimal.TEN),
+                new PriceItem("MSFT", BigDecimal.ONE)));
+
+        CompletableFuture<PriceResult> aapl = priceBatcher.submit("AAPL");
+        CompletableFuture<PriceResult> msft = priceBatcher.submit("MSFT");
+
+        assertEquals(10_000_000L, price(aapl.get(5, TimeUnit.SECONDS)));
+        assertEquals(1_000_000L, price(msft.get(5, TimeUnit.SECONDS)));
+        ArgumentCaptor<Collection<String>> symbols = ArgumentCaptor.forClass(Collection.class);
+        verify(priceFeed, times(1)).getPrices(symbols.capture());
+        assertEquals(Set.of("AAPL", "MSFT"), Set.copyOf(symbols.getValue()));
+        assertEquals(1, meterRegistry.get("price.feed.batch.size").summary().count());
+    }
+
+    @Test
+    void submit_shouldSendBatchImmediately_whenMaxSizeIsReached() throws Exception {
+        priceBatcher.shutdown();
+        priceBatcher = new PriceBatcher(priceFeed, meterRegistry, true, Duration.ofMinutes(1), 3, 2);
+        when(priceFeed.getPrices(anyCollection())).thenReturn(List.of(
+                new PriceItem("AAPL", BigDecimal.TEN),
+                new PriceItem("MSFT", BigDecimal.ONE),
+                new PriceItem("SAP", BigDecimal.TWO)));
+
+        priceBatcher.submit("AAPL");
+        priceBatcher.submit("MSFT");
+        CompletableFuture<PriceResult> sap = priceBatcher.submit("SAP");
+
+        assertEquals(2_000_000L, price(sap.get(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    void submit_shouldShareFuture_forSameSymbolInBatch() {
+        assertSame(priceBatcher.submit("AAPL"), priceBatcher.submit("AAPL"));
+    }
+
+    @Test
+    void submit_shouldReturnUnknownSymbol_whenSymbolIsMissingFromResponse() throws Exception {
+        when(priceFeed.getPrices(anyCollection())).thenReturn(List.of(new PriceItem("AAPL", BigDecimal.TEN)));
+
+        priceBatcher.submit("AAPL");
+        CompletableFuture<PriceResult> unknown = priceBatcher.submit("badrequest");
+
+        assertEquals(new UnknownSymbol("badrequest"), unknown.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void getPrice_shouldReturnFeedUnavailable_toEveryCaller_whenBatchFails() throws Exception {
+        when(priceFeed.getPrices(anyCollection())).thenThrow(new UnexpectedException("feed down"));
+
+        CompletableFuture<PriceResult> aapl = priceBatcher.submit("AAPL");
+
+        assertEquals(new FeedUnavailable("MSFT"), priceBatcher.getPrice("MSFT"));
+        assertEquals(new FeedUnavailable("AAPL"), aapl.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void getPrice_shouldCallFeedDirectly_whenBatchingIsDisabled() {
+        priceBatcher.shutdown();
+        priceBatcher = new PriceBatcher(priceFeed, meterRegistry, false, Duration.ofMillis(50), 3, 2);
+        PriceResult priced = new Priced(new PriceSnapshot("AAPL", 10_000_000L, Instant.now()));
+        when(priceFeed.getPrice("AAPL")).thenReturn(priced);
+
+        assertSame(priced, priceBatcher.getPrice("AAPL"));
+        verify(priceFeed, never()).getPrices(anyCollection());
+    }
+
+    private static long price(PriceResult result) {
+        return assertInstanceOf(Priced.class, result).snapshot().price();
+    }
+}
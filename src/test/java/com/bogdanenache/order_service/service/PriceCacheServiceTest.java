@@ -0,0 +1,88 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dto.PriceResult;
+import com.bogdanenache.order_service.dto.PriceResult.FeedUnavailable;
+import com.bogdanenache.order_service.dto.PriceResult.Priced;
+import com.bogdanenache.order_service.dto.PriceResult.UnknownSymbol;
+import com.bogdanenache.order_service.dto.PriceSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PriceCacheServiceTest {
+
+    private ResilientPriceFeed priceFeed;
+    private SimpleMeterRegistry meterRegistry;
+    private PriceCacheService priceCache;
+
+    @BeforeEach
+    void setUp() {
+        priceFeed = mock(ResilientPriceFeed.class);
+        meterRegistry = new SimpleMeterRegistry();
+        priceCache = new PriceCacheService(priceBatcher(), new PriceLookupCoalescer(meterRegistry), meterRegistry, Duration.ofMinutes(1), Duration.ofSeconds(30), 100);
+    }
+
+    @Test
+    void getPrice_shouldServeFromCache_whenPriceIsFresh() {
+        when(priceFeed.getPrice("AAPL")).thenReturn(priced("AAPL", 10_000_000L));
+
+        PriceResult first = priceCache.getPrice("AAPL");
+        PriceResult second = priceCache.getPrice("AAPL");
+
+        assertInstanceOf(Priced.class, first);
+        assertEquals(10_000_000L, ((Priced) second).snapshot().price());
+        assertSame(first, second);
+        verify(priceFeed, times(1)).getPrice("AAPL");
+        assertEquals(2, meterRegistry.get("price.cache.snapshot.age").summary().count());
+    }
+
+    @Test
+    void getPrice_shouldReloadPrice_whenMaxAgeIsExceeded() {
+        priceCache = new PriceCacheService(priceBatcher(), new PriceLookupCoalescer(meterRegistry), meterRegistry, Duration.ZERO, Duration.ZERO, 100);
+        when(priceFeed.getPrice("AAPL")).thenReturn(priced("AAPL", 10_000_000L));
+
+        priceCache.getPrice("AAPL");
+        priceCache.getPrice("AAPL");
+
+        verify(priceFeed, times(2)).getPrice("AAPL");
+    }
+
+    @Test
+    void getPrice_shouldNotCacheUnavailableFeed() {
+        when(priceFeed.getPrice("AAPL")).thenReturn(new FeedUnavailable("AAPL"));
+
+        assertEquals(new FeedUnavailable("AAPL"), priceCache.getPrice("AAPL"));
+        assertEquals(new FeedUnavailable("AAPL"), priceCache.getPrice("AAPL"));
+
+        verify(priceFeed, times(2)).getPrice("AAPL");
+    }
+
+    @Test
+    void getPrice_shouldCacheUnknownSymbol() {
+        when(priceFeed.getPrice("badrequest")).thenReturn(new UnknownSymbol("badrequest"));
+
+        assertEquals(new UnknownSymbol("badrequest"), priceCache.getPrice("badrequest"));
+        assertEquals(new UnknownSymbol("badrequest"), priceCache.getPrice("badrequest"));
+
+        verify(priceFeed, times(1)).getPrice("badrequest");
+        assertEquals(0, meterRegistry.get("price.cache.snapshot.age").summary().count());
+    }
+
+    private static PriceResult priced(String symbol, long price) {
+        return new Priced(new PriceSnapshot(symbol, price, Instant.now()));
+    }
+
+    private PriceBatcher priceBatcher() {
+        return new PriceBatcher(priceFeed, meterRegistry, false, Duration.ofMillis(5), 50, 1);
+    }
+}
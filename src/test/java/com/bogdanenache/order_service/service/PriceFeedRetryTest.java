@@ -1,8 +1,9 @@
 package com.bogdanenache.order_service.service;
 
+import com.bogdanenache.order_service.dto.PriceResult.Priced;
+import com.bogdanenache.order_service.dto.PriceSnapshot;
 import com.bogdanenache.order_service.exception.UnexpectedException;
-import java.math.BigDecimal;
-import java.util.Optional;
+import java.time.Instant;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.aop.support.AopUtils;
@@ -29,7 +30,7 @@ class PriceFeedRetryTest {
     void shouldRetryOnceThenSucceed() {
         when(priceFeedService.getPrice(anyString()))
                 .thenThrow(new UnexpectedException("Temporary failure"))
-                .thenReturn(Optional.of(new BigDecimal("123.45")));
+                .thenReturn(new Priced(new PriceSnapshot("AAPL", 123_450_000L, Instant.now())));
 
         // test that the PriceFeedService is being proxied for Retry
         Assertions.assertThat(AopUtils.isAopProxy(priceFeedService)).isTrue();
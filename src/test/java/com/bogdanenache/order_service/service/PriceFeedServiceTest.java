@@ -1,17 +1,22 @@
 package com.bogdanenache.order_service.service;
 
 import com.bogdanenache.order_service.dto.PriceItem;
+import com.bogdanenache.order_service.dto.PriceResult;
+import com.bogdanenache.order_service.dto.PriceResult.Priced;
+import com.bogdanenache.order_service.dto.PriceResult.UnknownSymbol;
 import com.bogdanenache.order_service.exception.UnexpectedException;
 import java.math.BigDecimal;
-import java.util.Optional;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -22,6 +27,8 @@ class PriceFeedServiceTest {
     private PriceFeedService priceFeedService;
     private final String url = "http://mock-url";
     private final String path = "?symbol={symbol}";
+    private final String batchUrl = "http://mock-batch-url";
+    private final String batchPath = "?symbols={symbols}";
 
     @BeforeEach
     void setUp() {
@@ -32,6 +39,9 @@ class PriceFeedServiceTest {
             var field = PriceFeedService.class.getDeclaredField("priceFeedUrl");
             field.setAccessible(true);
             field.set(priceFeedService, url);
+            var batchField = PriceFeedService.class.getDeclaredField("priceFeedBatchUrl");
+            batchField.setAccessible(true);
+            batchField.set(priceFeedService, batchUrl);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -45,9 +55,34 @@ class PriceFeedServiceTest {
         when(restTemplate.getForEntity(url + path, PriceItem.class, "AAPL"))
                 .thenReturn(response);
 
-        Optional<BigDecimal> result = priceFeedService.getPrice("AAPL");
-        assertTrue(result.isPresent());
-        assertEquals(BigDecimal.TEN, result.get());
+        PriceResult result = priceFeedService.getPrice("AAPL");
+        Priced priced = assertInstanceOf(Priced.class, result);
+        assertEquals("AAPL", priced.snapshot().symbol());
+        assertEquals(10_000_000L, priced.snapshot().price());
+    }
+
+    @Test
+    void getPrice_shouldReturnUnknownSymbol_whenFeedRejectsSymbol() {
+        when(restTemplate.getForEntity(url + path, PriceItem.class, "badrequest"))
+                .thenReturn(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+
+        assertEquals(new UnknownSymbol("badrequest"), priceFeedService.getPrice("badrequest"));
+    }
+
+    @Test
+    void getPrice_shouldReturnUnknownSymbol_whenClientErrorIsRaised() {
+        when(restTemplate.getForEntity(url + path, PriceItem.class, "badrequest"))
+                .thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+
+        assertEquals(new UnknownSymbol("badrequest"), priceFeedService.getPrice("badrequest"));
+    }
+
+    @Test
+    void getPrice_shouldThrowUnexpected_whenPriceIsMissing() {
+        when(restTemplate.getForEntity(url + path, PriceItem.class, "AAPL"))
+                .thenReturn(ResponseEntity.ok(new PriceItem("AAPL", null)));
+
+        assertThrows(UnexpectedException.class, () -> priceFeedService.getPrice("AAPL"));
     }
 
     @Test
@@ -76,4 +111,23 @@ class PriceFeedServiceTest {
 
         assertThrows(UnexpectedException.class, () -> priceFeedService.getPrice("AAPL"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getPrices_shouldReturnAllItems_inOneRequest() {
+        PriceItem[] items = {new PriceItem("AAPL", BigDecimal.TEN), new PriceItem("MSFT", BigDecimal.ONE)};
+
+        when(restTemplate.getForEntity(batchUrl + batchPath, PriceItem[].class, "AAPL,MSFT"))
+                .thenReturn(ResponseEntity.ok(items));
+
+        List<PriceItem> result = priceFeedService.getPrices(List.of("AAPL", "MSFT"));
+        assertEquals(List.of(items), result);
+    }
+
+    @Test
+    void getPrices_shouldThrowUnexpected_whenRestTemplateThrows() {
+        when(restTemplate.getForEntity(batchUrl + batchPath, PriceItem[].class, "AAPL,MSFT"))
+                .thenThrow(new RuntimeException("fail"));
+
+        assertThrows(UnexpectedException.class, () -> priceFeedService.getPrices(List.of("AAPL", "MSFT")));
+    }
+}
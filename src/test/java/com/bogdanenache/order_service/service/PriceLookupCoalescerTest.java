@@ -0,0 +1,128 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dto.PriceResult;
+import com.bogdanenache.order_service.dto.PriceResult.Priced;
+import com.bogdanenache.order_service.dto.PriceSnapshot;
+import com.bogdanenache.order_service.exception.UnexpectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PriceLookupCoalescerTest {
+
+    private static final int CALLERS = 8;
+    private static final PriceResult TEN = priced(10);
+
+    private SimpleMeterRegistry meterRegistry;
+    private PriceLookupCoalescer coalescer;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new PriceLookupCoalescer(meterRegistry);
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void getPrice_shouldRunOneLookup_whenCallsForSameSymbolOverlap() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger feedCalls = new AtomicInteger();
+        Supplier<PriceResult> lookup = () -> {
+            feedCalls.incrementAndGet();
+            awaitQuietly(release);
+            return TEN;
+        };
+
+        List<Future<PriceResult>> results = submitCallers(lookup);
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for (Future<PriceResult> result : results) {
+            assertSame(TEN, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, feedCalls.get());
+        assertEquals(1, meterRegistry.get("price.feed.lookups.executed").counter().count());
+        assertEquals(CALLERS - 1, meterRegistry.get("price.feed.lookups.coalesced").counter().count());
+    }
+
+    @Test
+    void getPrice_shouldFanOutFailure_toAllWaiters() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        UnexpectedException failure = new UnexpectedException("feed down");
+        Supplier<PriceResult> lookup = () -> {
+            awaitQuietly(release);
+            throw failure;
+        };
+
+        List<Future<PriceResult>> results = submitCallers(lookup);
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for (Future<PriceResult> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    void getPrice_shouldRunNewLookup_onceThePreviousOneCompleted() {
+        AtomicInteger feedCalls = new AtomicInteger();
+
+        coalescer.getPrice("AAPL", () -> priced(feedCalls.incrementAndGet()));
+        PriceResult second = coalescer.getPrice("AAPL", () -> priced(feedCalls.incrementAndGet()));
+
+        assertEquals(2, ((Priced) second).snapshot().price());
+        assertThrows(UnexpectedException.class,
+                () -> coalescer.getPrice("AAPL", () -> { throw new UnexpectedException("fail"); }));
+    }
+
+    private List<Future<PriceResult>> submitCallers(Supplier<PriceResult> lookup) {
+        List<Future<PriceResult>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> coalescer.getPrice("AAPL", lookup)));
+        }
+        return results;
+    }
+
+    private void awaitCoalesced(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("price.feed.lookups.coalesced").counter().count() < expected
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static PriceResult priced(long price) {
+        return new Priced(new PriceSnapshot("AAPL", price, Instant.now()));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
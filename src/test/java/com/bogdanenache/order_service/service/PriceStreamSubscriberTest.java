@@ -0,0 +1,103 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dto.PriceSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceStreamSubscriberTest {
+
+    private static final String EVENTS = """
+            : price stream stub
+
+            data: {"symbol":"AAPL","price":203.752321}
+
+            event: price
+            data: {"symbol":"MSFT","price":2203.554388}
+
+            data: not-json
+
+            data: {"symbol":"AAPL","price":1e30}
+
+            data: {"symbol":"AAPL","price":204.000001}
+
+            """;
+
+    private HttpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private PriceBook priceBook;
+    private PriceStreamSubscriber subscriber;
+    private final CountDownLatch streamed = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/prices/stream", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(EVENTS.getBytes(StandardCharsets.UTF_8));
+                body.flush();
+                streamed.countDown();
+                // keep the stream open like a live feed would
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        priceBook = new PriceBook(meterRegistry, Duration.ofMinutes(1));
+        subscriber = new PriceStreamSubscriber(priceBook, new ObjectMapper(), meterRegistry,
+                "http://localhost:" + server.getAddress().getPort() + "/prices/stream", Duration.ofMillis(100));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        subscriber.stop();
+        server.stop(0);
+    }
+
+    @Test
+    void shouldKeepLatestStreamedPricePerSymbol() throws InterruptedException {
+        subscriber.start();
+
+        assertTrue(streamed.await(5, TimeUnit.SECONDS));
+        Optional<PriceSnapshot> aapl = awaitPrice("AAPL", 204_000_001L);
+        Optional<PriceSnapshot> msft = awaitPrice("MSFT", 2_203_554_388L);
+
+        assertEquals(204_000_001L, aapl.orElseThrow().price());
+        assertEquals(2_203_554_388L, msft.orElseThrow().price());
+        assertTrue(priceBook.getPrice("SAP").isEmpty());
+        // the malformed tick and the one out of the fixed-point range are skipped, the ticks after them still recorded
+        assertEquals(2, meterRegistry.get("price.stream.skipped").counter().count());
+        assertEquals(3, meterRegistry.get("price.stream.ticks").counter().count());
+    }
+
+    private Optional<PriceSnapshot> awaitPrice(String symbol, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Optional<PriceSnapshot> price = priceBook.getPrice(symbol);
+        while ((price.isEmpty() || price.get().price() != expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            price = priceBook.getPrice(symbol);
+        }
+        return price;
+    }
+}
@@ -0,0 +1,80 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.configs.ReadWriteRoutingDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReplicaReadRouterTest {
+
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private PlatformTransactionManager transactionManager;
+    private SimpleMeterRegistry meterRegistry;
+    private ReadWriteRoutingDataSource dataSource;
+    private ReplicaReadRouter readRouter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource primary = mock(DataSource.class);
+        DataSource replica = mock(DataSource.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        dataSource = new ReadWriteRoutingDataSource(primary, replica);
+        dataSource.afterPropertiesSet();
+        transactionManager = mock(PlatformTransactionManager.class);
+        meterRegistry = new SimpleMeterRegistry();
+        readRouter = new ReplicaReadRouter(transactionManager, meterRegistry, true, Duration.ofMinutes(1), 100);
+    }
+
+    @Test
+    void readAccount_shouldReadFromReplica_inReadOnlyTransaction() {
+        assertSame(replicaConnection, readRouter.readAccount("accountId", this::connection));
+
+        ArgumentCaptor<TransactionDefinition> transaction = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(transaction.capture());
+        assertTrue(transaction.getValue().isReadOnly());
+        assertEquals(1, meterRegistry.counter("order.reads", "target", "replica").count());
+    }
+
+    @Test
+    void readOrder_shouldReadFromPrimary_whenOrderWasJustWritten() {
+        readRouter.recordWrite("internalId", "accountId");
+
+        assertSame(primaryConnection, readRouter.readOrder("internalId", this::connection));
+        assertSame(primaryConnection, readRouter.readAccount("accountId", this::connection));
+        assertSame(replicaConnection, readRouter.readAccount("otherAccountId", this::connection));
+        assertEquals(2, meterRegistry.counter("order.reads", "target", "primary").count());
+    }
+
+    @Test
+    void read_shouldRunOnDefaultDataSource_whenReplicaIsDisabled() {
+        readRouter = new ReplicaReadRouter(transactionManager, meterRegistry, false, Duration.ofMinutes(1), 100);
+
+        assertSame(primaryConnection, readRouter.readOrder("internalId", this::connection));
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    private Connection connection() {
+        try {
+            return dataSource.getConnection();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
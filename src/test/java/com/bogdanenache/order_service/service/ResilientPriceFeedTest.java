@@ -0,0 +1,203 @@
+package com.bogdanenache.order_service.service;
+
+import com.bogdanenache.order_service.dto.PriceResult;
+import com.bogdanenache.order_service.dto.PriceResult.FeedUnavailable;
+import com.bogdanenache.order_service.dto.PriceResult.Priced;
+import com.bogdanenache.order_service.dto.PriceResult.UnknownSymbol;
+import com.bogdanenache.order_service.dto.PriceSnapshot;
+import com.bogdanenache.order_service.exception.UnexpectedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ResilientPriceFeedTest {
+
+    private PriceFeedService priceFeed;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private SimpleMeterRegistry meterRegistry;
+    private ResilientPriceFeed resilientPriceFeed;
+
+    @BeforeEach
+    void setUp() {
+        priceFeed = mock(PriceFeedService.class);
+        circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .build());
+        meterRegistry = new SimpleMeterRegistry();
+        resilientPriceFeed = feed(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        resilientPriceFeed.shutdown();
+    }
+
+    @Test
+    void getPrice_shouldFailFast_onceCircuitIsOpen() {
+        when(priceFeed.getPrice("AAPL")).thenThrow(new UnexpectedException("feed down"));
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(new FeedUnavailable("AAPL"), resilientPriceFeed.getPrice("AAPL"));
+        }
+        PriceResult rejected = resilientPriceFeed.getPrice("AAPL");
+
+        assertEquals(new FeedUnavailable("AAPL"), rejected);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreakerRegistry.circuitBreaker("priceFeed").getState());
+        verify(priceFeed, times(4)).getPrice("AAPL");
+        // AAPL was never priced, so its outcomes are not tagged with it
+        assertEquals(4, calls("unknown", "failure"));
+        assertEquals(1, calls("unknown", "rejected"));
+    }
+
+    @Test
+    void getPrice_shouldCountRecoveredFailures_againstTheCircuit() {
+        when(priceFeed.getPrice("AAPL")).thenReturn(new FeedUnavailable("AAPL"));
+
+        for (int i = 0; i < 4; i++) {
+            resilientPriceFeed.getPrice("AAPL");
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreakerRegistry.circuitBreaker("priceFeed").getState());
+    }
+
+    @Test
+    void getPrice_shouldKeepCircuitClosed_forUnknownSymbols() {
+        when(priceFeed.getPrice("XYZ")).thenReturn(new UnknownSymbol("XYZ"));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(new UnknownSymbol("XYZ"), resilientPriceFeed.getPrice("XYZ"));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreakerRegistry.circuitBreaker("priceFeed").getState());
+        verify(priceFeed, times(5)).getPrice("XYZ");
+        assertEquals(5, calls("unknown", "unknown_symbol"));
+    }
+
+    @Test
+    void getPrice_shouldReturnHedgedAnswer_whenPrimaryIsSlow() {
+        resilientPriceFeed.shutdown();
+        resilientPriceFeed = feed(true);
+        PriceResult hedged = priced(10_000_000L);
+        when(priceFeed.getPrice("AAPL"))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(2000);
+                    return priced(1_000_000L);
+                })
+                .thenReturn(hedged);
+
+        long start = System.nanoTime();
+        PriceResult price = resilientPriceFeed.getPrice("AAPL");
+
+        assertSame(hedged, price);
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(1)) < 0);
+        // the lookup is hedged before AAPL was ever priced
+        assertEquals(1, calls("unknown", "hedged"));
+        assertEquals(1, calls("AAPL", "hedge_won"));
+    }
+
+    @Test
+    void getPrice_shouldNotHedge_whenPrimaryAnswersInTime() {
+        resilientPriceFeed.shutdown();
+        resilientPriceFeed = feed(true);
+        PriceResult priced = priced(10_000_000L);
+        when(priceFeed.getPrice("AAPL")).thenReturn(priced);
+
+        assertSame(priced, resilientPriceFeed.getPrice("AAPL"));
+
+        verify(priceFeed, times(1)).getPrice("AAPL");
+        assertEquals(1, calls("AAPL", "success"));
+    }
+
+    @Test
+    void getPrice_shouldReturnFeedUnavailable_whenPrimaryAndHedgeFail() {
+        resilientPriceFeed.shutdown();
+        resilientPriceFeed = feed(true);
+        when(priceFeed.getPrice("AAPL"))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(200);
+                    throw new UnexpectedException("primary down");
+                })
+                .thenReturn(new FeedUnavailable("AAPL"));
+
+        assertEquals(new FeedUnavailable("AAPL"), resilientPriceFeed.getPrice("AAPL"));
+        assertEquals(1, calls("unknown", "failure"));
+    }
+
+    @Test
+    void getPrice_shouldHedgeOnVirtualThreads_whenVirtualThreadsAreEnabled() {
+        resilientPriceFeed.shutdown();
+        resilientPriceFeed = feed(true, true);
+        List<Thread> lookupThreads = new CopyOnWriteArrayList<>();
+        PriceResult hedged = priced(10_000_000L);
+        when(priceFeed.getPrice("AAPL"))
+                .thenAnswer(invocation -> {
+                    lookupThreads.add(Thread.currentThread());
+                    Thread.sleep(2000);
+                    return priced(1_000_000L);
+                })
+                .thenAnswer(invocation -> {
+                    lookupThreads.add(Thread.currentThread());
+                    return hedged;
+                });
+
+        assertSame(hedged, resilientPriceFeed.getPrice("AAPL"));
+
+        assertEquals(2, lookupThreads.size());
+        assertTrue(lookupThreads.stream().allMatch(Thread::isVirtual));
+        assertEquals(1, calls("AAPL", "hedge_won"));
+    }
+
+    @Test
+    void getPrice_shouldTagOutcomes_onlyWithSymbolsPricedBefore_upToTheMaximum() {
+        resilientPriceFeed.shutdown();
+        resilientPriceFeed = new ResilientPriceFeed(priceFeed, circuitBreakerRegistry, meterRegistry, false,
+                Duration.ofMillis(50), Duration.ofMillis(20), 4, false, 1);
+        when(priceFeed.getPrice("AAPL")).thenReturn(priced(10_000_000L), new FeedUnavailable("AAPL"));
+        when(priceFeed.getPrice("MSFT")).thenReturn(new Priced(new PriceSnapshot("MSFT", 1_000_000L, Instant.now())));
+
+        resilientPriceFeed.getPrice("AAPL");
+        resilientPriceFeed.getPrice("AAPL");
+        resilientPriceFeed.getPrice("MSFT");
+
+        assertEquals(1, calls("AAPL", "success"));
+        assertEquals(1, calls("AAPL", "failure"));
+        // MSFT is priced once AAPL already took the only tag
+        assertEquals(1, calls("unknown", "success"));
+    }
+
+    private static PriceResult priced(long price) {
+        return new Priced(new PriceSnapshot("AAPL", price, Instant.now()));
+    }
+
+    private ResilientPriceFeed feed(boolean hedgingEnabled) {
+        return feed(hedgingEnabled, false);
+    }
+
+    private ResilientPriceFeed feed(boolean hedgingEnabled, boolean virtualThreads) {
+        return new ResilientPriceFeed(priceFeed, circuitBreakerRegistry, meterRegistry, hedgingEnabled,
+                Duration.ofMillis(50), Duration.ofMillis(20), 4, virtualThreads, 1000);
+    }
+
+    private double calls(String symbol, String outcome) {
+        return meterRegistry.counter("price.feed.calls", "symbol", symbol, "outcome", outcome).count();
+    }
+}
@@ -0,0 +1,45 @@
+-- tables the replica serves reads from, matching the schema Hibernate creates on the primary in tests
+CREATE TABLE orders
+(
+    ord_id              BIGINT       NOT NULL PRIMARY KEY,
+    ord_internal_id     UUID         NOT NULL,
+    ord_account_id      VARCHAR(36)  NOT NULL,
+    ord_symbol          VARCHAR(20)  NOT NULL,
+    ord_side            VARCHAR(20)  NOT NULL,
+    ord_quantity        INTEGER      NOT NULL,
+    ord_status          VARCHAR(20)  NOT NULL,
+    ord_created         TIMESTAMP(6) WITH TIME ZONE,
+    ord_version         INTEGER      NOT NULL,
+    ord_idempotency_key VARCHAR(255)
+);
+
+CREATE TABLE order_keys
+(
+    ork_order_internal_id UUID         NOT NULL PRIMARY KEY,
+    ork_idempotency_key   VARCHAR(36)  NOT NULL UNIQUE,
+    ork_created           TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE TABLE executions
+(
+    exc_id              BIGINT         NOT NULL PRIMARY KEY,
+    exc_internal_id     UUID           NOT NULL,
+    ord_order_id        BIGINT         NOT NULL UNIQUE REFERENCES orders (ord_id),
+    exc_price           NUMERIC(18, 6) NOT NULL,
+    exc_created         TIMESTAMP(6) WITH TIME ZONE,
+    exc_version         INTEGER        NOT NULL,
+    exc_price_timestamp TIMESTAMP(6) WITH TIME ZONE,
+    exc_price_age_ms    BIGINT
+);
+
+CREATE TABLE positions
+(
+    pos_account_id      VARCHAR(36)    NOT NULL,
+    pos_symbol          VARCHAR(20)    NOT NULL,
+    pos_bought_quantity BIGINT         NOT NULL,
+    pos_bought_notional NUMERIC(38, 6) NOT NULL,
+    pos_sold_quantity   BIGINT         NOT NULL,
+    pos_sold_notional   NUMERIC(38, 6) NOT NULL,
+    pos_updated         TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (pos_account_id, pos_symbol)
+);